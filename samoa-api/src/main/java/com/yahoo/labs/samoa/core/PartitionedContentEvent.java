@@ -0,0 +1,35 @@
+package com.yahoo.labs.samoa.core;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A PartitionedContentEvent is a {@link ContentEvent} which names the replica it must be delivered to 
+ * on a key-grouped stream: replica {@link #getPartition()} modulo the parallelism of the destination.
+ * Engines which cannot choose the replica of a keyed event (e.g. because they hash the key themselves) 
+ * fall back to the key, so the key must still identify the partition.
+ */
+public interface PartitionedContentEvent extends ContentEvent {
+
+	/**
+	 * @return the (non-negative) index of the replica which must receive this event
+	 */
+	public int getPartition();
+}
@@ -0,0 +1,45 @@
+package com.yahoo.labs.samoa.core;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A SignallingEntranceProcessor is an {@link EntranceProcessor} which can tell when its next event becomes ready,
+ * e.g. a rate-limited source or a source fed by another thread. Engines which poll {@link #hasNext()} can block in
+ * {@link #awaitNext(long, TimeUnit)} instead of sleeping for a fixed amount of time, so that an idle source does not
+ * cost anything and a ready source is drained immediately.
+ */
+public interface SignallingEntranceProcessor extends EntranceProcessor {
+
+    /**
+     * Waits until {@link #hasNext()} or {@link #isFinished()} returns true, or until the timeout expires.
+     * 
+     * @param timeout
+     *            the maximum time to wait
+     * @param unit
+     *            the unit of the timeout
+     * @return true if an event is ready or the source is finished, false if the timeout expired
+     * @throws InterruptedException
+     *             if the waiting thread is interrupted
+     */
+    public boolean awaitNext(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -0,0 +1,31 @@
+package com.yahoo.labs.samoa.core;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A StatelessProcessor is a {@link Processor} which keeps no state between events: its {@link #process} method
+ * can be called concurrently on the same instance and the order in which events are processed does not matter.
+ * Engines may use this to schedule the events of such processors on any available thread (e.g. on a work-stealing
+ * pool) instead of serializing them per replica.
+ */
+public interface StatelessProcessor extends Processor {
+
+}
@@ -71,13 +71,16 @@ public class ClusteringEvaluatorProcessor implements Processor {
 
     protected Clustering gtClustering;
 
-    protected ArrayList<DataPoint> points;
+    // last decayHorizon points, and the list of these points given to the measures
+    protected DataPointWindow points;
+    private final ArrayList<DataPoint> evaluationPoints;
 
     private ClusteringEvaluatorProcessor(Builder builder) {
         this.samplingFrequency = builder.samplingFrequency;
         this.dumpFile = builder.dumpFile;
-        this.points = new ArrayList<>();
         this.decayHorizon = builder.decayHorizon;
+        this.points = new DataPointWindow(this.decayHorizon);
+        this.evaluationPoints = new ArrayList<>();
     }
 
     @Override
@@ -94,10 +97,11 @@ public class ClusteringEvaluatorProcessor implements Processor {
 
     private boolean process(ClusteringResultContentEvent result) {
         // evaluate
-        Clustering clustering = KMeans.gaussianMeans(gtClustering, result.getClustering());
+        Clustering clustering = clusteringToEvaluate(result);
+        points.copyTo(evaluationPoints);
         for (MeasureCollection measure : measures) {
             try {
-                measure.evaluateClusteringPerformance(clustering, gtClustering, points);
+                measure.evaluateClusteringPerformance(clustering, gtClustering, evaluationPoints);
             } catch (Exception ex) {
                 ex.printStackTrace();
             }
@@ -119,6 +123,18 @@ public class ClusteringEvaluatorProcessor implements Processor {
         return false;
     }
 
+    /*
+     * The macro-clustering of the learner when it published one, otherwise the
+     * k-means of the micro-clusters seeded by the ground truth
+     */
+    Clustering clusteringToEvaluate(ClusteringResultContentEvent result) {
+        Clustering macroClustering = result.getMacroClustering();
+        if (macroClustering != null && macroClustering.size() > 0) {
+            return macroClustering;
+        }
+        return KMeans.gaussianMeans(gtClustering, result.getClustering());
+    }
+
     private boolean process(ClusteringEvaluationContentEvent result) {
         boolean ret = false;
         if (result.getGTClustering() != null) {
@@ -127,9 +143,6 @@ public class ClusteringEvaluatorProcessor implements Processor {
         }
         if (result.getDataPoint() != null) {
             points.add(result.getDataPoint());
-            if (points.size() > this.decayHorizon) {
-                points.remove(0);
-            }
             ret = true;
         }
         return ret;
@@ -33,6 +33,7 @@ final public class ClusteringResultContentEvent implements ContentEvent {
 
     private static final long serialVersionUID = -7746983521296618922L;
     private Clustering clustering;
+    private Clustering macroClustering;
     private final boolean isLast;
     private String key = "0";
 
@@ -70,4 +71,17 @@ final public class ClusteringResultContentEvent implements ContentEvent {
     public Clustering getClustering() {
         return this.clustering;
     }
+
+    /**
+     * Gets the macro-clustering computed from the (micro-)clustering, if any.
+     *
+     * @return the macro-clustering, or null
+     */
+    public Clustering getMacroClustering() {
+        return this.macroClustering;
+    }
+
+    public void setMacroClustering(Clustering macroClustering) {
+        this.macroClustering = macroClustering;
+    }
 }
@@ -0,0 +1,93 @@
+package com.yahoo.labs.samoa.evaluation;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.moa.core.DataPoint;
+
+/**
+ * Sliding window of the last evaluation points, in a ring buffer: adding a point
+ * when the window is full overwrites the oldest one, instead of shifting all the
+ * points. The array grows up to the capacity as points arrive.
+ */
+final class DataPointWindow implements Serializable {
+
+    private static final long serialVersionUID = -6019873574216512341L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int capacity;
+    private DataPoint[] points;
+    private int start; // index of the oldest point
+    private int size;
+
+    DataPointWindow(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.points = new DataPoint[Math.min(INITIAL_CAPACITY, this.capacity)];
+    }
+
+    /**
+     * Add a point, removing the oldest one if the window is full.
+     */
+    void add(DataPoint point) {
+        if (size < capacity) {
+            if (size == points.length) {
+                // no point was overwritten yet, so the points start at 0
+                points = Arrays.copyOf(points, (int) Math.min(capacity, 2L * points.length));
+            }
+            points[size++] = point;
+        } else if (capacity > 0) {
+            points[start] = point;
+            if (++start == capacity) {
+                start = 0;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the i-th point, from the oldest one
+     */
+    DataPoint get(int i) {
+        int index = start + i;
+        return points[index < points.length ? index : index - points.length];
+    }
+
+    /**
+     * Copy the points into a list, from the oldest one.
+     * @param list the list, which is cleared first
+     * @return the list
+     */
+    ArrayList<DataPoint> copyTo(ArrayList<DataPoint> list) {
+        list.clear();
+        list.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            list.add(get(i));
+        }
+        return list;
+    }
+}
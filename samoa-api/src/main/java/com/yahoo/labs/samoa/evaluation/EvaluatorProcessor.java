@@ -60,6 +60,7 @@ public class EvaluatorProcessor implements Processor {
 	
 	
 	private long totalCount = 0;
+	private int lastEventCount = 0;
 	private long experimentStart = 0;
 	
 	private long sampleStart = 0;
@@ -88,6 +89,10 @@ public class EvaluatorProcessor implements Processor {
 		}
 		
 		if(result.isLastEvent()){
+			//the learner may send a last event from each of its output replicas
+			if (++lastEventCount < result.getNumLastEvents()) {
+				return false;
+			}
 			this.concludeMeasurement();		
 			return true;
 		}
@@ -25,6 +25,7 @@ import com.yahoo.labs.samoa.moa.cluster.Cluster;
 import com.yahoo.labs.samoa.moa.cluster.Clustering;
 import com.yahoo.labs.samoa.moa.cluster.SphereCluster;
 import com.yahoo.labs.samoa.moa.evaluation.MeasureCollection;
+import com.yahoo.labs.samoa.moa.evaluation.PointLoops;
 import com.yahoo.labs.samoa.moa.core.DataPoint;
 import java.util.ArrayList;
 
@@ -164,12 +165,22 @@ public class CMM extends MeasureCollection{
 
         //calculate fuzzy mapping from
         pointInclusionProbFC = new double[numPoints][numFClusters];
+        PointLoops.forEach(numPoints, new PointLoops.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int p = from; p < to; p++) {
+                    CMMPoint cmdp = gtAnalysis.getPoint(p);
+                    for (int fc = 0; fc < numFClusters; fc++) {
+                        Cluster cl = clustering.get(fc);
+                        pointInclusionProbFC[p][fc] = cl.getInclusionProbability(cmdp);
+                    }
+                }
+            }
+        });
         for (int p = 0; p < numPoints; p++) {
             CMMPoint cmdp = gtAnalysis.getPoint(p);
             //found cluster frequencies
             for (int fc = 0; fc < numFClusters; fc++) {
-                Cluster cl = clustering.get(fc);
-                pointInclusionProbFC[p][fc] = cl.getInclusionProbability(cmdp);
                 if (pointInclusionProbFC[p][fc] >= pointInclusionProbThreshold) {
                     //make sure we don't count points twice that are contained in two merged clusters
                     if(cmdp.isNoise()) continue;
@@ -24,6 +24,7 @@ import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.moa.cluster.Clustering;
 import com.yahoo.labs.samoa.moa.core.AutoExpandVector;
 import com.yahoo.labs.samoa.moa.core.DataPoint;
+import com.yahoo.labs.samoa.moa.evaluation.PointLoops;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -299,28 +300,38 @@ public class CMM_GTAnalysis{
          * + average knn distance and average knn distance deviation of all points 
          */
         private void calculateKnn(){
+            //knn of the points in parallel, then sum in the order of the points
+            PointLoops.forEach(points.size(), new PointLoops.Body() {
+                @Override
+                public void run(int from, int to) {
+                    for (int i = from; i < to; i++) {
+                        CMMPoint cmdp = cmmpoints.get(points.get(i));
+                        if(!cmdp.isNoise()){
+                            AutoExpandVector<Double> knnDist = new AutoExpandVector<Double>();
+                            AutoExpandVector<Integer> knnPointIndex = new AutoExpandVector<Integer>();
+
+                            //calculate nearest neighbours 
+                            getKnnInCluster(cmdp, knnNeighbourhood, points, knnDist,knnPointIndex);
+
+                            //TODO: What to do if we have less then k neighbours?
+                            double avgKnn = 0;
+                            for (int j = 0; j < knnDist.size(); j++) {
+                                avgKnn+= knnDist.get(j);
+                            }
+                            if(knnDist.size()!=0)
+                                avgKnn/=knnDist.size();
+                            cmdp.knnInCluster = avgKnn;
+                            cmdp.knnIndices = knnPointIndex;
+                            cmdp.p.setMeasureValue("knnAvg", cmdp.knnInCluster);
+                        }
+                    }
+                }
+            });
             for (int p0 : points) {
                 CMMPoint cmdp = cmmpoints.get(p0);
                 if(!cmdp.isNoise()){
-                    AutoExpandVector<Double> knnDist = new AutoExpandVector<Double>();
-                    AutoExpandVector<Integer> knnPointIndex = new AutoExpandVector<Integer>();
-                    
-                    //calculate nearest neighbours 
-                    getKnnInCluster(cmdp, knnNeighbourhood, points, knnDist,knnPointIndex);
-
-                    //TODO: What to do if we have less then k neighbours?
-                    double avgKnn = 0;
-                    for (int i = 0; i < knnDist.size(); i++) {
-                        avgKnn+= knnDist.get(i);
-                    }
-                    if(knnDist.size()!=0)
-                        avgKnn/=knnDist.size();
-                    cmdp.knnInCluster = avgKnn;
-                    cmdp.knnIndices = knnPointIndex;
-                    cmdp.p.setMeasureValue("knnAvg", cmdp.knnInCluster);
-
-                    knnMeanAvg+=avgKnn;
-                    knnDevAvg+=Math.pow(avgKnn,2);
+                    knnMeanAvg+=cmdp.knnInCluster;
+                    knnDevAvg+=Math.pow(cmdp.knnInCluster,2);
                 }
             }
             knnMeanAvg=knnMeanAvg/(double)points.size();
@@ -628,13 +639,18 @@ public class CMM_GTAnalysis{
      * calculate initial connectivities
      */
     private void calculateGTPointQualities(){
-        for (int p = 0; p < numPoints; p++) {
-            CMMPoint cmdp = cmmpoints.get(p);
-            if(!cmdp.isNoise()){
-                cmdp.connectivity = getConnectionValue(cmdp, cmdp.workclass());
-                cmdp.p.setMeasureValue("Connectivity", cmdp.connectivity);
+        PointLoops.forEach(numPoints, new PointLoops.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int p = from; p < to; p++) {
+                    CMMPoint cmdp = cmmpoints.get(p);
+                    if(!cmdp.isNoise()){
+                        cmdp.connectivity = getConnectionValue(cmdp, cmdp.workclass());
+                        cmdp.p.setMeasureValue("Connectivity", cmdp.connectivity);
+                    }
+                }
             }
-        }
+        });
     }
 
     
@@ -802,8 +818,13 @@ public class CMM_GTAnalysis{
      * @return euclidian distance
      */
     private double distance(Instance inst1, Instance inst2){
-          return distance(inst1, inst2.toDoubleArray());
-
+        // same as distance(inst1, inst2.toDoubleArray()), without a copy of the values
+        double distance = 0.0;
+        for (int i = 0; i < numDims; i++) {
+            double d = inst1.value(i) - inst2.value(i);
+            distance += d * d;
+        }
+        return Math.sqrt(distance);
     }
     
     /**
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import com.yahoo.labs.samoa.moa.cluster.Clustering;
 import com.yahoo.labs.samoa.moa.core.DataPoint;
 import com.yahoo.labs.samoa.moa.evaluation.MeasureCollection;
+import com.yahoo.labs.samoa.moa.evaluation.PointLoops;
 import com.yahoo.labs.samoa.instances.Instance;
 
 public class SSQ extends MeasureCollection {
@@ -71,24 +72,40 @@ public class SSQ extends MeasureCollection {
     }
 
     @Override
-     public void evaluateClustering(Clustering clustering, Clustering trueClsutering, ArrayList<DataPoint> points) {
-        double sum = 0.0;
-        for (int p = 0; p < points.size(); p++) {
-            //don't include noise
-            if(points.get(p).classValue()==-1) continue;
+     public void evaluateClustering(Clustering clustering, Clustering trueClsutering, final ArrayList<DataPoint> points) {
+        final double[][] centers = new double[clustering.size()][];
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = clustering.get(c).getCenter();
+        }
 
-            double minDistance = Double.MAX_VALUE;
-            for (int c = 0; c < clustering.size(); c++) {
-                double distance = 0.0;
-                double[] center = clustering.get(c).getCenter();
-                for (int i = 0; i < center.length; i++) {
-                    double d = points.get(p).value(i) - center[i];
-                    distance += d * d;
+        // distance of each point to the closest center, in parallel
+        final double[] minDistances = new double[points.size()];
+        PointLoops.forEach(points.size(), new PointLoops.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int p = from; p < to; p++) {
+                    DataPoint point = points.get(p);
+                    //don't include noise
+                    if(point.classValue()==-1) continue;
+
+                    double minDistance = Double.MAX_VALUE;
+                    for (double[] center : centers) {
+                        double distance = 0.0;
+                        for (int i = 0; i < center.length; i++) {
+                            double d = point.value(i) - center[i];
+                            distance += d * d;
+                        }
+                        minDistance = Math.min(distance, minDistance);
+                    }
+                    minDistances[p] = minDistance;
                 }
-                minDistance = Math.min(distance, minDistance);
             }
-            
-            sum+=minDistance;
+        });
+
+        double sum = 0.0;
+        for (int p = 0; p < points.size(); p++) {
+            if(points.get(p).classValue()==-1) continue;
+            sum+=minDistances[p];
         }
         
         addValue(0,sum);
@@ -22,11 +22,13 @@ package com.yahoo.labs.samoa.examples;
 
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.core.StatelessProcessor;
 
 /**
  * Example {@link Processor} that simply prints the received events to standard output.
+ * It keeps no state, so engines may run its events on any thread.
  */
-public class HelloWorldDestinationProcessor implements Processor {
+public class HelloWorldDestinationProcessor implements StatelessProcessor {
 
     private static final long serialVersionUID = -6042613438148776446L;
     private int processorId;
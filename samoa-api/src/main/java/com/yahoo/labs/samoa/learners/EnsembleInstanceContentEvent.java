@@ -0,0 +1,195 @@
+package com.yahoo.labs.samoa.learners;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Instance sent to a group of ensemble members hosted by the same learner replica.
+ * The instance is carried once, together with the indices of the members and
+ * the (Poisson) weight of the instance for each of them. A member with weight 0
+ * does not learn from the instance.
+ */
+final public class EnsembleInstanceContentEvent implements ContentEvent {
+
+	private static final long serialVersionUID = 5384711027046283196L;
+	private long instanceIndex;
+	private int evaluationIndex;
+	private Instance instance;
+	private boolean isTraining;
+	private boolean isTesting;
+	private int[] memberIndices;
+	private int[] memberWeights;
+	private String key;
+
+	public EnsembleInstanceContentEvent() {
+
+	}
+
+	/**
+	 * Instantiates a new ensemble instance event.
+	 *
+	 * @param index the index
+	 * @param instance the instance
+	 * @param isTraining whether the members learn from the instance
+	 * @param isTesting whether the members predict the instance
+	 * @param memberIndices the indices of the ensemble members of the group
+	 * @param memberWeights the weight of the instance for each member, or null if not training
+	 * @param key the key routing the event to the learner replica of the group
+	 */
+	public EnsembleInstanceContentEvent(long index, Instance instance, boolean isTraining,
+			boolean isTesting, int[] memberIndices, int[] memberWeights, String key) {
+		this.instance = instance;
+		this.instanceIndex = index;
+		this.isTraining = isTraining;
+		this.isTesting = isTesting;
+		this.memberIndices = memberIndices;
+		this.memberWeights = memberWeights;
+		this.key = key;
+	}
+
+	public Instance getInstance() {
+		return instance;
+	}
+
+	public long getInstanceIndex() {
+		return instanceIndex;
+	}
+
+	/**
+	 * Gets the class id.
+	 *
+	 * @return the true class of the vector.
+	 */
+	public int getClassId() {
+		return (int) instance.classValue();
+	}
+
+	public boolean isTraining() {
+		return isTraining;
+	}
+
+	public boolean isTesting() {
+		return isTesting;
+	}
+
+	/**
+	 * @return the number of ensemble members of the group
+	 */
+	public int getNumMembers() {
+		return memberIndices.length;
+	}
+
+	public int getMemberIndex(int i) {
+		return memberIndices[i];
+	}
+
+	/**
+	 * @return the weight of the instance for the i-th member of the group
+	 */
+	public int getMemberWeight(int i) {
+		return memberWeights == null ? 0 : memberWeights[i];
+	}
+
+	public int getEvaluationIndex() {
+		return evaluationIndex;
+	}
+
+	public void setEvaluationIndex(int evaluationIndex) {
+		this.evaluationIndex = evaluationIndex;
+	}
+
+	@Override
+	public String getKey() {
+		return key;
+	}
+
+	@Override
+	public void setKey(String key) {
+		this.key = key;
+	}
+
+	@Override
+	public boolean isLastEvent() {
+		return false;
+	}
+
+	/**
+	 * The Kryo serializer class for EnsembleInstanceContentEvent.
+	 */
+	public static final class EnsembleInstanceCESerializer extends Serializer<EnsembleInstanceContentEvent> {
+
+		@Override
+		public void write(Kryo kryo, Output output, EnsembleInstanceContentEvent event) {
+			output.writeLong(event.instanceIndex, true);
+			output.writeInt(event.evaluationIndex, true);
+			output.writeBoolean(event.isTraining);
+			output.writeBoolean(event.isTesting);
+			output.writeString(event.key);
+			writeInts(output, event.memberIndices);
+			writeInts(output, event.memberWeights);
+			kryo.writeClassAndObject(output, event.instance);
+		}
+
+		@Override
+		public EnsembleInstanceContentEvent read(Kryo kryo, Input input, Class<EnsembleInstanceContentEvent> type) {
+			EnsembleInstanceContentEvent event = new EnsembleInstanceContentEvent();
+			event.instanceIndex = input.readLong(true);
+			event.evaluationIndex = input.readInt(true);
+			event.isTraining = input.readBoolean();
+			event.isTesting = input.readBoolean();
+			event.key = input.readString();
+			event.memberIndices = readInts(input);
+			event.memberWeights = readInts(input);
+			event.instance = (Instance) kryo.readClassAndObject(input);
+			return event;
+		}
+
+		// length + 1 (0 for null) and varint values
+		private static void writeInts(Output output, int[] values) {
+			if (values == null) {
+				output.writeInt(0, true);
+				return;
+			}
+			output.writeInt(values.length + 1, true);
+			for (int value : values) {
+				output.writeInt(value, true);
+			}
+		}
+
+		private static int[] readInts(Input input) {
+			int length = input.readInt(true) - 1;
+			if (length < 0) {
+				return null;
+			}
+			int[] values = new int[length];
+			for (int i = 0; i < length; i++) {
+				values[i] = input.readInt(true);
+			}
+			return values;
+		}
+	}
+}
@@ -25,8 +25,11 @@ package com.yahoo.labs.samoa.learners;
  * License
  */
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.yahoo.labs.samoa.core.ContentEvent;
-import com.yahoo.labs.samoa.core.SerializableInstance;
 import net.jcip.annotations.Immutable;
 import com.yahoo.labs.samoa.instances.Instance;
 //import weka.core.Instance;
@@ -34,6 +37,11 @@ import com.yahoo.labs.samoa.instances.Instance;
 
 /**
  * The Class InstanceEvent.
+ * </p>
+ * The event holds the instance it is created with, dense or sparse, without
+ * copying it: in the local engines the processors downstream receive the same
+ * object, and must copy it before modifying it. The distributed engines
+ * serialize it in its own representation.
  */
 @Immutable
 final public class InstanceContentEvent implements ContentEvent {
@@ -45,7 +53,7 @@ final public class InstanceContentEvent implements ContentEvent {
 	private long instanceIndex;
 	private int classifierIndex;
 	private int evaluationIndex;
-	private SerializableInstance instance;
+	private Instance instance;
 	private boolean isTraining;
 	private boolean isTesting;
 	private boolean isLast = false;
@@ -63,9 +71,7 @@ final public class InstanceContentEvent implements ContentEvent {
 	 */
 	public InstanceContentEvent(long index, Instance instance, 
 			boolean isTraining, boolean isTesting) {
-		if (instance != null) {
-			this.instance = new SerializableInstance(instance);
-		}
+		this.instance = instance;
 		this.instanceIndex = index;
 		this.isTraining = isTraining;
 		this.isTesting = isTesting;
@@ -202,6 +208,34 @@ final public class InstanceContentEvent implements ContentEvent {
 		this.isLast = isLast;
 	}
 
-	
-	
+	/**
+	 * The Kryo serializer class for InstanceContentEvent. The instance is written
+	 * with its class, so a sparse instance stays sparse.
+	 */
+	public static final class InstanceCESerializer extends Serializer<InstanceContentEvent> {
+
+		@Override
+		public void write(Kryo kryo, Output output, InstanceContentEvent event) {
+			output.writeLong(event.instanceIndex, true);
+			output.writeInt(event.classifierIndex, true);
+			output.writeInt(event.evaluationIndex, true);
+			output.writeBoolean(event.isTraining);
+			output.writeBoolean(event.isTesting);
+			output.writeBoolean(event.isLast);
+			kryo.writeClassAndObject(output, event.instance);
+		}
+
+		@Override
+		public InstanceContentEvent read(Kryo kryo, Input input, Class<InstanceContentEvent> type) {
+			InstanceContentEvent event = new InstanceContentEvent();
+			event.instanceIndex = input.readLong(true);
+			event.classifierIndex = input.readInt(true);
+			event.evaluationIndex = input.readInt(true);
+			event.isTraining = input.readBoolean();
+			event.isTesting = input.readBoolean();
+			event.isLast = input.readBoolean();
+			event.instance = (Instance) kryo.readClassAndObject(input);
+			return event;
+		}
+	}
 }
@@ -25,8 +25,11 @@ package com.yahoo.labs.samoa.learners;
  * License
  */
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.yahoo.labs.samoa.core.ContentEvent;
-import com.yahoo.labs.samoa.core.SerializableInstance;
 import net.jcip.annotations.Immutable;
 import com.yahoo.labs.samoa.instances.Instance;
 import java.util.LinkedList;
@@ -82,7 +85,7 @@ final public class InstancesContentEvent implements ContentEvent {
         protected List<Instance> instanceList = new LinkedList<Instance>();
         
         public void add(Instance instance){
-            instanceList.add(new SerializableInstance(instance));
+            instanceList.add(instance);
         }
         
 	/**
@@ -188,6 +191,40 @@ final public class InstancesContentEvent implements ContentEvent {
 		this.isLast = isLast;
 	}
 
-	
-	
+	/**
+	 * The Kryo serializer class for InstancesContentEvent. The header shared by
+	 * the instances is written once, see {@link com.yahoo.labs.samoa.utils.InstanceSerializer}.
+	 */
+	public static final class InstancesCESerializer extends Serializer<InstancesContentEvent> {
+
+		@Override
+		public void write(Kryo kryo, Output output, InstancesContentEvent event) {
+			output.writeLong(event.instanceIndex, true);
+			output.writeInt(event.classifierIndex, true);
+			output.writeInt(event.evaluationIndex, true);
+			output.writeBoolean(event.isTraining);
+			output.writeBoolean(event.isTesting);
+			output.writeBoolean(event.isLast);
+			output.writeInt(event.instanceList.size(), true);
+			for (Instance instance : event.instanceList) {
+				kryo.writeClassAndObject(output, instance);
+			}
+		}
+
+		@Override
+		public InstancesContentEvent read(Kryo kryo, Input input, Class<InstancesContentEvent> type) {
+			InstancesContentEvent event = new InstancesContentEvent();
+			event.instanceIndex = input.readLong(true);
+			event.classifierIndex = input.readInt(true);
+			event.evaluationIndex = input.readInt(true);
+			event.isTraining = input.readBoolean();
+			event.isTesting = input.readBoolean();
+			event.isLast = input.readBoolean();
+			int numInstances = input.readInt(true);
+			for (int i = 0; i < numInstances; i++) {
+				event.instanceList.add((Instance) kryo.readClassAndObject(input));
+			}
+			return event;
+		}
+	}
 }
@@ -20,8 +20,11 @@ package com.yahoo.labs.samoa.learners;
  * #L%
  */
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.yahoo.labs.samoa.core.ContentEvent;
-import com.yahoo.labs.samoa.core.SerializableInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 
 /**
@@ -41,12 +44,14 @@ final public class ResultContentEvent implements ContentEvent {
 	private long instanceIndex;
 	private int classifierIndex;
 	private int evaluationIndex;
-	private SerializableInstance instance;
+	private Instance instance;
 	
 	private int classId; 
 	private double[] classVotes;
+	private int voteCount = 1;
 	
 	private final boolean isLast;
+	private int numLastEvents = 1;
 	
 	public ResultContentEvent(){
 		this.isLast = false;
@@ -71,9 +76,7 @@ final public class ResultContentEvent implements ContentEvent {
 	 */
 	public ResultContentEvent(long instanceIndex, Instance instance, int classId,
 			double[] classVotes, boolean isLast) {
-		if(instance != null){
-			this.instance = new SerializableInstance(instance);
-		}
+		this.instance = instance;
 		this.instanceIndex = instanceIndex;
 		this.classId = classId;
 		this.classVotes = classVotes;
@@ -85,7 +88,7 @@ final public class ResultContentEvent implements ContentEvent {
 	 * 
 	 * @return single instance of ResultEvent
 	 */
-	public SerializableInstance getInstance() {
+	public Instance getInstance() {
 		return instance;
 	}
 
@@ -95,7 +98,7 @@ final public class ResultContentEvent implements ContentEvent {
 	 * @param instance
 	 *            the new instance
 	 */
-	public void setInstance(SerializableInstance instance) {
+	public void setInstance(Instance instance) {
 		this.instance = instance;
 	}
 
@@ -145,6 +148,45 @@ final public class ResultContentEvent implements ContentEvent {
 		this.classVotes = classVotes;
 	}
 
+	/**
+	 * Gets the vote count.
+	 * 
+	 * @return the number of ensemble members which voted with these class votes
+	 */
+	public int getVoteCount() {
+		return voteCount;
+	}
+
+	/**
+	 * Sets the vote count.
+	 * 
+	 * @param voteCount
+	 *            the number of ensemble members which voted with these class votes
+	 */
+	public void setVoteCount(int voteCount) {
+		this.voteCount = voteCount;
+	}
+
+	/**
+	 * Gets the number of last events.
+	 * 
+	 * @return the number of last events which the evaluator must receive before
+	 *         the end of the stream, one per replica which sends a last event
+	 */
+	public int getNumLastEvents() {
+		return numLastEvents;
+	}
+
+	/**
+	 * Sets the number of last events.
+	 * 
+	 * @param numLastEvents
+	 *            the number of replicas which send a last event
+	 */
+	public void setNumLastEvents(int numLastEvents) {
+		this.numLastEvents = numLastEvents;
+	}
+
 	/**
 	 * Gets the classifier index.
 	 * 
@@ -194,9 +236,13 @@ final public class ResultContentEvent implements ContentEvent {
 				+ 1000 * this.getInstanceIndex());
 	}
 
+	/**
+	 * The key is the instance index, so that the votes for an instance reach the
+	 * same replica of a prediction combiner.
+	 */
 	@Override
 	public String getKey() {
-		return Long.toString(this.getEvaluationIndex()%100);
+		return Long.toString(this.instanceIndex);
 	}
 
 	@Override
@@ -209,4 +255,51 @@ final public class ResultContentEvent implements ContentEvent {
 		return isLast;
 	}
 
+	/**
+	 * The Kryo serializer class for ResultContentEvent. The class votes are written
+	 * with full precision.
+	 */
+	public static final class ResultCESerializer extends Serializer<ResultContentEvent> {
+
+		@Override
+		public void write(Kryo kryo, Output output, ResultContentEvent event) {
+			output.writeBoolean(event.isLast);
+			output.writeLong(event.instanceIndex, true);
+			output.writeInt(event.classifierIndex, true);
+			output.writeInt(event.evaluationIndex, true);
+			output.writeInt(event.classId, true);
+			output.writeInt(event.voteCount, true);
+			output.writeInt(event.numLastEvents, true);
+			// length + 1, 0 for null
+			if (event.classVotes == null) {
+				output.writeInt(0, true);
+			} else {
+				output.writeInt(event.classVotes.length + 1, true);
+				for (double vote : event.classVotes) {
+					output.writeDouble(vote);
+				}
+			}
+			kryo.writeClassAndObject(output, event.instance);
+		}
+
+		@Override
+		public ResultContentEvent read(Kryo kryo, Input input, Class<ResultContentEvent> type) {
+			ResultContentEvent event = new ResultContentEvent(input.readBoolean());
+			event.instanceIndex = input.readLong(true);
+			event.classifierIndex = input.readInt(true);
+			event.evaluationIndex = input.readInt(true);
+			event.classId = input.readInt(true);
+			event.voteCount = input.readInt(true);
+			event.numLastEvents = input.readInt(true);
+			int numVotes = input.readInt(true) - 1;
+			if (numVotes >= 0) {
+				event.classVotes = new double[numVotes];
+				for (int i = 0; i < numVotes; i++) {
+					event.classVotes[i] = input.readDouble();
+				}
+			}
+			event.instance = (Instance) kryo.readClassAndObject(input);
+			return event;
+		}
+	}
 }
@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.Processor;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.learners.EnsembleInstanceContentEvent;
 import com.yahoo.labs.samoa.learners.InstanceContentEvent;
 import com.yahoo.labs.samoa.learners.ResultContentEvent;
 import com.yahoo.labs.samoa.moa.classifiers.core.driftdetection.ChangeDetector;
@@ -102,10 +103,9 @@ final public class LocalLearnerProcessor implements Processor {
 	/**
 	 * Update stats.
 	 *
-	 * @param event the event
+	 * @param inst the training instance
 	 */
-	private void updateStats(InstanceContentEvent event) {
-                Instance inst = event.getInstance();
+	private void updateStats(Instance inst) {
 		this.model.trainOnInstance(inst);
 		this.instancesCount++;
 		if (this.changeDetector != null) {
@@ -145,6 +145,11 @@ final public class LocalLearnerProcessor implements Processor {
     @Override
 	public boolean process(ContentEvent event) {
 
+		if (event instanceof EnsembleInstanceContentEvent) {
+			processEnsembleEvent((EnsembleInstanceContentEvent) event);
+			return false;
+		}
+
     	InstanceContentEvent inEvent = (InstanceContentEvent) event;
 		Instance instance = inEvent.getInstance();
 
@@ -169,11 +174,41 @@ final public class LocalLearnerProcessor implements Processor {
 		}
 		
 		if (inEvent.isTraining()) {
-			updateStats(inEvent);
+			updateStats(instance);
 		} 
 		return false;
 	}
 
+	/**
+	 * Process an instance sent once for all the ensemble members hosted by this
+	 * replica: the prediction counts as a vote of each member, and the model
+	 * learns the instance once per member, with the member's weight.
+	 *
+	 * @param event the event
+	 */
+	private void processEnsembleEvent(EnsembleInstanceContentEvent event) {
+		Instance instance = event.getInstance();
+		if (event.isTesting()) {
+			double[] dist = model.getVotesForInstance(instance);
+			ResultContentEvent outContentEvent = new ResultContentEvent(event.getInstanceIndex(),
+					instance, event.getClassId(), dist, event.isLastEvent());
+			outContentEvent.setClassifierIndex(this.modelId);
+			outContentEvent.setEvaluationIndex(event.getEvaluationIndex());
+			outContentEvent.setVoteCount(event.getNumMembers());
+			outputStream.put(outContentEvent);
+		}
+		if (event.isTraining()) {
+			for (int i = 0; i < event.getNumMembers(); i++) {
+				int k = event.getMemberWeight(i);
+				if (k > 0) {
+					Instance weightedInst = instance.copy();
+					weightedInst.setWeight(instance.weight() * k);
+					updateStats(weightedInst);
+				}
+			}
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see samoa.core.Processor#onCreate(int)
 	 */
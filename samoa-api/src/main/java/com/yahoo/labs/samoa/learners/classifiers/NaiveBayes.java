@@ -20,16 +20,15 @@ package com.yahoo.labs.samoa.learners.classifiers;
  * #L%
  */
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
-import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
 import com.yahoo.labs.samoa.moa.core.GaussianEstimator;
+import com.yahoo.labs.samoa.moa.core.Utils;
 
 /**
  * Implementation of a non-distributed Naive Bayes classifier.
@@ -37,6 +36,13 @@ import com.yahoo.labs.samoa.moa.core.GaussianEstimator;
  * At the moment, the implementation models all attributes as numeric
  * attributes.
  * 
+ * The model is kept in primitive arrays: the Gaussian estimator of an
+ * attribute for a class (same computations as {@link GaussianEstimator}) is
+ * stored at index attribute * classCapacity + class of the weight, mean and
+ * variance arrays, so the estimators of an attribute for all the classes are
+ * next to each other. Only the attributes stored in the instance are visited,
+ * i.e. the non-zero attributes of a sparse instance.
+ * 
  * @author Olivier Van Laere (vanlaere yahoo-inc dot com)
  */
 public class NaiveBayes implements LocalLearner {
@@ -46,10 +52,14 @@ public class NaiveBayes implements LocalLearner {
 	 */
 	private static final double ADDITIVE_SMOOTHING_FACTOR = 1e-20;
 
+	private static final double LOG_ADDITIVE_SMOOTHING_FACTOR = Math.log(ADDITIVE_SMOOTHING_FACTOR);
+
+	private static final int INITIAL_CAPACITY = 2;
+
 	/**
 	 * serialVersionUID for serialization
 	 */
-	private static final long serialVersionUID = 1325775209672996822L;
+	private static final long serialVersionUID = 1325775209672996823L;
 
 	/**
 	 * Instance of a logger for use in this class.
@@ -57,27 +67,50 @@ public class NaiveBayes implements LocalLearner {
 	private static final Logger logger = LoggerFactory.getLogger(NaiveBayes.class);
 
 	/**
-	 * The actual model.
+	 * The actual model: Gaussian estimators per attribute and class.
 	 */
-	protected Map<Integer, GaussianNumericAttributeClassObserver> attributeObservers;
+	protected int attributeCapacity;
+	protected int classCapacity;
+	protected boolean[] hasEstimator;
+	protected double[] weightSums;
+	protected double[] means;
+	protected double[] varianceSums;
+	// density of each estimator at 0, as computed after its last observation
+	protected double[] densitiesAtZero;
 
 	/**
 	 * Class statistics
 	 */
-	protected Map<Integer, Double> classInstances;
+	protected boolean[] knownClasses;
+	protected double[] classInstances;
 
 	/**
 	 * Class zero-prototypes.
 	 */
-	protected Map<Integer, Double> classPrototypes;
-	
+	protected double[] classPrototypes;
+
+	/**
+	 * Number of different classes seen.
+	 */
+	protected int numberOfClasses;
+
+	/**
+	 * Density coefficients of the estimators, computed once per call of
+	 * getVotesForInstance(s): the coefficients of an estimator are valid when its
+	 * stamp is the current one.
+	 */
+	private transient double[] densityScales;
+	private transient double[] densityDenominators;
+	private transient int[] densityStamps;
+	private transient int currentStamp;
+
 	/**
 	 * Retrieve the number of classes currently known to this local model
 	 * 
 	 * @return the number of classes currently known to this local model
 	 */
 	protected int getNumberOfClasses() {
-		return this.classInstances.size();
+		return this.numberOfClasses;
 	}
 
 	/**
@@ -122,47 +155,99 @@ public class NaiveBayes implements LocalLearner {
 	 */
 	@Override
 	public double[] getVotesForInstance(Instance inst) {
-		// Prepare the results array
+		nextStamp();
 		double[] votes = new double[getNumberOfClasses()];
-		// Over all classes
+		initVotes(votes);
+		addAttributeVotes(inst, votes);
+		addPrototypeVotes(votes);
+		return votes;
+	}
+
+	/**
+	 * Predicts the class memberships for a block of instances, with the same
+	 * results as {@link #getVotesForInstance(Instance)} for each instance. The
+	 * priors and prototypes of the classes, and the density coefficients of the
+	 * estimators, are computed once for the block.
+	 * 
+	 * @param instances
+	 *            the instances to be classified
+	 * @return the membership scores of each instance, in log space
+	 */
+	public double[][] getVotesForInstances(Instance[] instances) {
+		nextStamp();
+		int numClasses = getNumberOfClasses();
+		double[] priorVotes = new double[numClasses];
+		initVotes(priorVotes);
+		double[] prototypeVotes = new double[numClasses];
+		for (int classIndex = 0; classIndex < numClasses; classIndex++) {
+			prototypeVotes[classIndex] = this.knownClasses[classIndex] ? Math.log(this.classPrototypes[classIndex]) : 0.0;
+		}
+		double[][] votes = new double[instances.length][];
+		for (int i = 0; i < instances.length; i++) {
+			votes[i] = priorVotes.clone();
+			addAttributeVotes(instances[i], votes[i]);
+			for (int classIndex = 0; classIndex < numClasses; classIndex++) {
+				if (this.knownClasses[classIndex]) {
+					votes[i][classIndex] += prototypeVotes[classIndex];
+				}
+			}
+		}
+		return votes;
+	}
+
+	/*
+	 * Log of the prior of each class
+	 */
+	private void initVotes(double[] votes) {
 		for (int classIndex = 0; classIndex < votes.length; classIndex++) {
-			// Get the prior for this class
-			votes[classIndex] = Math.log(getPrior(classIndex));		
-			// Iterate over the instance attributes
-			for (int index = 0; index < inst.numAttributes(); index++) {
-				int attributeID = inst.index(index);
-				// Skip class attribute
-				if (attributeID == inst.classIndex())
-					continue;
-				Double value = inst.value(attributeID);
-				// Get the observer for the given attribute
-				GaussianNumericAttributeClassObserver obs = attributeObservers.get(attributeID);
-				// Init the estimator to null by default
-				GaussianEstimator estimator = null;
-				if (obs != null && obs.getEstimator(classIndex) != null) {
-					// Get the estimator
-					estimator = obs.getEstimator(classIndex);
+			votes[classIndex] = Math.log(getPrior(classIndex));
+		}
+	}
+
+	/*
+	 * Add the log of the density of each attribute value, for each class
+	 */
+	private void addAttributeVotes(Instance inst, double[] votes) {
+		int numClasses = votes.length;
+		int instClassIndex = inst.classIndex();
+		// Iterate over the instance attributes, the stored ones for a sparse instance
+		for (int position = 0; position < inst.numValues(); position++) {
+			int attributeID = inst.index(position);
+			// Skip class attribute
+			if (attributeID == instClassIndex)
+				continue;
+			double value = inst.valueSparse(position);
+			if (attributeID >= this.attributeCapacity) {
+				// We don't have an estimator
+				for (int classIndex = 0; classIndex < numClasses; classIndex++) {
+					votes[classIndex] += LOG_ADDITIVE_SMOOTHING_FACTOR;
 				}
-				double valueNonZero;
+				continue;
+			}
+			int slot = attributeID * this.classCapacity;
+			for (int classIndex = 0; classIndex < numClasses; classIndex++, slot++) {
 				// The null case should be handled by smoothing!
-				if (estimator != null) {
+				if (this.hasEstimator[slot]) {
 					// Get the score for a NON-ZERO attribute value
-					valueNonZero = estimator.probabilityDensity(value);
-				}
-				// We don't have an estimator
-				else {
+					votes[classIndex] += Math.log(cachedProbabilityDensity(slot, value)); //  - Math.log(valueZero);
+				} else {
 					// Assign a very small probability that we do see this value
-					valueNonZero = ADDITIVE_SMOOTHING_FACTOR;
+					votes[classIndex] += LOG_ADDITIVE_SMOOTHING_FACTOR;
 				}
-				votes[classIndex] += Math.log(valueNonZero); //  - Math.log(valueZero);
 			}
+		}
+	}
+
+	/*
+	 * Add the prototype of each class, already in log space
+	 */
+	private void addPrototypeVotes(double[] votes) {
+		for (int classIndex = 0; classIndex < votes.length; classIndex++) {
 			// Check for null in the case of prequential evaluation
-			if (this.classPrototypes.get(classIndex) != null) {
-				// Add the prototype for the class, already in log space
-				votes[classIndex] += Math.log(this.classPrototypes.get(classIndex));
+			if (this.knownClasses[classIndex]) {
+				votes[classIndex] += Math.log(this.classPrototypes[classIndex]);
 			}
 		}
-		return votes;
 	}
 		
 	/**
@@ -176,8 +261,8 @@ public class NaiveBayes implements LocalLearner {
 	 */
 	private double getPrior(int classIndex) {
 		// Maximum likelihood
-		Double currentCount = this.classInstances.get(classIndex);
-		if (currentCount == null || currentCount == 0)
+		double currentCount = this.classInstances[classIndex];
+		if (currentCount == 0)
 			return 0;
 		else
 			return currentCount * 1. / this.instancesSeen;
@@ -191,10 +276,19 @@ public class NaiveBayes implements LocalLearner {
 	public void resetLearning() {
 		// Reset priors
 		this.instancesSeen = 0L;
-		this.classInstances = new HashMap<>();
-		this.classPrototypes = new HashMap<>();
-		// Init the attribute observers
-		this.attributeObservers = new HashMap<>();
+		this.numberOfClasses = 0;
+		this.knownClasses = new boolean[INITIAL_CAPACITY];
+		this.classInstances = new double[INITIAL_CAPACITY];
+		this.classPrototypes = new double[INITIAL_CAPACITY];
+		// Init the estimators
+		this.attributeCapacity = 0;
+		this.classCapacity = INITIAL_CAPACITY;
+		this.hasEstimator = new boolean[0];
+		this.weightSums = new double[0];
+		this.means = new double[0];
+		this.varianceSums = new double[0];
+		this.densitiesAtZero = new double[0];
+		this.densityStamps = null;
 	}
 
 	/**
@@ -207,61 +301,177 @@ public class NaiveBayes implements LocalLearner {
 	public void trainOnInstance(Instance inst) {
 		// Update class statistics with weights
 		int classIndex = (int) inst.classValue();
-		Double weight = this.classInstances.get(classIndex);
-		if (weight == null)
-			weight = 0.;
-		this.classInstances.put(classIndex, weight + inst.weight());
+		ensureClassCapacity(classIndex);
+		if (!this.knownClasses[classIndex]) {
+			this.knownClasses[classIndex] = true;
+			this.classPrototypes[classIndex] = 1.;
+			this.numberOfClasses++;
+		}
+		this.classInstances[classIndex] += inst.weight();
 		
 		// Get the class prototype
-		Double classPrototype = this.classPrototypes.get(classIndex);
-		if (classPrototype == null)
-			classPrototype = 1.;
+		double classPrototype = this.classPrototypes[classIndex];
 		
 		// Iterate over the attributes of the given instance
-		for (int attributePosition = 0; attributePosition < inst
-				.numAttributes(); attributePosition++) {
+		int instClassIndex = inst.classIndex();
+		for (int attributePosition = 0; attributePosition < inst.numValues(); attributePosition++) {
 			// Get the attribute index - Dense -> 1:1, Sparse is remapped
 			int attributeID = inst.index(attributePosition);
 			// Skip class attribute
-			if (attributeID == inst.classIndex())
+			if (attributeID == instClassIndex)
 				continue;
-			// Get the attribute observer for the current attribute
-			GaussianNumericAttributeClassObserver obs = this.attributeObservers
-					.get(attributeID);
-			// Lazy init of observers, if null, instantiate a new one
-			if (obs == null) {
-				// FIXME: At this point, we model everything as a numeric
-				// attribute
-				obs = new GaussianNumericAttributeClassObserver();
-				this.attributeObservers.put(attributeID, obs);
-			}
+			// Lazy init of the estimators of the attribute
+			ensureAttributeCapacity(attributeID);
+			int slot = attributeID * this.classCapacity + classIndex;
 			
 			// Get the probability density function under the current model
-			GaussianEstimator obs_estimator = obs.getEstimator(classIndex);
-			if (obs_estimator != null) {
-				// Fetch the probability that the feature value is zero
-				double probDens_zero_current = obs_estimator.probabilityDensity(0);
+			if (this.hasEstimator[slot]) {
+				// Fetch the probability that the feature value is zero (unchanged since the last observation)
+				double probDens_zero_current = this.densitiesAtZero[slot];
 				classPrototype -= probDens_zero_current;
 			}
 			
 			// FIXME: Sanity check on data values, for now just learn
 			// Learn attribute value for given class
-			obs.observeAttributeClass(inst.valueSparse(attributePosition),
-					(int) inst.classValue(), inst.weight());
+			double value = inst.valueSparse(attributePosition);
+			if (!Utils.isMissingValue(value)) {
+				this.hasEstimator[slot] = true;
+				addObservation(slot, value, inst.weight());
+			}
 			
-			// Update obs_estimator to fetch the pdf from the updated model
-			obs_estimator = obs.getEstimator(classIndex);
-			// Fetch the probability that the feature value is zero
-			double probDens_zero_updated = obs_estimator.probabilityDensity(0);
-			// Update the class prototype
-			classPrototype += probDens_zero_updated;
+			if (this.hasEstimator[slot]) {
+				// Fetch the probability that the feature value is zero
+				double probDens_zero_updated = probabilityDensity(slot, 0);
+				this.densitiesAtZero[slot] = probDens_zero_updated;
+				// Update the class prototype
+				classPrototype += probDens_zero_updated;
+			}
 		}
 		// Store the class prototype
-		this.classPrototypes.put(classIndex, classPrototype);
+		this.classPrototypes[classIndex] = classPrototype;
 		// Count another training instance
 		this.instancesSeen++;
 	}
 
+	/*
+	 * Same as GaussianEstimator.addObservation
+	 */
+	private void addObservation(int slot, double value, double weight) {
+		if (Double.isInfinite(value) || Double.isNaN(value)) {
+			return;
+		}
+		if (this.weightSums[slot] > 0.0) {
+			this.weightSums[slot] += weight;
+			double lastMean = this.means[slot];
+			this.means[slot] += weight * (value - lastMean) / this.weightSums[slot];
+			this.varianceSums[slot] += weight * (value - lastMean) * (value - this.means[slot]);
+		} else {
+			this.means[slot] = value;
+			this.weightSums[slot] = weight;
+		}
+	}
+
+	/*
+	 * Same as GaussianEstimator.probabilityDensity
+	 */
+	private double probabilityDensity(int slot, double value) {
+		double weightSum = this.weightSums[slot];
+		if (weightSum > 0.0) {
+			double stdDev = Math.sqrt(weightSum > 1.0 ? this.varianceSums[slot] / (weightSum - 1.0) : 0.0);
+			if (stdDev > 0.0) {
+				double diff = value - this.means[slot];
+				return (1.0 / (GaussianEstimator.NORMAL_CONSTANT * stdDev))
+						* Math.exp(-(diff * diff / (2.0 * stdDev * stdDev)));
+			}
+			return value == this.means[slot] ? 1.0 : 0.0;
+		}
+		return 0.0;
+	}
+
+	/*
+	 * probabilityDensity, with the coefficients which only depend on the estimator
+	 * computed once per stamp
+	 */
+	private double cachedProbabilityDensity(int slot, double value) {
+		if (this.densityStamps[slot] != this.currentStamp) {
+			this.densityStamps[slot] = this.currentStamp;
+			double weightSum = this.weightSums[slot];
+			double stdDev = Math.sqrt(weightSum > 1.0 ? this.varianceSums[slot] / (weightSum - 1.0) : 0.0);
+			// a scale of 0 marks an estimator without deviation
+			this.densityScales[slot] = weightSum > 0.0 && stdDev > 0.0 ? 1.0 / (GaussianEstimator.NORMAL_CONSTANT * stdDev) : 0.0;
+			this.densityDenominators[slot] = 2.0 * stdDev * stdDev;
+		}
+		double scale = this.densityScales[slot];
+		if (scale > 0.0) {
+			double diff = value - this.means[slot];
+			return scale * Math.exp(-(diff * diff / this.densityDenominators[slot]));
+		}
+		return probabilityDensity(slot, value);
+	}
+
+	private void nextStamp() {
+		if (this.densityStamps == null || this.densityStamps.length != this.hasEstimator.length) {
+			this.densityStamps = new int[this.hasEstimator.length];
+			this.densityScales = new double[this.hasEstimator.length];
+			this.densityDenominators = new double[this.hasEstimator.length];
+			this.currentStamp = 0;
+		}
+		if (++this.currentStamp == Integer.MAX_VALUE) {
+			Arrays.fill(this.densityStamps, 0);
+			this.currentStamp = 1;
+		}
+	}
+
+	private void ensureClassCapacity(int classIndex) {
+		if (classIndex < this.knownClasses.length) {
+			return;
+		}
+		int capacity = Math.max(2 * this.knownClasses.length, classIndex + 1);
+		this.knownClasses = Arrays.copyOf(this.knownClasses, capacity);
+		this.classInstances = Arrays.copyOf(this.classInstances, capacity);
+		this.classPrototypes = Arrays.copyOf(this.classPrototypes, capacity);
+		if (capacity > this.classCapacity) {
+			// move the estimators to the new layout
+			int oldClassCapacity = this.classCapacity;
+			boolean[] oldHasEstimator = this.hasEstimator;
+			double[] oldWeightSums = this.weightSums;
+			double[] oldMeans = this.means;
+			double[] oldVarianceSums = this.varianceSums;
+			double[] oldDensitiesAtZero = this.densitiesAtZero;
+			this.classCapacity = capacity;
+			allocateEstimators();
+			for (int attribute = 0; attribute < this.attributeCapacity; attribute++) {
+				System.arraycopy(oldHasEstimator, attribute * oldClassCapacity, this.hasEstimator, attribute * capacity, oldClassCapacity);
+				System.arraycopy(oldWeightSums, attribute * oldClassCapacity, this.weightSums, attribute * capacity, oldClassCapacity);
+				System.arraycopy(oldMeans, attribute * oldClassCapacity, this.means, attribute * capacity, oldClassCapacity);
+				System.arraycopy(oldVarianceSums, attribute * oldClassCapacity, this.varianceSums, attribute * capacity, oldClassCapacity);
+				System.arraycopy(oldDensitiesAtZero, attribute * oldClassCapacity, this.densitiesAtZero, attribute * capacity, oldClassCapacity);
+			}
+		}
+	}
+
+	private void ensureAttributeCapacity(int attributeID) {
+		if (attributeID < this.attributeCapacity) {
+			return;
+		}
+		this.attributeCapacity = Math.max(2 * this.attributeCapacity, attributeID + 1);
+		int size = this.attributeCapacity * this.classCapacity;
+		this.hasEstimator = Arrays.copyOf(this.hasEstimator, size);
+		this.weightSums = Arrays.copyOf(this.weightSums, size);
+		this.means = Arrays.copyOf(this.means, size);
+		this.varianceSums = Arrays.copyOf(this.varianceSums, size);
+		this.densitiesAtZero = Arrays.copyOf(this.densitiesAtZero, size);
+	}
+
+	private void allocateEstimators() {
+		int size = this.attributeCapacity * this.classCapacity;
+		this.hasEstimator = new boolean[size];
+		this.weightSums = new double[size];
+		this.means = new double[size];
+		this.varianceSums = new double[size];
+		this.densitiesAtZero = new double[size];
+	}
+
 	@Override
 	public void setDataset(Instances dataset) {
 		// Do nothing
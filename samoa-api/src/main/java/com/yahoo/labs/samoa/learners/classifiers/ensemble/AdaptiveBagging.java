@@ -37,6 +37,7 @@ import com.yahoo.labs.samoa.core.Processor;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.learners.AdaptiveLearner;
 import com.yahoo.labs.samoa.learners.Learner;
+import com.yahoo.labs.samoa.learners.classifiers.LocalLearnerProcessor;
 import com.yahoo.labs.samoa.learners.classifiers.trees.VerticalHoeffdingTree;
 import com.yahoo.labs.samoa.moa.classifiers.core.driftdetection.ADWINChangeDetector;
 import com.yahoo.labs.samoa.moa.classifiers.core.driftdetection.ChangeDetector;
@@ -65,6 +66,10 @@ public class AdaptiveBagging implements Learner, Configurable {
 	public ClassOption driftDetectionMethodOption = new ClassOption("driftDetectionMethod", 'd',
       "Drift detection method to use.", ChangeDetector.class, ADWINChangeDetector.class.getName());
 
+	/** The combiner parallelism option. */
+	public IntOption combinerParallelismOption = new IntOption("combinerParallelism", 'c',
+			"The number of replicas of the prediction combiner.", 1, 1, Integer.MAX_VALUE);
+
 	/** The distributor processor. */
 	private BaggingDistributorProcessor distributorP;
 
@@ -98,9 +103,11 @@ public class AdaptiveBagging implements Learner, Configurable {
 		}
 		classifier.init(builder, this.dataset, sizeEnsemble);
         
+		int combinerParallelism = this.combinerParallelismOption.getValue();
 		PredictionCombinerProcessor predictionCombinerP= new PredictionCombinerProcessor();
 		predictionCombinerP.setSizeEnsemble(sizeEnsemble);
-		this.builder.addProcessor(predictionCombinerP, 1);
+		predictionCombinerP.setParallelism(combinerParallelism);
+		this.builder.addProcessor(predictionCombinerP, combinerParallelism);
 		
 		//Streams
 		resultStream = this.builder.createStream(predictionCombinerP);
@@ -109,6 +116,11 @@ public class AdaptiveBagging implements Learner, Configurable {
 		for (Stream subResultStream:classifier.getResultStreams()) {
 			this.builder.connectInputKeyStream(subResultStream, predictionCombinerP);
 		}
+
+		//the last result goes to every replica, the evaluator waits for all of their last results
+		Stream lastResultStream = this.builder.createStream(predictionCombinerP);
+		predictionCombinerP.setLastResultStream(lastResultStream);
+		this.builder.connectInputAllStream(lastResultStream, predictionCombinerP);
 		
 		/* The training stream. */
 		Stream testingStream = this.builder.createStream(distributorP);
@@ -120,6 +132,10 @@ public class AdaptiveBagging implements Learner, Configurable {
 		
 		distributorP.setOutputStream(testingStream);
 		distributorP.setPredictionStream(predictionStream);
+		if (classifier.getInputProcessor() instanceof LocalLearnerProcessor) {
+			//one event per learner replica for all the members it hosts
+			distributorP.setLearnerParallelism(sizeEnsemble);
+		}
 	}
 
 	/** The builder. */
@@ -29,6 +29,7 @@ import java.util.Set;
 
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.learners.Learner;
+import com.yahoo.labs.samoa.learners.classifiers.LocalLearnerProcessor;
 import com.yahoo.labs.samoa.topology.Stream;
 import com.yahoo.labs.samoa.topology.TopologyBuilder;
 import com.github.javacliparser.ClassOption;
@@ -54,6 +55,10 @@ public class Bagging implements Learner , Configurable {
 	public IntOption ensembleSizeOption = new IntOption("ensembleSize", 's',
 			"The number of models in the bag.", 10, 1, Integer.MAX_VALUE);
 
+	/** The combiner parallelism option. */
+	public IntOption combinerParallelismOption = new IntOption("combinerParallelism", 'c',
+			"The number of replicas of the prediction combiner.", 1, 1, Integer.MAX_VALUE);
+
 	/** The distributor processor. */
 	private BaggingDistributorProcessor distributorP;
 	
@@ -88,9 +93,11 @@ public class Bagging implements Learner , Configurable {
                 classifier = (Learner) this.baseLearnerOption.getValue();
                 classifier.init(builder, this.dataset, sizeEnsemble);
         
+		int combinerParallelism = this.combinerParallelismOption.getValue();
 		PredictionCombinerProcessor predictionCombinerP= new PredictionCombinerProcessor();
 		predictionCombinerP.setSizeEnsemble(sizeEnsemble);
-		this.builder.addProcessor(predictionCombinerP, 1);
+		predictionCombinerP.setParallelism(combinerParallelism);
+		this.builder.addProcessor(predictionCombinerP, combinerParallelism);
 		
 		//Streams
 		resultStream = this.builder.createStream(predictionCombinerP);
@@ -99,6 +106,11 @@ public class Bagging implements Learner , Configurable {
 		for (Stream subResultStream:classifier.getResultStreams()) {
 			this.builder.connectInputKeyStream(subResultStream, predictionCombinerP);
 		}
+
+		//the last result goes to every replica, the evaluator waits for all of their last results
+		Stream lastResultStream = this.builder.createStream(predictionCombinerP);
+		predictionCombinerP.setLastResultStream(lastResultStream);
+		this.builder.connectInputAllStream(lastResultStream, predictionCombinerP);
 		
 		testingStream = this.builder.createStream(distributorP);
                 this.builder.connectInputKeyStream(testingStream, classifier.getInputProcessor());
@@ -108,6 +120,10 @@ public class Bagging implements Learner , Configurable {
 		
 		distributorP.setOutputStream(testingStream);
 		distributorP.setPredictionStream(predictionStream);
+		if (classifier.getInputProcessor() instanceof LocalLearnerProcessor) {
+			//one event per learner replica for all the members it hosts
+			distributorP.setLearnerParallelism(sizeEnsemble);
+		}
 	}
 
 	/** The builder. */
@@ -25,11 +25,14 @@ package com.yahoo.labs.samoa.learners.classifiers.ensemble;
  */
 
 import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.learners.EnsembleInstanceContentEvent;
 import com.yahoo.labs.samoa.learners.InstanceContentEvent;
 import com.yahoo.labs.samoa.core.Processor;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.moa.core.MiscUtils;
 import com.yahoo.labs.samoa.topology.Stream;
+import com.yahoo.labs.samoa.utils.StreamDestination;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -50,6 +53,13 @@ public class BaggingDistributorProcessor implements Processor{
 	
 	/** The prediction stream. */
 	private Stream predictionStream;
+	
+	/** The number of replicas of the learner, if they accept EnsembleInstanceContentEvents (0 otherwise). */
+	private int learnerParallelism;
+	
+	/** The ensemble members handled by each learner replica, and the key of each group. */
+	private transient int[][] memberGroups;
+	private transient String[] groupKeys;
 
 	/**
 	 * On event.
@@ -66,15 +76,19 @@ public class BaggingDistributorProcessor implements Processor{
 			predictionStream.put(event);
 			return false;
 		}
+		
+		if (learnerParallelism > 0) {
+			distributeToGroups(inEvent);
+			return false;
+		}
 
 
                 if (inEvent.isTesting()){ 
 			Instance trainInst = inEvent.getInstance();
 			for (int i = 0; i < sizeEnsemble; i++) {
-				Instance weightedInst = trainInst.copy();
-				//weightedInst.setWeight(trainInst.weight() * k);
+				// the members only predict: they share the instance
 				InstanceContentEvent instanceContentEvent = new InstanceContentEvent(
-						inEvent.getInstanceIndex(), weightedInst, false, true);
+						inEvent.getInstanceIndex(), trainInst, false, true);
 				instanceContentEvent.setClassifierIndex(i);
 				instanceContentEvent.setEvaluationIndex(inEvent.getEvaluationIndex());	
 				predictionStream.put(instanceContentEvent);
@@ -112,6 +126,76 @@ public class BaggingDistributorProcessor implements Processor{
 		}
 	}
 
+	/**
+	 * Send the instance once to each learner replica, with the weights of all
+	 * the ensemble members handled by the replica.
+	 *
+	 * @param inEvent the in event
+	 */
+	protected void distributeToGroups(InstanceContentEvent inEvent) {
+		if (memberGroups == null) {
+			groupMembers();
+		}
+		Instance inst = inEvent.getInstance();
+		int[] weights = null;
+		if (inEvent.isTraining()) {
+			weights = new int[sizeEnsemble];
+			for (int i = 0; i < sizeEnsemble; i++) {
+				weights[i] = MiscUtils.poisson(1.0, this.random);
+			}
+		}
+		for (int g = 0; g < memberGroups.length; g++) {
+			int[] members = memberGroups[g];
+			int[] memberWeights = null;
+			boolean isTraining = false;
+			if (weights != null) {
+				memberWeights = new int[members.length];
+				for (int i = 0; i < members.length; i++) {
+					memberWeights[i] = weights[members[i]];
+					isTraining |= memberWeights[i] > 0;
+				}
+			}
+			if (!isTraining && !inEvent.isTesting()) {
+				continue;
+			}
+			EnsembleInstanceContentEvent ensembleEvent = new EnsembleInstanceContentEvent(
+					inEvent.getInstanceIndex(), inst, isTraining, inEvent.isTesting(), 
+					members, isTraining ? memberWeights : null, groupKeys[g]);
+			ensembleEvent.setEvaluationIndex(inEvent.getEvaluationIndex());
+			predictionStream.put(ensembleEvent);
+		}
+	}
+	
+	/*
+	 * Group the members by the learner replica which receives their events 
+	 * (keyed by member index) in the per-member mode.
+	 */
+	private void groupMembers() {
+		int[][] groups = new int[learnerParallelism][];
+		int[] sizes = new int[learnerParallelism];
+		for (int i = 0; i < sizeEnsemble; i++) {
+			int replica = StreamDestination.getPIIndexForKey(Integer.toString(i), learnerParallelism);
+			if (groups[replica] == null) {
+				groups[replica] = new int[sizeEnsemble];
+			}
+			groups[replica][sizes[replica]++] = i;
+		}
+		int numGroups = 0;
+		for (int r = 0; r < learnerParallelism; r++) {
+			if (sizes[r] > 0) numGroups++;
+		}
+		this.memberGroups = new int[numGroups][];
+		this.groupKeys = new String[numGroups];
+		int g = 0;
+		for (int r = 0; r < learnerParallelism; r++) {
+			if (sizes[r] > 0) {
+				memberGroups[g] = Arrays.copyOf(groups[r], sizes[r]);
+				groupKeys[g] = Integer.toString(memberGroups[g][0]);
+				g++;
+			}
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -175,6 +259,28 @@ public class BaggingDistributorProcessor implements Processor{
 	 */
 	public void setSizeEnsemble(int sizeEnsemble) {
 		this.sizeEnsemble = sizeEnsemble;
+		this.memberGroups = null;
+	}
+	
+	/**
+	 * Gets the learner parallelism.
+	 *
+	 * @return the number of learner replicas, 0 if one event is sent per member
+	 */
+	public int getLearnerParallelism() {
+		return learnerParallelism;
+	}
+	
+	/**
+	 * Sets the number of replicas of the learner, to send one EnsembleInstanceContentEvent
+	 * per replica instead of one InstanceContentEvent per member. The learner
+	 * must accept EnsembleInstanceContentEvents (see LocalLearnerProcessor).
+	 *
+	 * @param learnerParallelism the number of learner replicas, 0 to send one event per member
+	 */
+	public void setLearnerParallelism(int learnerParallelism) {
+		this.learnerParallelism = learnerParallelism;
+		this.memberGroups = null;
 	}
 	
 	
@@ -192,6 +298,7 @@ public class BaggingDistributorProcessor implements Processor{
 			newProcessor.setOutputStream(originProcessor.getTrainingStream());
 		}
 		newProcessor.setSizeEnsemble(originProcessor.getSizeEnsemble());
+		newProcessor.setLearnerParallelism(originProcessor.getLearnerParallelism());
 		/*if (originProcessor.getLearningCurve() != null){
 			newProcessor.setLearningCurve((LearningCurve) originProcessor.getLearningCurve().copy());
 		}*/
@@ -59,27 +59,29 @@ public class BoostingPredictionCombinerProcessor extends PredictionCombinerProce
 
         ResultContentEvent inEvent = (ResultContentEvent) event;
         double[] prediction = inEvent.getClassVotes();
-        int instanceIndex = (int) inEvent.getInstanceIndex();
+        long instanceIndex = inEvent.getInstanceIndex();
         
         addStatisticsForInstanceReceived(instanceIndex, inEvent.getClassifierIndex(), prediction, 1);
         //Boosting
         addPredictions(instanceIndex, inEvent, prediction);              
                
         if (inEvent.isLastEvent() || hasAllVotesArrivedInstance(instanceIndex)) {
-            DoubleVector combinedVote = this.mapVotesforInstanceReceived.get(instanceIndex);
+            double[] combinedVote = getCombinedVote(instanceIndex);
             if (combinedVote == null){
-                combinedVote = new DoubleVector();
+                combinedVote = new double[0];
             }
             ResultContentEvent outContentEvent = new ResultContentEvent(inEvent.getInstanceIndex(),
                     inEvent.getInstance(), inEvent.getClassId(),
-                    combinedVote.getArrayCopy(), inEvent.isLastEvent());
+                    combinedVote, inEvent.isLastEvent());
             outContentEvent.setEvaluationIndex(inEvent.getEvaluationIndex());
             outputStream.put(outContentEvent);
             clearStatisticsInstance(instanceIndex);
             //Boosting
             computeBoosting(inEvent, instanceIndex);
+            expireStatistics();
             return true;
         }
+        expireStatistics();
         return false;
 
     }
@@ -106,14 +108,14 @@ public class BoostingPredictionCombinerProcessor extends PredictionCombinerProce
         this.swms = new double[this.ensembleSize];
     }
 
-    private boolean correctlyClassifies(int i, Instance inst, int instanceIndex) {
+    private boolean correctlyClassifies(int i, Instance inst, long instanceIndex) {
         int predictedClass = (int) mapPredictions.get(instanceIndex).getValue(i);
         return predictedClass == (int) inst.classValue();
     }
     
-    protected Map<Integer, DoubleVector> mapPredictions;
+    protected Map<Long, DoubleVector> mapPredictions;
 
-    private void addPredictions(int instanceIndex, ResultContentEvent inEvent, double[] prediction) {
+    private void addPredictions(long instanceIndex, ResultContentEvent inEvent, double[] prediction) {
         if (this.mapPredictions == null) {
             this.mapPredictions = new HashMap<>();
         }
@@ -125,7 +127,7 @@ public class BoostingPredictionCombinerProcessor extends PredictionCombinerProce
         this.mapPredictions.put(instanceIndex, predictions);
     }
 
-    private void computeBoosting(ResultContentEvent inEvent, int instanceIndex) {
+    private void computeBoosting(ResultContentEvent inEvent, long instanceIndex) {
         // Starts code for Boosting
         //Send instances to train
         double lambda_d = 1.0;
@@ -23,22 +23,36 @@ package com.yahoo.labs.samoa.learners.classifiers.ensemble;
 /**
  * License
  */
-import java.util.HashMap;
-import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.Processor;
 import com.yahoo.labs.samoa.learners.ResultContentEvent;
-import com.yahoo.labs.samoa.moa.core.DoubleVector;
 import com.yahoo.labs.samoa.topology.Stream;
 
 /**
  * The Class PredictionCombinerProcessor.
+ * </p>
+ * The votes of an instance are combined in a VoteTable keyed by the instance
+ * index. The result events are keyed by the instance index, so the combiner can
+ * have several replicas, each one combining the votes of its own instances.
+ * </p>
+ * The replica which combines the last instance sends its last result to every
+ * replica on the last result stream. Each replica then sends its own last result, 
+ * after the results of its instances, telling the evaluator how many last results 
+ * to wait for. Without a last result stream, the first last vote ends the stream.
+ * The instances whose votes did not all arrive after the given number of newer
+ * instances (the expiry period) are dropped.
  */
 public class PredictionCombinerProcessor implements Processor {
 
     private static final long serialVersionUID = -1606045723451191132L;
 
+    private static final Logger logger = LoggerFactory.getLogger(PredictionCombinerProcessor.class);
+
+    public static final int DEFAULT_EXPIRY_PERIOD = 100000;
+
     /**
      * The size ensemble.
      */
@@ -49,6 +63,52 @@ public class PredictionCombinerProcessor implements Processor {
      */
     protected Stream outputStream;
 
+    /**
+     * The last result stream, which reaches every replica.
+     */
+    protected Stream lastResultStream;
+
+    /**
+     * The number of replicas.
+     */
+    protected int parallelism = 1;
+
+    /**
+     * Sets the last result stream.
+     *
+     * @param stream the stream which broadcasts the last result to the replicas
+     */
+    public void setLastResultStream(Stream stream) {
+        lastResultStream = stream;
+    }
+
+    /**
+     * Gets the last result stream.
+     *
+     * @return the last result stream
+     */
+    public Stream getLastResultStream() {
+        return lastResultStream;
+    }
+
+    /**
+     * Gets the number of replicas.
+     *
+     * @return the parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of replicas.
+     *
+     * @param parallelism the number of replicas of the combiner
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     /**
      * Sets the output stream.
      *
@@ -85,9 +145,22 @@ public class PredictionCombinerProcessor implements Processor {
         this.ensembleSize = ensembleSize;
     }
 
-    protected Map<Integer, Integer> mapCountsforInstanceReceived;
+    /**
+     * The number of newer instances after which an incomplete instance is dropped.
+     */
+    protected int expiryPeriod = DEFAULT_EXPIRY_PERIOD;
+
+    public int getExpiryPeriod() {
+        return expiryPeriod;
+    }
+
+    public void setExpiryPeriod(int expiryPeriod) {
+        this.expiryPeriod = expiryPeriod;
+    }
+
+    protected VoteTable votes;
 
-    protected Map<Integer, DoubleVector> mapVotesforInstanceReceived;
+    private long lastExpiry;
     
     /**
      * On event.
@@ -98,25 +171,44 @@ public class PredictionCombinerProcessor implements Processor {
     public boolean process(ContentEvent event) {
 
         ResultContentEvent inEvent = (ResultContentEvent) event;
+        if (inEvent.isLastEvent() && inEvent.getVoteCount() == 0) {
+            //the last result broadcast on the last result stream
+            ResultContentEvent outContentEvent = new ResultContentEvent(inEvent.getInstanceIndex(),
+                    inEvent.getInstance(), inEvent.getClassId(), inEvent.getClassVotes(), true);
+            outContentEvent.setEvaluationIndex(inEvent.getEvaluationIndex());
+            outContentEvent.setNumLastEvents(this.parallelism);
+            outputStream.put(outContentEvent);
+            return true;
+        }
         double[] prediction = inEvent.getClassVotes();
-        int instanceIndex = (int) inEvent.getInstanceIndex();
-        
-        addStatisticsForInstanceReceived(instanceIndex, inEvent.getClassifierIndex(), prediction, 1);
+        long instanceIndex = inEvent.getInstanceIndex();
+        int add = inEvent.getVoteCount();
+
+        int slot = votes().slotOf(instanceIndex);
+        int count = this.votes.add(slot, prediction, getEnsembleMemberWeight(inEvent.getClassifierIndex()) * add, add);
 
-        if (inEvent.isLastEvent() || hasAllVotesArrivedInstance(instanceIndex)) {
-            DoubleVector combinedVote = this.mapVotesforInstanceReceived.get(instanceIndex);
+        boolean combined = false;
+        if ((inEvent.isLastEvent() && this.lastResultStream == null) || count == this.ensembleSize) {
+            double[] combinedVote = this.votes.getVotes(slot);
             if (combinedVote == null){
-                combinedVote = new DoubleVector(new double[inEvent.getInstance().numClasses()]);
+                combinedVote = new double[inEvent.getInstance().numClasses()];
             }
-            ResultContentEvent outContentEvent = new ResultContentEvent(inEvent.getInstanceIndex(),
+            this.votes.remove(slot);
+            ResultContentEvent outContentEvent = new ResultContentEvent(instanceIndex,
                     inEvent.getInstance(), inEvent.getClassId(),
-                    combinedVote.getArrayCopy(), inEvent.isLastEvent());
+                    combinedVote, inEvent.isLastEvent());
             outContentEvent.setEvaluationIndex(inEvent.getEvaluationIndex());
-            outputStream.put(outContentEvent);
-            clearStatisticsInstance(instanceIndex);
-            return true;
+            if (inEvent.isLastEvent() && this.lastResultStream != null) {
+                //counts for no vote: the replicas recognize it
+                outContentEvent.setVoteCount(0);
+                this.lastResultStream.put(outContentEvent);
+            } else {
+                outputStream.put(outContentEvent);
+            }
+            combined = true;
         }
-        return false;
+        expireStatistics();
+        return combined;
 
     }
 
@@ -139,41 +231,54 @@ public class PredictionCombinerProcessor implements Processor {
         if (originProcessor.getOutputStream() != null) {
             newProcessor.setOutputStream(originProcessor.getOutputStream());
         }
+        newProcessor.setLastResultStream(originProcessor.getLastResultStream());
+        newProcessor.setParallelism(originProcessor.getParallelism());
         newProcessor.setSizeEnsemble(originProcessor.getSizeEnsemble());
+        newProcessor.setExpiryPeriod(originProcessor.getExpiryPeriod());
         return newProcessor;
     }
 
-    protected void addStatisticsForInstanceReceived(int instanceIndex, int classifierIndex, double[] prediction, int add) {
-        if (this.mapCountsforInstanceReceived == null) {
-            this.mapCountsforInstanceReceived = new HashMap<>();
-            this.mapVotesforInstanceReceived = new HashMap<>();
+    protected VoteTable votes() {
+        if (this.votes == null) {
+            this.votes = new VoteTable();
         }
-        DoubleVector vote = new DoubleVector(prediction);
-        if (vote.sumOfValues() > 0.0) {
-            vote.normalize();
-            DoubleVector combinedVote = this.mapVotesforInstanceReceived.get(instanceIndex);
-            if (combinedVote == null){
-                combinedVote = new DoubleVector();
-            }
-            vote.scaleValues(getEnsembleMemberWeight(classifierIndex));
-            combinedVote.addValues(vote);
-                    
-            this.mapVotesforInstanceReceived.put(instanceIndex, combinedVote);
-        }
-        Integer count = this.mapCountsforInstanceReceived.get(instanceIndex);
-        if (count == null) {
-            count = 0;
-        }
-        this.mapCountsforInstanceReceived.put(instanceIndex, count + add);
+        return this.votes;
+    }
+
+    protected void addStatisticsForInstanceReceived(long instanceIndex, int classifierIndex, double[] prediction, int add) {
+        VoteTable table = votes();
+        table.add(table.slotOf(instanceIndex), prediction, getEnsembleMemberWeight(classifierIndex) * add, add);
     }
 
-    protected boolean hasAllVotesArrivedInstance(int instanceIndex) {
-        return (this.mapCountsforInstanceReceived.get(instanceIndex) == this.ensembleSize);
+    protected boolean hasAllVotesArrivedInstance(long instanceIndex) {
+        return this.votes.getCount(this.votes.indexOf(instanceIndex)) == this.ensembleSize;
+    }
+
+    /**
+     * @return a copy of the combined vote of an instance, or null if it has no vote
+     */
+    protected double[] getCombinedVote(long instanceIndex) {
+        return this.votes.getVotes(this.votes.indexOf(instanceIndex));
     }
 
-    protected void clearStatisticsInstance(int instanceIndex) {
-        this.mapCountsforInstanceReceived.remove(instanceIndex);
-        this.mapVotesforInstanceReceived.remove(instanceIndex);
+    protected void clearStatisticsInstance(long instanceIndex) {
+        int slot = this.votes.indexOf(instanceIndex);
+        if (slot >= 0) {
+            this.votes.remove(slot);
+        }
+    }
+
+    /**
+     * Drop the instances older than the expiry period, every expiry period.
+     */
+    protected void expireStatistics() {
+        if (this.votes.getNumAdded() - this.lastExpiry >= this.expiryPeriod) {
+            this.lastExpiry = this.votes.getNumAdded();
+            int expired = this.votes.expire(this.expiryPeriod);
+            if (expired > 0) {
+                logger.warn("Dropped {} instances whose votes did not all arrive", expired);
+            }
+        }
     }
     
      protected double getEnsembleMemberWeight(int i) {
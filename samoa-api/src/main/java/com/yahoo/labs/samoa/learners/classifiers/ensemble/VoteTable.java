@@ -0,0 +1,233 @@
+package com.yahoo.labs.samoa.learners.classifiers.ensemble;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Votes of the ensemble members for the instances being combined by a
+ * PredictionCombinerProcessor, keyed by the primitive instance index. The
+ * instances are kept in an open-addressing hash table (linear probing) whose
+ * slots hold the number of votes received and the combined vote, in an array
+ * which is cleared and reused by the next instances of the slot, so that adding
+ * a vote neither boxes the index nor allocates.
+ * </p>
+ * Each instance gets a sequence number when its first vote arrives, so that the
+ * instances whose votes did not all arrive (e.g. a late vote of an instance
+ * already combined) can be expired once enough newer instances were added.
+ */
+final class VoteTable implements Serializable {
+
+	private static final long serialVersionUID = -3402957381027744316L;
+
+	private static final long EMPTY = Long.MIN_VALUE; // instance indices are >= 0
+	private static final int INITIAL_CAPACITY = 64;
+
+	private long[] instanceIndices;
+	private int[] counts;
+	private double[][] votes;
+	private int[] numValues; // the values of votes[i] from numValues[i] on are 0
+	private long[] sequenceNumbers;
+	private int mask;
+	private int size;
+	private long numAdded;
+
+	VoteTable() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		this.instanceIndices = new long[capacity];
+		Arrays.fill(this.instanceIndices, EMPTY);
+		this.counts = new int[capacity];
+		this.votes = new double[capacity][];
+		this.numValues = new int[capacity];
+		this.sequenceNumbers = new long[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/*
+	 * Murmur3 finalizer, as the indices are sequential
+	 */
+	static int hash(long index) {
+		index ^= index >>> 33;
+		index *= 0xff51afd7ed558ccdL;
+		index ^= index >>> 33;
+		return (int) index;
+	}
+
+	/**
+	 * @return the slot of an instance, or -1
+	 */
+	int indexOf(long instanceIndex) {
+		int i = hash(instanceIndex) & mask;
+		long index;
+		while ((index = instanceIndices[i]) != EMPTY) {
+			if (index == instanceIndex) return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the slot of an instance, added without votes if needed. The slot
+	 *         is valid until the next addition or removal.
+	 */
+	int slotOf(long instanceIndex) {
+		int i = indexOf(instanceIndex);
+		if (i >= 0) return i;
+		if ((size + 1) << 1 > instanceIndices.length) rehash(instanceIndices.length << 1);
+		i = hash(instanceIndex) & mask;
+		while (instanceIndices[i] != EMPTY) i = (i + 1) & mask;
+		instanceIndices[i] = instanceIndex;
+		sequenceNumbers[i] = numAdded++;
+		size++;
+		return i;
+	}
+
+	/**
+	 * Add a vote to the combined vote of the instance of a slot: the vote is
+	 * normalized then scaled, and not added if its values sum to 0.
+	 * @param count the number of votes it counts for
+	 * @return the number of votes of the instance
+	 */
+	int add(int slot, double[] vote, double scale, int count) {
+		double sum = 0.0;
+		for (double value : vote) {
+			sum += value;
+		}
+		if (sum > 0.0) {
+			double norm = 1.0 / sum;
+			double[] combined = votes[slot];
+			if (combined == null || combined.length < vote.length) {
+				combined = combined == null ? new double[vote.length] : Arrays.copyOf(combined, vote.length);
+				votes[slot] = combined;
+			}
+			for (int i = 0; i < vote.length; i++) {
+				combined[i] += vote[i] * norm * scale;
+			}
+			if (vote.length > numValues[slot]) numValues[slot] = vote.length;
+		}
+		return counts[slot] += count;
+	}
+
+	int getCount(int slot) {
+		return counts[slot];
+	}
+
+	/**
+	 * @return a copy of the combined vote of the instance of a slot, or null if
+	 *         no vote was added
+	 */
+	double[] getVotes(int slot) {
+		return numValues[slot] == 0 ? null : Arrays.copyOf(votes[slot], numValues[slot]);
+	}
+
+	/**
+	 * Remove the instance of a slot.
+	 */
+	void remove(int slot) {
+		if (numValues[slot] > 0) Arrays.fill(votes[slot], 0, numValues[slot], 0.0);
+		size--;
+		// backward shift deletion: move back the entries of the probe sequence,
+		// the cleared vote array moving to the new hole
+		double[] cleared = votes[slot];
+		int hole = slot;
+		int j = slot;
+		while (true) {
+			j = (j + 1) & mask;
+			long index = instanceIndices[j];
+			if (index == EMPTY) break;
+			int home = hash(index) & mask;
+			// move the entry unless its home lies cyclically in (hole, j]
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				instanceIndices[hole] = index;
+				counts[hole] = counts[j];
+				votes[hole] = votes[j];
+				numValues[hole] = numValues[j];
+				sequenceNumbers[hole] = sequenceNumbers[j];
+				hole = j;
+			}
+		}
+		instanceIndices[hole] = EMPTY;
+		counts[hole] = 0;
+		votes[hole] = cleared;
+		numValues[hole] = 0;
+	}
+
+	/**
+	 * Remove the instances added before the last maxAge instances.
+	 * @return the number of instances removed
+	 */
+	int expire(long maxAge) {
+		long oldest = numAdded - maxAge;
+		int removed = 0;
+		// start after an empty slot: no probe sequence wraps around the start, so
+		// a removal never moves an entry back into a slot already checked
+		int start = 0;
+		while (instanceIndices[start] != EMPTY) start++;
+		int i = (start + 1) & mask;
+		while (i != start) {
+			// a removal moves back the next entries: the slot is checked again
+			if (instanceIndices[i] != EMPTY && sequenceNumbers[i] < oldest) {
+				remove(i);
+				removed++;
+			} else {
+				i = (i + 1) & mask;
+			}
+		}
+		return removed;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldIndices = instanceIndices;
+		int[] oldCounts = counts;
+		double[][] oldVotes = votes;
+		int[] oldNumValues = numValues;
+		long[] oldSequenceNumbers = sequenceNumbers;
+		allocate(capacity);
+		for (int j = 0; j < oldIndices.length; j++) {
+			if (oldIndices[j] == EMPTY) continue;
+			int i = hash(oldIndices[j]) & mask;
+			while (instanceIndices[i] != EMPTY) i = (i + 1) & mask;
+			instanceIndices[i] = oldIndices[j];
+			counts[i] = oldCounts[j];
+			votes[i] = oldVotes[j];
+			numValues[i] = oldNumValues[j];
+			sequenceNumbers[i] = oldSequenceNumbers[j];
+		}
+	}
+
+	/**
+	 * @return the number of instances in the table
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of instances added since the table was created
+	 */
+	long getNumAdded() {
+		return numAdded;
+	}
+}
@@ -88,6 +88,9 @@ public class Perceptron extends AbstractClassifier implements Regressor {
 	protected double perceptronsumY;
 	protected double squaredperceptronsumY;
 
+	// Scratch buffer for the normalized instance, reused by predictions and updates
+	private transient double[] normalizedValues;
+
 
 	public Perceptron() {
 		this.initialisePerceptron = true;
@@ -251,15 +254,12 @@ public class Perceptron extends AbstractClassifier implements Regressor {
 	 */
 	private double prediction(Instance inst)
 	{
-		double[] normalizedInstance = normalizedInstance(inst); 
-		double normalizedPrediction = prediction(normalizedInstance);
-		return denormalizedPrediction(normalizedPrediction);
+		return denormalizedPrediction(normalizedPrediction(inst));
 	}
 
 	public double normalizedPrediction(Instance inst)
 	{
-		double[] normalizedInstance = normalizedInstance(inst);
-		return prediction(normalizedInstance);
+		return prediction(normalizeInstance(inst));
 	}
 
 	private double denormalizedPrediction(double normalizedPrediction) {
@@ -290,8 +290,20 @@ public class Perceptron extends AbstractClassifier implements Regressor {
 	}
 
 	public double[] normalizedInstance(Instance inst){
-		// Normalize Instance
-		double[] normalizedInstance = new double[inst.numAttributes()];
+		return normalizeInstance(inst, new double[inst.numAttributes()]);
+	}
+
+	/*
+	 * Normalize the instance in the scratch buffer
+	 */
+	private double[] normalizeInstance(Instance inst) {
+		if (normalizedValues == null || normalizedValues.length != inst.numAttributes()) {
+			normalizedValues = new double[inst.numAttributes()];
+		}
+		return normalizeInstance(inst, normalizedValues);
+	}
+
+	private double[] normalizeInstance(Instance inst, double[] normalizedInstance) {
 		for(int j = 0; j < inst.numAttributes() -1; j++) {
 			int instAttIndex = modelAttIndexToInstanceAttIndex(j);
 			double mean = perceptronattributeStatistics.getValue(j) / perceptronYSeen;
@@ -313,7 +325,7 @@ public class Perceptron extends AbstractClassifier implements Regressor {
 
 	public double updateWeights(Instance inst, double learningRatio ){
 		// Normalize Instance
-		double[] normalizedInstance = normalizedInstance(inst); 
+		double[] normalizedInstance = normalizeInstance(inst); 
 		// Compute the Normalized Prediction of Perceptron
 		double normalizedPredict= prediction(normalizedInstance);
 		double normalizedY = normalizeActualClassValue(inst);
@@ -0,0 +1,332 @@
+package com.yahoo.labs.samoa.learners.classifiers.rules.common;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.moa.classifiers.rules.core.conditionaltests.NumericAttributeBinaryRulePredicate;
+
+/**
+ * Ordered set of rules with a predicate index, to find the rules covering an
+ * instance without evaluating every rule.
+ * </p>
+ * Each rule has a slot, and the order of the slots is the order in which the rules
+ * were added (i.e. the order of the rule list). The predicates of the rules are
+ * kept in arrays sorted by threshold, one per attribute and operator. To find the
+ * covering rules, the index starts from the set of all the rules and clears the
+ * rules of the predicates which fail for the instance: for a value v, the failing
+ * predicates of an attribute/operator are a prefix and/or a suffix of its array.
+ * The cost depends on the number of attributes and of failing predicates, not on
+ * the number of rules times their length. When only the first covering rules are
+ * needed (ordered rules), evaluating the rules one by one is usually cheaper, as
+ * a covering rule is found after a few rules: see 
+ * {@link #nextCoveringRule(Instance, BitSet, int)}.
+ * </p>
+ * The predicates of a rule must be changed through {@link #addRuleSplitNode(int, RuleSplitNode)}
+ * so that the index is kept up to date.
+ * Rules can be added and removed while the covering rules of an instance are 
+ * being processed: the slots only change (to remove the empty ones) when a new 
+ * search starts.
+ *
+ * @param <R> the type of rules
+ */
+public class RuleIndex<R extends Rule> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Rule[] rules = new Rule[INITIAL_CAPACITY];
+	private int numSlots;
+	private int size;
+	private final Map<Integer, Integer> slotByRuleID = new HashMap<>();
+	private final BitSet occupiedSlots = new BitSet();
+	private final BitSet coveringSlots = new BitSet();
+
+	private final Map<Integer, PredicateList> predicateListByKey = new HashMap<>();
+	private final List<PredicateList> predicateLists = new ArrayList<>();
+
+	/**
+	 * Add a rule after the existing rules.
+	 */
+	public void add(R rule) {
+		if (numSlots == rules.length) {
+			rules = Arrays.copyOf(rules, rules.length * 2);
+		}
+		int slot = numSlots++;
+		rules[slot] = rule;
+		occupiedSlots.set(slot);
+		slotByRuleID.put(rule.getRuleNumberID(), slot);
+		index(rule, slot);
+		size++;
+	}
+
+	/**
+	 * Remove a rule.
+	 * @return false if there is no rule with this ID
+	 */
+	public boolean remove(int ruleID) {
+		Integer slot = slotByRuleID.remove(ruleID);
+		if (slot == null) return false;
+		unindex(rules[slot], slot);
+		rules[slot] = null;
+		occupiedSlots.clear(slot);
+		size--;
+		return true;
+	}
+
+	/**
+	 * @return the rule with this ID, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public R getRule(int ruleID) {
+		Integer slot = slotByRuleID.get(ruleID);
+		return slot == null ? null : (R) rules[slot];
+	}
+
+	/**
+	 * Add (or update) a predicate of a rule, see {@link Rule#nodeListAdd(RuleSplitNode)}.
+	 * @return the result of nodeListAdd, or false if there is no rule with this ID
+	 */
+	public boolean addRuleSplitNode(int ruleID, RuleSplitNode ruleSplitNode) {
+		Integer slot = slotByRuleID.get(ruleID);
+		if (slot == null) return false;
+		Rule rule = rules[slot];
+		// the value of an existing predicate may be changed in place: index the rule again
+		unindex(rule, slot);
+		boolean ret = rule.nodeListAdd(ruleSplitNode);
+		index(rule, slot);
+		return ret;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the rules covering an instance.
+	 * The slots of the covering rules are the set bits of the returned BitSet, in the
+	 * order of the rules (see {@link #get(int)}). The BitSet is owned by the index and
+	 * is only valid until the next call.
+	 */
+	public BitSet getCoveringRules(Instance inst) {
+		compactIfSparse();
+		BitSet covering = this.coveringSlots;
+		covering.clear();
+		covering.or(occupiedSlots);
+		int classIndex = inst.classIndex();
+		for (int i = 0; i < predicateLists.size(); i++) {
+			PredicateList list = predicateLists.get(i);
+			if (list.size == 0) continue;
+			int instAttIndex = list.attIndex < classIndex ? list.attIndex : list.attIndex + 1;
+			if (inst.isMissing(instAttIndex)) {
+				list.clear(covering, 0, list.size);
+			} else {
+				list.clearFailing(inst.value(instAttIndex), covering);
+			}
+		}
+		return covering;
+	}
+
+	/**
+	 * Find the next rule covering an instance, in the order of the rules.
+	 * @param inst the instance
+	 * @param covering the covering rules found by {@link #getCoveringRules(Instance)}, 
+	 * 			or null to evaluate the rules one by one
+	 * @param fromSlot the slot to start from, 0 to start a new search
+	 * @return the slot of the next covering rule, or -1 if there is none
+	 */
+	public int nextCoveringRule(Instance inst, BitSet covering, int fromSlot) {
+		if (covering != null) {
+			for (int slot = covering.nextSetBit(fromSlot); slot >= 0; slot = covering.nextSetBit(slot + 1)) {
+				if (rules[slot] != null) return slot; // not removed in the meantime
+			}
+			return -1;
+		}
+		if (fromSlot == 0) {
+			compactIfSparse();
+		}
+		for (int slot = occupiedSlots.nextSetBit(fromSlot); slot >= 0; slot = occupiedSlots.nextSetBit(slot + 1)) {
+			if (rules[slot].isCovering(inst)) return slot;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the rule in a slot, or null if it was removed
+	 */
+	@SuppressWarnings("unchecked")
+	public R get(int slot) {
+		return (R) rules[slot];
+	}
+
+	/*
+	 * Predicates
+	 */
+	private void index(Rule rule, int slot) {
+		for (RuleSplitNode node : rule.getNodeList()) {
+			NumericAttributeBinaryRulePredicate predicate = (NumericAttributeBinaryRulePredicate) node.getSplitTest();
+			getPredicateList(predicate.getAttributeIndex(), predicate.getOperator())
+				.add(predicate.getSplitValue(), slot);
+		}
+	}
+
+	private void unindex(Rule rule, int slot) {
+		for (RuleSplitNode node : rule.getNodeList()) {
+			NumericAttributeBinaryRulePredicate predicate = (NumericAttributeBinaryRulePredicate) node.getSplitTest();
+			getPredicateList(predicate.getAttributeIndex(), predicate.getOperator()).remove(slot);
+		}
+	}
+
+	private PredicateList getPredicateList(int attIndex, int operator) {
+		int key = (attIndex << 2) | operator;
+		PredicateList list = predicateListByKey.get(key);
+		if (list == null) {
+			list = new PredicateList(attIndex, operator);
+			predicateListByKey.put(key, list);
+			predicateLists.add(list);
+		}
+		return list;
+	}
+
+	/*
+	 * Remove the empty slots of removed rules, keeping the order of the rules
+	 */
+	private void compactIfSparse() {
+		if (numSlots > INITIAL_CAPACITY && size < numSlots / 2) {
+			compact();
+		}
+	}
+
+	private void compact() {
+		Rule[] oldRules = this.rules;
+		int oldNumSlots = this.numSlots;
+		this.rules = new Rule[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, size)) * 2)];
+		this.numSlots = 0;
+		this.size = 0;
+		this.slotByRuleID.clear();
+		this.occupiedSlots.clear();
+		for (PredicateList list : predicateLists) {
+			list.size = 0;
+		}
+		for (int slot = 0; slot < oldNumSlots; slot++) {
+			if (oldRules[slot] != null) {
+				int newSlot = numSlots++;
+				rules[newSlot] = oldRules[slot];
+				occupiedSlots.set(newSlot);
+				slotByRuleID.put(oldRules[slot].getRuleNumberID(), newSlot);
+				index(oldRules[slot], newSlot);
+				size++;
+			}
+		}
+	}
+
+	/*
+	 * Thresholds of the predicates on one attribute with one operator, in increasing order.
+	 */
+	private static final class PredicateList {
+		private final int attIndex;
+		private final int operator; // 0 =, 1 <=, 2 >
+		private double[] thresholds = new double[4];
+		private int[] slots = new int[4];
+		private int size;
+
+		PredicateList(int attIndex, int operator) {
+			this.attIndex = attIndex;
+			this.operator = operator;
+		}
+
+		void add(double threshold, int slot) {
+			if (size == thresholds.length) {
+				thresholds = Arrays.copyOf(thresholds, size * 2);
+				slots = Arrays.copyOf(slots, size * 2);
+			}
+			int i = upperBound(threshold);
+			System.arraycopy(thresholds, i, thresholds, i + 1, size - i);
+			System.arraycopy(slots, i, slots, i + 1, size - i);
+			thresholds[i] = threshold;
+			slots[i] = slot;
+			size++;
+		}
+
+		void remove(int slot) {
+			int j = 0;
+			for (int i = 0; i < size; i++) {
+				if (slots[i] != slot) {
+					thresholds[j] = thresholds[i];
+					slots[j] = slots[i];
+					j++;
+				}
+			}
+			size = j;
+		}
+
+		/*
+		 * Clear the slots of the predicates which are false for value v
+		 */
+		void clearFailing(double v, BitSet covering) {
+			switch (operator) {
+			case 0: // v == t fails for t < v and t > v
+				clear(covering, 0, lowerBound(v));
+				clear(covering, upperBound(v), size);
+				break;
+			case 1: // v <= t fails for t < v
+				clear(covering, 0, lowerBound(v));
+				break;
+			case 2: // v > t fails for t >= v
+				clear(covering, lowerBound(v), size);
+				break;
+			}
+		}
+
+		void clear(BitSet covering, int from, int to) {
+			for (int i = from; i < to; i++) {
+				covering.clear(slots[i]);
+			}
+		}
+
+		// first index with a threshold >= v
+		private int lowerBound(double v) {
+			int lo = 0, hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (thresholds[mid] < v) lo = mid + 1;
+				else hi = mid;
+			}
+			return lo;
+		}
+
+		// first index with a threshold > v
+		private int upperBound(double v) {
+			int lo = 0, hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (thresholds[mid] <= v) lo = mid + 1;
+				else hi = mid;
+			}
+			return lo;
+		}
+	}
+}
@@ -108,7 +108,6 @@ public abstract class RuleRegressionNode implements Serializable {
 	
 	public double getNormalizedPrediction(Instance instance) {
 		double res;
-		double [] aux;
 		switch (this.predictionFunction) {
 		//perceptron - 1
 		case 1:
@@ -116,8 +115,7 @@ public abstract class RuleRegressionNode implements Serializable {
 			break;
 			//target mean - 2
 		case 2:
-			aux=this.targetMean.getVotesForInstance();
-			res=normalize(aux[0]);
+			res=normalize(this.targetMean.getCurrentMean());
 			break;
 			//adaptive	- 0
 		case 0:  
@@ -127,8 +125,7 @@ public abstract class RuleRegressionNode implements Serializable {
 				res=this.perceptron.normalizedPrediction(instance);
 			}
 			else{
-				aux=this.targetMean.getVotesForInstance(instance);
-				res = normalize(aux[0]); 
+				res = normalize(this.targetMean.getCurrentMean()); 
 			}
 			break;
 		default: 
@@ -85,12 +85,17 @@ public class TargetMean extends AbstractClassifier implements Regressor {
 	}
 	
 	public double[] getVotesForInstance() {
-		double[] currentMean=new double[1];
+		return new double[]{getCurrentMean()};
+	}
+
+	/**
+	 * @return the current mean, without allocating an array of votes
+	 */
+	public double getCurrentMean() {
 		if (n>0)
-			currentMean[0]=sum/n;
+			return sum/n;
 		else
-			currentMean[0]=0;
-		return currentMean;
+			return 0;
 	}
 
 	@Override
@@ -29,12 +29,12 @@ import com.yahoo.labs.samoa.learners.ResultContentEvent;
 import com.yahoo.labs.samoa.learners.classifiers.rules.common.ActiveRule;
 import com.yahoo.labs.samoa.learners.classifiers.rules.common.LearningRule;
 import com.yahoo.labs.samoa.learners.classifiers.rules.common.PassiveRule;
+import com.yahoo.labs.samoa.learners.classifiers.rules.common.RuleIndex;
 import com.yahoo.labs.samoa.moa.classifiers.rules.core.voting.ErrorWeightedVote;
 import com.yahoo.labs.samoa.moa.classifiers.rules.core.voting.InverseErrorWeightedVote;
 import com.yahoo.labs.samoa.moa.classifiers.rules.core.voting.UniformWeightedVote;
 import com.yahoo.labs.samoa.topology.Stream;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.BitSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,7 +54,7 @@ public class AMRRuleSetProcessor implements Processor {
 	private int processorId;
 
 	// Rules & default rule
-	protected transient List<PassiveRule> ruleSet;
+	protected transient RuleIndex<PassiveRule> ruleSet;
 
 	// SAMOA Stream
 	private Stream statisticsStream;
@@ -121,11 +121,15 @@ public class AMRRuleSetProcessor implements Processor {
 		boolean continueTraining = instanceEvent.isTraining();
 		
 		ErrorWeightedVote errorWeightedVote = newErrorWeightedVote();
-		for (PassiveRule aRuleSet : this.ruleSet) {
+		// with ordered rules, the first covering rule is usually found after a few rules
+		BitSet coveringRules = this.unorderedRules ? this.ruleSet.getCoveringRules(instance) : null;
+		for (int slot = this.ruleSet.nextCoveringRule(instance, coveringRules, 0); slot >= 0; 
+				slot = this.ruleSet.nextCoveringRule(instance, coveringRules, slot + 1)) {
 			if (!continuePrediction && !continueTraining)
 				break;
 
-			if (aRuleSet.isCovering(instance)) {
+			PassiveRule aRuleSet = this.ruleSet.get(slot);
+			if (aRuleSet != null) {
 				predictionCovered = true;
 
 				if (continuePrediction) {
@@ -203,20 +207,17 @@ public class AMRRuleSetProcessor implements Processor {
 	 */
 	private void updateRuleSplitNode(PredicateContentEvent pce) {
 		int ruleID = pce.getRuleNumberID();
-		for (PassiveRule rule:ruleSet) {
-			if (rule.getRuleNumberID() == ruleID) {
-				rule.nodeListAdd(pce.getRuleSplitNode());
-				rule.setLearningNode(pce.getLearningNode());
-			}
+		PassiveRule rule = ruleSet.getRule(ruleID);
+		if (rule != null) {
+			ruleSet.addRuleSplitNode(ruleID, pce.getRuleSplitNode());
+			rule.setLearningNode(pce.getLearningNode());
 		}
 	}
 	
 	private void updateLearningNode(PredicateContentEvent pce) {
-		int ruleID = pce.getRuleNumberID();
-		for (PassiveRule rule:ruleSet) {
-			if (rule.getRuleNumberID() == ruleID) {
-				rule.setLearningNode(pce.getLearningNode());
-			}
+		PassiveRule rule = ruleSet.getRule(pce.getRuleNumberID());
+		if (rule != null) {
+			rule.setLearningNode(pce.getLearningNode());
 		}
 	}
 	
@@ -229,18 +230,13 @@ public class AMRRuleSetProcessor implements Processor {
 	}
 	
 	private void removeRule(int ruleID) {
-		for (PassiveRule rule:ruleSet) {
-			if (rule.getRuleNumberID() == ruleID) {
-				ruleSet.remove(rule);
-				break;
-			}
-		}
+		ruleSet.remove(ruleID);
 	}
 
 	@Override
 	public void onCreate(int id) {
 		this.processorId = id;
-		this.ruleSet = new LinkedList<PassiveRule>();
+		this.ruleSet = new RuleIndex<PassiveRule>();
 		
 	}
 	
@@ -20,9 +20,7 @@ package com.yahoo.labs.samoa.learners.classifiers.rules.distributed;
  * #L%
  */
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.BitSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +36,7 @@ import com.yahoo.labs.samoa.learners.classifiers.rules.common.LearningRule;
 import com.yahoo.labs.samoa.learners.classifiers.rules.common.PassiveRule;
 import com.yahoo.labs.samoa.learners.classifiers.rules.common.Perceptron;
 import com.yahoo.labs.samoa.learners.classifiers.rules.common.RuleActiveRegressionNode;
+import com.yahoo.labs.samoa.learners.classifiers.rules.common.RuleIndex;
 import com.yahoo.labs.samoa.moa.classifiers.rules.core.attributeclassobservers.FIMTDDNumericAttributeClassLimitObserver;
 import com.yahoo.labs.samoa.moa.classifiers.rules.core.voting.ErrorWeightedVote;
 import com.yahoo.labs.samoa.moa.classifiers.rules.core.voting.InverseErrorWeightedVote;
@@ -63,7 +62,7 @@ public class AMRulesAggregatorProcessor implements Processor {
 	private int processorId;
 
 	// Rules & default rule
-	protected transient List<PassiveRule> ruleSet;
+	protected transient RuleIndex<PassiveRule> ruleSet;
 	protected transient ActiveRule defaultRule;
 	protected transient int ruleNumberID;
 	protected transient double[] statistics;
@@ -149,14 +148,16 @@ public class AMRulesAggregatorProcessor implements Processor {
 		boolean continueTraining = instanceEvent.isTraining();
 		
 		ErrorWeightedVote errorWeightedVote = newErrorWeightedVote();
-		Iterator<PassiveRule> ruleIterator= this.ruleSet.iterator();
-		while (ruleIterator.hasNext()) { 
+		// with ordered rules, the first covering rule is usually found after a few rules
+		BitSet coveringRules = this.unorderedRules ? this.ruleSet.getCoveringRules(instance) : null;
+		for (int slot = this.ruleSet.nextCoveringRule(instance, coveringRules, 0); slot >= 0; 
+				slot = this.ruleSet.nextCoveringRule(instance, coveringRules, slot + 1)) { 
 			if (!continuePrediction && !continueTraining)
 				break;
 			
-			PassiveRule rule = ruleIterator.next();
+			PassiveRule rule = this.ruleSet.get(slot);
 			
-			if (rule.isCovering(instance) == true){
+			if (rule != null){
 				predictionCovered = true;
 
 				if (continuePrediction) {
@@ -300,13 +301,12 @@ public class AMRulesAggregatorProcessor implements Processor {
 	 */
 	private void updateRuleSplitNode(PredicateContentEvent pce) {
 		int ruleID = pce.getRuleNumberID();
-		for (PassiveRule rule:ruleSet) {
-			if (rule.getRuleNumberID() == ruleID) {
-				if (pce.getRuleSplitNode() != null)
-					rule.nodeListAdd(pce.getRuleSplitNode());
-				if (pce.getLearningNode() != null)
-					rule.setLearningNode(pce.getLearningNode());
-			}
+		PassiveRule rule = ruleSet.getRule(ruleID);
+		if (rule != null) {
+			if (pce.getRuleSplitNode() != null)
+				ruleSet.addRuleSplitNode(ruleID, pce.getRuleSplitNode());
+			if (pce.getLearningNode() != null)
+				rule.setLearningNode(pce.getLearningNode());
 		}
 	}
 	
@@ -314,12 +314,7 @@ public class AMRulesAggregatorProcessor implements Processor {
 	 * Remove rule
 	 */
 	private void removeRule(int ruleID) {
-		for (PassiveRule rule:ruleSet) {
-			if (rule.getRuleNumberID() == ruleID) {
-				ruleSet.remove(rule);
-				break;
-			}
-		}
+		ruleSet.remove(ruleID);
 	}
 
 	@Override
@@ -329,7 +324,7 @@ public class AMRulesAggregatorProcessor implements Processor {
 		this.ruleNumberID=0;
 		this.defaultRule = newRule(++this.ruleNumberID);
 		
-		this.ruleSet = new LinkedList<PassiveRule>();
+		this.ruleSet = new RuleIndex<PassiveRule>();
 	}
 
 	/* 
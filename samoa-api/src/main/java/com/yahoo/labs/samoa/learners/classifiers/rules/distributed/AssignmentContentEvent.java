@@ -20,6 +20,10 @@ package com.yahoo.labs.samoa.learners.classifiers.rules.distributed;
  * #L%
  */
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -71,4 +75,21 @@ public class AssignmentContentEvent implements ContentEvent {
 		return this.ruleNumberID;
 	}
 
+	/**
+	 * The Kryo serializer class for AssignmentContentEvent.
+	 */
+	public static final class AssignmentCESerializer extends Serializer<AssignmentContentEvent> {
+
+		@Override
+		public void write(Kryo kryo, Output output, AssignmentContentEvent event) {
+			output.writeInt(event.ruleNumberID, true);
+			kryo.writeClassAndObject(output, event.instance);
+		}
+
+		@Override
+		public AssignmentContentEvent read(Kryo kryo, Input input, Class<AssignmentContentEvent> type) {
+			int ruleNumberID = input.readInt(true);
+			return new AssignmentContentEvent(ruleNumberID, (Instance) kryo.readClassAndObject(input));
+		}
+	}
 }
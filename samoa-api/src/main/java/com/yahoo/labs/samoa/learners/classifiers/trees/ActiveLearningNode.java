@@ -20,9 +20,6 @@ package com.yahoo.labs.samoa.learners.classifiers.trees;
  * #L%
  */
 
-import java.util.HashMap;
-import java.util.Map;
-
 import com.yahoo.labs.samoa.moa.classifiers.core.AttributeSplitSuggestion;
 
 import org.slf4j.Logger;
@@ -39,7 +36,7 @@ final class ActiveLearningNode extends LearningNode {
 	
 	private double weightSeenAtLastSplitEvaluation;
 	
-	private final Map<Integer, String> attributeContentEventKeys;
+	private String[] attributeBlockKeys;
 	
 	private AttributeSplitSuggestion bestSuggestion;
 	private AttributeSplitSuggestion secondBestSuggestion;
@@ -55,7 +52,6 @@ final class ActiveLearningNode extends LearningNode {
 		super(classObservation);
 		this.weightSeenAtLastSplitEvaluation = this.getWeightSeen();
 		this.id = VerticalHoeffdingTree.LearningNodeIdGenerator.generate();
-		this.attributeContentEventKeys = new HashMap<>();
 		this.isSplitting = false;
 		this.parallelismHint = parallelismHint;
 	}
@@ -64,16 +60,23 @@ final class ActiveLearningNode extends LearningNode {
 		return id;
 	}
 
-        protected AttributeBatchContentEvent[] attributeBatchContentEvent;
+	// Values of the attributes to send to the local statistic PIs, one block per group 
+	// of attributes, filled until the model aggregator sends them
+	private AttributeBlockContentEvent[] attributeBlocks;
+	// number of instances in the last blocks, to size the next ones
+	private int lastBlockSize;
+
+	AttributeBlockContentEvent[] getAttributeBlocks() {
+		return this.attributeBlocks;
+	}
 
-    public AttributeBatchContentEvent[] getAttributeBatchContentEvent() {
-        return this.attributeBatchContentEvent;
-    }
+	void clearAttributeBlocks() {
+		if (this.attributeBlocks != null) {
+			this.lastBlockSize = this.attributeBlocks[0].getNumInstances();
+		}
+		this.attributeBlocks = null;
+	}
 
-    public void setAttributeBatchContentEvent(AttributeBatchContentEvent[] attributeBatchContentEvent) {
-        this.attributeBatchContentEvent = attributeBatchContentEvent;
-    }
-        
 	@Override
 	void learnFromInstance(Instance inst, ModelAggregatorProcessor proc) {
 		//TODO: what statistics should we keep for unused instance?
@@ -83,41 +86,44 @@ final class ActiveLearningNode extends LearningNode {
 		}
 		this.observedClassDistribution.addToValue((int)inst.classValue(), 
 				inst.weight());
-		//done: parallelize by sending attributes one by one
-		//TODO: meanwhile, we can try to use the ThreadPool to execute it separately
-		//TODO: parallelize by sending in batch, i.e. split the attributes into
-		//chunk instead of send the attribute one by one
-		for(int i = 0; i < inst.numAttributes() - 1; i++){
-			int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
-			Integer obsIndex = i;
-			String key = attributeContentEventKeys.get(obsIndex);
-			
-			if(key == null){
-				key =  this.generateKey(i);
-				attributeContentEventKeys.put(obsIndex, key);
+		//done: parallelize by sending the attributes in groups, one group per 
+		//local statistic PI, with the values of a block of instances in each event
+		if (this.attributeBlocks == null) {
+			this.attributeBlocks = newAttributeBlocks(inst);
+		}
+		for (AttributeBlockContentEvent block : this.attributeBlocks) {
+			block.addInstance(inst);
+		}
+	}
+
+	/*
+	 * Attribute i belongs to group (i % number of groups)
+	 */
+	private AttributeBlockContentEvent[] newAttributeBlocks(Instance inst) {
+		int numAttributes = inst.numAttributes() - 1;
+		int numGroups = Math.max(1, Math.min(this.parallelismHint, numAttributes));
+		if (this.attributeBlockKeys == null) {
+			this.attributeBlockKeys = new String[numGroups];
+			for (int g = 0; g < numGroups; g++) {
+				this.attributeBlockKeys[g] = this.generateKey(g);
 			}
-			AttributeContentEvent ace = new AttributeContentEvent.Builder(
-					this.id, i, key)
-					.attrValue(inst.value(instAttIndex))
-					.classValue((int) inst.classValue())
-					.weight(inst.weight())
-					.isNominal(inst.attribute(instAttIndex).isNominal())
-					.build();
-                        if (this.attributeBatchContentEvent == null){
-                            this.attributeBatchContentEvent = new AttributeBatchContentEvent[inst.numAttributes() - 1];
 		}
-                        if (this.attributeBatchContentEvent[i] == null){
-                            this.attributeBatchContentEvent[i] = new AttributeBatchContentEvent.Builder(
-					this.id, i, key)
-					//.attrValue(inst.value(instAttIndex))
-					//.classValue((int) inst.classValue())
-					//.weight(inst.weight()]
-					.isNominal(inst.attribute(instAttIndex).isNominal())
-					.build();
-	}
-                        this.attributeBatchContentEvent[i].add(ace);
-			//proc.sendToAttributeStream(ace);
+		AttributeBlockContentEvent[] blocks = new AttributeBlockContentEvent[numGroups];
+		for (int g = 0; g < numGroups; g++) {
+			int size = (numAttributes - g + numGroups - 1) / numGroups;
+			int[] obsIndices = new int[size];
+			int[] instAttIndices = new int[size];
+			boolean[] isNominal = new boolean[size];
+			for (int j = 0; j < size; j++) {
+				int obsIndex = g + j * numGroups;
+				obsIndices[j] = obsIndex;
+				instAttIndices[j] = modelAttIndexToInstanceAttIndex(obsIndex, inst);
+				isNominal[j] = inst.attribute(instAttIndices[j]).isNominal();
+			}
+			blocks[g] = new AttributeBlockContentEvent(this.id, this.attributeBlockKeys[g], g,
+					obsIndices, instAttIndices, isNominal, this.lastBlockSize);
 		}
+		return blocks;
 	}
 	
 	@Override
@@ -171,6 +177,20 @@ final class ActiveLearningNode extends LearningNode {
 		this.suggestionCtr++;
 	}
 
+	/*
+	 * Free the statistics of this node in the local statistic PIs, on the 
+	 * attribute stream so that the deletes follow the attribute blocks.
+	 */
+	void deleteDistributedStatistics(ModelAggregatorProcessor modelAggrProc) {
+		this.clearAttributeBlocks();
+		if (this.attributeBlockKeys == null) {
+			return; //no block was sent
+		}
+		for (int g = 0; g < this.attributeBlockKeys.length; g++) {
+			modelAggrProc.sendToAttributeStream(new DeleteContentEvent(this.id, this.attributeBlockKeys[g], g));
+		}
+	}
+
 	boolean isSplitting(){
 		return this.isSplitting;
 	}
@@ -0,0 +1,213 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.yahoo.labs.samoa.core.PartitionedContentEvent;
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Attribute Block Content Event carries the values of a group of attributes of 
+ * one learning node for a block of instances, in columns of primitive arrays:
+ * the values (one row of the group's attributes per instance), the class values 
+ * and the weights of the instances, instead of one event per attribute and 
+ * instance.
+ * </p>
+ * The events of group g go to the g-th local statistic PI, so that each PI 
+ * receives exactly one group.
+ */
+public final class AttributeBlockContentEvent implements PartitionedContentEvent {
+
+	private static final long serialVersionUID = -4373393727893468327L;
+	private static final int MIN_CAPACITY = 16;
+
+	private final long learningNodeId;
+	private final int[] obsIndices;
+	private final boolean[] isNominal;
+	// index of each attribute in the instances, only needed by the sender
+	private final transient int[] instAttIndices;
+	private final transient String key;
+	private final transient int group;
+
+	private int numInstances;
+	private double[] values; // values[instance * obsIndices.length + attribute]
+	private int[] classValues;
+	private double[] weights;
+
+	AttributeBlockContentEvent(long learningNodeId, String key, int group, int[] obsIndices, int[] instAttIndices, 
+			boolean[] isNominal, int initialCapacity) {
+		this.learningNodeId = learningNodeId;
+		this.key = key;
+		this.group = group;
+		this.obsIndices = obsIndices;
+		this.instAttIndices = instAttIndices;
+		this.isNominal = isNominal;
+		int capacity = Math.max(initialCapacity, MIN_CAPACITY);
+		this.values = new double[capacity * obsIndices.length];
+		this.classValues = new int[capacity];
+		this.weights = new double[capacity];
+	}
+
+	// used by the Kryo serializer
+	private AttributeBlockContentEvent(long learningNodeId, int[] obsIndices, boolean[] isNominal, 
+			int numInstances, double[] values, int[] classValues, double[] weights) {
+		this.learningNodeId = learningNodeId;
+		this.key = "";
+		this.group = 0;
+		this.obsIndices = obsIndices;
+		this.instAttIndices = null;
+		this.isNominal = isNominal;
+		this.numInstances = numInstances;
+		this.values = values;
+		this.classValues = classValues;
+		this.weights = weights;
+	}
+
+	/**
+	 * Append the values of the attributes of this block for one instance.
+	 */
+	void addInstance(Instance inst) {
+		if (numInstances == classValues.length) {
+			int capacity = numInstances << 1;
+			values = Arrays.copyOf(values, capacity * obsIndices.length);
+			classValues = Arrays.copyOf(classValues, capacity);
+			weights = Arrays.copyOf(weights, capacity);
+		}
+		int offset = numInstances * obsIndices.length;
+		for (int j = 0; j < instAttIndices.length; j++) {
+			values[offset + j] = inst.value(instAttIndices[j]);
+		}
+		classValues[numInstances] = (int) inst.classValue();
+		weights[numInstances] = inst.weight();
+		numInstances++;
+	}
+
+	@Override
+	public String getKey() {
+		return this.key;
+	}
+
+	@Override
+	public int getPartition() {
+		return this.group;
+	}
+
+	@Override
+	public void setKey(String str) {
+		//do nothing, maybe useful when we want to reuse the object for serialization/deserialization purpose
+	}
+
+	@Override
+	public boolean isLastEvent() {
+		return false;
+	}
+
+	long getLearningNodeId() {
+		return this.learningNodeId;
+	}
+
+	int getNumAttributes() {
+		return this.obsIndices.length;
+	}
+
+	int getObsIndex(int attribute) {
+		return this.obsIndices[attribute];
+	}
+
+	boolean isNominal(int attribute) {
+		return this.isNominal[attribute];
+	}
+
+	int getNumInstances() {
+		return this.numInstances;
+	}
+
+	double getValue(int instance, int attribute) {
+		return this.values[instance * obsIndices.length + attribute];
+	}
+
+	int getClassValue(int instance) {
+		return this.classValues[instance];
+	}
+
+	double getWeight(int instance) {
+		return this.weights[instance];
+	}
+
+	/**
+	 * The Kryo serializer class for AttributeBlockContentEvent, with full precision 
+	 * of the values. Only the filled part of the columns is written.
+	 *
+	 */
+	public static final class AttributeBlockCESerializer extends Serializer<AttributeBlockContentEvent> {
+
+		@Override
+		public void write(Kryo kryo, Output output, AttributeBlockContentEvent event) {
+			int numAttributes = event.obsIndices.length;
+			int numInstances = event.numInstances;
+			output.writeLong(event.learningNodeId, true);
+			output.writeInt(numAttributes, true);
+			output.writeInt(numInstances, true);
+			for (int j = 0; j < numAttributes; j++) {
+				output.writeInt(event.obsIndices[j], true);
+				output.writeBoolean(event.isNominal[j]);
+			}
+			for (int i = 0; i < numInstances * numAttributes; i++) {
+				output.writeDouble(event.values[i]);
+			}
+			for (int i = 0; i < numInstances; i++) {
+				output.writeInt(event.classValues[i], true);
+				output.writeDouble(event.weights[i]);
+			}
+		}
+
+		@Override
+		public AttributeBlockContentEvent read(Kryo kryo, Input input, Class<AttributeBlockContentEvent> type) {
+			long learningNodeId = input.readLong(true);
+			int numAttributes = input.readInt(true);
+			int numInstances = input.readInt(true);
+			int[] obsIndices = new int[numAttributes];
+			boolean[] isNominal = new boolean[numAttributes];
+			for (int j = 0; j < numAttributes; j++) {
+				obsIndices[j] = input.readInt(true);
+				isNominal[j] = input.readBoolean();
+			}
+			double[] values = new double[numInstances * numAttributes];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = input.readDouble();
+			}
+			int[] classValues = new int[numInstances];
+			double[] weights = new double[numInstances];
+			for (int i = 0; i < numInstances; i++) {
+				classValues[i] = input.readInt(true);
+				weights[i] = input.readDouble();
+			}
+			return new AttributeBlockContentEvent(learningNodeId, obsIndices, isNominal, 
+					numInstances, values, classValues, weights);
+		}
+	}
+}
@@ -0,0 +1,391 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.InstanceConditionalTest;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+
+/**
+ * Flat view of the decision tree of ModelAggregatorProcessor, used to route the
+ * instances to their leaf without recursion nor allocation.
+ * </p>
+ * The nodes are numbered (the root is 0) and described by parallel arrays: the
+ * kind of the split test, its attribute, its threshold and the offset of the
+ * children of the node in a table of child numbers. Numeric binary tests and
+ * nominal multiway tests are evaluated from the arrays, the other tests by the
+ * split node itself. The node objects, and one FoundNode per node, are kept to
+ * predict with and to train the leaves.
+ * </p>
+ * The tree changes by replacing a node (a leaf split, deactivated or activated,
+ * an empty branch filled): only the replaced node and its new subtree are
+ * compiled, at the number of the replaced node, so the numbers of the other
+ * nodes do not change. The numbers of the replaced subtree are reused for the 
+ * next new nodes; its child slots are wasted until more than half of them are, 
+ * and the whole tree is compiled again.
+ * </p>
+ * The tree keeps track of the nodes changed since the last snapshot, to send only 
+ * these nodes to the replicas of the model (see ModelSnapshotContentEvent).
+ */
+final class CompiledTree {
+
+	static final int NO_NODE = -1;
+
+	private static final byte LEAF = 0;
+	private static final byte NUMERIC_BINARY = 1;
+	private static final byte NOMINAL_MULTIWAY = 2;
+	private static final byte OTHER_SPLIT = 3;
+
+	static final int INITIAL_CAPACITY = 16;
+
+	private int numNodes;
+	private byte[] kinds = new byte[INITIAL_CAPACITY];
+	private int[] attIndices = new int[INITIAL_CAPACITY];
+	private double[] thresholds = new double[INITIAL_CAPACITY];
+	private boolean[] equalsPassesTest = new boolean[INITIAL_CAPACITY];
+	private int[] childOffsets = new int[INITIAL_CAPACITY];
+	private int[] numBranches = new int[INITIAL_CAPACITY];
+	private Node[] nodes = new Node[INITIAL_CAPACITY];
+	private FoundNode[] foundNodes = new FoundNode[INITIAL_CAPACITY];
+
+	private int numSlots;
+	private int[] children = new int[INITIAL_CAPACITY];
+
+	//numbers and child slots of the replaced subtrees
+	private final BitSet freeNodes = new BitSet();
+	private int numFreeSlots;
+
+	private final IdentityHashMap<SplitNode, Integer> splitNumbers = new IdentityHashMap<>();
+
+	//empty branch reached by the last call to route
+	private SplitNode emptyBranchParent;
+	private int emptyBranch;
+
+	//nodes changed since the last snapshot, and whether the nodes were numbered again
+	private final BitSet changed = new BitSet();
+	private boolean renumbered;
+
+	/**
+	 * Compile a whole tree.
+	 * @param root the root of the tree, or null
+	 */
+	void rebuild(Node root) {
+		this.numNodes = 0;
+		this.numSlots = 0;
+		this.freeNodes.clear();
+		this.numFreeSlots = 0;
+		this.splitNumbers.clear();
+		this.changed.clear();
+		this.renumbered = true;
+		Arrays.fill(this.nodes, null);
+		Arrays.fill(this.foundNodes, null);
+		if (root != null) {
+			compile(newNode(), root, null, -1);
+		}
+	}
+
+	/**
+	 * Replace a node of the tree, or fill an empty branch. The tree itself must
+	 * have been changed accordingly.
+	 * @param parent the parent of the node, or null for the root
+	 * @param parentBranch the branch of the node in its parent
+	 * @param node the new node
+	 * @return the number of the new node, or NO_NODE if the node is null or if
+	 * the parent is not in the tree
+	 */
+	int replace(SplitNode parent, int parentBranch, Node node) {
+		if (parent == null) {
+			rebuild(node);
+			return node == null ? NO_NODE : 0;
+		}
+		Integer parentNumber = this.splitNumbers.get(parent);
+		if (parentNumber == null || parentBranch >= this.numBranches[parentNumber]) {
+			//the parent or the branch was not compiled (e.g. a new value of a nominal attribute)
+			rebuild(this.nodes[0]);
+			return numberOf(parent, parentBranch);
+		}
+		this.changed.set(parentNumber);
+		int slot = this.childOffsets[parentNumber] + parentBranch;
+		int number = this.children[slot];
+		if (number != NO_NODE) {
+			release(number);
+		}
+		if (node == null) {
+			this.children[slot] = NO_NODE;
+			return NO_NODE;
+		}
+		if (number == NO_NODE) {
+			number = newNode();
+			this.children[slot] = number;
+		} else {
+			this.freeNodes.clear(number);
+		}
+		compile(number, node, parent, parentBranch);
+		if (2 * this.numFreeSlots > this.numSlots && this.numSlots > INITIAL_CAPACITY) {
+			//compact the tree
+			rebuild(this.nodes[0]);
+			return numberOf(parent, parentBranch);
+		}
+		return number;
+	}
+
+	/*
+	 * Number of the child of a split node, NO_NODE if the split node is not in the tree
+	 */
+	private int numberOf(SplitNode parent, int parentBranch) {
+		Integer parentNumber = this.splitNumbers.get(parent);
+		if (parentNumber == null || parentBranch >= this.numBranches[parentNumber]) {
+			return NO_NODE;
+		}
+		return this.children[this.childOffsets[parentNumber] + parentBranch];
+	}
+
+	/*
+	 * Forget a replaced node and its subtree: the numbers become free, and the 
+	 * split nodes are not in the tree anymore
+	 */
+	private void release(int number) {
+		this.freeNodes.set(number);
+		this.changed.clear(number);
+		Node node = this.nodes[number];
+		this.nodes[number] = null;
+		this.foundNodes[number] = null;
+		if (this.kinds[number] == LEAF) {
+			return;
+		}
+		this.splitNumbers.remove(node);
+		int offset = this.childOffsets[number];
+		this.numFreeSlots += this.numBranches[number];
+		for (int i = 0; i < this.numBranches[number]; i++) {
+			int child = this.children[offset + i];
+			if (child != NO_NODE) {
+				release(child);
+			}
+		}
+	}
+
+	/**
+	 * Route an instance from the root (the tree must not be empty).
+	 * @param inst the instance
+	 * @return the number of the leaf reached, or of the split node where the value
+	 * of the test is missing, or NO_NODE if the instance reaches an empty branch
+	 * (see getEmptyBranchParent and getEmptyBranch)
+	 */
+	int route(Instance inst) {
+		int number = 0;
+		while (true) {
+			int branch;
+			switch (this.kinds[number]) {
+			case LEAF:
+				return number;
+			case NUMERIC_BINARY: {
+				int attIndex = this.attIndices[number];
+				if (inst.isMissing(attIndex)) {
+					return number;
+				}
+				double value = inst.value(attIndex);
+				double threshold = this.thresholds[number];
+				if (value == threshold) {
+					branch = this.equalsPassesTest[number] ? 0 : 1;
+				} else {
+					branch = value < threshold ? 0 : 1;
+				}
+				break;
+			}
+			case NOMINAL_MULTIWAY: {
+				int attIndex = this.attIndices[number];
+				if (inst.isMissing(attIndex)) {
+					return number;
+				}
+				branch = (int) inst.value(attIndex);
+				break;
+			}
+			default:
+				branch = ((SplitNode) this.nodes[number]).instanceChildIndex(inst);
+				if (branch < 0) {
+					return number;
+				}
+			}
+			int child = branch >= 0 && branch < this.numBranches[number] ? this.children[this.childOffsets[number] + branch] : NO_NODE;
+			if (child == NO_NODE) {
+				this.emptyBranchParent = (SplitNode) this.nodes[number];
+				this.emptyBranch = branch;
+				return NO_NODE;
+			}
+			number = child;
+		}
+	}
+
+	Node getNode(int number) {
+		return this.nodes[number];
+	}
+
+	/**
+	 * @return the node, its parent and its branch in the parent, the same object
+	 * for the same node
+	 */
+	FoundNode getFoundNode(int number) {
+		return this.foundNodes[number];
+	}
+
+	SplitNode getEmptyBranchParent() {
+		return this.emptyBranchParent;
+	}
+
+	int getEmptyBranch() {
+		return this.emptyBranch;
+	}
+
+	int numNodes() {
+		return this.numNodes;
+	}
+
+	/**
+	 * @return the number of nodes in the tree (numNodes without the free numbers)
+	 */
+	int numLiveNodes() {
+		return this.numNodes - this.freeNodes.cardinality();
+	}
+
+	/**
+	 * @return the size of the table of child numbers, including the wasted slots
+	 */
+	int numSlots() {
+		return this.numSlots;
+	}
+
+	/**
+	 * Record that the class distribution of a node changed.
+	 * @param number the number of the node
+	 */
+	void markChanged(int number) {
+		this.changed.set(number);
+	}
+
+	/**
+	 * Take a snapshot of the tree: the nodes changed since the last snapshot, or all 
+	 * the nodes if full is set or if the tree was compiled again since then.
+	 * @param version the version of the snapshot
+	 * @param full whether to take a full snapshot
+	 * @return the snapshot
+	 */
+	ModelSnapshotContentEvent takeSnapshot(long version, boolean full) {
+		full |= this.renumbered;
+		if (full) {
+			this.changed.set(0, this.numNodes);
+			this.changed.andNot(this.freeNodes);
+		}
+		int count = this.changed.cardinality();
+		int[] numbers = new int[count];
+		InstanceConditionalTest[] splitTests = new InstanceConditionalTest[count];
+		int[][] childNumbers = new int[count][];
+		double[][] classDistributions = new double[count][];
+		int i = 0;
+		for (int number = this.changed.nextSetBit(0); number >= 0; number = this.changed.nextSetBit(number + 1)) {
+			Node node = this.nodes[number];
+			numbers[i] = number;
+			if (this.kinds[number] != LEAF) {
+				int offset = this.childOffsets[number];
+				splitTests[i] = ((SplitNode) node).splitTest;
+				childNumbers[i] = Arrays.copyOfRange(this.children, offset, offset + this.numBranches[number]);
+			}
+			classDistributions[i] = node.getObservedClassDistribution();
+			i++;
+		}
+		this.changed.clear();
+		this.renumbered = false;
+		return new ModelSnapshotContentEvent(version, full, this.numNodes, numbers, splitTests, childNumbers,
+				classDistributions);
+	}
+
+	private void compile(int number, Node node, SplitNode parent, int parentBranch) {
+		this.nodes[number] = node;
+		this.foundNodes[number] = new FoundNode(node, parent, parentBranch);
+		this.changed.set(number);
+		if (!(node instanceof SplitNode)) {
+			this.kinds[number] = LEAF;
+			return;
+		}
+		SplitNode splitNode = (SplitNode) node;
+		this.splitNumbers.put(splitNode, number);
+		InstanceConditionalTest splitTest = splitNode.splitTest;
+		if (splitTest instanceof NumericAttributeBinaryTest) {
+			NumericAttributeBinaryTest numericTest = (NumericAttributeBinaryTest) splitTest;
+			this.kinds[number] = NUMERIC_BINARY;
+			this.attIndices[number] = numericTest.getAttsTestDependsOn()[0];
+			this.thresholds[number] = numericTest.getSplitValue();
+			this.equalsPassesTest[number] = numericTest.isEqualsPassesTest();
+		} else if (splitTest instanceof NominalAttributeMultiwayTest) {
+			this.kinds[number] = NOMINAL_MULTIWAY;
+			this.attIndices[number] = splitTest.getAttsTestDependsOn()[0];
+		} else {
+			this.kinds[number] = OTHER_SPLIT;
+		}
+		int branches = splitNode.numChildren();
+		int offset = newSlots(branches);
+		this.numBranches[number] = branches;
+		this.childOffsets[number] = offset;
+		for (int i = 0; i < branches; i++) {
+			Node child = splitNode.getChild(i);
+			if (child == null) {
+				this.children[offset + i] = NO_NODE;
+			} else {
+				int childNumber = newNode();
+				this.children[offset + i] = childNumber;
+				compile(childNumber, child, splitNode, i);
+			}
+		}
+	}
+
+	private int newNode() {
+		int free = this.freeNodes.nextSetBit(0);
+		if (free >= 0) {
+			this.freeNodes.clear(free);
+			return free;
+		}
+		if (this.numNodes == this.nodes.length) {
+			int capacity = 2 * this.nodes.length;
+			this.kinds = Arrays.copyOf(this.kinds, capacity);
+			this.attIndices = Arrays.copyOf(this.attIndices, capacity);
+			this.thresholds = Arrays.copyOf(this.thresholds, capacity);
+			this.equalsPassesTest = Arrays.copyOf(this.equalsPassesTest, capacity);
+			this.childOffsets = Arrays.copyOf(this.childOffsets, capacity);
+			this.numBranches = Arrays.copyOf(this.numBranches, capacity);
+			this.nodes = Arrays.copyOf(this.nodes, capacity);
+			this.foundNodes = Arrays.copyOf(this.foundNodes, capacity);
+		}
+		return this.numNodes++;
+	}
+
+	private int newSlots(int count) {
+		if (this.numSlots + count > this.children.length) {
+			this.children = Arrays.copyOf(this.children, Math.max(2 * this.children.length, this.numSlots + count));
+		}
+		int offset = this.numSlots;
+		this.numSlots += count;
+		return offset;
+	}
+}
@@ -45,7 +45,7 @@ abstract class ControlContentEvent implements ContentEvent {
 	}
 	
 	@Override
-	public final String getKey() {
+	public String getKey() {
 		return null;
 	}
 	
@@ -20,22 +20,46 @@ package com.yahoo.labs.samoa.learners.classifiers.trees;
  * #L%
  */
 
+import com.yahoo.labs.samoa.core.PartitionedContentEvent;
+
 /**
  * Delete Content Event is the content event that is sent by Model Aggregator Processor 
  * to delete unnecessary statistic in Local Statistic Processor.
+ * </p>
+ * It is sent on the attribute stream with the key and the group of each attribute block 
+ * of the learning node, so that it reaches each local statistic PI after the blocks 
+ * sent before it, and no late block creates the observers again.
  * @author Arinto Murdopo
  *
  */
-final class DeleteContentEvent extends ControlContentEvent {
+final class DeleteContentEvent extends ControlContentEvent implements PartitionedContentEvent {
 
 	private static final long serialVersionUID = -2105250722560863633L;
+	
+	private final String key;
+	private final int group;
 
 	public DeleteContentEvent(){
 		super(-1);
+		this.key = null;
+		this.group = 0;
 	}
 	
-	DeleteContentEvent(long id) {
-		super(id);	}
+	DeleteContentEvent(long id, String key, int group) {
+		super(id);
+		this.key = key;
+		this.group = group;
+	}
+	
+	@Override
+	public String getKey() {
+		return this.key;
+	}
+	
+	@Override
+	public int getPartition() {
+		return this.group;
+	}
 
 	@Override
 	LocStatControl getType() {
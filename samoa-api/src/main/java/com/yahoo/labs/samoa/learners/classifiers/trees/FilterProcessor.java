@@ -39,6 +39,10 @@ import java.util.List;
 /**
  * Filter Processor that stores and filters the instances before 
  * sending them to the Model Aggregator Processor.
+ * In the serving mode, the instances to test are sent to the Prediction 
+ * Processors, and only the instances to train to the Model Aggregator Processor.
+ * The last instance goes to every Prediction Processor, so that each one sends 
+ * its last result after the results of the instances it has received.
 
  * @author Arinto Murdopo
  *
@@ -55,6 +59,8 @@ final class FilterProcessor implements Processor {
 	
 	//available streams
 	private Stream outputStream;
+	private Stream predictionStream;
+	private Stream lastPredictionStream;
 		
 	//private constructor based on Builder pattern
 	private FilterProcessor(Builder builder){
@@ -76,11 +82,21 @@ final class FilterProcessor implements Processor {
             //Receive a new instance from source
             if(event instanceof InstanceContentEvent){
                 InstanceContentEvent instanceContentEvent = (InstanceContentEvent) event;
-                this.contentEventList.add(instanceContentEvent);
-                this.waitingInstances++;
+                boolean serving = this.predictionStream != null;
+                if (serving && instanceContentEvent.isLastEvent()) {
+                    this.lastPredictionStream.put(testingEvent(instanceContentEvent));
+                } else if (serving && instanceContentEvent.isTesting()) {
+                    this.predictionStream.put(testingEvent(instanceContentEvent));
+                }
+                if (!serving || instanceContentEvent.isTraining()) {
+                    this.contentEventList.add(instanceContentEvent);
+                    this.waitingInstances++;
+                }
                 if (this.waitingInstances == this.batchSize || instanceContentEvent.isLastEvent()){
                     //Send Instances
-                    InstancesContentEvent outputEvent = new InstancesContentEvent(instanceContentEvent);
+                    InstancesContentEvent outputEvent = serving
+                            ? new InstancesContentEvent(instanceContentEvent.getInstanceIndex(), true, false)
+                            : new InstancesContentEvent(instanceContentEvent);
                     boolean isLastEvent = false;
                     while (!this.contentEventList.isEmpty()){
                         InstanceContentEvent ice = this.contentEventList.remove(0);
@@ -90,7 +106,7 @@ final class FilterProcessor implements Processor {
                             isLastEvent = ice.isLastEvent();
                         }
                     }
-                    outputEvent.setLast(isLastEvent);
+                    outputEvent.setLast(isLastEvent || instanceContentEvent.isLastEvent());
                     this.waitingInstances = 0;
                     this.outputStream.put(outputEvent);
                     if (this.delay > 0) {
@@ -119,6 +135,8 @@ final class FilterProcessor implements Processor {
 				new FilterProcessor.Builder(oldProcessor).build();
 		
 		newProcessor.setOutputStream(oldProcessor.outputStream);
+		newProcessor.setPredictionStream(oldProcessor.predictionStream);
+		newProcessor.setLastPredictionStream(oldProcessor.lastPredictionStream);
 		return newProcessor;
 	}
 	
@@ -133,6 +151,33 @@ final class FilterProcessor implements Processor {
 		this.outputStream = outputStream;
 	}
 	
+	void setPredictionStream(Stream predictionStream){
+		this.predictionStream = predictionStream;
+	}
+	
+	void setLastPredictionStream(Stream lastPredictionStream){
+		this.lastPredictionStream = lastPredictionStream;
+	}
+	
+	/**
+	 * Helper method to get the event to send to the Prediction Processors: the 
+	 * event itself if it is only for testing, otherwise a copy only for testing 
+	 * (the last event is tested even if it is only for training, to end the stream).
+	 * @param inEvent The instance content event from the source
+	 * @return InstanceContentEvent to be sent into the Prediction Processors.
+	 */
+	private static InstanceContentEvent testingEvent(InstanceContentEvent inEvent){
+		if (!inEvent.isTraining() && inEvent.isTesting()) {
+			return inEvent;
+		}
+		InstanceContentEvent ice = new InstanceContentEvent(inEvent.getInstanceIndex(), inEvent.getInstance(), 
+				false, true);
+		ice.setClassifierIndex(inEvent.getClassifierIndex());
+		ice.setEvaluationIndex(inEvent.getEvaluationIndex());
+		ice.setLast(inEvent.isLastEvent());
+		return ice;
+	}
+	
 	
 	/**
 	 * Helper method to generate new ResultContentEvent based on an instance and
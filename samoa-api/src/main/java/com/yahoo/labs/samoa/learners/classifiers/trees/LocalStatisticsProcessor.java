@@ -20,11 +20,9 @@ package com.yahoo.labs.samoa.learners.classifiers.trees;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Vector;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,9 +34,6 @@ import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.Nominal
 import com.yahoo.labs.samoa.moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
 import com.yahoo.labs.samoa.moa.classifiers.core.splitcriteria.SplitCriterion;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
-
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.Processor;
 import com.yahoo.labs.samoa.topology.Stream;
@@ -57,7 +52,7 @@ final class LocalStatisticsProcessor implements Processor {
 	private static Logger logger = LoggerFactory.getLogger(LocalStatisticsProcessor.class);
 	
 	//Collection of AttributeObservers, for each ActiveLearningNode and AttributeId
-    private Table<Long, Integer, AttributeClassObserver> localStats;
+    private LocalStatisticsTable localStats;
     
     private Stream computationResultStream;
     
@@ -76,62 +71,46 @@ final class LocalStatisticsProcessor implements Processor {
     
 	@Override
 	public boolean process(ContentEvent event) {
-		//process AttributeContentEvent by updating the subset of local statistics
-                if (event instanceof AttributeBatchContentEvent) {
-                        AttributeBatchContentEvent abce = (AttributeBatchContentEvent) event;
-                        List<ContentEvent> contentEventList = abce.getContentEventList();
-                            for (ContentEvent contentEvent: contentEventList ){
-                            AttributeContentEvent ace = (AttributeContentEvent) contentEvent;
-                            Long learningNodeId = ace.getLearningNodeId();
-                            Integer obsIndex = ace.getObsIndex();
-
-                            AttributeClassObserver obs = localStats.get(
-                                            learningNodeId, obsIndex);
-
-                            if (obs == null) {
-                                    obs = ace.isNominal() ? newNominalClassObserver()
-                                                    : newNumericClassObserver();
-                                    localStats.put(ace.getLearningNodeId(), obsIndex, obs);
-                            }
-                            obs.observeAttributeClass(ace.getAttrVal(), ace.getClassVal(),
-                                            ace.getWeight());
-                            }
-			
-		
-            /*if (event instanceof AttributeContentEvent) {
-			AttributeContentEvent ace = (AttributeContentEvent) event;
-			Long learningNodeId = Long.valueOf(ace.getLearningNodeId());
-			Integer obsIndex = Integer.valueOf(ace.getObsIndex());
-
-			AttributeClassObserver obs = localStats.get(
-					learningNodeId, obsIndex);
-
-			if (obs == null) {
-				obs = ace.isNominal() ? newNominalClassObserver()
-						: newNumericClassObserver();
-				localStats.put(ace.getLearningNodeId(), obsIndex, obs);
+		//process AttributeBlockContentEvent by updating the subset of local statistics,
+		//one observer (i.e. one lookup) per attribute for the whole block of instances
+		if (event instanceof AttributeBlockContentEvent) {
+			AttributeBlockContentEvent abce = (AttributeBlockContentEvent) event;
+			long learningNodeId = abce.getLearningNodeId();
+			int numInstances = abce.getNumInstances();
+			for (int j = 0; j < abce.getNumAttributes(); j++) {
+				int obsIndex = abce.getObsIndex(j);
+				AttributeClassObserver obs = localStats.get(learningNodeId, obsIndex);
+				if (obs == null) {
+					obs = abce.isNominal(j) ? newNominalClassObserver()
+							: newNumericClassObserver();
+					localStats.put(learningNodeId, obsIndex, obs);
+				}
+				for (int i = 0; i < numInstances; i++) {
+					obs.observeAttributeClass(abce.getValue(i, j), abce.getClassValue(i),
+							abce.getWeight(i));
+				}
 			}
-			obs.observeAttributeClass(ace.getAttrVal(), ace.getClassVal(),
-					ace.getWeight());
-		*/	
 		} else if (event instanceof ComputeContentEvent) {
 			//process ComputeContentEvent by calculating the local statistic
 			//and send back the calculation results via computation result stream.
 			ComputeContentEvent cce = (ComputeContentEvent) event;
-			Long learningNodeId = cce.getLearningNodeId();
+			long learningNodeId = cce.getLearningNodeId();
 			double[] preSplitDist = cce.getPreSplitDist();
 			
-			Map<Integer, AttributeClassObserver> learningNodeRowMap = localStats
-					.row(learningNodeId);
-			List<AttributeSplitSuggestion> suggestions = new Vector<>();
-
-			for (Entry<Integer, AttributeClassObserver> entry : learningNodeRowMap.entrySet()) {
-				AttributeClassObserver obs = entry.getValue();
-				AttributeSplitSuggestion suggestion = obs
-						.getBestEvaluatedSplitSuggestion(splitCriterion,
-								preSplitDist, entry.getKey(), binarySplit);
-				if(suggestion != null){
-					suggestions.add(suggestion);
+			AttributeClassObserver[] learningNodeObservers = localStats
+					.getObservers(learningNodeId);
+			List<AttributeSplitSuggestion> suggestions = new ArrayList<>();
+
+			if (learningNodeObservers != null) {
+				for (int obsIndex = 0; obsIndex < learningNodeObservers.length; obsIndex++) {
+					AttributeClassObserver obs = learningNodeObservers[obsIndex];
+					if (obs == null) continue;
+					AttributeSplitSuggestion suggestion = obs
+							.getBestEvaluatedSplitSuggestion(splitCriterion,
+									preSplitDist, obsIndex, binarySplit);
+					if(suggestion != null){
+						suggestions.add(suggestion);
+					}
 				}
 			}
 			
@@ -157,16 +136,16 @@ final class LocalStatisticsProcessor implements Processor {
 			computationResultStream.put(lcre);
 			logger.debug("Finish compute event");
 		} else if (event instanceof DeleteContentEvent) {
+			//comes on the attribute stream, after the last blocks of the node
 			DeleteContentEvent dce = (DeleteContentEvent) event;
-			Long learningNodeId = dce.getLearningNodeId();
-			localStats.rowMap().remove(learningNodeId);
+			localStats.remove(dce.getLearningNodeId());
 		}
 		return false;
 	}
 
 	@Override
 	public void onCreate(int id) {
-		this.localStats = HashBasedTable.create();
+		this.localStats = new LocalStatisticsTable();
 	}
 
 	@Override
@@ -189,11 +168,11 @@ final class LocalStatisticsProcessor implements Processor {
 		this.computationResultStream = computeStream;
 	}
 	
-    private AttributeClassObserver newNominalClassObserver() {
+    AttributeClassObserver newNominalClassObserver() {
         return (AttributeClassObserver)this.nominalClassObserver.copy();
     }
 
-    private AttributeClassObserver newNumericClassObserver() {
+    AttributeClassObserver newNumericClassObserver() {
         return (AttributeClassObserver)this.numericClassObserver.copy();
     }
     
@@ -216,6 +195,8 @@ final class LocalStatisticsProcessor implements Processor {
     	Builder(LocalStatisticsProcessor oldProcessor){
     		this.splitCriterion = oldProcessor.splitCriterion;
     		this.binarySplit = oldProcessor.binarySplit;
+    		this.nominalClassObserver = oldProcessor.nominalClassObserver;
+    		this.numericClassObserver = oldProcessor.numericClassObserver;
     	}
     	
     	Builder splitCriterion(SplitCriterion splitCriterion){
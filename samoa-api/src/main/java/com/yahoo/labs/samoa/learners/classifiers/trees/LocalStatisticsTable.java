@@ -0,0 +1,193 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+
+/**
+ * Store of the attribute observers of a LocalStatisticsProcessor, keyed by the
+ * primitive (learning node id, attribute index) pair. The learning nodes are kept in 
+ * an open-addressing hash table (linear probing) of long ids, and the observers of 
+ * one learning node in a dense array indexed by attribute, so that a lookup does not 
+ * box the keys and deleting a learning node is O(1) (plus the probing).
+ * </p>
+ * The number of observers of each learning node is tracked, as the memory used 
+ * by the local statistics is proportional to it.
+ *
+ */
+final class LocalStatisticsTable implements Serializable {
+
+	private static final long serialVersionUID = 2416207281735470311L;
+
+	private static final long EMPTY = -1L; // learning node ids are >= 0
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] learningNodeIds;
+	private AttributeClassObserver[][] observers;
+	private int[] numObservers;
+	private int mask;
+	private int size;
+	private long totalObservers;
+
+	LocalStatisticsTable() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		this.learningNodeIds = new long[capacity];
+		Arrays.fill(this.learningNodeIds, EMPTY);
+		this.observers = new AttributeClassObserver[capacity][];
+		this.numObservers = new int[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/*
+	 * Murmur3 finalizer, as the ids are sequential
+	 */
+	private static int hash(long id) {
+		id ^= id >>> 33;
+		id *= 0xff51afd7ed558ccdL;
+		id ^= id >>> 33;
+		return (int) id;
+	}
+
+	private int indexOf(long learningNodeId) {
+		int i = hash(learningNodeId) & mask;
+		long id;
+		while ((id = learningNodeIds[i]) != EMPTY) {
+			if (id == learningNodeId) return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the observer of an attribute of a learning node, or null
+	 */
+	AttributeClassObserver get(long learningNodeId, int obsIndex) {
+		int i = indexOf(learningNodeId);
+		if (i < 0) return null;
+		AttributeClassObserver[] row = observers[i];
+		return obsIndex < row.length ? row[obsIndex] : null;
+	}
+
+	void put(long learningNodeId, int obsIndex, AttributeClassObserver observer) {
+		int i = indexOf(learningNodeId);
+		if (i < 0) {
+			if ((size + 1) << 1 > learningNodeIds.length) rehash(learningNodeIds.length << 1);
+			i = hash(learningNodeId) & mask;
+			while (learningNodeIds[i] != EMPTY) i = (i + 1) & mask;
+			learningNodeIds[i] = learningNodeId;
+			observers[i] = new AttributeClassObserver[obsIndex + 1];
+			size++;
+		}
+		AttributeClassObserver[] row = observers[i];
+		if (obsIndex >= row.length) {
+			row = Arrays.copyOf(row, Math.max(obsIndex + 1, row.length << 1));
+			observers[i] = row;
+		}
+		if (row[obsIndex] == null) {
+			numObservers[i]++;
+			totalObservers++;
+		}
+		row[obsIndex] = observer;
+	}
+
+	/**
+	 * @return the observers of a learning node indexed by attribute (with null
+	 *         entries for the attributes without observer), or null
+	 */
+	AttributeClassObserver[] getObservers(long learningNodeId) {
+		int i = indexOf(learningNodeId);
+		return i < 0 ? null : observers[i];
+	}
+
+	/**
+	 * Remove all the observers of a learning node.
+	 * @return true if the learning node had observers
+	 */
+	boolean remove(long learningNodeId) {
+		int i = indexOf(learningNodeId);
+		if (i < 0) return false;
+		totalObservers -= numObservers[i];
+		size--;
+		// backward shift deletion: move back the entries of the probe sequence
+		int hole = i;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			long id = learningNodeIds[j];
+			if (id == EMPTY) break;
+			int home = hash(id) & mask;
+			// move the entry unless its home lies cyclically in (hole, j]
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				learningNodeIds[hole] = id;
+				observers[hole] = observers[j];
+				numObservers[hole] = numObservers[j];
+				hole = j;
+			}
+		}
+		learningNodeIds[hole] = EMPTY;
+		observers[hole] = null;
+		numObservers[hole] = 0;
+		return true;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldIds = learningNodeIds;
+		AttributeClassObserver[][] oldObservers = observers;
+		int[] oldNumObservers = numObservers;
+		allocate(capacity);
+		for (int j = 0; j < oldIds.length; j++) {
+			if (oldIds[j] == EMPTY) continue;
+			int i = hash(oldIds[j]) & mask;
+			while (learningNodeIds[i] != EMPTY) i = (i + 1) & mask;
+			learningNodeIds[i] = oldIds[j];
+			observers[i] = oldObservers[j];
+			numObservers[i] = oldNumObservers[j];
+		}
+	}
+
+	/**
+	 * @return the number of learning nodes with observers
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of observers of a learning node
+	 */
+	int getNumObservers(long learningNodeId) {
+		int i = indexOf(learningNodeId);
+		return i < 0 ? 0 : numObservers[i];
+	}
+
+	/**
+	 * @return the number of observers of all the learning nodes
+	 */
+	long getNumObservers() {
+		return totalObservers;
+	}
+}
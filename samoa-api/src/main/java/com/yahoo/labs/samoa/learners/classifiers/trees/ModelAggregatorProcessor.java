@@ -20,6 +20,9 @@ package com.yahoo.labs.samoa.learners.classifiers.trees;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -38,6 +41,7 @@ import org.slf4j.LoggerFactory;
 
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.instances.Attribute;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
@@ -48,6 +52,7 @@ import com.yahoo.labs.samoa.moa.classifiers.core.AttributeSplitSuggestion;
 import com.yahoo.labs.samoa.moa.classifiers.core.driftdetection.ChangeDetector;
 import com.yahoo.labs.samoa.moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
 import com.yahoo.labs.samoa.moa.classifiers.core.splitcriteria.SplitCriterion;
+import com.yahoo.labs.samoa.moa.core.Measurement;
 import com.yahoo.labs.samoa.topology.Stream;
 
 import static com.yahoo.labs.samoa.moa.core.Utils.maxIndex;
@@ -63,6 +68,9 @@ import static com.yahoo.labs.samoa.moa.core.Utils.maxIndex;
  * an evaluator PI for classifier or other destination PI. The calculation 
  * results from local statistic arrive to the model-aggregator PI via 
  * computation-result stream.
+ * 
+ * In the serving mode, the test instances go to the prediction PIs instead, and 
+ * model-aggregator PI sends them snapshots of the tree via snapshot stream.
 
  * @author Arinto Murdopo
  *
@@ -71,10 +79,41 @@ final class ModelAggregatorProcessor implements Processor {
 
 	private static final long serialVersionUID = -1685875718300564886L;
 	private static final Logger logger = LoggerFactory.getLogger(ModelAggregatorProcessor.class);
+	
+	//estimated sizes (bytes) used to enforce the memory limit, measured on a 64-bit JVM 
+	//with compressed references. Each node also holds 8 bytes per class.
+	private static final int INACTIVE_LEAF_NODE_BYTES = 48;
+	private static final int ACTIVE_LEAF_NODE_BYTES = 104;
+	private static final int SPLIT_NODE_BYTES = 136;
+	//default observers of the local statistic PIs, with all the classes observed: the Gaussian 
+	//numeric observer, and the nominal observer which also holds 8 bytes per class and value
+	private static final int NUMERIC_OBSERVER_BYTES = 128;
+	private static final int NUMERIC_BYTES_PER_CLASS = 64;
+	private static final int NOMINAL_OBSERVER_BYTES = 72;
+	private static final int NOMINAL_BYTES_PER_CLASS = 40;
+	
+	//pipelining of the instance batches
+	static final int DEFAULT_PIPELINE_DEPTH = 3;
+	static final int MAX_PIPELINE_DEPTH = 64;
+	private static final double SMOOTHING_FACTOR = 0.125;
+	private static final int TIMEOUT_ROUND_TRIPS = 4;
+	private static final long MIN_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	static final int METRICS_PERIOD = 1000; //batches between two reports of the pipeline metrics
+	static final String PIPELINE_DEPTH_MEASUREMENT = "pipeline depth";
+	static final String ROUND_TRIP_MEASUREMENT = "round trip (ms)";
+	static final String BATCH_INTERVAL_MEASUREMENT = "batch interval (ms)";
+	
+	//result of the routing of an instance when the tree is empty
+	private static final int NOT_ROUTED = -2;
+	
+	//every how many snapshots all the nodes are sent, for the replicas which missed a delta
+	static final int FULL_SNAPSHOT_PERIOD = 100;
 
 	private int processorId;
 	
 	private Node treeRoot;
+	//flat view of the tree to route the instances, compiled again from treeRoot after deserialization
+	private transient CompiledTree compiledTree;
 	
 	private int activeLeafNodeCount;
 	private int inactiveLeafNodeCount;
@@ -92,6 +131,7 @@ final class ModelAggregatorProcessor implements Processor {
 	private Stream resultStream;
 	private Stream attributeStream;
 	private Stream controlStream;
+	private Stream snapshotStream;
 	
 	private transient ScheduledExecutorService executor;
 	
@@ -102,6 +142,28 @@ final class ModelAggregatorProcessor implements Processor {
 	private final int parallelismHint;
 	private final long timeOut;
 	
+	//memory limit of the model, including the statistics in the local statistic PIs
+	private final int maxByteSize;
+	private final int memoryEstimatePeriod;
+	private int instancesSinceMemoryCheck;
+	private final int activeLeafByteSize;
+	private final int inactiveLeafByteSize;
+	private final int splitNodeByteSize;
+	
+	//number of batches buffered before they are processed, so that the results of 
+	//the local statistic PIs can come back before the next instances are learnt
+	private final boolean adaptivePipeline;
+	private final boolean speculativePrediction;
+	private int pipelineDepth;
+	private long roundTripNanos; //smoothed time between a compute request and its last local result
+	private long batchIntervalNanos; //smoothed time between two batches
+	private long lastBatchNanos;
+	
+	//serving mode: number of instances learnt between two snapshots, the bound on the staleness of the replicas
+	private final int snapshotPeriod;
+	private int instancesSinceSnapshot;
+	private long snapshotVersion;
+	
 	//private constructor based on Builder pattern
 	private ModelAggregatorProcessor(Builder builder){
 		this.dataset = builder.dataset;
@@ -112,6 +174,15 @@ final class ModelAggregatorProcessor implements Processor {
 		this.parallelismHint = builder.parallelismHint;
 		this.timeOut = builder.timeOut;
 		this.changeDetector = builder.changeDetector;
+		this.maxByteSize = builder.maxByteSize;
+		this.memoryEstimatePeriod = builder.memoryEstimatePeriod;
+		this.activeLeafByteSize = estimateActiveLeafByteSize(dataset);
+		this.inactiveLeafByteSize = INACTIVE_LEAF_NODE_BYTES + dataset.numClasses() * 8;
+		this.splitNodeByteSize = SPLIT_NODE_BYTES + dataset.numClasses() * 8;
+		this.adaptivePipeline = builder.adaptivePipeline;
+		this.speculativePrediction = builder.speculativePrediction;
+		this.snapshotPeriod = builder.snapshotPeriod;
+		this.pipelineDepth = DEFAULT_PIPELINE_DEPTH;
 
 		InstancesHeader ih = new InstancesHeader(dataset);
 		this.setModelContext(ih);
@@ -126,6 +197,9 @@ final class ModelAggregatorProcessor implements Processor {
 			SplittingNodeInfo splittingNode = splittingNodes.get(timedOutSplitId);
 			if (splittingNode != null) {
 				this.splittingNodes.remove(timedOutSplitId);
+				if (this.adaptivePipeline) {
+					this.backOffRoundTrip();
+				}
 				this.continueAttemptToSplit(splittingNode.activeLearningNode,
 						splittingNode.foundNode);
 			
@@ -141,14 +215,17 @@ final class ModelAggregatorProcessor implements Processor {
                         //for each of the nodes
                         if (this.foundNodeSet != null){
                             for (FoundNode foundNode: this.foundNodeSet ){
+                                if (!(foundNode.getNode() instanceof ActiveLearningNode)) {
+                                    continue; //deactivated leaf, no statistics to send
+                                }
                                 ActiveLearningNode leafNode = (ActiveLearningNode) foundNode.getNode();
-                                AttributeBatchContentEvent[] abce = leafNode.getAttributeBatchContentEvent();
-                                if (abce != null) {
-                                    for (int i = 0; i< this.dataset.numAttributes() - 1; i++) {
-                                        this.sendToAttributeStream(abce[i]);
+                                AttributeBlockContentEvent[] blocks = leafNode.getAttributeBlocks();
+                                if (blocks != null) {
+                                    for (AttributeBlockContentEvent block : blocks) {
+                                        this.sendToAttributeStream(block);
                                     }
                                 }
-                                leafNode.setAttributeBatchContentEvent(null);
+                                leafNode.clearAttributeBlocks();
                             //this.sendToControlStream(event); //split information
                             //See if we can ask for splits
                                 if(!leafNode.isSplitting()){
@@ -161,6 +238,13 @@ final class ModelAggregatorProcessor implements Processor {
                             }
                         }
                         this.foundNodeSet = null;
+                        if (this.maxByteSize > 0 && this.instancesSinceMemoryCheck >= this.memoryEstimatePeriod) {
+                            this.enforceMemoryLimit();
+                            this.instancesSinceMemoryCheck = 0;
+                        }
+                        if (this.snapshotStream != null && this.instancesSinceSnapshot >= this.snapshotPeriod) {
+                            this.sendSnapshot();
+                        }
 		} else if(event instanceof LocalResultContentEvent){
 			LocalResultContentEvent lrce = (LocalResultContentEvent) event;
 			Long lrceSplitId = lrce.getSplitId();
@@ -177,6 +261,9 @@ final class ModelAggregatorProcessor implements Processor {
 
 				if (activeLearningNode.isAllSuggestionsCollected()) {
 					splittingNodeInfo.scheduledFuture.cancel(false);
+					if (this.adaptivePipeline) {
+						this.updateRoundTrip(System.nanoTime() - splittingNodeInfo.requestTime);
+					}
 					this.splittingNodes.remove(lrceSplitId);
 					this.continueAttemptToSplit(activeLearningNode,
 							splittingNodeInfo.foundNode);
@@ -214,6 +301,7 @@ final class ModelAggregatorProcessor implements Processor {
 		newProcessor.setResultStream(oldProcessor.resultStream);
 		newProcessor.setAttributeStream(oldProcessor.attributeStream);
 		newProcessor.setControlStream(oldProcessor.controlStream);
+		newProcessor.setSnapshotStream(oldProcessor.snapshotStream);
 		return newProcessor;
 	}
 	
@@ -226,6 +314,8 @@ final class ModelAggregatorProcessor implements Processor {
 		sb.append("InactiveLeafNodeCount: ").append(inactiveLeafNodeCount);
 		sb.append("DecisionNodeCount: ").append(decisionNodeCount);
 		sb.append("Growth allowed: ").append(growthAllowed);
+		sb.append("PipelineDepth: ").append(pipelineDepth);
+		sb.append("RoundTripMillis: ").append(getRoundTripMillis());
 		return sb.toString();
 	}
 	
@@ -241,6 +331,10 @@ final class ModelAggregatorProcessor implements Processor {
 		this.controlStream = controlStream;
 	}
 	
+	void setSnapshotStream(Stream snapshotStream){
+		this.snapshotStream = snapshotStream;
+	}
+	
 	void sendToAttributeStream(ContentEvent event){
 		this.attributeStream.put(event);
 	}
@@ -280,8 +374,18 @@ final class ModelAggregatorProcessor implements Processor {
 	 */
 	private void processInstanceContentEvent(InstancesContentEvent instContentEvent){
             this.numBatches++;
+            if (this.adaptivePipeline) {
+                this.updateBatchInterval();
+            }
+            if (this.speculativePrediction && instContentEvent.isTesting()) {
+                //predict with the current tree, learn once the batch leaves the pipeline
+                this.predictInstances(instContentEvent);
+            }
             this.contentEventList.add(instContentEvent);
-            if (this.numBatches == 1 || this.numBatches > 4){
+            if (this.numBatches == 1){
+                this.processInstances(this.contentEventList.remove(0));
+            }
+            while (this.contentEventList.size() > this.pipelineDepth) {
                 this.processInstances(this.contentEventList.remove(0));
             }
 
@@ -291,6 +395,10 @@ final class ModelAggregatorProcessor implements Processor {
                     processInstances(contentEventList.remove(0));
                 }
             }
+            if (this.adaptivePipeline && (this.numBatches % METRICS_PERIOD == 0 || instContentEvent.isLastEvent())) {
+                logger.info("Pipeline metrics after {} batches: {}", this.numBatches, 
+                        Arrays.toString(getPipelineMeasurements()));
+            }
                 
         }
         
@@ -299,26 +407,127 @@ final class ModelAggregatorProcessor implements Processor {
         private void processInstances(InstancesContentEvent instContentEvent){
          
             Instance[] instances = instContentEvent.getInstances();
-            boolean isTesting = instContentEvent.isTesting();
+            boolean isTesting = instContentEvent.isTesting() && !this.speculativePrediction;
             boolean isTraining= instContentEvent.isTraining();
             for (Instance inst: instances){
                 this.processInstance(inst,instContentEvent, isTesting, isTraining);
             }
         }
         
+        private void predictInstances(InstancesContentEvent instContentEvent){
+            for (Instance inst: instContentEvent.getInstances()){
+                inst.setDataset(this.dataset);
+                this.resultStream.put(newResultContentEvent(getVotesForInstance(inst, false), inst,
+                        instContentEvent));
+            }
+        }
+        
+        /*
+         * Adaptive pipeline: the depth is the number of batches which arrive during 
+         * one round trip to the local statistic PIs.
+         */
+        void updateBatchInterval(){
+            long now = System.nanoTime();
+            if (this.lastBatchNanos != 0) {
+                this.batchIntervalNanos = smooth(this.batchIntervalNanos, now - this.lastBatchNanos);
+            }
+            this.lastBatchNanos = now;
+        }
+        
+        void updateRoundTrip(long sampleNanos){
+            this.roundTripNanos = smooth(this.roundTripNanos, sampleNanos);
+            this.updatePipelineDepth();
+        }
+        
+        /*
+         * A split timed out: the round trip is longer than measured, or at least 
+         * as long as the shortest time-out if it was not measured yet.
+         */
+        void backOffRoundTrip(){
+            this.roundTripNanos = Math.min(TimeUnit.SECONDS.toNanos(this.timeOut), 
+                    Math.max(2 * this.roundTripNanos, MIN_TIMEOUT_NANOS));
+            this.updatePipelineDepth();
+        }
+        
+        private void updatePipelineDepth(){
+            if (this.batchIntervalNanos > 0) {
+                int depth = (int) Math.max(1, Math.min(MAX_PIPELINE_DEPTH, 
+                        (this.roundTripNanos + this.batchIntervalNanos - 1) / this.batchIntervalNanos));
+                if (depth != this.pipelineDepth) {
+                    logger.debug("Pipeline depth changed from {} to {}, round trip {} ms", 
+                            this.pipelineDepth, depth, getRoundTripMillis());
+                    this.pipelineDepth = depth;
+                }
+            }
+        }
+        
+        private static long smooth(long estimate, long sample){
+            return estimate == 0 ? sample : estimate + (long) (SMOOTHING_FACTOR * (sample - estimate));
+        }
+        
+        /*
+         * Time-out of a split: the configured time-out, or a few round trips once 
+         * they are measured by the adaptive pipeline.
+         */
+        private long splitTimeOutNanos(){
+            long maxTimeOut = TimeUnit.SECONDS.toNanos(this.timeOut);
+            if (!this.adaptivePipeline || this.roundTripNanos == 0) {
+                return maxTimeOut;
+            }
+            return Math.min(maxTimeOut, Math.max(MIN_TIMEOUT_NANOS, TIMEOUT_ROUND_TRIPS * this.roundTripNanos));
+        }
+        
+        /**
+         * @return the number of batches buffered before they are processed
+         */
+        public int getPipelineDepth(){
+            return this.pipelineDepth;
+        }
+        
+        /**
+         * @return the smoothed round-trip time to the local statistic PIs in ms (0 if not measured)
+         */
+        public double getRoundTripMillis(){
+            return this.roundTripNanos / 1e6;
+        }
+        
+        /**
+         * @return the smoothed time between two batches in ms (0 if not measured)
+         */
+        public double getBatchIntervalMillis(){
+            return this.batchIntervalNanos / 1e6;
+        }
+        
+        /**
+         * The metrics of the adaptive pipeline, also reported at INFO level every 
+         * METRICS_PERIOD batches and at the end of the stream.
+         * @return the pipeline depth, the round trip and the batch interval
+         */
+        public Measurement[] getPipelineMeasurements(){
+            return new Measurement[] {
+                    new Measurement(PIPELINE_DEPTH_MEASUREMENT, getPipelineDepth()),
+                    new Measurement(ROUND_TRIP_MEASUREMENT, getRoundTripMillis()),
+                    new Measurement(BATCH_INTERVAL_MEASUREMENT, getBatchIntervalMillis()) };
+        }
+        
          private void processInstance(Instance inst, InstancesContentEvent instContentEvent, boolean isTesting, boolean isTraining){
                 inst.setDataset(this.dataset);
 		//Check the instance whether it is used for testing or training
                 //boolean testAndTrain = isTraining; //Train after testing
 		double[] prediction = null;
+		int leafNumber = NOT_ROUTED;
 		if (isTesting) {
-                        prediction = getVotesForInstance(inst, false);
+			//the instance is routed once, for the prediction and the training
+			leafNumber = route(inst);
+			prediction = getVotes(leafNumber, inst);
 			this.resultStream.put(newResultContentEvent(prediction, inst,
 					instContentEvent));
 		}
 
 		if (isTraining) {
-			trainOnInstanceImpl(inst);
+			trainOnInstanceImpl(inst, leafNumber);
+			this.instancesSinceMemoryCheck++;
+			this.instancesSinceSnapshot++;
                         if (this.changeDetector != null) {
                             if (prediction == null) {
                                 prediction = getVotesForInstance(inst);
@@ -341,7 +550,7 @@ final class ModelAggregatorProcessor implements Processor {
         }
         
         private void resetLearning() {
-            this.treeRoot = null;
+            this.replaceNode(null, -1, null);
             //Remove nodes
             FoundNode[] learningNodes = findNodes();
             for (FoundNode learningNode : learningNodes) {
@@ -388,63 +597,68 @@ final class ModelAggregatorProcessor implements Processor {
         }
             
 	private double[] getVotesForInstance(Instance inst, boolean isTraining){
-		double[] ret;
-		FoundNode foundNode = null;
-		if(this.treeRoot != null){
-			foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
-			Node leafNode = foundNode.getNode();
-			if(leafNode == null){
-				leafNode = foundNode.getParent();
-			}
-			
-			ret = leafNode.getClassVotes(inst, this);
-		} else {
-			int numClasses = this.dataset.numClasses();
-			ret = new double[numClasses];
-                        
-		}
-                
-    //Training after testing to speed up the process
+		int leafNumber = route(inst);
+		double[] ret = getVotes(leafNumber, inst);
+		//Training after testing to speed up the process
 		if (isTraining){
-			if(this.treeRoot == null){
-				this.treeRoot = newLearningNode(this.parallelismHint);
-        this.activeLeafNodeCount = 1;
-        foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
-			}
-			trainOnInstanceImpl(foundNode, inst);
+			trainOnInstanceImpl(inst, leafNumber);
 		}
 		return ret;
 	}
 	
+	/**
+	 * Helper method to route an instance in the compiled tree.
+	 * @param inst
+	 * @return the number of the node reached by the instance, CompiledTree.NO_NODE 
+	 * for an empty branch, or NOT_ROUTED if the tree is empty
+	 */
+	private int route(Instance inst){
+		return this.treeRoot == null ? NOT_ROUTED : compiledTree().route(inst);
+	}
+	
+	/**
+	 * Helper method to get the prediction of the node reached by an instance.
+	 * @param leafNumber the result of route
+	 * @param inst
+	 * @return
+	 */
+	private double[] getVotes(int leafNumber, Instance inst){
+		if (leafNumber == NOT_ROUTED) {
+			return new double[this.dataset.numClasses()];
+		}
+		CompiledTree tree = compiledTree();
+		Node leafNode = leafNumber == CompiledTree.NO_NODE ? tree.getEmptyBranchParent() : tree.getNode(leafNumber);
+		return leafNode.getClassVotes(inst, this);
+	}
+	
 	/**
 	 * Helper method that represent training of an instance. Since it is decision tree, 
 	 * this method routes the incoming instance into the correct leaf and then update the 
 	 * statistic on the found leaf. 
 	 * @param inst
+	 * @param leafNumber the result of route if the instance has just been routed for
+	 * its prediction, NOT_ROUTED otherwise
 	 */
-	private void trainOnInstanceImpl(Instance inst) {
+	private void trainOnInstanceImpl(Instance inst, int leafNumber) {
 		if(this.treeRoot == null){
-			this.treeRoot = newLearningNode(this.parallelismHint);
+			leafNumber = replaceNode(null, -1, newLearningNode(this.parallelismHint));
 			this.activeLeafNodeCount = 1;
-                        
+		} else if (leafNumber == NOT_ROUTED) {
+			leafNumber = compiledTree().route(inst);
 		}
-		FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
-                trainOnInstanceImpl(foundNode, inst);
-        }
-		
-         private void trainOnInstanceImpl(FoundNode foundNode, Instance inst) {
-                
-		Node leafNode = foundNode.getNode();
-		
-		if(leafNode == null){
-			leafNode = newLearningNode(this.parallelismHint);
-			foundNode.getParent().setChild(foundNode.getParentBranch(), leafNode);
+		CompiledTree tree = compiledTree();
+		if(leafNumber == CompiledTree.NO_NODE){
+			leafNumber = replaceNode(tree.getEmptyBranchParent(), tree.getEmptyBranch(), 
+					newLearningNode(this.parallelismHint));
 			activeLeafNodeCount++;
 		}
 		
+		FoundNode foundNode = tree.getFoundNode(leafNumber);
+		Node leafNode = foundNode.getNode();
 		if(leafNode instanceof LearningNode){
 			LearningNode learningNode = (LearningNode) leafNode;
 			learningNode.learnFromInstance(inst, this);
+			tree.markChanged(leafNumber);
 		}
 					 if (this.foundNodeSet == null){
                     this.foundNodeSet = new HashSet<>();
@@ -464,7 +678,7 @@ final class ModelAggregatorProcessor implements Processor {
 		
 		//Schedule time-out thread
 		ScheduledFuture<?> timeOutHandler = this.executor.schedule(new AggregationTimeOutHandler(this.splitId, this.timedOutSplittingNodes), 
-				this.timeOut, TimeUnit.SECONDS);
+				this.splitTimeOutNanos(), TimeUnit.NANOSECONDS);
 		
 		//Keep track of the splitting node information, so that we can continue the split
 		//once we receive all local statistic calculation from Local Statistic PI
@@ -537,13 +751,10 @@ final class ModelAggregatorProcessor implements Processor {
 				this.decisionNodeCount++;
 				this.activeLeafNodeCount += bestSuggestion.numSplits();
 
-				if(parent == null){
-					this.treeRoot = newSplit;
-				}else{
-					parent.setChild(parentBranch, newSplit);
-				}
+				this.replaceNode(parent, parentBranch, newSplit);
+				//the statistics of the split leaf are not needed anymore
+				activeLearningNode.deleteDistributedStatistics(this);
 			}
-			//TODO: add check on the model's memory size 
 		}
 		
 		//housekeeping
@@ -551,6 +762,41 @@ final class ModelAggregatorProcessor implements Processor {
 		activeLearningNode.setWeightSeenAtLastSplitEvaluation(activeLearningNode.getWeightSeen());
 	}
 
+	/**
+	 * Helper method to send the nodes changed since the last snapshot to the 
+	 * prediction PIs, or all the nodes every FULL_SNAPSHOT_PERIOD snapshots.
+	 */
+	private void sendSnapshot(){
+		boolean full = this.snapshotVersion % FULL_SNAPSHOT_PERIOD == 0;
+		this.snapshotStream.put(compiledTree().takeSnapshot(this.snapshotVersion, full));
+		this.snapshotVersion++;
+		this.instancesSinceSnapshot = 0;
+	}
+	
+	/**
+	 * Helper method to replace a node of the tree, and its compiled view.
+	 * @param parent Parent of the node, or null for the root
+	 * @param parentBranch the branch index of the node in the parent node
+	 * @param node the new node
+	 * @return the number of the new node in the compiled tree
+	 */
+	private int replaceNode(SplitNode parent, int parentBranch, Node node){
+		if(parent == null){
+			this.treeRoot = node;
+		}else{
+			parent.setChild(parentBranch, node);
+		}
+		return compiledTree().replace(parent, parentBranch, node);
+	}
+	
+	private CompiledTree compiledTree(){
+		if (this.compiledTree == null) {
+			this.compiledTree = new CompiledTree();
+			this.compiledTree.rebuild(this.treeRoot);
+		}
+		return this.compiledTree;
+	}
+	
 	/**
 	 * Helper method to deactivate learning node
 	 * @param toDeactivate Active Learning Node that will be deactivated
@@ -559,14 +805,103 @@ final class ModelAggregatorProcessor implements Processor {
 	 */
 	private void deactivateLearningNode(ActiveLearningNode toDeactivate, SplitNode parent, int parentBranch){
 		Node newLeaf = new InactiveLearningNode(toDeactivate.getObservedClassDistribution());
-		if(parent == null){
-			this.treeRoot = newLeaf;
-		}else{
-			parent.setChild(parentBranch, newLeaf);
-		}
+		this.replaceNode(parent, parentBranch, newLeaf);
 		
 		this.activeLeafNodeCount--;
 		this.inactiveLeafNodeCount++;
+		//free the statistics of the node in the local statistic PIs
+		toDeactivate.deleteDistributedStatistics(this);
+	}
+	
+	/**
+	 * Helper method to activate learning node
+	 * @param toActivate Inactive Learning Node that will be activated
+	 * @param parent Parent of the soon-to-be-activated Inactive LearningNode
+	 * @param parentBranch the branch index of the node in the parent node
+	 */
+	private void activateLearningNode(InactiveLearningNode toActivate, SplitNode parent, int parentBranch){
+		Node newLeaf = newLearningNode(toActivate.getObservedClassDistribution(), this.parallelismHint);
+		this.replaceNode(parent, parentBranch, newLeaf);
+		
+		this.activeLeafNodeCount++;
+		this.inactiveLeafNodeCount--;
+	}
+	
+	/**
+	 * Helper method to keep the estimated memory of the model under maxByteSize: the 
+	 * learning nodes are ranked by promise, and only the most promising ones which fit in
+	 * the limit are kept active. Nodes waiting for a split are not deactivated.
+	 */
+	private void enforceMemoryLimit(){
+		List<FoundNode> learningNodeList = new ArrayList<>();
+		findLearningNodes(this.treeRoot, null, -1, learningNodeList);
+		FoundNode[] learningNodes = learningNodeList.toArray(new FoundNode[learningNodeList.size()]);
+		Arrays.sort(learningNodes, new Comparator<FoundNode>() {
+			@Override
+			public int compare(FoundNode fn1, FoundNode fn2) {
+				return Double.compare(fn1.getNode().calculatePromise(), fn2.getNode().calculatePromise());
+			}
+		});
+		int maxActive = 0;
+		while (maxActive < learningNodes.length) {
+			maxActive++;
+			if (estimateModelByteSize(maxActive, learningNodes.length - maxActive) > this.maxByteSize) {
+				maxActive--;
+				break;
+			}
+		}
+		int cutoff = learningNodes.length - maxActive;
+		for (int i = 0; i < learningNodes.length; i++) {
+			FoundNode foundNode = learningNodes[i];
+			Node node = foundNode.getNode();
+			if (i < cutoff) {
+				if (node instanceof ActiveLearningNode && !((ActiveLearningNode) node).isSplitting()) {
+					deactivateLearningNode((ActiveLearningNode) node, foundNode.getParent(), foundNode.getParentBranch());
+				}
+			} else if (node instanceof InactiveLearningNode) {
+				activateLearningNode((InactiveLearningNode) node, foundNode.getParent(), foundNode.getParentBranch());
+			}
+		}
+		logger.debug("Memory limit enforced: {} active and {} inactive leaves, estimated size {} bytes", 
+				this.activeLeafNodeCount, this.inactiveLeafNodeCount, 
+				estimateModelByteSize(this.activeLeafNodeCount, this.inactiveLeafNodeCount));
+	}
+	
+	private void findLearningNodes(Node node, SplitNode parent, int parentBranch, List<FoundNode> found) {
+		if (node instanceof LearningNode) {
+			found.add(new FoundNode(node, parent, parentBranch));
+		} else if (node instanceof SplitNode) {
+			SplitNode splitNode = (SplitNode) node;
+			for (int i = 0; i < splitNode.numChildren(); i++) {
+				findLearningNodes(splitNode.getChild(i), splitNode, i, found);
+			}
+		}
+	}
+	
+	private long estimateModelByteSize(int activeLeaves, int inactiveLeaves){
+		return (long) activeLeaves * this.activeLeafByteSize 
+				+ (long) inactiveLeaves * this.inactiveLeafByteSize 
+				+ (long) this.decisionNodeCount * this.splitNodeByteSize;
+	}
+	
+	/*
+	 * Estimated memory of an active leaf: the node in this processor, and one observer 
+	 * per attribute in the local statistic PIs (estimates for the default Gaussian 
+	 * numeric and nominal observers, as object sizes are not measured at runtime).
+	 */
+	static int estimateActiveLeafByteSize(Instances dataset){
+		int numClasses = dataset.numClasses();
+		int size = ACTIVE_LEAF_NODE_BYTES + numClasses * 8;
+		for (int i = 0; i < dataset.numAttributes(); i++) {
+			if (i == dataset.classIndex()) continue;
+			Attribute attribute = dataset.attribute(i);
+			if (attribute.isNominal()) {
+				size += NOMINAL_OBSERVER_BYTES + numClasses * (NOMINAL_BYTES_PER_CLASS + attribute.numValues() * 8);
+			} else {
+				size += NUMERIC_OBSERVER_BYTES + numClasses * NUMERIC_BYTES_PER_CLASS;
+			}
+		}
+		return size;
 	}
 	
 	
@@ -638,11 +973,13 @@ final class ModelAggregatorProcessor implements Processor {
 		private final ActiveLearningNode activeLearningNode;
 		private final FoundNode foundNode;
 		private final ScheduledFuture<?> scheduledFuture;
+		private final long requestTime;
 		
 		SplittingNodeInfo(ActiveLearningNode activeLearningNode, FoundNode foundNode, ScheduledFuture<?> scheduledFuture){
 			this.activeLearningNode = activeLearningNode;
 			this.foundNode = foundNode;
 			this.scheduledFuture = scheduledFuture;
+			this.requestTime = System.nanoTime();
 		}
 	}
         
@@ -674,6 +1011,11 @@ final class ModelAggregatorProcessor implements Processor {
 		private int parallelismHint = 1;
 		private long timeOut = 30;
 		private ChangeDetector changeDetector = null;
+		private int maxByteSize = 0;
+		private int memoryEstimatePeriod = 1000000;
+		private boolean adaptivePipeline = false;
+		private boolean speculativePrediction = false;
+		private int snapshotPeriod = 1000;
 
 		Builder(Instances dataset){
 			this.dataset = dataset;
@@ -687,6 +1029,11 @@ final class ModelAggregatorProcessor implements Processor {
 			this.gracePeriod = oldProcessor.gracePeriod;
 			this.parallelismHint = oldProcessor.parallelismHint;
 			this.timeOut = oldProcessor.timeOut;
+			this.maxByteSize = oldProcessor.maxByteSize;
+			this.memoryEstimatePeriod = oldProcessor.memoryEstimatePeriod;
+			this.adaptivePipeline = oldProcessor.adaptivePipeline;
+			this.speculativePrediction = oldProcessor.speculativePrediction;
+			this.snapshotPeriod = oldProcessor.snapshotPeriod;
 		}
 		
 		Builder splitCriterion(SplitCriterion splitCriterion){
@@ -719,6 +1066,31 @@ final class ModelAggregatorProcessor implements Processor {
 			return this;
 		}
 		
+		Builder maxByteSize(int maxByteSize){
+			this.maxByteSize = maxByteSize;
+			return this;
+		}
+		
+		Builder memoryEstimatePeriod(int memoryEstimatePeriod){
+			this.memoryEstimatePeriod = memoryEstimatePeriod;
+			return this;
+		}
+		
+		Builder adaptivePipeline(boolean adaptivePipeline){
+			this.adaptivePipeline = adaptivePipeline;
+			return this;
+		}
+		
+		Builder speculativePrediction(boolean speculativePrediction){
+			this.speculativePrediction = speculativePrediction;
+			return this;
+		}
+		
+		Builder snapshotPeriod(int snapshotPeriod){
+			this.snapshotPeriod = snapshotPeriod;
+			return this;
+		}
+		
 		Builder changeDetector(ChangeDetector changeDetector){
 			this.changeDetector = changeDetector;
 			return this;
@@ -0,0 +1,222 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.InstanceConditionalTest;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import com.yahoo.labs.samoa.utils.SerializableSerializer;
+
+/**
+ * Model Snapshot Content Event is the content event that is sent by Model Aggregator 
+ * Processor to the Prediction Processors, with the nodes of the tree which changed 
+ * since the previous snapshot (delta), or with all the nodes (full snapshot).
+ * </p>
+ * A node is described by its number in the CompiledTree of the model aggregator, its 
+ * split test (null for a leaf), the numbers of its children (NO_NODE for an empty 
+ * branch) and its class distribution. The arrays are not modified once the event is 
+ * sent: the replicas can keep them.
+ */
+public final class ModelSnapshotContentEvent implements ContentEvent {
+
+	private static final long serialVersionUID = 2815093474410377652L;
+
+	private final long version;
+	private final boolean full;
+	private final int numNodes;
+	private final int[] numbers;
+	private final InstanceConditionalTest[] splitTests;
+	private final int[][] children;
+	private final double[][] classDistributions;
+
+	public ModelSnapshotContentEvent(){
+		this(-1, false, 0, null, null, null, null);
+	}
+
+	ModelSnapshotContentEvent(long version, boolean full, int numNodes, int[] numbers, 
+			InstanceConditionalTest[] splitTests, int[][] children, double[][] classDistributions){
+		this.version = version;
+		this.full = full;
+		this.numNodes = numNodes;
+		this.numbers = numbers;
+		this.splitTests = splitTests;
+		this.children = children;
+		this.classDistributions = classDistributions;
+	}
+
+	@Override
+	public String getKey() {
+		return null;
+	}
+
+	@Override
+	public void setKey(String str) {
+		//do nothing
+	}
+
+	@Override
+	public boolean isLastEvent() {
+		return false;
+	}
+
+	/**
+	 * @return the version of the model, a delta applies to the previous version
+	 */
+	long getVersion(){
+		return this.version;
+	}
+
+	/**
+	 * @return true if the event has all the nodes of the tree
+	 */
+	boolean isFull(){
+		return this.full;
+	}
+
+	/**
+	 * @return the number of nodes of the tree
+	 */
+	int getNumNodes(){
+		return this.numNodes;
+	}
+
+	/**
+	 * @return the number of the nodes in the event
+	 */
+	int[] getNumbers(){
+		return this.numbers;
+	}
+
+	InstanceConditionalTest[] getSplitTests(){
+		return this.splitTests;
+	}
+
+	int[][] getChildren(){
+		return this.children;
+	}
+
+	double[][] getClassDistributions(){
+		return this.classDistributions;
+	}
+
+	/**
+	 * The Kryo serializer class for ModelSnapshotContentEvent. The numeric binary 
+	 * and nominal multiway split tests are written as their attribute (and threshold), 
+	 * the other split tests with Java serialization.
+	 *
+	 */
+	public static final class ModelSnapshotCESerializer extends Serializer<ModelSnapshotContentEvent> {
+
+		private static final byte LEAF = 0;
+		private static final byte NUMERIC_BINARY = 1;
+		private static final byte NOMINAL_MULTIWAY = 2;
+		private static final byte OTHER_SPLIT = 3;
+
+		private final SerializableSerializer splitTestSerializer = new SerializableSerializer();
+
+		@Override
+		public void write(Kryo kryo, Output output, ModelSnapshotContentEvent event) {
+			output.writeLong(event.version, true);
+			output.writeBoolean(event.full);
+			output.writeInt(event.numNodes, true);
+			output.writeInt(event.numbers.length, true);
+			for (int i = 0; i < event.numbers.length; i++) {
+				output.writeInt(event.numbers[i], true);
+				InstanceConditionalTest splitTest = event.splitTests[i];
+				if (splitTest == null) {
+					output.writeByte(LEAF);
+				} else if (splitTest instanceof NumericAttributeBinaryTest) {
+					NumericAttributeBinaryTest numericTest = (NumericAttributeBinaryTest) splitTest;
+					output.writeByte(NUMERIC_BINARY);
+					output.writeInt(numericTest.getAttsTestDependsOn()[0], true);
+					output.writeDouble(numericTest.getSplitValue());
+					output.writeBoolean(numericTest.isEqualsPassesTest());
+				} else if (splitTest instanceof NominalAttributeMultiwayTest) {
+					output.writeByte(NOMINAL_MULTIWAY);
+					output.writeInt(splitTest.getAttsTestDependsOn()[0], true);
+				} else {
+					output.writeByte(OTHER_SPLIT);
+					this.splitTestSerializer.write(kryo, output, splitTest);
+				}
+				if (splitTest != null) {
+					int[] children = event.children[i];
+					output.writeInt(children.length, true);
+					for (int child : children) {
+						output.writeInt(child + 1, true); //NO_NODE is -1
+					}
+				}
+				double[] classDistribution = event.classDistributions[i];
+				output.writeInt(classDistribution.length, true);
+				for (double value : classDistribution) {
+					output.writeDouble(value);
+				}
+			}
+		}
+
+		@Override
+		public ModelSnapshotContentEvent read(Kryo kryo, Input input, Class<ModelSnapshotContentEvent> type) {
+			long version = input.readLong(true);
+			boolean full = input.readBoolean();
+			int numNodes = input.readInt(true);
+			int count = input.readInt(true);
+			int[] numbers = new int[count];
+			InstanceConditionalTest[] splitTests = new InstanceConditionalTest[count];
+			int[][] children = new int[count][];
+			double[][] classDistributions = new double[count][];
+			for (int i = 0; i < count; i++) {
+				numbers[i] = input.readInt(true);
+				byte kind = input.readByte();
+				switch (kind) {
+				case LEAF:
+					break;
+				case NUMERIC_BINARY:
+					splitTests[i] = new NumericAttributeBinaryTest(input.readInt(true), input.readDouble(), 
+							input.readBoolean());
+					break;
+				case NOMINAL_MULTIWAY:
+					splitTests[i] = new NominalAttributeMultiwayTest(input.readInt(true));
+					break;
+				default:
+					splitTests[i] = (InstanceConditionalTest) this.splitTestSerializer.read(kryo, input, 
+							InstanceConditionalTest.class);
+				}
+				if (kind != LEAF) {
+					children[i] = new int[input.readInt(true)];
+					for (int j = 0; j < children[i].length; j++) {
+						children[i][j] = input.readInt(true) - 1;
+					}
+				}
+				classDistributions[i] = new double[input.readInt(true)];
+				for (int j = 0; j < classDistributions[i].length; j++) {
+					classDistributions[i][j] = input.readDouble();
+				}
+			}
+			return new ModelSnapshotContentEvent(version, full, numNodes, numbers, splitTests, children, 
+					classDistributions);
+		}
+	}
+}
@@ -89,6 +89,20 @@ abstract class Node implements java.io.Serializable{
 		//TODO: implement method to gracefully define the tree
 	}
 	
-	//TODO: calculate promise for limiting the model based on the memory size
-	//double calculatePromise();
+	/**
+	 * Method to calculate the promise of the node, i.e. the weight of the observed instances
+	 * which do not belong to the majority class. It is used to choose which learning nodes 
+	 * to deactivate when the model exceeds its memory limit.
+	 * @return the promise of the node
+	 */
+	protected double calculatePromise(){
+		double[] dist = this.observedClassDistribution.getArrayRef();
+		double totalSeen = 0.0;
+		double maxSeen = 0.0;
+		for (double weight : dist) {
+			totalSeen += weight;
+			if (weight > maxSeen) maxSeen = weight;
+		}
+		return totalSeen - maxSeen;
+	}
 }
@@ -0,0 +1,222 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.learners.InstanceContentEvent;
+import com.yahoo.labs.samoa.learners.ResultContentEvent;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.InstanceConditionalTest;
+import com.yahoo.labs.samoa.topology.Stream;
+
+/**
+ * Prediction Processor that answers the test instances of the Vertical Hoeffding 
+ * Tree with a read-only replica of the tree, so that the predictions scale with 
+ * the number of Prediction Processors instead of being made by the single Model 
+ * Aggregator Processor which also trains the tree.
+ * </p>
+ * The replica is updated with the snapshots which the Model Aggregator Processor 
+ * sends periodically (see ModelSnapshotContentEvent). A delta is only applied on 
+ * top of the previous version: a replica which missed a snapshot waits for the next 
+ * full one. Until then, and before the first snapshot, it predicts with the version 
+ * it has (or with an empty tree).
+ * </p>
+ * The last event reaches every replica, and each one sends a last result which 
+ * tells the evaluator how many last results to wait for.
+ */
+final class PredictionProcessor implements Processor {
+
+	private static final long serialVersionUID = 6140316493702380431L;
+	private static final Logger logger = LoggerFactory.getLogger(PredictionProcessor.class);
+
+	private int processorId;
+
+	private final Instances dataset;
+	private final int parallelism;
+
+	//available streams
+	private Stream resultStream;
+
+	//replica of the tree, indexed by the number of the nodes
+	private long version = -1;
+	private int numNodes;
+	private InstanceConditionalTest[] splitTests = new InstanceConditionalTest[0];
+	private int[][] children = new int[0][];
+	private double[][] classDistributions = new double[0][];
+
+	//private constructor based on Builder pattern
+	private PredictionProcessor(Builder builder){
+		this.dataset = builder.dataset;
+		this.parallelism = builder.parallelism;
+	}
+
+	@Override
+	public boolean process(ContentEvent event) {
+		if (event instanceof ModelSnapshotContentEvent) {
+			this.applySnapshot((ModelSnapshotContentEvent) event);
+		} else if (event instanceof InstanceContentEvent) {
+			InstanceContentEvent instContentEvent = (InstanceContentEvent) event;
+			Instance inst = instContentEvent.getInstance();
+			inst.setDataset(this.dataset);
+			this.resultStream.put(newResultContentEvent(getVotesForInstance(inst), instContentEvent));
+		}
+		return false;
+	}
+
+	@Override
+	public void onCreate(int id) {
+		this.processorId = id;
+	}
+
+	@Override
+	public Processor newProcessor(Processor p) {
+		PredictionProcessor oldProcessor = (PredictionProcessor) p;
+		PredictionProcessor newProcessor = 
+				new PredictionProcessor.Builder(oldProcessor).build();
+
+		newProcessor.setResultStream(oldProcessor.resultStream);
+		return newProcessor;
+	}
+
+	void setResultStream(Stream resultStream){
+		this.resultStream = resultStream;
+	}
+
+	/**
+	 * @return the version of the replica, -1 before the first snapshot
+	 */
+	long getVersion(){
+		return this.version;
+	}
+
+	/**
+	 * Helper method to update the replica with a snapshot of the tree.
+	 * @param snapshot
+	 */
+	void applySnapshot(ModelSnapshotContentEvent snapshot){
+		if (!snapshot.isFull() && snapshot.getVersion() != this.version + 1) {
+			logger.debug("Snapshot {} ignored by replica {} at version {}", 
+					snapshot.getVersion(), this.processorId, this.version);
+			return;
+		}
+		int size = snapshot.getNumNodes();
+		if (snapshot.isFull()) {
+			this.splitTests = new InstanceConditionalTest[size];
+			this.children = new int[size][];
+			this.classDistributions = new double[size][];
+		} else if (size > this.splitTests.length) {
+			this.splitTests = Arrays.copyOf(this.splitTests, size);
+			this.children = Arrays.copyOf(this.children, size);
+			this.classDistributions = Arrays.copyOf(this.classDistributions, size);
+		}
+		int[] numbers = snapshot.getNumbers();
+		for (int i = 0; i < numbers.length; i++) {
+			int number = numbers[i];
+			this.splitTests[number] = snapshot.getSplitTests()[i];
+			this.children[number] = snapshot.getChildren()[i];
+			this.classDistributions[number] = snapshot.getClassDistributions()[i];
+		}
+		this.numNodes = size;
+		this.version = snapshot.getVersion();
+	}
+
+	/**
+	 * Helper method to get the prediction of the replica: the class distribution 
+	 * of the leaf reached by the instance, or of the split node where the instance 
+	 * stops (missing value or empty branch), as in ModelAggregatorProcessor.
+	 * @param inst
+	 * @return the class votes
+	 */
+	double[] getVotesForInstance(Instance inst){
+		if (this.numNodes == 0) {
+			return new double[this.dataset.numClasses()];
+		}
+		int number = 0;
+		while (this.splitTests[number] != null) {
+			int branch = this.splitTests[number].branchForInstance(inst);
+			if (branch < 0) {
+				break;
+			}
+			int[] childNumbers = this.children[number];
+			int child = branch < childNumbers.length ? childNumbers[branch] : CompiledTree.NO_NODE;
+			if (child == CompiledTree.NO_NODE) {
+				break;
+			}
+			number = child;
+		}
+		//the result event keeps the votes
+		return this.classDistributions[number].clone();
+	}
+
+	/**
+	 * Helper method to generate new ResultContentEvent based on an instance and
+	 * its prediction result.
+	 * @param prediction The predicted class label from the replica of the tree.
+	 * @param inEvent The associated instance content event
+	 * @return ResultContentEvent to be sent into Evaluator PI or other destination PI.
+	 */
+	private ResultContentEvent newResultContentEvent(double[] prediction, InstanceContentEvent inEvent){
+		ResultContentEvent rce = new ResultContentEvent(inEvent.getInstanceIndex(), inEvent.getInstance(),
+				inEvent.getClassId(), prediction, inEvent.isLastEvent());
+		rce.setClassifierIndex(this.processorId);
+		rce.setEvaluationIndex(inEvent.getEvaluationIndex());
+		if (inEvent.isLastEvent()) {
+			rce.setNumLastEvents(this.parallelism);
+		}
+		return rce;
+	}
+
+	/**
+	 * Builder class to replace constructors with many parameters
+	 */
+	static class Builder{
+
+		//required parameters
+		private final Instances dataset;
+
+		private int parallelism = 1;
+
+		Builder(Instances dataset){
+			this.dataset = dataset;
+		}
+
+		Builder(PredictionProcessor oldProcessor){
+			this.dataset = oldProcessor.dataset;
+			this.parallelism = oldProcessor.parallelism;
+		}
+
+		Builder parallelism(int parallelism){
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		PredictionProcessor build(){
+			return new PredictionProcessor(this);
+		}
+	}
+}
@@ -96,8 +96,37 @@ public final class VerticalHoeffdingTree implements ClassificationLearner, Adapt
   public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
       "Only allow binary splits.");
 
+  public IntOption maxByteSizeOption = new IntOption("maxByteSize", 'm',
+      "Maximum memory consumed by the tree and its local statistics (estimated, in bytes), 0 for no limit.",
+      0, 0, Integer.MAX_VALUE);
+
+  public IntOption memoryEstimatePeriodOption = new IntOption(
+      "memoryEstimatePeriod", 'e',
+      "How many instances between memory consumption checks.",
+      1000000, 0, Integer.MAX_VALUE);
+
+  public FlagOption adaptivePipelineOption = new FlagOption("adaptivePipeline", 'a',
+      "Size the instance buffer and the split time-out from the measured round trip to the local statistics PIs.");
+
+  public FlagOption speculativePredictionOption = new FlagOption("speculativePrediction", 'r',
+      "Predict with the current tree as soon as instances arrive, while they wait in the buffer to be learnt.");
+
+  public IntOption servingParallelismOption = new IntOption(
+      "servingParallelism",
+      'v',
+      "The number of prediction PIs which answer the test instances with snapshots of the tree, 0 to predict in the model aggregator PI",
+      0, 0, Integer.MAX_VALUE);
+
+  public IntOption snapshotPeriodOption = new IntOption(
+      "snapshotPeriod",
+      'k',
+      "How many instances the model aggregator PI learns between two snapshots of the tree sent to the prediction PIs (bound on their staleness).",
+      1000, 1, Integer.MAX_VALUE);
+
   private Stream resultStream;
 
+  private Stream predictionResultStream;
+
   private FilterProcessor filterProc;
 
   @Override
@@ -118,6 +147,11 @@ public final class VerticalHoeffdingTree implements ClassificationLearner, Adapt
         .gracePeriod(gracePeriodOption.getValue())
         .parallelismHint(parallelismHintOption.getValue())
         .timeOut(timeOutOption.getValue())
+        .maxByteSize(maxByteSizeOption.getValue())
+        .memoryEstimatePeriod(memoryEstimatePeriodOption.getValue())
+        .adaptivePipeline(adaptivePipelineOption.isSet())
+        .speculativePrediction(speculativePredictionOption.isSet())
+        .snapshotPeriod(snapshotPeriodOption.getValue())
         .changeDetector(this.getChangeDetector())
         .build();
 
@@ -149,6 +183,30 @@ public final class VerticalHoeffdingTree implements ClassificationLearner, Adapt
 
     locStatProc.setComputationResultStream(computeStream);
     topologyBuilder.connectInputAllStream(computeStream, modelAggrProc);
+
+    this.predictionResultStream = null;
+    if (servingParallelismOption.getValue() > 0) {
+      PredictionProcessor predictionProc = new PredictionProcessor.Builder(dataset)
+          .parallelism(servingParallelismOption.getValue())
+          .build();
+      topologyBuilder.addProcessor(predictionProc, servingParallelismOption.getValue());
+
+      Stream predictionStream = topologyBuilder.createStream(filterProc);
+      this.filterProc.setPredictionStream(predictionStream);
+      topologyBuilder.connectInputShuffleStream(predictionStream, predictionProc);
+
+      //the last event goes to every replica, the evaluator waits for all of their last results
+      Stream lastPredictionStream = topologyBuilder.createStream(filterProc);
+      this.filterProc.setLastPredictionStream(lastPredictionStream);
+      topologyBuilder.connectInputAllStream(lastPredictionStream, predictionProc);
+
+      Stream snapshotStream = topologyBuilder.createStream(modelAggrProc);
+      modelAggrProc.setSnapshotStream(snapshotStream);
+      topologyBuilder.connectInputAllStream(snapshotStream, predictionProc);
+
+      this.predictionResultStream = topologyBuilder.createStream(predictionProc);
+      predictionProc.setResultStream(this.predictionResultStream);
+    }
   }
 
   @Override
@@ -158,6 +216,9 @@ public final class VerticalHoeffdingTree implements ClassificationLearner, Adapt
 
   @Override
   public Set<Stream> getResultStreams() {
+    if (this.predictionResultStream != null) {
+      return ImmutableSet.of(this.resultStream, this.predictionResultStream);
+    }
     return ImmutableSet.of(this.resultStream);
   }
 
@@ -21,6 +21,10 @@ package com.yahoo.labs.samoa.learners.clusterers;
  */
 import net.jcip.annotations.Immutable;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -86,4 +90,28 @@ final public class ClusteringContentEvent implements ContentEvent {
     public void setSample(boolean b) {
         this.isSample = b;
     }
+
+    /**
+     * The Kryo serializer class for ClusteringContentEvent.
+     */
+    public static final class ClusteringCESerializer extends Serializer<ClusteringContentEvent> {
+
+        @Override
+        public void write(Kryo kryo, Output output, ClusteringContentEvent event) {
+            output.writeString(event.key);
+            output.writeBoolean(event.isLast);
+            output.writeBoolean(event.isSample);
+            kryo.writeClassAndObject(output, event.instance);
+        }
+
+        @Override
+        public ClusteringContentEvent read(Kryo kryo, Input input, Class<ClusteringContentEvent> type) {
+            ClusteringContentEvent event = new ClusteringContentEvent();
+            event.key = input.readString();
+            event.isLast = input.readBoolean();
+            event.isSample = input.readBoolean();
+            event.instance = (Instance) kryo.readClassAndObject(input);
+            return event;
+        }
+    }
 }
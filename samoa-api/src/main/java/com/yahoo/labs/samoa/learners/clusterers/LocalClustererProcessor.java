@@ -51,6 +51,7 @@ final public class LocalClustererProcessor implements Processor {
     private int modelId;
     private long instancesCount = 0;
     private long sampleFrequency = 1000;
+    private boolean sendSnapshots = false;
 
     public long getSampleFrequency() {
         return sampleFrequency;
@@ -60,6 +61,20 @@ final public class LocalClustererProcessor implements Processor {
         this.sampleFrequency = sampleFrequency;
     }
 
+    public boolean isSendSnapshots() {
+        return sendSnapshots;
+    }
+
+    /**
+     * Sets whether the micro-clustering is sent as a compact {@link MicroClusteringContentEvent}
+     * (to an aggregator) instead of a ClusteringResultContentEvent.
+     *
+     * @param sendSnapshots true to send snapshots
+     */
+    public void setSendSnapshots(boolean sendSnapshots) {
+        this.sendSnapshots = sendSnapshots;
+    }
+
     /**
      * Sets the learner.
      *
@@ -156,9 +171,13 @@ final public class LocalClustererProcessor implements Processor {
 
                 Clustering clustering = model.getMicroClusteringResult();
 
-                ClusteringResultContentEvent resultEvent = new ClusteringResultContentEvent(clustering, event.isLastEvent());
+                if (sendSnapshots) {
+                    this.outputStream.put(new MicroClusteringContentEvent(this.modelId, clustering, event.isLastEvent()));
+                } else {
+                    ClusteringResultContentEvent resultEvent = new ClusteringResultContentEvent(clustering, event.isLastEvent());
 
-                this.outputStream.put(resultEvent);
+                    this.outputStream.put(resultEvent);
+                }
             }
         }
 
@@ -186,6 +205,8 @@ final public class LocalClustererProcessor implements Processor {
             newProcessor.setLearner(originProcessor.getLearner().create());
         }
         newProcessor.setOutputStream(originProcessor.getOutputStream());
+        newProcessor.setSampleFrequency(originProcessor.getSampleFrequency());
+        newProcessor.setSendSnapshots(originProcessor.isSendSnapshots());
         return newProcessor;
     }
 }
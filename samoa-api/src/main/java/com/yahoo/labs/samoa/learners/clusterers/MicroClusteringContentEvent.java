@@ -0,0 +1,174 @@
+package com.yahoo.labs.samoa.learners.clusterers;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.moa.cluster.CFCluster;
+import com.yahoo.labs.samoa.moa.cluster.Cluster;
+import com.yahoo.labs.samoa.moa.cluster.Clustering;
+import com.yahoo.labs.samoa.moa.clusterers.clustream.ClustreamKernel;
+
+/**
+ * Snapshot of the micro-clusters of a local clusterer replica, sent to the
+ * aggregator of the distributed clusterer. Only the cluster feature vectors
+ * (N, LS and SS) are sent, in flat arrays.
+ */
+final public class MicroClusteringContentEvent implements ContentEvent {
+
+    private static final long serialVersionUID = -2935466357101396420L;
+    private int replicaId;
+    private int dimensions;
+    private double[] weights;
+    private double[] linearSums;
+    private double[] squaredSums;
+    private boolean isLast;
+    private String key;
+
+    public MicroClusteringContentEvent() {
+        // Necessary for kryo serializer
+    }
+
+    /**
+     * Instantiates a new snapshot of a micro-clustering. Clusters which are not
+     * CFClusters are skipped.
+     *
+     * @param replicaId the id of the replica
+     * @param clustering the micro-clustering
+     * @param isLast is the last snapshot
+     */
+    public MicroClusteringContentEvent(int replicaId, Clustering clustering, boolean isLast) {
+        this.replicaId = replicaId;
+        this.isLast = isLast;
+        this.key = Integer.toString(replicaId);
+        int numClusters = 0;
+        for (int i = 0; i < clustering.size(); i++) {
+            Cluster cluster = clustering.get(i);
+            if (cluster instanceof CFCluster) {
+                this.dimensions = ((CFCluster) cluster).LS.length;
+                numClusters++;
+            }
+        }
+        this.weights = new double[numClusters];
+        this.linearSums = new double[numClusters * dimensions];
+        this.squaredSums = new double[numClusters * dimensions];
+        int c = 0;
+        for (int i = 0; i < clustering.size(); i++) {
+            Cluster cluster = clustering.get(i);
+            if (cluster instanceof CFCluster) {
+                CFCluster cf = (CFCluster) cluster;
+                weights[c] = cf.getN();
+                System.arraycopy(cf.LS, 0, linearSums, c * dimensions, dimensions);
+                System.arraycopy(cf.SS, 0, squaredSums, c * dimensions, dimensions);
+                c++;
+            }
+        }
+    }
+
+    public int getReplicaId() {
+        return replicaId;
+    }
+
+    public int getNumClusters() {
+        return weights.length;
+    }
+
+    /**
+     * Rebuild the micro-clusters of the snapshot.
+     *
+     * @return the micro-clustering
+     */
+    public Clustering getClustering() {
+        Cluster[] clusters = new Cluster[weights.length];
+        for (int c = 0; c < clusters.length; c++) {
+            double[] ls = new double[dimensions];
+            double[] ss = new double[dimensions];
+            System.arraycopy(linearSums, c * dimensions, ls, 0, dimensions);
+            System.arraycopy(squaredSums, c * dimensions, ss, 0, dimensions);
+            clusters[c] = new ClustreamKernel(weights[c], ls, ss);
+        }
+        return new Clustering(clusters);
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    @Override
+    public boolean isLastEvent() {
+        return isLast;
+    }
+
+    /**
+     * The Kryo serializer class for MicroClusteringContentEvent.
+     */
+    public static final class MicroClusteringCESerializer extends Serializer<MicroClusteringContentEvent> {
+
+        @Override
+        public void write(Kryo kryo, Output output, MicroClusteringContentEvent event) {
+            output.writeInt(event.replicaId, true);
+            output.writeString(event.key);
+            output.writeBoolean(event.isLast);
+            output.writeInt(event.dimensions, true);
+            output.writeInt(event.weights.length, true);
+            writeDoubles(output, event.weights);
+            writeDoubles(output, event.linearSums);
+            writeDoubles(output, event.squaredSums);
+        }
+
+        @Override
+        public MicroClusteringContentEvent read(Kryo kryo, Input input, Class<MicroClusteringContentEvent> type) {
+            MicroClusteringContentEvent event = new MicroClusteringContentEvent();
+            event.replicaId = input.readInt(true);
+            event.key = input.readString();
+            event.isLast = input.readBoolean();
+            event.dimensions = input.readInt(true);
+            int numClusters = input.readInt(true);
+            event.weights = readDoubles(input, numClusters);
+            event.linearSums = readDoubles(input, numClusters * event.dimensions);
+            event.squaredSums = readDoubles(input, numClusters * event.dimensions);
+            return event;
+        }
+
+        private static void writeDoubles(Output output, double[] values) {
+            for (double value : values) {
+                output.writeDouble(value);
+            }
+        }
+
+        private static double[] readDoubles(Input input, int length) {
+            double[] values = new double[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = input.readDouble();
+            }
+            return values;
+        }
+    }
+}
@@ -56,6 +56,10 @@ public final class DistributedClusterer implements Learner, Configurable {
 
     public IntOption paralellismOption = new IntOption("paralellismOption", 'P', "The paralellism level for concurrent processes", 2, 1, Integer.MAX_VALUE);
 
+    public IntOption snapshotIntervalOption = new IntOption("snapshotInterval", 'i', "Number of instances learned by a replica between two snapshots of its micro-clusters", 1000, 1, Integer.MAX_VALUE);
+
+    public IntOption numClustersOption = new IntOption("numClusters", 'k', "Number of clusters of the global macro-clustering", 5, 1, Integer.MAX_VALUE);
+
     private TopologyBuilder builder;
 
 //    private ClusteringDistributorProcessor distributorP;
@@ -87,21 +91,22 @@ public final class DistributedClusterer implements Learner, Configurable {
         LocalClustererAdapter learner = (LocalClustererAdapter) this.learnerOption.getValue();
         learner.setDataset(this.dataset);
         learnerP.setLearner(learner);
+        learnerP.setSampleFrequency(this.snapshotIntervalOption.getValue());
+        learnerP.setSendSnapshots(true);
         builder.addProcessor(learnerP, this.paralellismOption.getValue());
         localToGlobalStream = this.builder.createStream(learnerP);
         learnerP.setOutputStream(localToGlobalStream);
 
-        // Global Clustering
-        LocalClustererProcessor globalClusteringCombinerP = new LocalClustererProcessor();
-        LocalClustererAdapter globalLearner = (LocalClustererAdapter) this.learnerOption.getValue();
-        globalLearner.setDataset(this.dataset);
-        globalClusteringCombinerP.setLearner(learner);
-        builder.addProcessor(globalClusteringCombinerP, 1);
-        builder.connectInputAllStream(localToGlobalStream, globalClusteringCombinerP);
+        // Global Clustering: merge of the micro-clusters of the replicas and macro-clustering
+        MicroClusterAggregatorProcessor aggregatorP = new MicroClusterAggregatorProcessor();
+        aggregatorP.setNumReplicas(this.paralellismOption.getValue());
+        aggregatorP.setNumClusters(this.numClustersOption.getValue());
+        builder.addProcessor(aggregatorP, 1);
+        builder.connectInputAllStream(localToGlobalStream, aggregatorP);
 
         // Output Stream
-        resultStream = this.builder.createStream(globalClusteringCombinerP);
-        globalClusteringCombinerP.setOutputStream(resultStream);
+        resultStream = this.builder.createStream(aggregatorP);
+        aggregatorP.setOutputStream(resultStream);
     }
 
     @Override
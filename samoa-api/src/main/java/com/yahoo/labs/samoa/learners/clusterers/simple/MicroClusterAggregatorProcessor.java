@@ -0,0 +1,156 @@
+package com.yahoo.labs.samoa.learners.clusterers.simple;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.evaluation.ClusteringResultContentEvent;
+import com.yahoo.labs.samoa.learners.clusterers.MicroClusteringContentEvent;
+import com.yahoo.labs.samoa.moa.cluster.Cluster;
+import com.yahoo.labs.samoa.moa.cluster.Clustering;
+import com.yahoo.labs.samoa.moa.clusterers.clustream.WithKmeans;
+import com.yahoo.labs.samoa.topology.Stream;
+
+/**
+ * Aggregator of the micro-clusters of the local clusterer replicas.
+ * <p>
+ * It keeps the last snapshot of each replica. Once it has received a snapshot
+ * from every replica since the last merge (or the last one), it merges the snapshots
+ * into a global micro-clustering, runs the k-means macro step of WithKmeans on
+ * it, starting from the previous macro-clusters, and publishes both as a
+ * ClusteringResultContentEvent.
+ */
+public class MicroClusterAggregatorProcessor implements Processor {
+
+    private static final long serialVersionUID = 3719244815163874567L;
+
+    private Stream outputStream;
+    private int numReplicas = 1;
+    private int numClusters = 5;
+
+    private final Map<Integer, Clustering> snapshots = new TreeMap<>();
+    // ids of the replicas which sent a snapshot since the last merge
+    private final BitSet replicasSinceMerge = new BitSet();
+    private Clustering macroClustering;
+
+    public Stream getOutputStream() {
+        return outputStream;
+    }
+
+    public void setOutputStream(Stream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    public int getNumReplicas() {
+        return numReplicas;
+    }
+
+    /**
+     * Sets the number of replicas, which must all send a snapshot between two merges.
+     *
+     * @param numReplicas the number of local clusterer replicas
+     */
+    public void setNumReplicas(int numReplicas) {
+        this.numReplicas = numReplicas;
+    }
+
+    public int getNumClusters() {
+        return numClusters;
+    }
+
+    /**
+     * Sets the number of clusters (k) of the macro-clustering.
+     *
+     * @param numClusters the number of clusters
+     */
+    public void setNumClusters(int numClusters) {
+        this.numClusters = numClusters;
+    }
+
+    /**
+     * Gets the last macro-clustering.
+     *
+     * @return the macro-clustering, or null if none was computed yet
+     */
+    public Clustering getMacroClustering() {
+        return macroClustering;
+    }
+
+    @Override
+    public boolean process(ContentEvent event) {
+        if (!(event instanceof MicroClusteringContentEvent)) {
+            return false;
+        }
+        MicroClusteringContentEvent snapshot = (MicroClusteringContentEvent) event;
+        snapshots.put(snapshot.getReplicaId(), snapshot.getClustering());
+        replicasSinceMerge.set(snapshot.getReplicaId());
+        if (snapshot.isLastEvent() || replicasSinceMerge.cardinality() >= numReplicas) {
+            replicasSinceMerge.clear();
+            Clustering clustering = merge();
+            ClusteringResultContentEvent result = new ClusteringResultContentEvent(clustering, snapshot.isLastEvent());
+            result.setMacroClustering(macroClustering);
+            outputStream.put(result);
+        }
+        return snapshot.isLastEvent();
+    }
+
+    /*
+     * Union of the micro-clusters of the replicas, and macro step on it
+     */
+    private Clustering merge() {
+        List<Cluster> clusters = new ArrayList<>();
+        for (Clustering clustering : snapshots.values()) {
+            for (int i = 0; i < clustering.size(); i++) {
+                clusters.add(clustering.get(i));
+            }
+        }
+        Clustering merged = new Clustering(clusters.toArray(new Cluster[clusters.size()]));
+        if (merged.size() >= numClusters) {
+            if (macroClustering == null || macroClustering.size() == 0) {
+                macroClustering = WithKmeans.kMeans_rand(numClusters, merged);
+            } else {
+                // the previous macro-clusters are the initial centers
+                macroClustering = WithKmeans.kMeans_gta(numClusters, merged, macroClustering);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void onCreate(int id) {
+    }
+
+    @Override
+    public Processor newProcessor(Processor sourceProcessor) {
+        MicroClusterAggregatorProcessor newProcessor = new MicroClusterAggregatorProcessor();
+        MicroClusterAggregatorProcessor originProcessor = (MicroClusterAggregatorProcessor) sourceProcessor;
+        newProcessor.setOutputStream(originProcessor.getOutputStream());
+        newProcessor.setNumReplicas(originProcessor.getNumReplicas());
+        newProcessor.setNumClusters(originProcessor.getNumClusters());
+        return newProcessor;
+    }
+}
@@ -20,6 +20,11 @@ package com.yahoo.labs.samoa.moa;
  * #L%
  */
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.esotericsoftware.kryo.KryoException;
 import com.yahoo.labs.samoa.moa.core.SerializeUtils;
 //import moa.core.SizeOf;
 
@@ -32,6 +37,11 @@ import com.yahoo.labs.samoa.moa.core.SerializeUtils;
  */
 public abstract class AbstractMOAObject implements MOAObject {
 
+    /**
+     * Classes that could not be copied with Kryo, copied with Java serialization.
+     */
+    private static final Set<Class<?>> serializationCopiedClasses = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
     @Override
     public MOAObject copy() {
         return copy(this);
@@ -56,11 +66,20 @@ public abstract class AbstractMOAObject implements MOAObject {
 
     /**
      * This method produces a copy of an object.
+     * The copy is made with {@link SerializeUtils#fastCopyObject(Object)}, or with
+     * Java serialization for the classes that Kryo cannot copy.
      *
      * @param obj object to copy
      * @return a copy of the object
      */
     public static MOAObject copy(MOAObject obj) {
+        if (!serializationCopiedClasses.contains(obj.getClass())) {
+            try {
+                return (MOAObject) SerializeUtils.fastCopyObject(obj);
+            } catch (KryoException e) {
+                serializationCopiedClasses.add(obj.getClass());
+            }
+        }
         try {
             return (MOAObject) SerializeUtils.copyObject(obj);
         } catch (Exception e) {
@@ -0,0 +1,168 @@
+package com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.moa.classifiers.core.AttributeSplitSuggestion;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import com.yahoo.labs.samoa.moa.classifiers.core.splitcriteria.SplitCriterion;
+import com.yahoo.labs.samoa.moa.core.ObjectRepository;
+import com.yahoo.labs.samoa.moa.options.AbstractOptionHandler;
+import com.yahoo.labs.samoa.moa.tasks.TaskMonitor;
+
+/**
+ * Base class for observing the class data distribution for a numeric attribute with 
+ * a bounded number of ordered entries (bins or values) kept in primitive arrays.
+ * The class weights of the entries are stored in one array, entry after entry, so 
+ * that all the binary splits between two consecutive entries are evaluated in one 
+ * pass of prefix sums, without boxing nor allocation except for the best suggestion.
+ */
+public abstract class ArrayNumericAttributeClassObserver extends AbstractOptionHandler
+        implements NumericAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    protected int numClasses;
+
+    protected int numEntries;
+
+    // weight of class c in entry i at i * numClasses + c
+    protected double[] classWeights = new double[0];
+
+    protected double[] classTotals = new double[0];
+
+    // buffers of the split evaluation
+    private transient double[] leftDist;
+
+    private transient double[] rightDist;
+
+    private transient double[] bestLeftDist;
+
+    private transient double[] bestRightDist;
+
+    private transient double[][] postSplitDists;
+
+    /**
+     * @return the value which separates the entry from the next one
+     */
+    protected abstract double getSplitValue(int entry);
+
+    /**
+     * @return true if the values equal to the split values are in the left branch
+     */
+    protected abstract boolean isEqualsPassesTest();
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        if (this.numEntries < 2) {
+            return null;
+        }
+        int k = this.numClasses;
+        if (this.leftDist == null || this.leftDist.length != k) {
+            this.leftDist = new double[k];
+            this.rightDist = new double[k];
+            this.bestLeftDist = new double[k];
+            this.bestRightDist = new double[k];
+            this.postSplitDists = new double[][]{this.leftDist, this.rightDist};
+        }
+        double[] left = this.leftDist;
+        double[] right = this.rightDist;
+        Arrays.fill(left, 0.0);
+        System.arraycopy(this.classTotals, 0, right, 0, k);
+        int bestEntry = -1;
+        double bestMerit = Double.NEGATIVE_INFINITY;
+        for (int i = 0, offset = 0; i < this.numEntries - 1; i++, offset += k) {
+            double entryWeight = 0.0;
+            for (int c = 0; c < k; c++) {
+                double w = this.classWeights[offset + c];
+                left[c] += w;
+                right[c] -= w;
+                entryWeight += w;
+            }
+            if (entryWeight == 0.0 && bestEntry >= 0) {
+                continue; // same split as the previous entry
+            }
+            double merit = criterion.getMeritOfSplit(preSplitDist, this.postSplitDists);
+            if (bestEntry < 0 || merit > bestMerit) {
+                bestEntry = i;
+                bestMerit = merit;
+                System.arraycopy(left, 0, this.bestLeftDist, 0, k);
+                System.arraycopy(right, 0, this.bestRightDist, 0, k);
+            }
+        }
+        return new AttributeSplitSuggestion(
+                new NumericAttributeBinaryTest(attIndex, getSplitValue(bestEntry),
+                isEqualsPassesTest()), new double[][]{this.bestLeftDist.clone(),
+                this.bestRightDist.clone()}, bestMerit);
+    }
+
+    /**
+     * Adds the weight of an observation to an entry.
+     */
+    protected void addWeight(int entry, int classVal, double weight) {
+        this.classWeights[entry * this.numClasses + classVal] += weight;
+        this.classTotals[classVal] += weight;
+    }
+
+    /**
+     * Makes room for a class index, the weights are stored again if the number 
+     * of classes grows.
+     */
+    protected void ensureClass(int classVal) {
+        if (classVal < this.numClasses) {
+            return;
+        }
+        int k = classVal + 1;
+        int capacity = this.numClasses == 0 ? 0 : this.classWeights.length / this.numClasses;
+        double[] weights = new double[capacity * k];
+        for (int i = 0; i < this.numEntries; i++) {
+            System.arraycopy(this.classWeights, i * this.numClasses, weights, i * k, this.numClasses);
+        }
+        this.classWeights = weights;
+        this.classTotals = Arrays.copyOf(this.classTotals, k);
+        this.numClasses = k;
+    }
+
+    /**
+     * Makes room for a number of entries.
+     */
+    protected void ensureCapacity(int entries) {
+        if (entries * this.numClasses > this.classWeights.length) {
+            this.classWeights = Arrays.copyOf(this.classWeights, entries * this.numClasses);
+        }
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+}
@@ -0,0 +1,157 @@
+package com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.moa.core.Utils;
+
+/**
+ * Class for observing the class data distribution for a numeric attribute with a 
+ * histogram of a fixed number of bins of equal width.
+ * </p>
+ * The range of the bins is set by the first two distinct values, and doubled when 
+ * a value falls outside (two neighbour bins are merged), so the memory does not 
+ * depend on the number of observations nor on their range. The splits are 
+ * evaluated at the boundaries of the bins.
+ */
+public class HistogramNumericAttributeClassObserver extends ArrayNumericAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numBinsOption = new IntOption("numBins", 'n',
+            "The number of bins (rounded up to an even number).", 64, 2, Integer.MAX_VALUE);
+
+    protected int numBins;
+
+    protected double lowerBound;
+
+    // 0 while a single value has been observed (in entry 0)
+    protected double binWidth;
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+            return;
+        }
+        ensureClass(classVal);
+        if (this.numEntries == 0) {
+            this.numBins = this.numBinsOption.getValue() + this.numBinsOption.getValue() % 2;
+            ensureCapacity(this.numBins);
+            this.numEntries = 1;
+            this.lowerBound = attVal;
+        } else if (this.binWidth == 0.0 && attVal != this.lowerBound && !Double.isInfinite(attVal)) {
+            setRange(attVal);
+        }
+        addWeight(binIndex(attVal), classVal, weight);
+    }
+
+    /*
+     * The first two distinct values are in the middle half of the range.
+     */
+    private void setRange(double attVal) {
+        double firstValue = this.lowerBound;
+        double gap = Math.abs(attVal - firstValue);
+        this.lowerBound = Math.min(firstValue, attVal) - gap / 2.0;
+        this.binWidth = 2.0 * gap / this.numBins;
+        this.numEntries = this.numBins;
+        int bin = binIndex(firstValue);
+        int k = this.numClasses;
+        if (bin != 0) {
+            System.arraycopy(this.classWeights, 0, this.classWeights, bin * k, k);
+            Arrays.fill(this.classWeights, 0, k, 0.0);
+        }
+    }
+
+    private int binIndex(double attVal) {
+        if (this.binWidth == 0.0) {
+            return 0;
+        }
+        if (!Double.isInfinite(attVal)) {
+            while (attVal < this.lowerBound) {
+                doubleRange(true);
+            }
+            while (attVal >= this.lowerBound + this.numBins * this.binWidth) {
+                doubleRange(false);
+            }
+        }
+        int bin = (int) ((attVal - this.lowerBound) / this.binWidth);
+        return bin < 0 ? 0 : bin >= this.numBins ? this.numBins - 1 : bin;
+    }
+
+    /*
+     * Merges the bins two by two into one half of the bins, the other half 
+     * extends the range below or above.
+     */
+    private void doubleRange(boolean below) {
+        int k = this.numClasses;
+        int half = this.numBins / 2;
+        double[] weights = this.classWeights;
+        if (below) {
+            for (int j = this.numBins - 1; j >= half; j--) {
+                int source = 2 * (j - half) * k;
+                for (int c = 0; c < k; c++) {
+                    weights[j * k + c] = weights[source + c] + weights[source + k + c];
+                }
+            }
+            Arrays.fill(weights, 0, half * k, 0.0);
+            this.lowerBound -= this.numBins * this.binWidth;
+        } else {
+            for (int j = 0; j < half; j++) {
+                int source = 2 * j * k;
+                for (int c = 0; c < k; c++) {
+                    weights[j * k + c] = weights[source + c] + weights[source + k + c];
+                }
+            }
+            Arrays.fill(weights, half * k, this.numBins * k, 0.0);
+        }
+        this.binWidth *= 2.0;
+    }
+
+    @Override
+    protected double getSplitValue(int entry) {
+        return this.lowerBound + (entry + 1) * this.binWidth;
+    }
+
+    @Override
+    protected boolean isEqualsPassesTest() {
+        // a value equal to a boundary is in the bin above
+        return false;
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        if (classVal >= this.numClasses || this.classTotals[classVal] == 0.0) {
+            return 0.0;
+        }
+        if (this.binWidth == 0.0) {
+            return attVal == this.lowerBound ? 1.0 : 0.0;
+        }
+        if (attVal < this.lowerBound || attVal >= this.lowerBound + this.numBins * this.binWidth) {
+            return 0.0;
+        }
+        int bin = (int) ((attVal - this.lowerBound) / this.binWidth);
+        bin = bin >= this.numBins ? this.numBins - 1 : bin;
+        return this.classWeights[bin * this.numClasses + classVal] / (this.classTotals[classVal] * this.binWidth);
+    }
+}
@@ -0,0 +1,149 @@
+package com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.moa.core.Utils;
+
+/**
+ * Class for observing the class data distribution for a numeric attribute with a 
+ * sorted array of the observed values and their class weights.
+ * </p>
+ * The values are exact as long as there are at most maxValues distinct values. 
+ * Beyond, the two closest values are merged into their weighted mean, so the 
+ * memory is bounded. The splits are evaluated between two consecutive values.
+ */
+public class SortedArrayNumericAttributeClassObserver extends ArrayNumericAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption maxValuesOption = new IntOption("maxValues", 'm',
+            "The maximum number of values, the closest values are merged beyond.", 100, 2, Integer.MAX_VALUE);
+
+    protected double[] values = new double[0];
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+            return;
+        }
+        ensureClass(classVal);
+        int entry = Arrays.binarySearch(this.values, 0, this.numEntries, attVal);
+        if (entry < 0) {
+            entry = -entry - 1;
+            insertValue(entry, attVal);
+        }
+        addWeight(entry, classVal, weight);
+        if (this.numEntries > this.maxValuesOption.getValue()) {
+            mergeClosestValues();
+        }
+    }
+
+    private void insertValue(int entry, double attVal) {
+        int k = this.numClasses;
+        if (this.numEntries == this.values.length) {
+            int capacity = Math.min(Math.max(8, 2 * this.values.length), this.maxValuesOption.getValue() + 1);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+        ensureCapacity(this.values.length);
+        int moved = this.numEntries - entry;
+        System.arraycopy(this.values, entry, this.values, entry + 1, moved);
+        System.arraycopy(this.classWeights, entry * k, this.classWeights, (entry + 1) * k, moved * k);
+        Arrays.fill(this.classWeights, entry * k, (entry + 1) * k, 0.0);
+        this.values[entry] = attVal;
+        this.numEntries++;
+    }
+
+    private void mergeClosestValues() {
+        int closest = 0;
+        double minGap = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < this.numEntries - 1; i++) {
+            double gap = this.values[i + 1] - this.values[i];
+            if (gap < minGap) {
+                minGap = gap;
+                closest = i;
+            }
+        }
+        int k = this.numClasses;
+        int offset = closest * k;
+        double weight = 0.0;
+        double nextWeight = 0.0;
+        for (int c = 0; c < k; c++) {
+            weight += this.classWeights[offset + c];
+            nextWeight += this.classWeights[offset + k + c];
+            this.classWeights[offset + c] += this.classWeights[offset + k + c];
+        }
+        double value = this.values[closest];
+        double nextValue = this.values[closest + 1];
+        this.values[closest] = weight + nextWeight > 0.0
+                ? (value * weight + nextValue * nextWeight) / (weight + nextWeight)
+                : (value + nextValue) / 2.0;
+        int moved = this.numEntries - closest - 2;
+        System.arraycopy(this.values, closest + 2, this.values, closest + 1, moved);
+        System.arraycopy(this.classWeights, offset + 2 * k, this.classWeights, offset + k, moved * k);
+        this.numEntries--;
+        Arrays.fill(this.classWeights, this.numEntries * k, (this.numEntries + 1) * k, 0.0);
+    }
+
+    @Override
+    protected double getSplitValue(int entry) {
+        return (this.values[entry] + this.values[entry + 1]) / 2.0;
+    }
+
+    @Override
+    protected boolean isEqualsPassesTest() {
+        return true;
+    }
+
+    /*
+     * Density of the weight of the class in the cell of the closest value: the
+     * cell spans from the midpoint with the previous value to the midpoint with 
+     * the next one, and the first and last cells are as wide as their neighbours.
+     */
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        if (classVal >= this.numClasses || this.classTotals[classVal] == 0.0) {
+            return 0.0;
+        }
+        int n = this.numEntries;
+        if (n == 1) {
+            return attVal == this.values[0] ? 1.0 : 0.0;
+        }
+        double lowerBound = this.values[0] - (this.values[1] - this.values[0]) / 2.0;
+        double upperBound = this.values[n - 1] + (this.values[n - 1] - this.values[n - 2]) / 2.0;
+        if (attVal < lowerBound || attVal >= upperBound) {
+            return 0.0;
+        }
+        int entry = Arrays.binarySearch(this.values, 0, n, attVal);
+        if (entry < 0) {
+            entry = -entry - 1;
+            if (entry == n || (entry > 0 && attVal - this.values[entry - 1] < this.values[entry] - attVal)) {
+                entry--;
+            }
+        }
+        double lower = entry == 0 ? lowerBound : (this.values[entry - 1] + this.values[entry]) / 2.0;
+        double upper = entry == n - 1 ? upperBound : (this.values[entry] + this.values[entry + 1]) / 2.0;
+        return this.classWeights[entry * this.numClasses + classVal] / (this.classTotals[classVal] * (upper - lower));
+    }
+}
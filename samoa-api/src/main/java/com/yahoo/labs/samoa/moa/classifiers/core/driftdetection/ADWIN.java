@@ -20,6 +20,8 @@ package com.yahoo.labs.samoa.moa.classifiers.core.driftdetection;
  * #L%
  */
 
+import java.util.Arrays;
+
 import com.yahoo.labs.samoa.moa.AbstractMOAObject;
 
 /**
@@ -28,255 +30,17 @@ import com.yahoo.labs.samoa.moa.AbstractMOAObject;
  * items, with the property that the window has the maximal length statistically
  * consistent with the hypothesis "there has been no change in the average value
  * inside the window".
- *
+ * </p>
+ * The window is summarized by an exponential histogram: row i holds up to
+ * MAXBUCKETS + 1 buckets of 2^i items each, with their total and variance. The
+ * buckets are stored in preallocated arrays, one ring of slots per row, so that
+ * inserting and merging buckets only moves indices.
  *
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
  */
 public class ADWIN extends AbstractMOAObject {
 
-    private class List extends AbstractMOAObject {
-
-        protected int count;
-
-        protected ListItem head;
-
-        protected ListItem tail;
-
-        public List() {
-//			post: initializes the list to be empty.
-            clear();
-            addToHead();
-        }
-
-        /* Interface Store Methods */
-        public int size() {
-            //	post: returns the number of elements in the list.
-            return this.count;
-        }
-
-        public ListItem head() {
-            //	post: returns the number of elements in the list.
-            return this.head;
-        }
-
-        public ListItem tail() {
-            //	post: returns the number of elements in the list.
-            return this.tail;
-        }
-
-        public boolean isEmpty() {
-            //	 post: returns the true iff store is empty.
-            return (this.size() == 0);
-        }
-
-        public void clear() {
-            //	 post: clears the list so that it contains no elements.
-            this.head = null;
-            this.tail = null;
-            this.count = 0;
-        }
-
-        /* Interface List Methods */
-        public void addToHead() {
-            //	 pre: anObject is non-null
-            //	 post: the object is added to the beginning of the list
-            this.head = new ListItem(this.head, null);
-            if (this.tail == null) {
-                this.tail = this.head;
-            }
-            this.count++;
-        }
-
-        public void removeFromHead() {
-            //		 pre: list is not empty
-            //		 post: removes and returns first object from the list
-//			ListItem temp;
-//			temp = this.head;
-            this.head = this.head.next();
-            if (this.head != null) {
-                this.head.setPrevious(null);
-            } else {
-                this.tail = null;
-            }
-            this.count--;
-        }
-
-        public void addToTail() {
-//			pre: anObject is non-null
-//			post: the object is added at the end of the list
-            this.tail = new ListItem(null, this.tail);
-            if (this.head == null) {
-                this.head = this.tail;
-            }
-            this.count++;
-        }
-
-        public void removeFromTail() {
-//			pre: list is not empty
-//			post: the last object in the list is removed and returned
-//			ListItem temp;
-//			temp = this.tail;
-            this.tail = this.tail.previous();
-            if (this.tail == null) {
-                this.head = null;
-            } else {
-                this.tail.setNext(null);
-            }
-            this.count--;
-            //temp=null;
-        }
-
-        @Override
-        public void getDescription(StringBuilder sb, int indent) {
-        }
-    }
-
-    private class ListItem extends AbstractMOAObject {
-        protected ListItem next;
-
-        protected ListItem previous;
-
-        protected int bucketSizeRow = 0;
-
-        protected int MAXBUCKETS = ADWIN.MAXBUCKETS;
-
-        protected double bucketTotal[] = new double[MAXBUCKETS + 1];
-
-        protected double bucketVariance[] = new double[MAXBUCKETS + 1];
-
-        public ListItem() {
-//			post: initializes the node to be a tail node
-//			containing the given value.
-            this(null, null);
-        }
-
-        public void clear() {
-            bucketSizeRow = 0;
-            for (int k = 0; k <= MAXBUCKETS; k++) {
-                clearBucket(k);
-            }
-        }
-
-        private void clearBucket(int k) {
-            setTotal(0, k);
-            setVariance(0, k);
-        }
-
-        public ListItem(ListItem nextNode, ListItem previousNode) {
-//			post: initializes the node to contain the given
-//			object and link to the given next node.
-            //this.data = element;
-            this.next = nextNode;
-            this.previous = previousNode;
-            if (nextNode != null) {
-                nextNode.previous = this;
-            }
-            if (previousNode != null) {
-                previousNode.next = this;
-            }
-            clear();
-        }
-
-        public void insertBucket(double Value, double Variance) {
-//			insert a Bucket at the end
-            int k = bucketSizeRow;
-            bucketSizeRow++;
-            //Insert new bucket
-            setTotal(Value, k);
-            setVariance(Variance, k);
-        }
-
-        public void RemoveBucket() {
-//			Removes the first Buvket
-            compressBucketsRow(1);
-        }
-
-        public void compressBucketsRow(int NumberItemsDeleted) {
-            //Delete first elements
-            for (int k = NumberItemsDeleted; k <= MAXBUCKETS; k++) {
-                bucketTotal[k - NumberItemsDeleted] = bucketTotal[k];
-                bucketVariance[k - NumberItemsDeleted] = bucketVariance[k];
-            }
-            for (int k = 1; k <= NumberItemsDeleted; k++) {
-                clearBucket(MAXBUCKETS - k + 1);
-            }
-            bucketSizeRow -= NumberItemsDeleted;
-            //BucketNumber-=NumberItemsDeleted;
-        }
-
-        public ListItem previous() {
-//			post: returns the previous node.
-            return this.previous;
-        }
-
-        public void setPrevious(ListItem previous) {
-//			post: sets the previous node to be the given node
-            this.previous = previous;
-        }
-
-        public ListItem next() {
-//			post: returns the next node.
-            return this.next;
-        }
-
-        public void setNext(ListItem next) {
-//			post: sets the next node to be the given node
-            this.next = next;
-        }
-
-        public double Total(int k) {
-//			post: returns the element in this node
-            return bucketTotal[k];
-        }
-
-        public double Variance(int k) {
-//			post: returns the element in this node
-            return bucketVariance[k];
-        }
-
-        public void setTotal(double value, int k) {
-//			post: sets the element in this node to the given
-//			object.
-            bucketTotal[k] = value;
-        }
-
-        public void setVariance(double value, int k) {
-//			post: sets the element in this node to the given
-//			object.
-            bucketVariance[k] = value;
-        }
-        /*
-        public ListItem(Object element,
-        ListItem nextNode){
-        //		post: initializes the node to contain the given
-        //		 object and link to the given next node.
-        this.data = element;
-        this.next = nextNode;
-        }
-        public ListItem(Object element) {
-        //		post: initializes the node to be a tail node
-        //		 containing the given value.
-        this(element, null);
-        }
-
-
-        public Object value() {
-        //			 post: returns the element in this node
-        return this.data;
-        }
-        public void setValue(Object anObject) {
-        //			 post: sets the element in this node to the given
-        //			 object.
-        this.data = anObject;
-        }
-         */
-
-        @Override
-        public void getDescription(StringBuilder sb, int indent) {
-        }
-    }
-
     public static final double DELTA = .002; //.1;
 
     private static final int mintMinimLongitudWindow = 10; //10
@@ -314,7 +78,19 @@ public class ADWIN extends AbstractMOAObject {
 
     private int mintMinWinLength = 5;
 
-    private List listRowBuckets;
+    private static final int ROW_CAPACITY = MAXBUCKETS + 1;
+
+    private static final int INITIAL_ROWS = 4;
+
+    //buckets of row i, oldest first: ring of ROW_CAPACITY slots starting at
+    //i * ROW_CAPACITY, rowFirst[i] being the slot of the oldest bucket
+    private double[] bucketTotal;
+
+    private double[] bucketVariance;
+
+    private int[] rowFirst;
+
+    private int[] rowSize;
 
     public boolean getChange() {
         return blnBucketDeleted;
@@ -370,7 +146,10 @@ public class ADWIN extends AbstractMOAObject {
 
     private void initBuckets() {
         //Init buckets
-        listRowBuckets = new List();
+        bucketTotal = new double[INITIAL_ROWS * ROW_CAPACITY];
+        bucketVariance = new double[INITIAL_ROWS * ROW_CAPACITY];
+        rowFirst = new int[INITIAL_ROWS];
+        rowSize = new int[INITIAL_ROWS];
         lastBucketRow = 0;
         TOTAL = 0;
         VARIANCE = 0;
@@ -380,7 +159,7 @@ public class ADWIN extends AbstractMOAObject {
 
     private void insertElement(double Value) {
         WIDTH++;
-        insertElementBucket(0, Value, listRowBuckets.head());
+        insertElementBucket(0, Value, 0);
         double incVariance = 0;
         if (WIDTH > 1) {
             incVariance = (WIDTH - 1) * (Value - TOTAL / (WIDTH - 1)) * (Value - TOTAL / (WIDTH - 1)) / WIDTH;
@@ -390,9 +169,9 @@ public class ADWIN extends AbstractMOAObject {
         compressBuckets();
     }
 
-    private void insertElementBucket(double Variance, double Value, ListItem Node) {
+    private void insertElementBucket(double Variance, double Value, int Row) {
         //Insert new bucket
-        Node.insertBucket(Value, Variance);
+        insertBucket(Row, Value, Variance);
         BucketNumber++;
         if (BucketNumber > BucketNumberMAX) {
             BucketNumberMAX = BucketNumber;
@@ -400,68 +179,90 @@ public class ADWIN extends AbstractMOAObject {
     }
 
     private int bucketSize(int Row) {
-        return (int) Math.pow(2, Row);
+        return 1 << Row;
+    }
+
+    private int slot(int Row, int k) {
+        //index of the k-th oldest bucket of the row
+        int j = rowFirst[Row] + k;
+        if (j >= ROW_CAPACITY) {
+            j -= ROW_CAPACITY;
+        }
+        return Row * ROW_CAPACITY + j;
+    }
+
+    private void insertBucket(int Row, double Value, double Variance) {
+        //insert a bucket at the end of the row
+        int s = slot(Row, rowSize[Row]);
+        bucketTotal[s] = Value;
+        bucketVariance[s] = Variance;
+        rowSize[Row]++;
+    }
+
+    private void removeBuckets(int Row, int NumberItemsDeleted) {
+        //remove the oldest buckets of the row
+        rowFirst[Row] += NumberItemsDeleted;
+        if (rowFirst[Row] >= ROW_CAPACITY) {
+            rowFirst[Row] -= ROW_CAPACITY;
+        }
+        rowSize[Row] -= NumberItemsDeleted;
+    }
+
+    private void addRow() {
+        lastBucketRow++;
+        if (lastBucketRow == rowSize.length) {
+            int rows = 2 * rowSize.length;
+            bucketTotal = Arrays.copyOf(bucketTotal, rows * ROW_CAPACITY);
+            bucketVariance = Arrays.copyOf(bucketVariance, rows * ROW_CAPACITY);
+            rowFirst = Arrays.copyOf(rowFirst, rows);
+            rowSize = Arrays.copyOf(rowSize, rows);
+        }
+        rowFirst[lastBucketRow] = 0;
+        rowSize[lastBucketRow] = 0;
     }
 
     public int deleteElement() {
-        //LIST
         //Update statistics
-        ListItem Node;
-        Node = listRowBuckets.tail();
+        int oldest = slot(lastBucketRow, 0);
         int n1 = bucketSize(lastBucketRow);
         WIDTH -= n1;
-        TOTAL -= Node.Total(0);
-        double u1 = Node.Total(0) / n1;
-        double incVariance = Node.Variance(0) + n1 * WIDTH * (u1 - TOTAL / WIDTH) * (u1 - TOTAL / WIDTH) / (n1 + WIDTH);
+        TOTAL -= bucketTotal[oldest];
+        double u1 = bucketTotal[oldest] / n1;
+        double incVariance = bucketVariance[oldest] + n1 * WIDTH * (u1 - TOTAL / WIDTH) * (u1 - TOTAL / WIDTH) / (n1 + WIDTH);
         VARIANCE -= incVariance;
 
         //Delete Bucket
-        Node.RemoveBucket();
+        removeBuckets(lastBucketRow, 1);
         BucketNumber--;
-        if (Node.bucketSizeRow == 0) {
-            listRowBuckets.removeFromTail();
+        if (rowSize[lastBucketRow] == 0) {
             lastBucketRow--;
         }
         return n1;
     }
 
     public void compressBuckets() {
-        //Traverse the list of buckets in increasing order
+        //Traverse the rows of buckets in increasing order, merging the two
+        //oldest buckets of a full row into a bucket of the next row
         int n1, n2;
         double u2, u1, incVariance;
-        ListItem cursor;
-        ListItem nextNode;
-        cursor = listRowBuckets.head();
         int i = 0;
-        do {
-            //Find the number of buckets in a row
-            int k = cursor.bucketSizeRow;
-            //If the row is full, merge buckets
-            if (k == MAXBUCKETS + 1) {
-                nextNode = cursor.next();
-                if (nextNode == null) {
-                    listRowBuckets.addToTail();
-                    nextNode = cursor.next();
-                    lastBucketRow++;
-                }
-                n1 = bucketSize(i);
-                n2 = bucketSize(i);
-                u1 = cursor.Total(0) / n1;
-                u2 = cursor.Total(1) / n2;
-                incVariance = n1 * n2 * (u1 - u2) * (u1 - u2) / (n1 + n2);
-
-                nextNode.insertBucket(cursor.Total(0) + cursor.Total(1), cursor.Variance(0) + cursor.Variance(1) + incVariance);
-                BucketNumber++;
-                cursor.compressBucketsRow(2);
-                if (nextNode.bucketSizeRow <= MAXBUCKETS) {
-                    break;
-                }
-            } else {
-                break;
+        while (rowSize[i] == MAXBUCKETS + 1) {
+            if (i == lastBucketRow) {
+                addRow();
             }
-            cursor = cursor.next();
+            int first = slot(i, 0);
+            int second = slot(i, 1);
+            n1 = bucketSize(i);
+            n2 = bucketSize(i);
+            u1 = bucketTotal[first] / n1;
+            u2 = bucketTotal[second] / n2;
+            incVariance = n1 * n2 * (u1 - u2) * (u1 - u2) / (n1 + n2);
+
+            insertBucket(i + 1, bucketTotal[first] + bucketTotal[second], bucketVariance[first] + bucketVariance[second] + incVariance);
+            BucketNumber++;
+            removeBuckets(i, 2);
             i++;
-        } while (cursor != null);
+        }
     }
 
     public boolean setInput(double intEntrada) {
@@ -471,7 +272,6 @@ public class ADWIN extends AbstractMOAObject {
     public boolean setInput(double intEntrada, double delta) {
         boolean blnChange = false;
         boolean blnExit;
-        ListItem cursor;
         mintTime++;
 
         //1,2)Increment window in one element
@@ -493,33 +293,36 @@ public class ADWIN extends AbstractMOAObject {
                 double v1 = VARIANCE;
                 double n2;
                 double u2;
+                //the width does not change until the cut
+                double dd = Math.log(2 * Math.log(getWidth()) / delta);
+                double v = getVariance();
 
-                cursor = listRowBuckets.tail();
                 int i = lastBucketRow;
                 do {
-                    for (int k = 0; k <= (cursor.bucketSizeRow - 1); k++) {
+                    for (int k = 0; k <= (rowSize[i] - 1); k++) {
+                        int s = slot(i, k);
                         n2 = bucketSize(i);
-                        u2 = cursor.Total(k);
+                        u2 = bucketTotal[s];
                         if (n0 > 0) {
-                            v0 += cursor.Variance(k) + (double) n0 * n2 * (u0 / n0 - u2 / n2) * (u0 / n0 - u2 / n2) / (n0 + n2);
+                            v0 += bucketVariance[s] + (double) n0 * n2 * (u0 / n0 - u2 / n2) * (u0 / n0 - u2 / n2) / (n0 + n2);
                         }
                         if (n1 > 0) {
-                            v1 -= cursor.Variance(k) + (double) n1 * n2 * (u1 / n1 - u2 / n2) * (u1 / n1 - u2 / n2) / (n1 + n2);
+                            v1 -= bucketVariance[s] + (double) n1 * n2 * (u1 / n1 - u2 / n2) * (u1 / n1 - u2 / n2) / (n1 + n2);
                         }
 
                         n0 += bucketSize(i);
                         n1 -= bucketSize(i);
-                        u0 += cursor.Total(k);
-                        u1 -= cursor.Total(k);
+                        u0 += bucketTotal[s];
+                        u1 -= bucketTotal[s];
 
-                        if (i == 0 && k == cursor.bucketSizeRow - 1) {
+                        if (i == 0 && k == rowSize[i] - 1) {
                             blnExit = true;
                             break;
                         }
                         double absvalue = (u0 / n0) - (u1 / n1);       //n1<WIDTH-mintMinWinLength-1
                         if ((n1 > mintMinWinLength + 1 && n0 > mintMinWinLength + 1) && // Diference NEGATIVE
                                 //if(
-                                blnCutexpression(n0, n1, u0, u1, v0, v1, absvalue, delta)) {
+                                blnCutexpression(n0, n1, u0, u1, v0, v1, absvalue, dd, v)) {
                             blnBucketDeleted = true;
                             Detect = mintTime;
 
@@ -541,9 +344,8 @@ public class ADWIN extends AbstractMOAObject {
                             }
                         } //End if
                     }//Next k
-                    cursor = cursor.previous();
                     i--;
-                } while (((!blnExit && cursor != null)));
+                } while (((!blnExit && i >= 0)));
             }//End While // Diference
         }//End if
 
@@ -554,11 +356,10 @@ public class ADWIN extends AbstractMOAObject {
         return blnChange;
     }
 
-    private boolean blnCutexpression(int n0, int n1, double u0, double u1, double v0, double v1, double absvalue, double delta) {
-        int n = getWidth();
-        double dd = Math.log(2 * Math.log(n) / delta);     // -- ull perque el ln n va al numerador.
+    private boolean blnCutexpression(int n0, int n1, double u0, double u1, double v0, double v1, double absvalue, double dd, double v) {
+        // dd = log(2 log(n) / delta), v = variance of the window
+        // -- ull perque el ln n va al numerador.
         // Formula Gener 2008
-        double v = getVariance();
         double m = ((double) 1 / ((n0 - mintMinWinLength + 1))) + ((double) 1 / ((n1 - mintMinWinLength + 1)));
         double epsilon = Math.sqrt(2 * m * v * dd) + (double) 2 / 3 * dd * m;
 
@@ -22,6 +22,7 @@ package com.yahoo.labs.samoa.moa.classifiers.core.driftdetection;
  */
 
 import com.github.javacliparser.FloatOption;
+import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.moa.core.ObjectRepository;
 import com.yahoo.labs.samoa.moa.tasks.TaskMonitor;
 
@@ -44,6 +45,9 @@ public class ADWINChangeDetector extends AbstractChangeDetector {
     public FloatOption deltaAdwinOption = new FloatOption("deltaAdwin", 'a',
             "Delta of Adwin change detection", 0.002, 0.0, 1.0);
 
+    public IntOption clockAdwinOption = new IntOption("clockAdwin", 'c',
+            "Number of inputs between two checks of Adwin for a change", 32, 1, Integer.MAX_VALUE);
+
     @Override
     public void input(double inputValue) {
         if (this.adwin == null) {
@@ -58,6 +62,7 @@ public class ADWINChangeDetector extends AbstractChangeDetector {
     @Override
     public void resetLearning() {
         adwin = new ADWIN(this.deltaAdwinOption.getValue());
+        adwin.setClock(this.clockAdwinOption.getValue());
     }
 
     @Override
@@ -130,6 +130,14 @@ public class NumericAttributeBinaryRulePredicate extends InstanceConditionalBina
         return this.attValue;
     }
 
+    public int getAttributeIndex() {
+        return this.attIndex;
+    }
+
+    public int getOperator() {
+        return this.operator;
+    }
+
     @Override
     public boolean evaluate(Instance inst) {
         return (branchForInstance(inst) == 0);
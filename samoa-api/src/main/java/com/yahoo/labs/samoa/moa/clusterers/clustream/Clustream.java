@@ -60,6 +60,7 @@ public class Clustream extends AbstractClusterer{
 	private int bufferSize;
 	private double t;
 	private int m;
+	private transient KernelIndex index; // built after the initialization
 
 	public Clustream() {
 	}
@@ -74,6 +75,7 @@ public class Clustream extends AbstractClusterer{
 		this.bufferSize = maxNumKernelsOption.getValue();
 		t = kernelRadiFactorOption.getValue();
 		m = maxNumKernelsOption.getValue();
+		this.index = null;
 	}
 
 	@Override
@@ -108,33 +110,22 @@ public class Clustream extends AbstractClusterer{
 		}
 
 
-		// 1. Determine closest kernel
-		ClustreamKernel closestKernel = null;
-		double minDistance = Double.MAX_VALUE;
-		for (ClustreamKernel kernel : kernels) {
-			//System.out.println(i+" "+kernels[i].getWeight()+" "+kernels[i].getDeviation());
-			double distance = distance(instance.toDoubleArray(), kernel.getCenter());
-			if (distance < minDistance) {
-				closestKernel = kernel;
-				minDistance = distance;
-			}
+		if (index == null) {
+			index = new KernelIndex(kernels);
 		}
 
+		// 1. Determine closest kernel
+		int closest = index.nearest(instance.toDoubleArray(), 0, -1, Double.MAX_VALUE);
+		ClustreamKernel closestKernel = closest < 0 ? null : kernels[closest];
+		double minDistance = index.getNearestDistance();
+
 		// 2. Check whether instance fits into closestKernel
 		double radius;
 		if (closestKernel != null && closestKernel.getWeight() == 1) {
 			// Special case: estimate radius by determining the distance to the
 			// next closest cluster
-			radius = Double.MAX_VALUE;
-			double[] center = closestKernel.getCenter();
-			for (ClustreamKernel kernel : kernels) {
-				if (kernel == closestKernel) {
-					continue;
-				}
-
-				double distance = distance(kernel.getCenter(), center);
-				radius = Math.min(distance, radius);
-			}
+			index.nearest(index.getCenter(closest), 0, closest, Double.MAX_VALUE);
+			radius = index.getNearestDistance();
 		} else {
 			radius = closestKernel.getRadius();
 		}
@@ -142,6 +133,7 @@ public class Clustream extends AbstractClusterer{
 		if ( minDistance < radius ) {
 			// Date fits, put into kernel and be happy
 			closestKernel.insert( instance, timestamp );
+			index.update(closest);
 			return;
 		}
 
@@ -153,29 +145,25 @@ public class Clustream extends AbstractClusterer{
 		for ( int i = 0; i < kernels.length; i++ ) {
 			if ( kernels[i].getRelevanceStamp() < threshold ) {
 				kernels[i] = new ClustreamKernel( instance, dim, timestamp, t, m );
+				index.update(i);
 				return;
 			}
 		}
 
 		// 3.2 Merge closest two kernels
-		int closestA = 0;
+		int closestA = index.closestPair();
 		int closestB = 0;
-		minDistance = Double.MAX_VALUE;
-		for ( int i = 0; i < kernels.length; i++ ) {
-			double[] centerA = kernels[i].getCenter();
-			for ( int j = i + 1; j < kernels.length; j++ ) {
-				double dist = distance( centerA, kernels[j].getCenter() );
-				if ( dist < minDistance ) {
-					minDistance = dist;
-					closestA = i;
-					closestB = j;
-				}
-			}
+		if ( closestA >= 0 ) {
+			closestB = index.getNeighbour( closestA );
+		} else {
+			closestA = 0;
 		}
 		assert (closestA != closestB);
 
 		kernels[closestA].add( kernels[closestB] );
 		kernels[closestB] = new ClustreamKernel( instance, dim, timestamp, t,  m );
+		index.update(closestA);
+		index.update(closestB);
 	}
 
 	@Override
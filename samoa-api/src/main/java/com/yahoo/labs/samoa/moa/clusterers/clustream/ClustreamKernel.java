@@ -53,6 +53,17 @@ public class ClustreamKernel extends CFCluster {
         this.SST = cluster.SST;
     }
 
+    /**
+     * Rebuild a kernel from its cluster feature vectors, without time statistics
+     * (the kernel can not be used to compute a relevance stamp).
+     */
+    public ClustreamKernel( double N, double[] LS, double[] SS ) {
+        super(LS.length);
+        this.N = N;
+        System.arraycopy(LS, 0, this.LS, 0, LS.length);
+        System.arraycopy(SS, 0, this.SS, 0, SS.length);
+    }
+
     public void insert( Instance instance, long timestamp ) {
 		N++;
 		LST += timestamp;
@@ -115,13 +126,12 @@ public class ClustreamKernel extends CFCluster {
 
 
     private double getDeviation(){
-        double[] variance = getVarianceVector();
         double sumOfDeviation = 0.0;
-        for (double aVariance : variance) {
-            double d = Math.sqrt(aVariance);
+        for (int i = 0; i < this.LS.length; i++) {
+            double d = Math.sqrt(getVariance(i));
             sumOfDeviation += d;
         }
-        return sumOfDeviation / variance.length;
+        return sumOfDeviation / this.LS.length;
     }
 
     /**
@@ -172,25 +182,30 @@ public class ClustreamKernel extends CFCluster {
     private double[] getVarianceVector() {
         double[] res = new double[this.LS.length];
         for (int i = 0; i < this.LS.length; i++) {
-            double ls = this.LS[i];
-            double ss = this.SS[i];
-
-            double lsDivN = ls / this.getWeight();
-            double lsDivNSquared = lsDivN * lsDivN;
-            double ssDivN = ss / this.getWeight();
-            res[i] = ssDivN - lsDivNSquared;
-
-            // Due to numerical errors, small negative values can occur.
-            // We correct this by settings them to almost zero.
-            if (res[i] <= 0.0) {
-                if (res[i] > -EPSILON) {
-                    res[i] = MIN_VARIANCE;
-                }
-            }
+            res[i] = getVariance(i);
         }
         return res;
     }
 
+    private double getVariance(int i) {
+        double ls = this.LS[i];
+        double ss = this.SS[i];
+
+        double lsDivN = ls / this.getWeight();
+        double lsDivNSquared = lsDivN * lsDivN;
+        double ssDivN = ss / this.getWeight();
+        double variance = ssDivN - lsDivNSquared;
+
+        // Due to numerical errors, small negative values can occur.
+        // We correct this by settings them to almost zero.
+        if (variance <= 0.0) {
+            if (variance > -EPSILON) {
+                variance = MIN_VARIANCE;
+            }
+        }
+        return variance;
+    }
+
     /**
      * Check if this cluster is empty or not.
      * @return <code>true</code> if the cluster has no data points,
@@ -0,0 +1,379 @@
+package com.yahoo.labs.samoa.moa.clusterers.clustream;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.BitSet;
+
+/**
+ * Index of the centers of the Clustream kernels, to find the closest kernel of a
+ * point without computing its distance to every kernel.
+ * </p>
+ * The centers are cached, and kept in a tree of bounding boxes split on the
+ * dimension with the largest spread (a k-d tree with boxes). When a kernel changes,
+ * its center is recomputed and the boxes of its leaf and of the ancestors are
+ * extended to contain it; the tree is rebuilt after as many changes as kernels,
+ * to tighten the boxes. A search skips the boxes which are farther than the best
+ * kernel found so far.
+ * </p>
+ * For the merge of the two closest kernels, the index keeps for each kernel its
+ * closest kernel among the following ones. This table is brought up to date only
+ * when the closest pair is requested, for the kernels changed since the previous
+ * request; after many changes it is recomputed with a search per kernel.
+ * </p>
+ * The results are the same as a linear scan of the kernels: the distances are
+ * computed in the same way, and ties go to the kernel with the smallest index.
+ */
+final class KernelIndex {
+
+	private static final int LEAF_SIZE = 8;
+	// above this number of changed kernels, the closest pairs are recomputed with a search per kernel
+	private static final int MAX_INCREMENTAL_CHANGES = 16;
+
+	private final ClustreamKernel[] kernels;
+	private final double[][] centers;
+	private final int dimensions;
+
+	// tree: the slots of node n are order[begin[n]..end[n])
+	private final int[] order;
+	private final int[] leafOfSlot;
+	private final int[] left;
+	private final int[] right;
+	private final int[] parent;
+	private final int[] begin;
+	private final int[] end;
+	private final int[] maxSlot;
+	private final double[][] lower;
+	private final double[][] upper;
+	private int numNodes;
+	private int updatesSinceBuild;
+
+	// closest following kernel of each kernel, and kernels changed since the last update
+	private final int[] neighbour;
+	private final double[] neighbourDistance;
+	private final BitSet changedSlots = new BitSet();
+
+	// result of the current search
+	private double bestDistance;
+	private int bestSlot;
+
+	KernelIndex(ClustreamKernel[] kernels) {
+		this.kernels = kernels;
+		int k = kernels.length;
+		this.dimensions = kernels[0].LS.length;
+		this.centers = new double[k][dimensions];
+		for (int slot = 0; slot < k; slot++) {
+			computeCenter(slot);
+		}
+		int maxNodes = 2 * k;
+		this.order = new int[k];
+		this.leafOfSlot = new int[k];
+		this.left = new int[maxNodes];
+		this.right = new int[maxNodes];
+		this.parent = new int[maxNodes];
+		this.begin = new int[maxNodes];
+		this.end = new int[maxNodes];
+		this.maxSlot = new int[maxNodes];
+		this.lower = new double[maxNodes][dimensions];
+		this.upper = new double[maxNodes][dimensions];
+		this.neighbour = new int[k];
+		this.neighbourDistance = new double[k];
+		this.changedSlots.set(0, k);
+		build();
+	}
+
+	/**
+	 * @return the cached center of a kernel, owned by the index
+	 */
+	double[] getCenter(int slot) {
+		return centers[slot];
+	}
+
+	/**
+	 * Update the index after the kernel of a slot has changed (new points, merge or replacement).
+	 */
+	void update(int slot) {
+		computeCenter(slot);
+		changedSlots.set(slot);
+		if (++updatesSinceBuild >= kernels.length) {
+			build();
+			return;
+		}
+		double[] center = centers[slot];
+		for (int node = leafOfSlot[slot]; node >= 0; node = parent[node]) {
+			if (!extend(node, center)) break;
+		}
+	}
+
+	/**
+	 * Find the kernel closest to a point.
+	 * @param point the point
+	 * @param fromSlot the smallest slot to consider
+	 * @param excludedSlot a slot not to consider, or -1
+	 * @param maxDistance only kernels strictly closer than this are considered
+	 * @return the slot of the closest kernel (the smallest one in case of ties), or -1 if there is none
+	 */
+	int nearest(double[] point, int fromSlot, int excludedSlot, double maxDistance) {
+		bestDistance = maxDistance;
+		bestSlot = -1;
+		search(0, point, fromSlot, excludedSlot);
+		return bestSlot;
+	}
+
+	/**
+	 * @return the distance of the kernel found by the last call to nearest(), or maxDistance if none was found
+	 */
+	double getNearestDistance() {
+		return bestDistance;
+	}
+
+	/**
+	 * Find the two closest kernels, i.e. the first pair (i, j), i &lt; j, in 
+	 * lexicographic order among the pairs with the smallest distance.
+	 * @return i, or -1 if no pair is closer than Double.MAX_VALUE. j is {@link #getNeighbour(int)}.
+	 */
+	int closestPair() {
+		updateNeighbours();
+		int closest = -1;
+		double minDistance = Double.MAX_VALUE;
+		for (int slot = 0; slot < neighbour.length; slot++) {
+			if (neighbourDistance[slot] < minDistance) {
+				minDistance = neighbourDistance[slot];
+				closest = slot;
+			}
+		}
+		return closest;
+	}
+
+	/**
+	 * @return the closest kernel among the kernels following a slot, as of the last call to closestPair()
+	 */
+	int getNeighbour(int slot) {
+		return neighbour[slot];
+	}
+
+	private void updateNeighbours() {
+		int numChanged = changedSlots.cardinality();
+		if (numChanged == 0) return;
+		if (numChanged > MAX_INCREMENTAL_CHANGES) {
+			for (int slot = 0; slot < neighbour.length; slot++) {
+				updateNeighbour(slot);
+			}
+			changedSlots.clear();
+			return;
+		}
+		// the changed kernels, and the kernels whose closest kernel has changed
+		for (int slot = 0; slot < neighbour.length; slot++) {
+			if (changedSlots.get(slot) || (neighbour[slot] >= 0 && changedSlots.get(neighbour[slot]))) {
+				updateNeighbour(slot);
+			}
+		}
+		// the other kernels, if a changed kernel has come closer
+		for (int changed = changedSlots.nextSetBit(0); changed >= 0; changed = changedSlots.nextSetBit(changed + 1)) {
+			double[] center = centers[changed];
+			for (int slot = 0; slot < changed; slot++) {
+				double distance = distance(centers[slot], center);
+				if (distance < neighbourDistance[slot] || (distance == neighbourDistance[slot] && changed < neighbour[slot])) {
+					neighbourDistance[slot] = distance;
+					neighbour[slot] = changed;
+				}
+			}
+		}
+		changedSlots.clear();
+	}
+
+	private void updateNeighbour(int slot) {
+		neighbour[slot] = nearest(centers[slot], slot + 1, -1, Double.MAX_VALUE);
+		neighbourDistance[slot] = bestDistance;
+	}
+
+	private void search(int node, double[] point, int fromSlot, int excludedSlot) {
+		if (left[node] < 0) {
+			for (int i = begin[node]; i < end[node]; i++) {
+				int slot = order[i];
+				if (slot < fromSlot || slot == excludedSlot) continue;
+				double distance = distance(point, centers[slot]);
+				if (distance < bestDistance || (distance == bestDistance && slot < bestSlot)) {
+					bestDistance = distance;
+					bestSlot = slot;
+				}
+			}
+			return;
+		}
+		int first = left[node];
+		int second = right[node];
+		double firstBound = lowerBound(first, point);
+		double secondBound = lowerBound(second, point);
+		if (secondBound < firstBound) {
+			int swap = first;
+			first = second;
+			second = swap;
+			double swapBound = firstBound;
+			firstBound = secondBound;
+			secondBound = swapBound;
+		}
+		if (maxSlot[first] >= fromSlot && firstBound <= bestDistance) {
+			search(first, point, fromSlot, excludedSlot);
+		}
+		if (maxSlot[second] >= fromSlot && secondBound <= bestDistance) {
+			search(second, point, fromSlot, excludedSlot);
+		}
+	}
+
+	/*
+	 * Distance from a point to the box of a node. The terms are summed in the same
+	 * order as in distance(), and each one is not larger, so the bound never exceeds
+	 * the distance to a center in the box, even with rounding.
+	 */
+	private double lowerBound(int node, double[] point) {
+		double[] lo = lower[node];
+		double[] hi = upper[node];
+		double sum = 0.0;
+		for (int i = 0; i < dimensions; i++) {
+			double d;
+			if (point[i] < lo[i]) {
+				d = lo[i] - point[i];
+			} else if (point[i] > hi[i]) {
+				d = point[i] - hi[i];
+			} else {
+				continue;
+			}
+			sum += d * d;
+		}
+		return Math.sqrt(sum);
+	}
+
+	private static double distance(double[] pointA, double[] pointB) {
+		double distance = 0.0;
+		for (int i = 0; i < pointA.length; i++) {
+			double d = pointA[i] - pointB[i];
+			distance += d * d;
+		}
+		return Math.sqrt(distance);
+	}
+
+	private void computeCenter(int slot) {
+		ClustreamKernel kernel = kernels[slot];
+		double[] center = centers[slot];
+		double n = kernel.getN();
+		for (int i = 0; i < dimensions; i++) {
+			center[i] = kernel.LS[i] / n;
+		}
+	}
+
+	/*
+	 * Tree construction
+	 */
+	private void build() {
+		for (int slot = 0; slot < order.length; slot++) {
+			order[slot] = slot;
+		}
+		numNodes = 0;
+		updatesSinceBuild = 0;
+		build(-1, 0, order.length);
+	}
+
+	private int build(int parentNode, int from, int to) {
+		int node = numNodes++;
+		parent[node] = parentNode;
+		begin[node] = from;
+		end[node] = to;
+		double[] lo = lower[node];
+		double[] hi = upper[node];
+		System.arraycopy(centers[order[from]], 0, lo, 0, dimensions);
+		System.arraycopy(centers[order[from]], 0, hi, 0, dimensions);
+		int max = order[from];
+		for (int i = from + 1; i < to; i++) {
+			extendBox(lo, hi, centers[order[i]]);
+			max = Math.max(max, order[i]);
+		}
+		maxSlot[node] = max;
+
+		if (to - from <= LEAF_SIZE) {
+			left[node] = -1;
+			right[node] = -1;
+			for (int i = from; i < to; i++) {
+				leafOfSlot[order[i]] = node;
+			}
+			return node;
+		}
+		int splitDimension = 0;
+		for (int i = 1; i < dimensions; i++) {
+			if (hi[i] - lo[i] > hi[splitDimension] - lo[splitDimension]) {
+				splitDimension = i;
+			}
+		}
+		int middle = (from + to) >>> 1;
+		select(from, to, middle, splitDimension);
+		left[node] = build(node, from, middle);
+		right[node] = build(node, middle, to);
+		return node;
+	}
+
+	/*
+	 * Partially sort order[from..to) on a dimension, so that position k holds the k-th center
+	 */
+	private void select(int from, int to, int k, int dimension) {
+		int lo = from;
+		int hi = to - 1;
+		while (lo < hi) {
+			double pivot = centers[order[(lo + hi) >>> 1]][dimension];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (centers[order[i]][dimension] < pivot) i++;
+				while (centers[order[j]][dimension] > pivot) j--;
+				if (i <= j) {
+					int swap = order[i];
+					order[i] = order[j];
+					order[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				hi = j;
+			} else if (k >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private boolean extend(int node, double[] point) {
+		return extendBox(lower[node], upper[node], point);
+	}
+
+	private boolean extendBox(double[] lo, double[] hi, double[] point) {
+		boolean extended = false;
+		for (int i = 0; i < dimensions; i++) {
+			if (point[i] < lo[i]) {
+				lo[i] = point[i];
+				extended = true;
+			}
+			if (point[i] > hi[i]) {
+				hi[i] = point[i];
+				extended = true;
+			}
+		}
+		return extended;
+	}
+}
@@ -32,9 +32,19 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.lang.reflect.Constructor;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import org.objenesis.instantiator.ObjectInstantiator;
+import org.objenesis.strategy.InstantiatorStrategy;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
 /**
  * Class implementing some serialize utility methods.
  *
@@ -43,6 +53,67 @@ import java.util.zip.GZIPOutputStream;
  */
 public class SerializeUtils {
 
+    private static final int COPY_BUFFER_SIZE = 4096;
+
+    /*
+     * Kryo instance and buffers of the copies, per thread (Kryo is not thread safe)
+     */
+    private static final ThreadLocal<Kryo> copyKryo = new ThreadLocal<Kryo>() {
+        @Override
+        protected Kryo initialValue() {
+            Kryo kryo = new Kryo();
+            kryo.setRegistrationRequired(false);
+            kryo.setReferences(true);
+            kryo.setInstantiatorStrategy(new NoArgConstructorFirstStrategy());
+            return kryo;
+        }
+    };
+
+    private static final ThreadLocal<Output> copyOutput = new ThreadLocal<Output>() {
+        @Override
+        protected Output initialValue() {
+            return new Output(COPY_BUFFER_SIZE, -1);
+        }
+    };
+
+    private static final ThreadLocal<Input> copyInput = new ThreadLocal<Input>() {
+        @Override
+        protected Input initialValue() {
+            return new Input();
+        }
+    };
+
+    /**
+     * Instantiates objects with their no-arg constructor, or without calling a
+     * constructor (as Java serialization does) for classes without one, such as
+     * the options.
+     */
+    private static class NoArgConstructorFirstStrategy implements InstantiatorStrategy {
+
+        private final InstantiatorStrategy fallback = new StdInstantiatorStrategy();
+
+        @Override
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        public ObjectInstantiator newInstantiatorOf(Class type) {
+            try {
+                final Constructor constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return new ObjectInstantiator() {
+                    @Override
+                    public Object newInstance() {
+                        try {
+                            return constructor.newInstance();
+                        } catch (Exception e) {
+                            throw new KryoException("Error constructing instance of class: " + constructor.getDeclaringClass().getName(), e);
+                        }
+                    }
+                };
+            } catch (Exception e) {
+                return fallback.newInstantiatorOf(type);
+            }
+        }
+    }
+
     public static class ByteCountingOutputStream extends OutputStream {
 
         protected int numBytesWritten = 0;
@@ -100,6 +171,38 @@ public class SerializeUtils {
         return copy;
     }
 
+    /**
+     * Copies an object with a Kryo round trip instead of Java serialization:
+     * no class descriptors are written, and the Kryo instance and the buffers
+     * are reused. As with Java serialization, the copy is deep, shared
+     * references and cycles are kept, and transient fields are not copied
+     * (they keep the values set by the no-arg constructor, if any).
+     * 
+     * @param obj the object to copy
+     * @return the copy
+     * @throws KryoException if Kryo cannot copy the object, see {@link #copyObject(Serializable)}
+     */
+    public static Object fastCopyObject(Object obj) {
+        Kryo kryo = copyKryo.get();
+        Output output = copyOutput.get();
+        try {
+            output.clear();
+            kryo.writeClassAndObject(output, obj);
+            Input input = copyInput.get();
+            input.setBuffer(output.getBuffer(), 0, output.position());
+            return kryo.readClassAndObject(input);
+        } catch (RuntimeException e) {
+            // the state of the Kryo instance is unknown after a failure
+            copyKryo.remove();
+            throw e instanceof KryoException ? (KryoException) e : new KryoException(e);
+        } finally {
+            if (output.getBuffer().length > COPY_BUFFER_SIZE * 256) {
+                // do not keep the buffer of a large copy
+                copyOutput.remove();
+            }
+        }
+    }
+
     public static int measureObjectByteSize(Serializable obj) throws Exception {
         ByteCountingOutputStream bcoStream = new ByteCountingOutputStream();
         ObjectOutputStream out = new ObjectOutputStream(
@@ -38,7 +38,7 @@ public class MembershipMatrix {
     int total_class_entries;
     int initalBuildTimestamp = -1;
 
-    public MembershipMatrix(Clustering foundClustering, ArrayList<DataPoint> points) {
+    public MembershipMatrix(final Clustering foundClustering, final ArrayList<DataPoint> points) {
         classmap = Clustering.classValues(points);
 //        int lastID  = classmap.size()-1;
 //        classmap.put(-1, lastID);
@@ -51,14 +51,28 @@ public class MembershipMatrix {
         class_sums = new int[numClasses];
         total_entries = 0;
         total_class_entries = points.size();
+
+        // coverage of the points by the clusters, in parallel
+        final int numFoundClusters = foundClustering.size();
+        final boolean[][] coveredBy = new boolean[points.size()][numFoundClusters];
+        PointLoops.forEach(points.size(), new PointLoops.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int p = from; p < to; p++) {
+                    for (int c = 0; c < numFoundClusters; c++) {
+                        coveredBy[p][c] = foundClustering.get(c).getInclusionProbability(points.get(p)) >= 1;
+                    }
+                }
+            }
+        });
+
         for (int p = 0; p < points.size(); p++) {
             int worklabel = classmap.get((int)points.get(p).classValue());
             //real class distribution
             class_distribution[worklabel]++;
             boolean covered = false;
             for (int c = 0; c < numCluster-1; c++) {
-                double prob = foundClustering.get(c).getInclusionProbability(points.get(p));
-                if(prob >= 1){
+                if(coveredBy[p][c]){
                     cluster_class_weights[c][worklabel]++;
                     class_sums[worklabel]++;
                     cluster_sums[c]++;
@@ -0,0 +1,96 @@
+package com.yahoo.labs.samoa.moa.evaluation;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel loops over the points of an evaluation.
+ * </p>
+ * The range of points is split in halves, down to ranges of MIN_POINTS_PER_TASK
+ * points, which are processed by a fork-join pool shared by all the measures.
+ * The body of the loop must only write to the entries of its own points: the
+ * measures compute per point values in parallel, and then sum them up in the
+ * order of the points, so that the results do not depend on the scheduling.
+ */
+public final class PointLoops {
+
+    private static final int MIN_POINTS_PER_TASK = 64;
+
+    private static ForkJoinPool pool;
+
+    /**
+     * Body of a loop over a range of points.
+     */
+    public interface Body {
+        /**
+         * Process points from (inclusive) to to (exclusive).
+         */
+        void run(int from, int to);
+    }
+
+    private PointLoops() {
+    }
+
+    /**
+     * Run a loop over numPoints points, in parallel if there are enough points.
+     */
+    public static void forEach(int numPoints, Body body) {
+        if (numPoints < 2 * MIN_POINTS_PER_TASK || Runtime.getRuntime().availableProcessors() == 1) {
+            body.run(0, numPoints);
+            return;
+        }
+        getPool().invoke(new RangeTask(body, 0, numPoints));
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool();
+        }
+        return pool;
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 4727356416380271165L;
+
+        private final Body body;
+        private final int from;
+        private final int to;
+
+        RangeTask(Body body, int from, int to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2 * MIN_POINTS_PER_TASK) {
+                body.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(body, from, middle), new RangeTask(body, middle, to));
+        }
+    }
+}
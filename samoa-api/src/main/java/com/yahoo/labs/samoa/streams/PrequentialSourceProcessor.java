@@ -24,13 +24,15 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.yahoo.labs.samoa.core.ContentEvent;
-import com.yahoo.labs.samoa.core.EntranceProcessor;
 import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.core.SignallingEntranceProcessor;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.learners.InstanceContentEvent;
@@ -43,7 +45,7 @@ import com.yahoo.labs.samoa.moa.streams.InstanceStream;
  * @author Arinto Murdopo
  * 
  */
-public final class PrequentialSourceProcessor implements EntranceProcessor {
+public final class PrequentialSourceProcessor implements SignallingEntranceProcessor {
 
     private static final long serialVersionUID = 4169053337917578558L;
 
@@ -63,7 +65,10 @@ public final class PrequentialSourceProcessor implements EntranceProcessor {
 	 */
 	private transient ScheduledExecutorService timer;
 	private transient ScheduledFuture<?> schedule = null;
-	private int readyEventIndex = 1; // No waiting for the first event
+	// Signalled by the timer when readyEventIndex increases
+	private transient ReentrantLock readyLock;
+	private transient Condition readyCondition;
+	private volatile int readyEventIndex = 1; // No waiting for the first event
 	private int delay = 0;
 	private int batchSize = 1;
     private boolean finished = false;
@@ -85,6 +90,23 @@ public final class PrequentialSourceProcessor implements EntranceProcessor {
         return !isFinished() && (delay <= 0 || numInstanceSent < readyEventIndex);
     }
 
+    @Override
+    public boolean awaitNext(long timeout, TimeUnit unit) throws InterruptedException {
+    	if (readyLock == null) 
+    		return hasNext() || isFinished();
+    	long nanos = unit.toNanos(timeout);
+    	readyLock.lock();
+    	try {
+    		while (!hasNext() && !isFinished()) {
+    			if (nanos <= 0) return false;
+    			nanos = readyCondition.awaitNanos(nanos);
+    		}
+    		return true;
+    	} finally {
+    		readyLock.unlock();
+    	}
+    }
+
     private boolean hasReachedEndOfStream() {
         return (!streamSource.hasMoreInstances() || (numberInstances >= 0 && numInstanceSent >= numberInstances));
     }
@@ -112,7 +134,13 @@ public final class PrequentialSourceProcessor implements EntranceProcessor {
     }
     
 	private void increaseReadyEventIndex() {
-		readyEventIndex+=batchSize;
+		readyLock.lock();
+		try {
+			readyEventIndex+=batchSize;
+			readyCondition.signalAll();
+		} finally {
+			readyLock.unlock();
+		}
 		// if we exceed the max, cancel the timer
 		if (schedule != null && isFinished()) {
 			schedule.cancel(false);
@@ -123,6 +151,8 @@ public final class PrequentialSourceProcessor implements EntranceProcessor {
     public void onCreate(int id) {
         initStreamSource(sourceStream);
         timer = Executors.newScheduledThreadPool(1);
+        readyLock = new ReentrantLock();
+        readyCondition = readyLock.newCondition();
         logger.debug("Creating PrequentialSourceProcessor with id {}", id);
     }
 
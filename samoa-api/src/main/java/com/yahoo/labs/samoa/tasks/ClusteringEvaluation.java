@@ -43,6 +43,7 @@ import com.yahoo.labs.samoa.topology.ComponentFactory;
 import com.yahoo.labs.samoa.topology.Stream;
 import com.yahoo.labs.samoa.topology.Topology;
 import com.yahoo.labs.samoa.topology.TopologyBuilder;
+import com.yahoo.labs.samoa.utils.InstancesHeaderRegistry;
 
 /**
  * A task that runs and evaluates a distributed clustering algorithm.
@@ -135,6 +136,9 @@ public class ClusteringEvaluation implements Task, Configurable {
         distributor.setEvaluationStream(evaluationStream); // passes evaluation events along
         logger.debug("Successfully instantiated Distributor");
        
+        // the instances of the stream are sent with the id of their header
+        InstancesHeaderRegistry.publish(source.getDataset());
+
         // instantiate learner and connect it to distributorStream
         learner = this.learnerOption.getValue();
         learner.init(builder, source.getDataset(), 1);
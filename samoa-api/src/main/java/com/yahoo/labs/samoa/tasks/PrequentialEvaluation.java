@@ -47,6 +47,7 @@ import com.yahoo.labs.samoa.topology.ComponentFactory;
 import com.yahoo.labs.samoa.topology.Stream;
 import com.yahoo.labs.samoa.topology.Topology;
 import com.yahoo.labs.samoa.topology.TopologyBuilder;
+import com.yahoo.labs.samoa.utils.InstancesHeaderRegistry;
 
 /**
  * Prequential Evaluation task is a scheme in evaluating performance of online classifiers which uses each instance for testing online classifiers model and
@@ -143,6 +144,9 @@ public class PrequentialEvaluation implements Task, Configurable {
         sourcePiOutputStream = builder.createStream(preqSource);
         // preqStarter.setInputStream(sourcePiOutputStream);
 
+        // the instances of the stream are sent with the id of their header
+        InstancesHeaderRegistry.publish(preqSource.getDataset());
+
         // instantiate classifier and connect it to sourcePiOutputStream
         classifier = this.learnerOption.getValue();
         classifier.init(builder, preqSource.getDataset(), 1);
@@ -20,8 +20,11 @@ package com.yahoo.labs.samoa.topology;
  * #L%
  */
 
+import java.util.concurrent.TimeUnit;
+
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.EntranceProcessor;
+import com.yahoo.labs.samoa.core.SignallingEntranceProcessor;
 
 /**
  * Implementation of EntranceProcessingItem for local engines (Simple, Multithreads)
@@ -30,6 +33,8 @@ import com.yahoo.labs.samoa.core.EntranceProcessor;
  *
  */
 public class LocalEntranceProcessingItem extends AbstractEntranceProcessingItem {
+	private static final long MAX_WAIT_MILLIS = 100;
+
 	public LocalEntranceProcessingItem(EntranceProcessor processor) {
 		super(processor);
 	}
@@ -76,10 +81,18 @@ public class LocalEntranceProcessingItem extends AbstractEntranceProcessingItem
 	
 	/**
 	 * Method to wait for an amount of time when there are no available events.
+	 * If the processor is a {@link SignallingEntranceProcessor}, it returns as soon as 
+	 * the processor signals that an event is ready, otherwise it sleeps for 100ms.
 	 * Implementation of EntranceProcessingItem should override this method to 
 	 * implement non-blocking wait or to adjust the amount of time.
 	 */
 	protected void waitForNewEvents() throws Exception {
-		Thread.sleep(100);
+		EntranceProcessor processor = this.getProcessor();
+		if (processor instanceof SignallingEntranceProcessor) {
+			((SignallingEntranceProcessor) processor).awaitNext(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		else {
+			Thread.sleep(MAX_WAIT_MILLIS);
+		}
 	}
 }
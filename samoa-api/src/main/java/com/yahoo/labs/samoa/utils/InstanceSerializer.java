@@ -0,0 +1,248 @@
+package com.yahoo.labs.samoa.utils;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.yahoo.labs.samoa.core.SerializableInstance;
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.InstanceData;
+import com.yahoo.labs.samoa.instances.InstanceInformation;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SingleLabelInstance;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+import com.yahoo.labs.samoa.instances.SparseInstanceData;
+
+/**
+ * The Kryo serializer class for SingleLabelInstance, DenseInstance, SparseInstance
+ * and SerializableInstance.
+ * </p>
+ * An instance is written as its weight, its class value and its attribute values:
+ * dense values as an array of doubles, sparse values as the indices (varint
+ * differences with the previous index) and the values. The sparse values stay
+ * sparse.
+ * </p>
+ * The header of the instances is not written if it is published in the
+ * {@link InstancesHeaderRegistry}: only its id is, and the reader re-attaches the
+ * header published with this id on its node. Otherwise the header is written
+ * once per serialized object: the instances of a stream share the same
+ * InstanceInformation, and after the first instance of an event only its number
+ * is written. The instances list of the header is not written. Unlike Kryo
+ * references, this does not depend on the settings of the Kryo instance, which
+ * are chosen by the engine.
+ */
+public class InstanceSerializer extends Serializer<SingleLabelInstance> {
+
+	private static final int NO_HEADER = 0;
+	private static final int EMPTY_HEADER = 1;
+	private static final int NEW_HEADER = 2;
+	private static final int PUBLISHED_HEADER = 3;
+	private static final int HEADER_REFERENCE = 4;
+
+	private static final byte DENSE = 0;
+	private static final byte SPARSE = 1;
+
+	// headers of the object being written or read, cleared with the graph context of Kryo
+	private final IdentityHashMap<InstanceInformation, Integer> writtenHeaders = new IdentityHashMap<>();
+	private final List<Instances> readHeaders = new ArrayList<>();
+
+	@Override
+	public void write(Kryo kryo, Output output, SingleLabelInstance inst) {
+		startObject(kryo);
+		output.writeDouble(inst.weight());
+		output.writeDouble(inst.classValue());
+		writeHeader(output, inst.dataset());
+		InstanceData data = inst.getInstanceData();
+		int numValues = data.numValues();
+		if (data instanceof SparseInstanceData) {
+			output.writeByte(SPARSE);
+			output.writeInt(((SparseInstanceData) data).getNumberAttributes(), true);
+			output.writeInt(numValues, true);
+			int previousIndex = 0;
+			for (int i = 0; i < numValues; i++) {
+				int index = data.index(i);
+				output.writeInt(index - previousIndex, true);
+				output.writeDouble(data.valueSparse(i));
+				previousIndex = index;
+			}
+		} else {
+			output.writeByte(DENSE);
+			output.writeInt(numValues, true);
+			for (int i = 0; i < numValues; i++) {
+				output.writeDouble(data.valueSparse(i));
+			}
+		}
+	}
+
+	@Override
+	public SingleLabelInstance read(Kryo kryo, Input input, Class<SingleLabelInstance> type) {
+		startObject(kryo);
+		double weight = input.readDouble();
+		double classValue = input.readDouble();
+		Instances header = readHeader(input);
+		SingleLabelInstance inst;
+		if (input.readByte() == SPARSE) {
+			int numAttributes = input.readInt(true);
+			int numValues = input.readInt(true);
+			int[] indices = new int[numValues];
+			double[] values = new double[numValues];
+			int index = 0;
+			for (int i = 0; i < numValues; i++) {
+				index += input.readInt(true);
+				indices[i] = index;
+				values[i] = input.readDouble();
+			}
+			inst = new SingleLabelInstance(weight, values, indices, numAttributes);
+		} else {
+			double[] values = new double[input.readInt(true)];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = input.readDouble();
+			}
+			inst = new SingleLabelInstance(weight, values);
+		}
+		inst.setClassValue(classValue);
+		inst = newInstance(type, inst);
+		if (header != null) {
+			inst.setDataset(header);
+		}
+		return inst;
+	}
+
+	/*
+	 * Instance of the serialized class, sharing the values of inst
+	 */
+	private static SingleLabelInstance newInstance(Class<?> type, SingleLabelInstance inst) {
+		if (type == DenseInstance.class) {
+			return new DenseInstance(inst);
+		} else if (type == SparseInstance.class) {
+			return new SparseInstance(inst);
+		} else if (type == SerializableInstance.class) {
+			return new SerializableInstance(inst);
+		}
+		return inst;
+	}
+
+	/*
+	 * Forget the headers of the previous object (the graph context is cleared
+	 * after each object written or read by Kryo)
+	 */
+	@SuppressWarnings("unchecked")
+	private void startObject(Kryo kryo) {
+		if (kryo.getGraphContext().get(this) == null) {
+			kryo.getGraphContext().put(this, Boolean.TRUE);
+			writtenHeaders.clear();
+			readHeaders.clear();
+		}
+	}
+
+	private void writeHeader(Output output, Instances header) {
+		if (header == null) {
+			output.writeInt(NO_HEADER, true);
+			return;
+		}
+		InstanceInformation information = header.instanceInformation();
+		if (information == null) {
+			output.writeInt(EMPTY_HEADER, true);
+			return;
+		}
+		Integer id = writtenHeaders.get(information);
+		if (id != null) {
+			output.writeInt(HEADER_REFERENCE + id, true);
+			return;
+		}
+		writtenHeaders.put(information, writtenHeaders.size());
+		Long publishedId = InstancesHeaderRegistry.idOf(header);
+		if (publishedId != null) {
+			output.writeInt(PUBLISHED_HEADER, true);
+			output.writeLong(publishedId);
+			return;
+		}
+		output.writeInt(NEW_HEADER, true);
+		output.writeString(header.getRelationName());
+		output.writeInt(header.classIndex(), true);
+		int numAttributes = header.numAttributes();
+		output.writeInt(numAttributes, true);
+		for (int i = 0; i < numAttributes; i++) {
+			Attribute attribute = header.attribute(i);
+			output.writeString(attribute.name());
+			if (attribute.isNominal()) {
+				// number of values + 1, 0 for a numeric attribute
+				List<String> values = attribute.getAttributeValues();
+				output.writeInt(values.size() + 1, true);
+				for (String value : values) {
+					output.writeString(value);
+				}
+			} else {
+				output.writeInt(0, true);
+			}
+		}
+	}
+
+	private Instances readHeader(Input input) {
+		int tag = input.readInt(true);
+		if (tag == NO_HEADER) {
+			return null;
+		} else if (tag == EMPTY_HEADER) {
+			return new InstancesHeader();
+		} else if (tag >= HEADER_REFERENCE) {
+			return readHeaders.get(tag - HEADER_REFERENCE);
+		} else if (tag == PUBLISHED_HEADER) {
+			long id = input.readLong();
+			Instances header = InstancesHeaderRegistry.get(id);
+			if (header == null) {
+				throw new KryoException("Unknown instances header: " + Long.toHexString(id)
+						+ ", it was not published on this node");
+			}
+			readHeaders.add(header);
+			return header;
+		}
+		String relationName = input.readString();
+		int classIndex = input.readInt(true);
+		int numAttributes = input.readInt(true);
+		List<Attribute> attributes = new ArrayList<>(numAttributes);
+		for (int i = 0; i < numAttributes; i++) {
+			String name = input.readString();
+			int numValues = input.readInt(true) - 1;
+			if (numValues < 0) {
+				attributes.add(new Attribute(name));
+			} else {
+				List<String> values = new ArrayList<>(numValues);
+				for (int j = 0; j < numValues; j++) {
+					values.add(input.readString());
+				}
+				attributes.add(new Attribute(name, values));
+			}
+		}
+		Instances header = new InstancesHeader(new Instances(relationName, attributes, 0));
+		header.setClassIndex(classIndex);
+		readHeaders.add(header);
+		return header;
+	}
+}
@@ -0,0 +1,188 @@
+package com.yahoo.labs.samoa.utils;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.InstanceInformation;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ * Registry of the headers of the streams of a topology, shared by the instance
+ * serializers of a node.
+ * </p>
+ * A header is published once per stream (and again when it changes) with an id,
+ * the fingerprint of its content: relation name, class index, attribute names
+ * and nominal values. Instances whose header is published are serialized with
+ * the id of the header instead of the header itself (see
+ * {@link InstanceSerializer}), and the receiving node re-attaches its own copy
+ * of the header. The same header gets the same id on every node, so a header
+ * deserialized with a processor is recognized as the published one.
+ * </p>
+ * The tasks publish the headers of their streams when they build the topology,
+ * and the engines which ship the topology to other nodes carry the published
+ * headers with it: see {@link #snapshot()} and {@link #publishAll(Map)}.
+ * </p>
+ * The fingerprint of a header is cached until its information is changed through 
+ * its setters (see {@link InstanceInformation#getModificationCount()}).
+ * </p>
+ * The lookups ({@link #idOf(Instances)}, {@link #get(long)}) do not lock, as they
+ * are made for every serialized instance; only the publication of headers does.
+ */
+public final class InstancesHeaderRegistry {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private static final ConcurrentMap<Long, Instances> headers = new ConcurrentHashMap<>();
+	// fingerprints of the headers seen by this node, by identity of their information (weak keys)
+	private static final ConcurrentMap<InstanceInformation, Fingerprint> fingerprints = new MapMaker().weakKeys()
+			.makeMap();
+
+	private InstancesHeaderRegistry() {
+	}
+
+	/**
+	 * Publish a header.
+	 * @param header the header of a stream
+	 * @return the id of the header
+	 */
+	public static synchronized long publish(Instances header) {
+		long id = fingerprint(header);
+		headers.putIfAbsent(id, header);
+		return id;
+	}
+
+	/**
+	 * Publish the headers of another node.
+	 * @param published the headers, by id, as returned by {@link #snapshot()}
+	 */
+	public static synchronized void publishAll(Map<Long, Instances> published) {
+		for (Map.Entry<Long, Instances> entry : published.entrySet()) {
+			headers.putIfAbsent(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Gets the published headers, to ship them to other nodes.
+	 * @return a copy of the published headers, by id
+	 */
+	public static Map<Long, Instances> snapshot() {
+		return new HashMap<>(headers);
+	}
+
+	/**
+	 * Gets a published header.
+	 * @param id the id of the header
+	 * @return the header, or null if no header was published with this id
+	 */
+	public static Instances get(long id) {
+		return headers.get(id);
+	}
+
+	/**
+	 * Gets the id of a header, if it is published.
+	 * @param header the header
+	 * @return the id of the header, or null if it is not published
+	 */
+	public static Long idOf(Instances header) {
+		InstanceInformation information = header.instanceInformation();
+		Fingerprint cached = fingerprints.get(information);
+		if (cached == null || cached.modificationCount != information.getModificationCount()) {
+			// concurrent misses compute the same fingerprint, the last one is kept
+			cached = new Fingerprint(fingerprint(header), information.getModificationCount());
+			fingerprints.put(information, cached);
+		}
+		return headers.containsKey(cached.id) ? cached.id : null;
+	}
+
+	/**
+	 * Remove all the published headers.
+	 */
+	public static synchronized void clear() {
+		headers.clear();
+		fingerprints.clear();
+	}
+
+	/*
+	 * Fingerprint of a header, valid as long as its information is not modified
+	 */
+	private static final class Fingerprint {
+		final long id;
+		final int modificationCount;
+
+		Fingerprint(long id, int modificationCount) {
+			this.id = id;
+			this.modificationCount = modificationCount;
+		}
+	}
+
+	/*
+	 * 64-bit FNV-1a hash of the content of the header
+	 */
+	private static long fingerprint(Instances header) {
+		long hash = FNV_OFFSET;
+		hash = hash(hash, header.getRelationName());
+		hash = hash(hash, header.classIndex());
+		int numAttributes = header.numAttributes();
+		hash = hash(hash, numAttributes);
+		for (int i = 0; i < numAttributes; i++) {
+			Attribute attribute = header.attribute(i);
+			hash = hash(hash, attribute.name());
+			if (attribute.isNominal()) {
+				List<String> values = attribute.getAttributeValues();
+				hash = hash(hash, values.size() + 1);
+				for (String value : values) {
+					hash = hash(hash, value);
+				}
+			} else {
+				hash = hash(hash, 0);
+			}
+		}
+		return hash;
+	}
+
+	private static long hash(long hash, String value) {
+		if (value == null) {
+			return hash(hash, -1);
+		}
+		hash = hash(hash, value.length());
+		for (int i = 0; i < value.length(); i++) {
+			hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static long hash(long hash, int value) {
+		for (int i = 0; i < 4; i++) {
+			hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+			value >>>= 8;
+		}
+		return hash;
+	}
+}
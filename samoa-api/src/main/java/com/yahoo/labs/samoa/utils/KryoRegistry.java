@@ -0,0 +1,117 @@
+package com.yahoo.labs.samoa.utils;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.esotericsoftware.kryo.Kryo;
+import com.yahoo.labs.samoa.core.SerializableInstance;
+import com.yahoo.labs.samoa.evaluation.ClusteringEvaluationContentEvent;
+import com.yahoo.labs.samoa.evaluation.ClusteringResultContentEvent;
+import com.yahoo.labs.samoa.examples.HelloWorldContentEvent;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.SingleLabelInstance;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+import com.yahoo.labs.samoa.learners.EnsembleInstanceContentEvent;
+import com.yahoo.labs.samoa.learners.InstanceContentEvent;
+import com.yahoo.labs.samoa.learners.InstancesContentEvent;
+import com.yahoo.labs.samoa.learners.ResultContentEvent;
+import com.yahoo.labs.samoa.learners.classifiers.rules.common.Perceptron;
+import com.yahoo.labs.samoa.learners.classifiers.rules.common.TargetMean;
+import com.yahoo.labs.samoa.learners.classifiers.rules.distributed.AssignmentContentEvent;
+import com.yahoo.labs.samoa.learners.classifiers.rules.distributed.PredicateContentEvent;
+import com.yahoo.labs.samoa.learners.classifiers.rules.distributed.RuleContentEvent;
+import com.yahoo.labs.samoa.learners.classifiers.trees.AttributeBlockContentEvent;
+import com.yahoo.labs.samoa.learners.classifiers.trees.ComputeContentEvent;
+import com.yahoo.labs.samoa.learners.classifiers.trees.ModelSnapshotContentEvent;
+import com.yahoo.labs.samoa.learners.clusterers.ClusteringContentEvent;
+import com.yahoo.labs.samoa.learners.clusterers.MicroClusteringContentEvent;
+import com.yahoo.labs.samoa.moa.classifiers.core.AttributeSplitSuggestion;
+
+/**
+ * Registration of the SAMOA content events and instances with Kryo, shared by
+ * the distributed engines (Storm, Samza and S4).
+ * </p>
+ * The events of the data path (instances, results, attribute statistics,
+ * clustering points) have their own serializers, which write primitive fields as
+ * varints and arrays of doubles without boxing, and the header of the instances
+ * once per event (see {@link InstanceSerializer}). The control and model events
+ * are registered with the default serializer of the Kryo instance, so they are
+ * written with a class id instead of their class name, and their content is
+ * serialized as before.
+ * </p>
+ * Kryo numbers the classes in the order of registration: every Kryo instance
+ * which reads the events of another one must have been set up in the same way,
+ * i.e. with the same registrations before this one.
+ */
+public final class KryoRegistry {
+
+	private KryoRegistry() {
+	}
+
+	/**
+	 * Register the SAMOA classes with a Kryo instance.
+	 * @param kryo the Kryo instance
+	 * @return the Kryo instance
+	 */
+	public static Kryo register(Kryo kryo) {
+		// instances
+		InstanceSerializer instanceSerializer = new InstanceSerializer();
+		kryo.register(SingleLabelInstance.class, instanceSerializer);
+		kryo.register(DenseInstance.class, instanceSerializer);
+		kryo.register(SparseInstance.class, instanceSerializer);
+		kryo.register(SerializableInstance.class, instanceSerializer);
+
+		// events of the data path
+		kryo.register(InstanceContentEvent.class, new InstanceContentEvent.InstanceCESerializer());
+		kryo.register(InstancesContentEvent.class, new InstancesContentEvent.InstancesCESerializer());
+		kryo.register(EnsembleInstanceContentEvent.class, new EnsembleInstanceContentEvent.EnsembleInstanceCESerializer());
+		kryo.register(ResultContentEvent.class, new ResultContentEvent.ResultCESerializer());
+		kryo.register(AttributeBlockContentEvent.class, new AttributeBlockContentEvent.AttributeBlockCESerializer());
+		kryo.register(ComputeContentEvent.class, new ComputeContentEvent.ComputeCEFullPrecSerializer());
+		kryo.register(ClusteringContentEvent.class, new ClusteringContentEvent.ClusteringCESerializer());
+		kryo.register(MicroClusteringContentEvent.class, new MicroClusteringContentEvent.MicroClusteringCESerializer());
+		kryo.register(AssignmentContentEvent.class, new AssignmentContentEvent.AssignmentCESerializer());
+
+		// control and model events
+		register(kryo, "com.yahoo.labs.samoa.learners.classifiers.trees.DeleteContentEvent");
+		register(kryo, "com.yahoo.labs.samoa.learners.classifiers.trees.LocalResultContentEvent");
+		kryo.register(ModelSnapshotContentEvent.class, new ModelSnapshotContentEvent.ModelSnapshotCESerializer());
+		kryo.register(AttributeSplitSuggestion.class, new SerializableSerializer());
+		kryo.register(RuleContentEvent.class);
+		kryo.register(PredicateContentEvent.class);
+		kryo.register(TargetMean.class, new TargetMean.TargetMeanSerializer());
+		kryo.register(Perceptron.class, new Perceptron.PerceptronSerializer());
+		kryo.register(ClusteringResultContentEvent.class);
+		kryo.register(ClusteringEvaluationContentEvent.class);
+		kryo.register(HelloWorldContentEvent.class);
+		return kryo;
+	}
+
+	/*
+	 * Register a class which is not visible from here
+	 */
+	private static void register(Kryo kryo, String className) {
+		try {
+			kryo.register(Class.forName(className));
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
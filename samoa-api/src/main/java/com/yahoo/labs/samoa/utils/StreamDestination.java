@@ -20,6 +20,8 @@ package com.yahoo.labs.samoa.utils;
  * #L%
  */
 
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.core.PartitionedContentEvent;
 import com.yahoo.labs.samoa.topology.IProcessingItem;
 
 /**
@@ -61,5 +63,54 @@ public class StreamDestination {
 	public PartitioningScheme getPartitioningScheme() {
 		return this.type;
 	}
+	
+	/*
+	 * Key partitioning
+	 */
+	/**
+	 * Index of the PI replica which receives the given event on a key-grouped stream:
+	 * the partition of a {@link PartitionedContentEvent}, otherwise the replica of its key.
+	 */
+	public static int getPIIndexForEvent(ContentEvent event, int parallelism) {
+		if (event instanceof PartitionedContentEvent)
+			return ((PartitionedContentEvent) event).getPartition() % parallelism;
+		return getPIIndexForKey(event.getKey(), parallelism);
+	}
+	
+	/**
+	 * Index of the PI replica which receives the events with the given key.
+	 * Uses the (cached) String hash code with a cheap bit mixing step, so
+	 * that no reflection or builder object is needed per event.
+	 * @param key
+	 * 			the key of the event (null keys go to replica 0)
+	 * @param parallelism
+	 * 			number of replicas of the destination PI
+	 * @return the replica index in [0, parallelism)
+	 */
+	public static int getPIIndexForKey(String key, int parallelism) {
+		if (key == null) return 0;
+		return getPIIndexForHash(key.hashCode(), parallelism);
+	}
+	
+	/**
+	 * Index of the PI replica which receives the events with the given numeric key.
+	 */
+	public static int getPIIndexForKey(long key, int parallelism) {
+		return getPIIndexForHash((int) (key ^ (key >>> 32)), parallelism);
+	}
+	
+	private static int getPIIndexForHash(int hash, int parallelism) {
+		// Murmur3 finalization mix (fmix32)
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		int index = hash % parallelism;
+		if (index < 0) {
+			index += parallelism;
+		}
+		return index;
+	}
 
 }
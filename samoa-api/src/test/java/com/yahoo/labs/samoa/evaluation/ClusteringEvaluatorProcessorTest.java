@@ -0,0 +1,70 @@
+package com.yahoo.labs.samoa.evaluation;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.moa.cluster.Cluster;
+import com.yahoo.labs.samoa.moa.cluster.Clustering;
+import com.yahoo.labs.samoa.moa.cluster.SphereCluster;
+import com.yahoo.labs.samoa.moa.clusterers.clustream.ClustreamKernel;
+
+public class ClusteringEvaluatorProcessorTest {
+
+	@Test
+	public void testEvaluatesTheMacroClustering() {
+		ClusteringEvaluatorProcessor evaluator = new ClusteringEvaluatorProcessor.Builder(1).build();
+		evaluator.gtClustering = new Clustering(new Cluster[] { new SphereCluster(new double[] { 0, 0 }, 1),
+				new SphereCluster(new double[] { 10, 10 }, 1) });
+
+		ClusteringResultContentEvent result = new ClusteringResultContentEvent(newMicroClustering(), false);
+		Clustering macroClustering = new Clustering(new Cluster[] { new SphereCluster(new double[] { 1, 1 }, 1),
+				new SphereCluster(new double[] { 9, 9 }, 1) });
+		result.setMacroClustering(macroClustering);
+		assertSame(macroClustering, evaluator.clusteringToEvaluate(result));
+	}
+
+	@Test
+	public void testWithoutMacroClustering() {
+		ClusteringEvaluatorProcessor evaluator = new ClusteringEvaluatorProcessor.Builder(1).build();
+		evaluator.gtClustering = new Clustering(new Cluster[] { new SphereCluster(new double[] { 0, 0 }, 1),
+				new SphereCluster(new double[] { 10, 10 }, 1) });
+
+		// the micro-clusters are grouped around the ground truth
+		ClusteringResultContentEvent result = new ClusteringResultContentEvent(newMicroClustering(), false);
+		Clustering clustering = evaluator.clusteringToEvaluate(result);
+		assertEquals(2, clustering.size());
+		result.setMacroClustering(new Clustering(new Cluster[0]));
+		assertEquals(2, evaluator.clusteringToEvaluate(result).size());
+	}
+
+	private static Clustering newMicroClustering() {
+		Cluster[] clusters = new Cluster[4];
+		for (int c = 0; c < clusters.length; c++) {
+			double x = c < 2 ? c : 10 + c;
+			clusters[c] = new ClustreamKernel(10, new double[] { 10 * x, 10 * x },
+					new double[] { 10 * x * x + 1, 10 * x * x + 1 });
+		}
+		return new Clustering(clusters);
+	}
+}
@@ -0,0 +1,64 @@
+package com.yahoo.labs.samoa.evaluation;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.moa.core.DataPoint;
+
+public class DataPointWindowTest {
+
+	@Test
+	public void testSameAsShiftedList() {
+		List<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("x"));
+		attributes.add(new Attribute("class", Arrays.asList("a", "b")));
+		Instances header = new Instances("points", attributes, 0);
+		header.setClassIndex(1);
+
+		for (int capacity : new int[] { 0, 1, 5, 16, 17, 100 }) {
+			DataPointWindow window = new DataPointWindow(capacity);
+			ArrayList<DataPoint> expected = new ArrayList<>();
+			ArrayList<DataPoint> actual = new ArrayList<>();
+			for (int t = 0; t < 300; t++) {
+				DenseInstance instance = new DenseInstance(1.0, new double[] { t, t % 2 });
+				instance.setDataset(header);
+				DataPoint point = new DataPoint(instance, t);
+				window.add(point);
+				expected.add(point);
+				if (expected.size() > capacity) {
+					expected.remove(0);
+				}
+				assertEquals(expected.size(), window.size());
+				assertEquals(expected, window.copyTo(actual));
+			}
+		}
+	}
+}
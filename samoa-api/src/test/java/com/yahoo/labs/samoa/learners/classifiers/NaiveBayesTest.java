@@ -0,0 +1,99 @@
+package com.yahoo.labs.samoa.learners.classifiers;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+
+public class NaiveBayesTest {
+
+	private static final int NUM_ATTRIBUTES = 10;
+	private static final int NUM_CLASSES = 3;
+
+	@Test
+	public void testSparseAndBatchSameAsDense() {
+		List<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i < NUM_ATTRIBUTES; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("class", Arrays.asList("c0", "c1", "c2")));
+		Instances header = new Instances("test", attributes, 0);
+		header.setClassIndex(NUM_ATTRIBUTES);
+
+		Random random = new Random(1);
+		NaiveBayes dense = new NaiveBayes();
+		NaiveBayes sparse = new NaiveBayes();
+		Instance[] denseInstances = new Instance[100];
+		for (int t = 0; t < denseInstances.length; t++) {
+			// no zero values, so the sparse instance stores all the attributes
+			int classValue = random.nextInt(NUM_CLASSES);
+			double[] values = new double[NUM_ATTRIBUTES + 1];
+			int[] indices = new int[NUM_ATTRIBUTES + 1];
+			for (int i = 0; i < NUM_ATTRIBUTES; i++) {
+				values[i] = 1 + random.nextDouble() + classValue;
+				indices[i] = i;
+			}
+			values[NUM_ATTRIBUTES] = classValue;
+			indices[NUM_ATTRIBUTES] = NUM_ATTRIBUTES;
+			Instance denseInstance = new DenseInstance(1.0, values);
+			denseInstance.setDataset(header);
+			denseInstance.setClassValue(classValue);
+			Instance sparseInstance = new SparseInstance(1.0, values, indices, NUM_ATTRIBUTES + 1);
+			sparseInstance.setDataset(header);
+			sparseInstance.setClassValue(classValue);
+			denseInstances[t] = denseInstance;
+
+			assertArrayEquals(dense.getVotesForInstance(denseInstance), sparse.getVotesForInstance(sparseInstance), 0.0);
+			dense.trainOnInstance(denseInstance);
+			sparse.trainOnInstance(sparseInstance);
+		}
+
+		double[][] votes = dense.getVotesForInstances(denseInstances);
+		for (int t = 0; t < denseInstances.length; t++) {
+			double[] expected = dense.getVotesForInstance(denseInstances[t]);
+			assertEquals(NUM_CLASSES, expected.length);
+			assertArrayEquals(expected, votes[t], 0.0);
+			assertEquals((int) denseInstances[t].classValue(), maxIndex(expected));
+		}
+	}
+
+	private static int maxIndex(double[] votes) {
+		int max = 0;
+		for (int i = 1; i < votes.length; i++) {
+			if (votes[i] > votes[max]) {
+				max = i;
+			}
+		}
+		return max;
+	}
+}
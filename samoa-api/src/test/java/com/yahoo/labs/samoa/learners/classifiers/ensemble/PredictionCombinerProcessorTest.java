@@ -0,0 +1,219 @@
+package com.yahoo.labs.samoa.learners.classifiers.ensemble;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.learners.ResultContentEvent;
+import com.yahoo.labs.samoa.topology.Stream;
+import com.yahoo.labs.samoa.utils.StreamDestination;
+
+public class PredictionCombinerProcessorTest {
+
+	private static final int ENSEMBLE_SIZE = 6;
+	private static final int PARALLELISM = 3;
+	private static final int NUM_INSTANCES = 200;
+
+	@Test
+	public void testPartitionedCombining() {
+		ListStream output = new ListStream();
+		PredictionCombinerProcessor source = new PredictionCombinerProcessor();
+		source.setSizeEnsemble(ENSEMBLE_SIZE);
+		source.setOutputStream(output);
+		PredictionCombinerProcessor[] replicas = new PredictionCombinerProcessor[PARALLELISM];
+		for (int i = 0; i < PARALLELISM; i++) {
+			replicas[i] = (PredictionCombinerProcessor) source.newProcessor(source);
+			replicas[i].onCreate(i);
+		}
+
+		// members 0-1 vote for the first class, 2-3 for the second one, 4-5 (one
+		// event with a vote count of 2) for the third one, in shuffled order
+		Instance inst = newInstance();
+		List<ResultContentEvent> events = new ArrayList<>();
+		for (long index = 0; index < NUM_INSTANCES; index++) {
+			for (int member = 0; member < 4; member++) {
+				double[] vote = new double[3];
+				vote[member / 2] = 2.0;
+				ResultContentEvent event = new ResultContentEvent(index, inst, 0, vote, false);
+				event.setClassifierIndex(member);
+				events.add(event);
+			}
+			ResultContentEvent event = new ResultContentEvent(index, inst, 0, new double[] { 0, 0, 0.5 }, false);
+			event.setClassifierIndex(4);
+			event.setVoteCount(2);
+			events.add(event);
+		}
+		Collections.shuffle(events, new Random(1));
+		for (ResultContentEvent event : events) {
+			int replica = StreamDestination.getPIIndexForKey(event.getKey(), PARALLELISM);
+			replicas[replica].process(event);
+		}
+
+		assertEquals(NUM_INSTANCES, output.events.size());
+		boolean[] seen = new boolean[NUM_INSTANCES];
+		for (ContentEvent event : output.events) {
+			ResultContentEvent result = (ResultContentEvent) event;
+			int index = (int) result.getInstanceIndex();
+			assertFalse(seen[index]);
+			seen[index] = true;
+			assertTrue(Arrays.equals(new double[] { 2.0, 2.0, 2.0 }, result.getClassVotes()));
+		}
+		for (PredictionCombinerProcessor replica : replicas) {
+			assertEquals(0, replica.votes.size());
+		}
+	}
+
+	@Test
+	public void testLastResultReachesEveryReplica() {
+		ListStream output = new ListStream();
+		BroadcastStream lastResultStream = new BroadcastStream();
+		PredictionCombinerProcessor source = new PredictionCombinerProcessor();
+		source.setSizeEnsemble(2);
+		source.setParallelism(PARALLELISM);
+		source.setOutputStream(output);
+		source.setLastResultStream(lastResultStream);
+		PredictionCombinerProcessor[] replicas = new PredictionCombinerProcessor[PARALLELISM];
+		for (int i = 0; i < PARALLELISM; i++) {
+			replicas[i] = (PredictionCombinerProcessor) source.newProcessor(source);
+			replicas[i].onCreate(i);
+		}
+		lastResultStream.replicas = replicas;
+
+		Instance inst = newInstance();
+		List<ResultContentEvent> events = new ArrayList<>();
+		for (long index = 0; index < NUM_INSTANCES; index++) {
+			for (int member = 0; member < 2; member++) {
+				ResultContentEvent event = new ResultContentEvent(index, inst, 0, new double[] { 1, 0, 0 }, 
+						index == NUM_INSTANCES - 1);
+				event.setClassifierIndex(member);
+				events.add(event);
+			}
+		}
+		// the last votes come after the votes of the other instances
+		Collections.shuffle(events.subList(0, events.size() - 2), new Random(3));
+		for (ResultContentEvent event : events) {
+			int replica = StreamDestination.getPIIndexForKey(event.getKey(), PARALLELISM);
+			replicas[replica].process(event);
+		}
+
+		// every instance is voted once, then each replica sends a last result
+		int[] voted = new int[NUM_INSTANCES];
+		int numLastEvents = 0;
+		for (ContentEvent event : output.events) {
+			ResultContentEvent result = (ResultContentEvent) event;
+			if (result.isLastEvent()) {
+				assertEquals(PARALLELISM, result.getNumLastEvents());
+				numLastEvents++;
+			} else {
+				assertEquals(0, numLastEvents);
+				voted[(int) result.getInstanceIndex()]++;
+			}
+		}
+		assertEquals(PARALLELISM, numLastEvents);
+		for (int index = 0; index < NUM_INSTANCES - 1; index++) {
+			assertEquals(1, voted[index]);
+		}
+		assertEquals(0, voted[NUM_INSTANCES - 1]);
+		for (PredictionCombinerProcessor replica : replicas) {
+			assertEquals(0, replica.votes.size());
+		}
+	}
+
+	@Test
+	public void testStragglersExpire() {
+		ListStream output = new ListStream();
+		PredictionCombinerProcessor combiner = new PredictionCombinerProcessor();
+		combiner.setSizeEnsemble(2);
+		combiner.setExpiryPeriod(100);
+		combiner.setOutputStream(output);
+		combiner.onCreate(0);
+		Instance inst = newInstance();
+		for (long index = 0; index < 1000; index++) {
+			// the second vote of the even instances never arrives
+			combiner.process(new ResultContentEvent(index, inst, 0, new double[] { 1, 0, 0 }, false));
+			if (index % 2 == 1) {
+				combiner.process(new ResultContentEvent(index, inst, 0, new double[] { 0, 1, 0 }, false));
+			}
+		}
+		assertEquals(500, output.events.size());
+		assertTrue(combiner.votes.size() <= 200);
+	}
+
+	private static Instance newInstance() {
+		List<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("numeric"));
+		attributes.add(new Attribute("class", Arrays.asList("A", "B", "C")));
+		Instances instances = new Instances("relation", attributes, 0);
+		instances.setClassIndex(1);
+		Instance inst = new DenseInstance(1.0, new double[] { 0.5, 1 });
+		inst.setDataset(new InstancesHeader(instances));
+		return inst;
+	}
+
+	/*
+	 * All grouping: the replicas process the event as it is put, as in the local engine
+	 */
+	private static class BroadcastStream extends ListStream {
+
+		PredictionCombinerProcessor[] replicas;
+
+		@Override
+		public void put(ContentEvent event) {
+			super.put(event);
+			for (PredictionCombinerProcessor replica : replicas) {
+				replica.process(event);
+			}
+		}
+	}
+
+	private static class ListStream implements Stream {
+
+		final List<ContentEvent> events = new ArrayList<>();
+
+		@Override
+		public void put(ContentEvent event) {
+			events.add(event);
+		}
+
+		@Override
+		public String getStreamId() {
+			return "output";
+		}
+
+		@Override
+		public void setBatchSize(int batchsize) {
+		}
+	}
+}
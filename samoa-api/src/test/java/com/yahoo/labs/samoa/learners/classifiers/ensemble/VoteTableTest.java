@@ -0,0 +1,160 @@
+package com.yahoo.labs.samoa.learners.classifiers.ensemble;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.moa.core.DoubleVector;
+
+public class VoteTableTest {
+
+	@Test
+	public void testRandomVotes() {
+		VoteTable table = new VoteTable();
+		Map<Long, DoubleVector> expectedVotes = new HashMap<Long, DoubleVector>();
+		Map<Long, Integer> expectedCounts = new HashMap<Long, Integer>();
+		List<Long> pending = new ArrayList<Long>();
+		Random random = new Random(42);
+		long next = Integer.MAX_VALUE - 100L; // indices beyond the int range
+		for (int step = 0; step < 100000; step++) {
+			long index;
+			if (pending.isEmpty() || random.nextInt(4) == 0) {
+				index = next++;
+				pending.add(index);
+			} else {
+				index = pending.get(random.nextInt(pending.size()));
+			}
+			double[] vote = new double[1 + random.nextInt(4)];
+			if (random.nextInt(10) > 0) {
+				for (int i = 0; i < vote.length; i++) {
+					vote[i] = random.nextDouble();
+				}
+			}
+			double weight = random.nextDouble();
+			int count = 1 + random.nextInt(3);
+
+			// the combination of PredictionCombinerProcessor with DoubleVector
+			DoubleVector dv = new DoubleVector(vote);
+			if (dv.sumOfValues() > 0.0) {
+				dv.normalize();
+				dv.scaleValues(weight * count);
+				DoubleVector combined = expectedVotes.get(index);
+				if (combined == null) {
+					combined = new DoubleVector();
+					expectedVotes.put(index, combined);
+				}
+				combined.addValues(dv);
+			}
+			Integer expectedCount = expectedCounts.get(index);
+			expectedCount = expectedCount == null ? count : expectedCount + count;
+			expectedCounts.put(index, expectedCount);
+
+			int slot = table.slotOf(index);
+			assertEquals(expectedCount.intValue(), table.add(slot, vote, weight * count, count));
+
+			if (expectedCount >= 10) {
+				DoubleVector combined = expectedVotes.remove(index);
+				double[] votes = table.getVotes(slot);
+				if (combined == null) {
+					assertNull(votes);
+				} else {
+					assertArrayEquals(combined.getArrayRef(), votes, 0.0);
+				}
+				table.remove(slot);
+				expectedCounts.remove(index);
+				pending.remove(index);
+			}
+		}
+		assertEquals(pending.size(), table.size());
+		for (long index : pending) {
+			int slot = table.indexOf(index);
+			assertEquals(expectedCounts.get(index).intValue(), table.getCount(slot));
+			DoubleVector combined = expectedVotes.get(index);
+			if (combined == null) {
+				assertNull(table.getVotes(slot));
+			} else {
+				assertArrayEquals(combined.getArrayRef(), table.getVotes(slot), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testExpire() {
+		VoteTable table = new VoteTable();
+		for (long index = 0; index < 1000; index++) {
+			table.add(table.slotOf(index), new double[] { 1.0, 3.0 }, 1.0, 1);
+		}
+		assertEquals(400, table.expire(600));
+		assertEquals(600, table.size());
+		for (long index = 0; index < 1000; index++) {
+			assertEquals(index >= 400, table.indexOf(index) >= 0);
+		}
+		// the vote arrays reused by new instances are cleared
+		int slot = table.slotOf(5);
+		assertNull(table.getVotes(slot));
+		table.add(slot, new double[] { 2.0, 2.0 }, 2.0, 1);
+		assertArrayEquals(new double[] { 1.0, 1.0 }, table.getVotes(slot), 0.0);
+		assertArrayEquals(new double[] { 0.25, 0.75 }, table.getVotes(table.indexOf(999)), 0.0);
+	}
+
+	@Test
+	public void testExpireAcrossTheEndOfTheTable() {
+		// 64 slots: the probe sequences from the last slots wrap around to the first ones
+		List<Long> first = indicesWithHome(0, 8);
+		List<Long> last = indicesWithHome(62, 16);
+		VoteTable table = new VoteTable();
+		List<Long> expired = new ArrayList<Long>(first);
+		expired.addAll(last.subList(0, 8));
+		List<Long> kept = last.subList(8, 16);
+		for (long index : expired) {
+			table.add(table.slotOf(index), new double[] { 1.0, 0.0 }, 1.0, 1);
+		}
+		for (long index : kept) {
+			table.add(table.slotOf(index), new double[] { 0.0, 1.0 }, 1.0, 1);
+		}
+		assertEquals(16, table.expire(8));
+		assertEquals(8, table.size());
+		for (long index : expired) {
+			assertEquals(-1, table.indexOf(index));
+		}
+		for (long index : kept) {
+			assertArrayEquals(new double[] { 0.0, 1.0 }, table.getVotes(table.indexOf(index)), 0.0);
+		}
+	}
+
+	private static List<Long> indicesWithHome(int slot, int count) {
+		List<Long> indices = new ArrayList<Long>();
+		for (long index = 0; indices.size() < count; index++) {
+			if ((VoteTable.hash(index) & 63) == slot) {
+				indices.add(index);
+			}
+		}
+		return indices;
+	}
+}
@@ -0,0 +1,113 @@
+package com.yahoo.labs.samoa.learners.classifiers.rules.common;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ * Micro-benchmark of the rule matching of the AMRules model aggregators:
+ * time per instance to find the first covering rule (ordered rules) and all the 
+ * covering rules (unordered rules), with a linear scan of the rule list and 
+ * with a RuleIndex, vs number of rules. With ordered rules the linear scan usually
+ * stops after a few rules, which is why the aggregators only use the index for 
+ * unordered rules.
+ * </p>
+ * Not run by the test suite. Usage: java RuleIndexBenchmark [numAttributes]
+ */
+public class RuleIndexBenchmark {
+
+	private static final int NUM_INSTANCES = 1000;
+	private static final int ROUNDS = 20;
+
+	private static volatile int sink;
+
+	public static void main(String[] args) {
+		int numAttributes = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		Random random = new Random(1);
+		Instances dataset = RuleIndexTest.newDataset(numAttributes, numAttributes);
+		Instance[] instances = new Instance[NUM_INSTANCES];
+		for (int i = 0; i < instances.length; i++) {
+			instances[i] = RuleIndexTest.newInstance(dataset, random, 0.0);
+		}
+		System.out.println("rules,linear ordered ns/inst,indexed ordered ns/inst,linear unordered ns/inst,indexed unordered ns/inst");
+		for (int numRules = 10; numRules <= 10000; numRules *= 10) {
+			for (int n : new int[] { numRules, numRules * 3 }) {
+				List<RuleIndexTest.TestRule> ruleList = new ArrayList<RuleIndexTest.TestRule>();
+				RuleIndex<RuleIndexTest.TestRule> index = new RuleIndex<RuleIndexTest.TestRule>();
+				for (int r = 0; r < n; r++) {
+					RuleIndexTest.TestRule rule = new RuleIndexTest.TestRule(r);
+					int numNodes = 2 + random.nextInt(4);
+					for (int i = 0; i < numNodes; i++) {
+						rule.nodeListAdd(RuleIndexTest.newRuleSplitNode(random, numAttributes));
+					}
+					ruleList.add(rule);
+					index.add(rule);
+				}
+				System.out.println(String.format("%d,%.0f,%.0f,%.0f,%.0f", n,
+						linear(ruleList, instances, true), indexed(index, instances, true),
+						linear(ruleList, instances, false), indexed(index, instances, false)));
+			}
+		}
+	}
+
+	private static double linear(List<RuleIndexTest.TestRule> ruleList, Instance[] instances, boolean ordered) {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			int count = 0;
+			for (Instance inst : instances) {
+				for (RuleIndexTest.TestRule rule : ruleList) {
+					if (rule.isCovering(inst)) {
+						count++;
+						if (ordered) break;
+					}
+				}
+			}
+			best = Math.min(best, System.nanoTime() - start);
+			sink = count;
+		}
+		return (double) best / instances.length;
+	}
+
+	private static double indexed(RuleIndex<RuleIndexTest.TestRule> index, Instance[] instances, boolean ordered) {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			int count = 0;
+			for (Instance inst : instances) {
+				BitSet covering = index.getCoveringRules(inst);
+				for (int slot = index.nextCoveringRule(inst, covering, 0); slot >= 0; slot = index.nextCoveringRule(inst, covering, slot + 1)) {
+					count++;
+					if (ordered) break;
+				}
+			}
+			best = Math.min(best, System.nanoTime() - start);
+			sink = count;
+		}
+		return (double) best / instances.length;
+	}
+}
@@ -0,0 +1,141 @@
+package com.yahoo.labs.samoa.learners.classifiers.rules.common;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.moa.classifiers.rules.core.conditionaltests.NumericAttributeBinaryRulePredicate;
+
+public class RuleIndexTest {
+
+	private static final int NUM_ATTRIBUTES = 8;
+	private static final int CLASS_INDEX = 3;
+
+	static class TestRule extends Rule {
+		private static final long serialVersionUID = 1L;
+		TestRule(int id) {
+			this.ruleNumberID = id;
+		}
+		@Override
+		public void getDescription(StringBuilder sb, int indent) {
+		}
+	}
+
+	static Instances newDataset(int numAttributes, int classIndex) {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		for (int i = 0; i <= numAttributes; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		Instances dataset = new Instances("test", attributes, 0);
+		dataset.setClassIndex(classIndex);
+		return dataset;
+	}
+
+	static Instance newInstance(Instances dataset, Random random, double missingProbability) {
+		double[] values = new double[dataset.numAttributes()];
+		for (int i = 0; i < values.length; i++) {
+			// few distinct values so that the = operator and ties are exercised
+			values[i] = random.nextDouble() < missingProbability ? Double.NaN : random.nextInt(20);
+		}
+		Instance inst = new DenseInstance(1.0, values);
+		inst.setDataset(dataset);
+		return inst;
+	}
+
+	static RuleSplitNode newRuleSplitNode(Random random, int numAttributes) {
+		int operator = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(2);
+		return new RuleSplitNode(new NumericAttributeBinaryRulePredicate(random.nextInt(numAttributes), 
+				random.nextInt(20), operator), new double[0]);
+	}
+
+	@Test
+	public void testCoveringRulesMatchLinearScan() {
+		Random random = new Random(7);
+		Instances dataset = newDataset(NUM_ATTRIBUTES, CLASS_INDEX);
+		RuleIndex<TestRule> index = new RuleIndex<TestRule>();
+		List<TestRule> ruleList = new ArrayList<TestRule>();
+		int nextID = 0;
+		for (int step = 0; step < 20000; step++) {
+			int action = random.nextInt(10);
+			if (action < 3) {
+				TestRule rule = new TestRule(nextID++);
+				int numNodes = random.nextInt(4);
+				for (int i = 0; i < numNodes; i++) {
+					rule.nodeListAdd(newRuleSplitNode(random, NUM_ATTRIBUTES));
+				}
+				index.add(rule);
+				ruleList.add(rule);
+			} else if (action == 3 && !ruleList.isEmpty()) {
+				TestRule rule = ruleList.remove(random.nextInt(ruleList.size()));
+				assertTrue(index.remove(rule.getRuleNumberID()));
+			} else if (action == 4 && !ruleList.isEmpty()) {
+				// expand a rule, or change the value of one of its predicates
+				TestRule rule = ruleList.get(random.nextInt(ruleList.size()));
+				index.addRuleSplitNode(rule.getRuleNumberID(), newRuleSplitNode(random, NUM_ATTRIBUTES));
+			} else {
+				Instance inst = newInstance(dataset, random, 0.05);
+				List<TestRule> expected = new ArrayList<TestRule>();
+				for (TestRule rule : ruleList) {
+					if (rule.isCovering(inst)) expected.add(rule);
+				}
+				// with the index, and one by one
+				BitSet covering = index.getCoveringRules(inst);
+				List<TestRule> found = new ArrayList<TestRule>();
+				for (int slot = index.nextCoveringRule(inst, covering, 0); slot >= 0; slot = index.nextCoveringRule(inst, covering, slot + 1)) {
+					found.add(index.get(slot));
+				}
+				assertEquals(expected, found);
+				found.clear();
+				for (int slot = index.nextCoveringRule(inst, null, 0); slot >= 0; slot = index.nextCoveringRule(inst, null, slot + 1)) {
+					found.add(index.get(slot));
+				}
+				assertEquals(expected, found);
+			}
+			assertEquals(ruleList.size(), index.size());
+		}
+	}
+
+	@Test
+	public void testGetAndRemove() {
+		RuleIndex<TestRule> index = new RuleIndex<TestRule>();
+		TestRule rule1 = new TestRule(1);
+		TestRule rule2 = new TestRule(2);
+		index.add(rule1);
+		index.add(rule2);
+		assertSame(rule2, index.getRule(2));
+		assertTrue(index.remove(1));
+		assertFalse(index.remove(1));
+		assertNull(index.getRule(1));
+		assertFalse(index.addRuleSplitNode(1, newRuleSplitNode(new Random(1), NUM_ATTRIBUTES)));
+		assertEquals(1, index.size());
+	}
+}
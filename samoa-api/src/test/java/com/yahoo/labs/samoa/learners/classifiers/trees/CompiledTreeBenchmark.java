@@ -0,0 +1,117 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Random;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+
+/**
+ * Micro-benchmark of the routing of the instances in the tree of the VHT model
+ * aggregator: predictions per second with the recursive filterInstanceToLeaf of
+ * the nodes and with the iterative route of a CompiledTree, vs depth of the tree.
+ * The trees are complete, with numeric binary splits and one nominal multiway
+ * split every fourth level.
+ * </p>
+ * Not run by the test suite. Usage: java CompiledTreeBenchmark [maxDepth]
+ */
+public class CompiledTreeBenchmark {
+
+	private static final int NUM_INSTANCES = 10000;
+	private static final int ROUNDS = 20;
+
+	private static volatile Object sink;
+
+	public static void main(String[] args) {
+		int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		Random random = new Random(1);
+		InstancesHeader header = CompiledTreeTest.newHeader();
+		Instance[] instances = new Instance[NUM_INSTANCES];
+		for (int i = 0; i < instances.length; i++) {
+			instances[i] = CompiledTreeTest.newInstance(header, random);
+		}
+		System.out.println("depth,nodes,recursive predictions/sec,compiled predictions/sec");
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			Node root = newCompleteTree(random, depth);
+			CompiledTree tree = new CompiledTree();
+			tree.rebuild(root);
+			System.out.println(String.format("%d,%d,%.0f,%.0f", depth, tree.numNodes(),
+					recursive(root, instances), compiled(tree, instances)));
+		}
+	}
+
+	private static double recursive(Node root, Instance[] instances) {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			Node leaf = null;
+			for (Instance inst : instances) {
+				leaf = root.filterInstanceToLeaf(inst, null, -1).getNode();
+			}
+			best = Math.min(best, System.nanoTime() - start);
+			sink = leaf;
+		}
+		return instances.length * 1e9 / best;
+	}
+
+	private static double compiled(CompiledTree tree, Instance[] instances) {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			Node leaf = null;
+			for (Instance inst : instances) {
+				int number = tree.route(inst);
+				leaf = number == CompiledTree.NO_NODE ? tree.getEmptyBranchParent() : tree.getNode(number);
+			}
+			best = Math.min(best, System.nanoTime() - start);
+			sink = leaf;
+		}
+		return instances.length * 1e9 / best;
+	}
+
+	/*
+	 * The instances are routed down to the leaves: the numeric values are drawn
+	 * uniformly in [0, 1) so the thresholds are drawn around 0.5
+	 */
+	private static Node newCompleteTree(Random random, int depth) {
+		if (depth == 0) {
+			return CompiledTreeTest.newLeaf(random);
+		}
+		SplitNode split;
+		int branches;
+		if (depth % 4 == 0) {
+			split = new SplitNode(new NominalAttributeMultiwayTest(CompiledTreeTest.NUM_NUMERIC
+					+ random.nextInt(CompiledTreeTest.NUM_NOMINAL)), new double[2]);
+			branches = CompiledTreeTest.NUM_VALUES;
+		} else {
+			split = new SplitNode(new NumericAttributeBinaryTest(random.nextInt(CompiledTreeTest.NUM_NUMERIC),
+					0.25 + 0.5 * random.nextDouble(), true), new double[2]);
+			branches = 2;
+		}
+		for (int i = 0; i < branches; i++) {
+			split.setChild(i, newCompleteTree(random, depth - 1));
+		}
+		return split;
+	}
+}
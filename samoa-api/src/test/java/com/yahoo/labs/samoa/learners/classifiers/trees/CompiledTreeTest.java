@@ -0,0 +1,244 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+
+public class CompiledTreeTest {
+
+	static final int NUM_NUMERIC = 5;
+	static final int NUM_NOMINAL = 5;
+	static final int NUM_VALUES = 3;
+
+	@Test
+	public void testRouteLikeFilterInstanceToLeaf() {
+		InstancesHeader header = newHeader();
+		Random random = new Random(7);
+		for (int t = 0; t < 20; t++) {
+			Node root = newTree(random, 6);
+			CompiledTree tree = new CompiledTree();
+			tree.rebuild(root);
+			for (int i = 0; i < 1000; i++) {
+				assertSameNode(root, tree, newInstance(header, random));
+			}
+		}
+	}
+
+	@Test
+	public void testReplace() {
+		InstancesHeader header = newHeader();
+		Random random = new Random(11);
+		Node root = newLeaf(random);
+		CompiledTree tree = new CompiledTree();
+		assertEquals(0, tree.replace(null, -1, root));
+		for (int step = 0; step < 500; step++) {
+			Instance inst = newInstance(header, random);
+			int number = tree.route(inst);
+			int replaced;
+			if (number == CompiledTree.NO_NODE) {
+				// fill the empty branch
+				SplitNode parent = tree.getEmptyBranchParent();
+				int branch = tree.getEmptyBranch();
+				Node leaf = newLeaf(random);
+				parent.setChild(branch, leaf);
+				replaced = tree.replace(parent, branch, leaf);
+				assertSame(leaf, tree.getNode(replaced));
+			} else if (tree.getNode(number) instanceof SplitNode) {
+				continue;
+			} else {
+				// split the leaf, as ModelAggregatorProcessor does
+				FoundNode found = tree.getFoundNode(number);
+				Node split = newTree(random, 1);
+				if (found.getParent() == null) {
+					root = split;
+				} else {
+					found.getParent().setChild(found.getParentBranch(), split);
+				}
+				replaced = tree.replace(found.getParent(), found.getParentBranch(), split);
+				assertTrue(found.getParent() == null || replaced == number);
+			}
+			assertSameNode(root, tree, inst);
+			for (int i = 0; i < 20; i++) {
+				assertSameNode(root, tree, newInstance(header, random));
+			}
+		}
+		int numNodes = tree.numNodes();
+		tree.rebuild(root);
+		assertTrue(tree.numNodes() <= numNodes);
+	}
+
+	@Test
+	public void testReplaceUnderUncompiledParent() {
+		InstancesHeader header = newHeader();
+		Random random = new Random(13);
+		SplitNode root = newSplit(random, 2);
+		CompiledTree tree = new CompiledTree();
+		tree.rebuild(root);
+		// attach a split node which the compiled tree does not know yet
+		SplitNode parent = newSplit(random, 1);
+		root.setChild(0, parent);
+		Node leaf = newLeaf(random);
+		parent.setChild(0, leaf);
+		int number = tree.replace(parent, 0, leaf);
+		assertTrue(number != CompiledTree.NO_NODE);
+		assertSame(leaf, tree.getNode(number));
+		assertSame(parent, tree.getFoundNode(number).getParent());
+		for (int i = 0; i < 100; i++) {
+			assertSameNode(root, tree, newInstance(header, random));
+		}
+		// a split node which is not in the tree
+		assertEquals(CompiledTree.NO_NODE, tree.replace(newSplit(random, 1), 0, newLeaf(random)));
+	}
+
+	@Test
+	public void testReplacedSubtreesAreReclaimed() {
+		InstancesHeader header = newHeader();
+		Random random = new Random(17);
+		SplitNode root = newSplit(random, 1);
+		CompiledTree tree = new CompiledTree();
+		tree.rebuild(root);
+		int maxLiveNodes = tree.numNodes();
+		for (int step = 0; step < 1000; step++) {
+			Node subtree = newTree(random, 4);
+			root.setChild(0, subtree);
+			tree.replace(root, 0, subtree);
+			CompiledTree expected = new CompiledTree();
+			expected.rebuild(root);
+			assertEquals(expected.numNodes(), tree.numLiveNodes());
+			maxLiveNodes = Math.max(maxLiveNodes, expected.numNodes());
+			assertTrue(tree.numNodes() <= maxLiveNodes);
+			assertTrue(tree.numSlots() <= Math.max(2 * expected.numSlots(), CompiledTree.INITIAL_CAPACITY));
+			for (int i = 0; i < 5; i++) {
+				assertSameNode(root, tree, newInstance(header, random));
+			}
+		}
+		// the snapshot of the compiled tree has no replaced node
+		ModelSnapshotContentEvent snapshot = tree.takeSnapshot(0, true);
+		assertEquals(tree.numLiveNodes(), snapshot.getNumbers().length);
+	}
+
+	private static void assertSameNode(Node root, CompiledTree tree, Instance inst) {
+		FoundNode expected = root.filterInstanceToLeaf(inst, null, -1);
+		int number = tree.route(inst);
+		if (expected.getNode() == null) {
+			assertEquals(CompiledTree.NO_NODE, number);
+			assertSame(expected.getParent(), tree.getEmptyBranchParent());
+			assertEquals(expected.getParentBranch(), tree.getEmptyBranch());
+		} else {
+			FoundNode actual = tree.getFoundNode(number);
+			assertSame(expected.getNode(), tree.getNode(number));
+			assertSame(expected.getNode(), actual.getNode());
+			assertSame(expected.getParent(), actual.getParent());
+			assertEquals(expected.getParentBranch(), actual.getParentBranch());
+			assertSame(actual, tree.getFoundNode(tree.route(inst)));
+		}
+	}
+
+	/*
+	 * Random tree with numeric and nominal splits, some empty branches and
+	 * nominal splits with fewer branches than values
+	 */
+	static Node newTree(Random random, int depth) {
+		if (depth == 0 || random.nextInt(4) == 0) {
+			return newLeaf(random);
+		}
+		SplitNode split;
+		int branches;
+		if (random.nextBoolean()) {
+			split = new SplitNode(new NumericAttributeBinaryTest(random.nextInt(NUM_NUMERIC), random.nextDouble(),
+					random.nextBoolean()), newClassDistribution(random));
+			branches = 2;
+		} else {
+			split = new SplitNode(new NominalAttributeMultiwayTest(NUM_NUMERIC + random.nextInt(NUM_NOMINAL)),
+					newClassDistribution(random));
+			branches = 1 + random.nextInt(NUM_VALUES);
+		}
+		for (int i = 0; i < branches; i++) {
+			if (random.nextInt(8) != 0) {
+				split.setChild(i, newTree(random, depth - 1));
+			}
+		}
+		return split;
+	}
+
+	static SplitNode newSplit(Random random, int depth) {
+		Node node;
+		do {
+			node = newTree(random, depth);
+		} while (!(node instanceof SplitNode));
+		return (SplitNode) node;
+	}
+
+	static Node newLeaf(Random random) {
+		return new InactiveLearningNode(newClassDistribution(random));
+	}
+
+	static double[] newClassDistribution(Random random) {
+		return new double[] { random.nextInt(10), random.nextInt(10) };
+	}
+
+	static InstancesHeader newHeader() {
+		List<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i < NUM_NUMERIC; i++) {
+			attributes.add(new Attribute("numeric" + i));
+		}
+		for (int i = 0; i < NUM_NOMINAL; i++) {
+			attributes.add(new Attribute("nominal" + i, Arrays.asList("low", "medium", "high")));
+		}
+		attributes.add(new Attribute("class", Arrays.asList("A", "B")));
+		Instances instances = new Instances("relation", attributes, 0);
+		instances.setClassIndex(NUM_NUMERIC + NUM_NOMINAL);
+		return new InstancesHeader(instances);
+	}
+
+	static Instance newInstance(InstancesHeader header, Random random) {
+		double[] values = new double[header.numAttributes()];
+		for (int i = 0; i < NUM_NUMERIC; i++) {
+			// some values equal to the thresholds
+			values[i] = random.nextInt(4) == 0 ? 0.5 : random.nextDouble();
+		}
+		for (int i = NUM_NUMERIC; i < NUM_NUMERIC + NUM_NOMINAL; i++) {
+			values[i] = random.nextInt(NUM_VALUES);
+		}
+		if (random.nextInt(10) == 0) {
+			values[random.nextInt(NUM_NUMERIC + NUM_NOMINAL)] = Double.NaN;
+		}
+		Instance inst = new DenseInstance(1.0, values);
+		inst.setDataset(header);
+		inst.setClassValue(random.nextInt(2));
+		return inst;
+	}
+}
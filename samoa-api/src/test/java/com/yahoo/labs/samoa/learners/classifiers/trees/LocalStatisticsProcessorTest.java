@@ -0,0 +1,49 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.HistogramNumericAttributeClassObserver;
+import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.SortedArrayNumericAttributeClassObserver;
+
+public class LocalStatisticsProcessorTest {
+
+	@Test
+	public void testReplicaKeepsTheObservers() {
+		SortedArrayNumericAttributeClassObserver numeric = new SortedArrayNumericAttributeClassObserver();
+		numeric.maxValuesOption.setValue(16);
+		// not the default observers
+		HistogramNumericAttributeClassObserver nominal = new HistogramNumericAttributeClassObserver();
+		LocalStatisticsProcessor source = new LocalStatisticsProcessor.Builder()
+				.numericClassObserver(numeric)
+				.nominalClassObserver(nominal)
+				.build();
+		LocalStatisticsProcessor replica = (LocalStatisticsProcessor) source.newProcessor(source);
+		replica.onCreate(1);
+		assertTrue(replica.newNumericClassObserver() instanceof SortedArrayNumericAttributeClassObserver);
+		assertEquals(16, ((SortedArrayNumericAttributeClassObserver) replica.newNumericClassObserver())
+				.maxValuesOption.getValue());
+		assertTrue(replica.newNominalClassObserver() instanceof HistogramNumericAttributeClassObserver);
+	}
+}
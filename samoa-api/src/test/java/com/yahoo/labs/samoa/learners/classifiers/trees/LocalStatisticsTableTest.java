@@ -0,0 +1,77 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
+
+public class LocalStatisticsTableTest {
+
+	@Test
+	public void testPutGetAndCount() {
+		LocalStatisticsTable table = new LocalStatisticsTable();
+		AttributeClassObserver obs1 = new NominalAttributeClassObserver();
+		AttributeClassObserver obs2 = new NominalAttributeClassObserver();
+		table.put(3, 7, obs1);
+		table.put(3, 0, obs2);
+		assertSame(obs1, table.get(3, 7));
+		assertSame(obs2, table.get(3, 0));
+		assertNull(table.get(3, 1));
+		assertNull(table.get(3, 100));
+		assertNull(table.get(4, 0));
+		assertEquals(1, table.size());
+		assertEquals(2, table.getNumObservers(3));
+		table.put(3, 7, obs2); // replacing does not count twice
+		assertEquals(2, table.getNumObservers());
+		assertEquals(8, table.getObservers(3).length);
+	}
+
+	@Test
+	public void testRandomInsertionsAndRemovals() {
+		LocalStatisticsTable table = new LocalStatisticsTable();
+		Map<Long, AttributeClassObserver> expected = new HashMap<Long, AttributeClassObserver>();
+		Random random = new Random(42);
+		for (int step = 0; step < 100000; step++) {
+			long id = random.nextInt(2000);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(id) != null, table.remove(id));
+			}
+			else if (!expected.containsKey(id)) {
+				AttributeClassObserver obs = new NominalAttributeClassObserver();
+				expected.put(id, obs);
+				table.put(id, 1, obs);
+			}
+		}
+		assertEquals(expected.size(), table.size());
+		assertEquals(expected.size(), table.getNumObservers());
+		for (long id = 0; id < 2000; id++) {
+			assertSame("Wrong observer for learning node " + id, expected.get(id), table.get(id, 1));
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.learners.InstancesContentEvent;
+import com.yahoo.labs.samoa.moa.core.Measurement;
+import com.yahoo.labs.samoa.topology.Stream;
+import com.yahoo.labs.samoa.utils.StreamDestination;
+
+public class ModelAggregatorProcessorTest {
+
+	private static final int PARALLELISM = 3;
+
+	@Test
+	public void testDeleteFollowsAttributeBlocks() {
+		InstancesHeader header = CompiledTreeTest.newHeader();
+		ModelAggregatorProcessor aggregator = new ModelAggregatorProcessor.Builder(header)
+				.parallelismHint(PARALLELISM).build();
+		ListStream attributeStream = new ListStream();
+		aggregator.setAttributeStream(attributeStream);
+		ListStream resultStream = new ListStream();
+		LocalStatisticsProcessor[] replicas = new LocalStatisticsProcessor[PARALLELISM];
+		for (int i = 0; i < PARALLELISM; i++) {
+			replicas[i] = new LocalStatisticsProcessor.Builder().build();
+			replicas[i].setComputationResultStream(resultStream);
+			replicas[i].onCreate(i);
+		}
+
+		ActiveLearningNode leaf = new ActiveLearningNode(new double[2], PARALLELISM);
+		Random random = new Random(5);
+		for (int i = 0; i < 10; i++) {
+			leaf.learnFromInstance(CompiledTreeTest.newInstance(header, random), aggregator);
+		}
+		AttributeBlockContentEvent[] blocks = leaf.getAttributeBlocks();
+		for (AttributeBlockContentEvent block : blocks) {
+			aggregator.sendToAttributeStream(block);
+		}
+		leaf.deleteDistributedStatistics(aggregator);
+
+		// one delete per group, with the key and the group of its blocks
+		List<ContentEvent> events = attributeStream.events;
+		assertEquals(2 * PARALLELISM, events.size());
+		for (int g = 0; g < PARALLELISM; g++) {
+			DeleteContentEvent delete = (DeleteContentEvent) events.get(PARALLELISM + g);
+			assertEquals(leaf.getId(), delete.getLearningNodeId());
+			assertEquals(blocks[g].getKey(), delete.getKey());
+			assertEquals(StreamDestination.getPIIndexForEvent(blocks[g], PARALLELISM), 
+					StreamDestination.getPIIndexForEvent(delete, PARALLELISM));
+		}
+
+		// in stream order, the deletes free all the observers created by the blocks
+		for (ContentEvent event : events) {
+			replicas[StreamDestination.getPIIndexForEvent(event, PARALLELISM)].process(event);
+		}
+		for (LocalStatisticsProcessor replica : replicas) {
+			replica.process(new ComputeContentEvent(1, leaf.getId(), leaf.getObservedClassDistribution()));
+		}
+		assertEquals(PARALLELISM, resultStream.events.size());
+		for (ContentEvent event : resultStream.events) {
+			assertNull(((LocalResultContentEvent) event).getBestSuggestion());
+		}
+	}
+
+	@Test
+	public void testTimeOutBeforeRoundTripIsMeasured() throws InterruptedException {
+		ModelAggregatorProcessor aggregator = new ModelAggregatorProcessor.Builder(CompiledTreeTest.newHeader())
+				.adaptivePipeline(true).timeOut(1).build();
+		aggregator.updateBatchInterval();
+		Thread.sleep(5);
+		aggregator.updateBatchInterval();
+
+		// a split times out before any round trip was measured
+		aggregator.backOffRoundTrip();
+		assertTrue(aggregator.getRoundTripMillis() > 0);
+		assertTrue(aggregator.getPipelineDepth() >= 1);
+
+		// then the round trips are measured, shorter than a batch interval
+		for (int i = 0; i < 100; i++) {
+			aggregator.updateRoundTrip(1);
+		}
+		assertEquals(1, aggregator.getPipelineDepth());
+
+		// later time-outs back off from the measured round trip, up to the time-out
+		for (int i = 0; i < 100; i++) {
+			aggregator.backOffRoundTrip();
+		}
+		assertEquals(1000, aggregator.getRoundTripMillis(), 0);
+		assertEquals(ModelAggregatorProcessor.MAX_PIPELINE_DEPTH, aggregator.getPipelineDepth());
+	}
+
+	@Test
+	public void testPipelineMeasurements() throws InterruptedException {
+		InstancesHeader header = CompiledTreeTest.newHeader();
+		ModelAggregatorProcessor aggregator = new ModelAggregatorProcessor.Builder(header)
+				.adaptivePipeline(true).build();
+		aggregator.setResultStream(new ListStream());
+		aggregator.setAttributeStream(new ListStream());
+		aggregator.setControlStream(new ListStream());
+		aggregator.onCreate(0);
+		Random random = new Random(9);
+		for (int i = 0; i < 5; i++) {
+			InstancesContentEvent batch = new InstancesContentEvent(i, true, true);
+			batch.add(CompiledTreeTest.newInstance(header, random));
+			aggregator.process(batch);
+			Thread.sleep(2);
+		}
+		aggregator.updateRoundTrip(TimeUnit.MILLISECONDS.toNanos(50));
+
+		Measurement[] measurements = aggregator.getPipelineMeasurements();
+		assertEquals(aggregator.getPipelineDepth(), Measurement.getMeasurementNamed(
+				ModelAggregatorProcessor.PIPELINE_DEPTH_MEASUREMENT, measurements).getValue(), 0.0);
+		assertEquals(50.0, Measurement.getMeasurementNamed(
+				ModelAggregatorProcessor.ROUND_TRIP_MEASUREMENT, measurements).getValue(), 0.0);
+		double batchInterval = Measurement.getMeasurementNamed(
+				ModelAggregatorProcessor.BATCH_INTERVAL_MEASUREMENT, measurements).getValue();
+		assertTrue(batchInterval >= 2.0);
+		assertEquals(Math.min(ModelAggregatorProcessor.MAX_PIPELINE_DEPTH, (int) Math.ceil(50.0 / batchInterval)), 
+				aggregator.getPipelineDepth(), 1);
+	}
+
+	@Test
+	public void testActiveLeafByteSizeEstimate() {
+		// sizes of the nodes and of the observers with all the classes observed, 
+		// measured on a 64-bit JVM with compressed references
+		assertEquals(120 + 246 + 184, ModelAggregatorProcessor.estimateActiveLeafByteSize(newHeader(2, 2)), 0.05 * 550);
+		assertEquals(184 + 768 + 1256, ModelAggregatorProcessor.estimateActiveLeafByteSize(newHeader(10, 10)), 0.05 * 2208);
+	}
+
+	/*
+	 * Header with one numeric and one nominal attribute
+	 */
+	private static InstancesHeader newHeader(int numClasses, int numValues) {
+		List<String> values = new ArrayList<>();
+		for (int i = 0; i < numValues; i++) {
+			values.add("v" + i);
+		}
+		List<String> classes = new ArrayList<>();
+		for (int i = 0; i < numClasses; i++) {
+			classes.add("c" + i);
+		}
+		List<Attribute> attributes = Arrays.asList(new Attribute("numeric"), new Attribute("nominal", values), 
+				new Attribute("class", classes));
+		Instances instances = new Instances("relation", attributes, 0);
+		instances.setClassIndex(2);
+		return new InstancesHeader(instances);
+	}
+
+	private static class ListStream implements Stream {
+
+		final List<ContentEvent> events = new ArrayList<>();
+
+		@Override
+		public void put(ContentEvent event) {
+			events.add(event);
+		}
+
+		@Override
+		public String getStreamId() {
+			return "stream";
+		}
+
+		@Override
+		public void setBatchSize(int batchsize) {
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package com.yahoo.labs.samoa.learners.classifiers.trees;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.evaluation.BasicClassificationPerformanceEvaluator;
+import com.yahoo.labs.samoa.evaluation.EvaluatorProcessor;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.learners.InstanceContentEvent;
+import com.yahoo.labs.samoa.learners.InstancesContentEvent;
+import com.yahoo.labs.samoa.learners.ResultContentEvent;
+import com.yahoo.labs.samoa.topology.Stream;
+import com.yahoo.labs.samoa.utils.KryoRegistry;
+
+public class PredictionProcessorTest {
+
+	@Test
+	public void testEmptyReplica() {
+		InstancesHeader header = CompiledTreeTest.newHeader();
+		PredictionProcessor replica = new PredictionProcessor.Builder(header).build();
+		Instance inst = CompiledTreeTest.newInstance(header, new Random(1));
+		assertEquals(-1, replica.getVersion());
+		assertTrue(Arrays.equals(new double[2], replica.getVotesForInstance(inst)));
+
+		// after a reset of the model
+		CompiledTree tree = new CompiledTree();
+		tree.replace(null, -1, null);
+		replica.applySnapshot(tree.takeSnapshot(0, false));
+		assertEquals(0, replica.getVersion());
+		assertTrue(Arrays.equals(new double[2], replica.getVotesForInstance(inst)));
+	}
+
+	@Test
+	public void testDeltaSnapshots() {
+		InstancesHeader header = CompiledTreeTest.newHeader();
+		Random random = new Random(3);
+		Node root = CompiledTreeTest.newTree(random, 5);
+		CompiledTree tree = new CompiledTree();
+		tree.rebuild(root);
+		PredictionProcessor replica = new PredictionProcessor.Builder(header).build();
+		PredictionProcessor lagging = new PredictionProcessor.Builder(header).build();
+
+		ModelSnapshotContentEvent snapshot = tree.takeSnapshot(0, false);
+		assertTrue(snapshot.isFull()); // the tree was compiled
+		assertEquals(tree.numNodes(), snapshot.getNumbers().length);
+		replica.applySnapshot(snapshot);
+		lagging.applySnapshot(snapshot);
+		assertSamePredictions(tree, replica, header, random);
+
+		for (int version = 1; version < 50; version++) {
+			for (int i = 0; i < 20; i++) {
+				learnOrGrow(tree, CompiledTreeTest.newInstance(header, random), random);
+			}
+			snapshot = tree.takeSnapshot(version, false);
+			if (snapshot.isFull()) {
+				// the root was split
+				assertEquals(tree.numNodes(), snapshot.getNumbers().length);
+			} else {
+				assertTrue(snapshot.getNumbers().length < tree.numNodes());
+			}
+			replica.applySnapshot(snapshot);
+			assertEquals(version, replica.getVersion());
+			assertSamePredictions(tree, replica, header, random);
+			if (version % 10 != 5) {
+				lagging.applySnapshot(snapshot);
+			}
+		}
+		// the lagging replica missed the delta 45, it waits for a full snapshot
+		assertEquals(44, lagging.getVersion());
+		snapshot = tree.takeSnapshot(50, true);
+		lagging.applySnapshot(snapshot);
+		assertEquals(50, lagging.getVersion());
+		assertSamePredictions(tree, lagging, header, random);
+	}
+
+	@Test
+	public void testSerializedSnapshot() {
+		InstancesHeader header = CompiledTreeTest.newHeader();
+		Random random = new Random(5);
+		CompiledTree tree = new CompiledTree();
+		tree.rebuild(CompiledTreeTest.newTree(random, 5));
+		PredictionProcessor replica = new PredictionProcessor.Builder(header).build();
+		replica.applySnapshot(roundTrip(tree.takeSnapshot(0, true)));
+		for (int i = 0; i < 100; i++) {
+			learnOrGrow(tree, CompiledTreeTest.newInstance(header, random), random);
+		}
+		replica.applySnapshot(roundTrip(tree.takeSnapshot(1, false)));
+		assertEquals(1, replica.getVersion());
+		assertSamePredictions(tree, replica, header, random);
+	}
+
+	@Test
+	public void testLastEventReachesEveryReplica() {
+		InstancesHeader header = CompiledTreeTest.newHeader();
+		Random random = new Random(7);
+		FilterProcessor filter = new FilterProcessor.Builder(header).batchSize(10).build();
+		ListStream outputStream = new ListStream();
+		ListStream predictionStream = new ListStream();
+		ListStream lastPredictionStream = new ListStream();
+		filter.setOutputStream(outputStream);
+		filter.setPredictionStream(predictionStream);
+		filter.setLastPredictionStream(lastPredictionStream);
+		for (int i = 0; i < 25; i++) {
+			InstanceContentEvent event = new InstanceContentEvent(i, CompiledTreeTest.newInstance(header, random), 
+					true, true);
+			event.setLast(i == 24);
+			filter.process(event);
+		}
+		assertEquals(24, predictionStream.events.size());
+		assertEquals(1, lastPredictionStream.events.size());
+		assertTrue(lastPredictionStream.events.get(0).isLastEvent());
+
+		// the aggregator only trains, it sends no result of its own
+		for (ContentEvent event : outputStream.events) {
+			assertFalse(((InstancesContentEvent) event).isTesting());
+		}
+
+		// every replica sends a last result, the evaluator ends with the last one
+		int parallelism = 3;
+		EvaluatorProcessor evaluator = new EvaluatorProcessor.Builder(new BasicClassificationPerformanceEvaluator())
+				.build();
+		evaluator.onCreate(0);
+		for (int i = 0; i < parallelism; i++) {
+			PredictionProcessor replica = new PredictionProcessor.Builder(header).parallelism(parallelism).build();
+			ListStream resultStream = new ListStream();
+			replica.setResultStream(resultStream);
+			replica.process(lastPredictionStream.events.get(0));
+			ResultContentEvent result = (ResultContentEvent) resultStream.events.get(0);
+			assertTrue(result.isLastEvent());
+			assertEquals(parallelism, result.getNumLastEvents());
+			assertEquals(i == parallelism - 1, evaluator.process(result));
+		}
+	}
+
+	/*
+	 * Learn the instance in its leaf, as ModelAggregatorProcessor does, or split 
+	 * the leaf or fill the empty branch
+	 */
+	private static void learnOrGrow(CompiledTree tree, Instance inst, Random random) {
+		int number = tree.route(inst);
+		if (number == CompiledTree.NO_NODE) {
+			SplitNode parent = tree.getEmptyBranchParent();
+			Node leaf = CompiledTreeTest.newLeaf(random);
+			parent.setChild(tree.getEmptyBranch(), leaf);
+			tree.replace(parent, tree.getEmptyBranch(), leaf);
+		} else if (tree.getNode(number) instanceof LearningNode) {
+			if (random.nextInt(50) == 0) {
+				FoundNode found = tree.getFoundNode(number);
+				Node split = CompiledTreeTest.newTree(random, 1);
+				if (found.getParent() != null) {
+					found.getParent().setChild(found.getParentBranch(), split);
+				}
+				tree.replace(found.getParent(), found.getParentBranch(), split);
+			} else {
+				((LearningNode) tree.getNode(number)).learnFromInstance(inst, null);
+				tree.markChanged(number);
+			}
+		}
+	}
+
+	private static void assertSamePredictions(CompiledTree tree, PredictionProcessor replica, InstancesHeader header,
+			Random random) {
+		for (int i = 0; i < 500; i++) {
+			Instance inst = CompiledTreeTest.newInstance(header, random);
+			int number = tree.route(inst);
+			Node node = number == CompiledTree.NO_NODE ? tree.getEmptyBranchParent() : tree.getNode(number);
+			assertTrue(Arrays.equals(node.getObservedClassDistribution(), replica.getVotesForInstance(inst)));
+		}
+	}
+
+	private static ModelSnapshotContentEvent roundTrip(ModelSnapshotContentEvent snapshot) {
+		Output output = new Output(1024, -1);
+		KryoRegistry.register(new Kryo()).writeClassAndObject(output, snapshot);
+		return (ModelSnapshotContentEvent) KryoRegistry.register(new Kryo()).readClassAndObject(new Input(output.toBytes()));
+	}
+
+	private static class ListStream implements Stream {
+
+		final List<ContentEvent> events = new ArrayList<>();
+
+		@Override
+		public void put(ContentEvent event) {
+			events.add(event);
+		}
+
+		@Override
+		public String getStreamId() {
+			return "stream";
+		}
+
+		@Override
+		public void setBatchSize(int batchsize) {
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package com.yahoo.labs.samoa.learners.clusterers.simple;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.evaluation.ClusteringResultContentEvent;
+import com.yahoo.labs.samoa.learners.clusterers.MicroClusteringContentEvent;
+import com.yahoo.labs.samoa.moa.cluster.Cluster;
+import com.yahoo.labs.samoa.moa.cluster.Clustering;
+import com.yahoo.labs.samoa.moa.clusterers.clustream.ClustreamKernel;
+import com.yahoo.labs.samoa.topology.Stream;
+
+public class MicroClusterAggregatorProcessorTest {
+
+	@Test
+	public void testMergeAfterOneSnapshotPerReplica() {
+		ListStream output = new ListStream();
+		MicroClusterAggregatorProcessor aggregator = newAggregator(output, 2);
+
+		// a fast replica sends several snapshots before the other one
+		aggregator.process(newSnapshot(1, 0, 2, false));
+		aggregator.process(newSnapshot(1, 0, 3, false));
+		assertEquals(0, output.events.size());
+		aggregator.process(newSnapshot(2, 10, 2, false));
+		assertEquals(1, output.events.size());
+		// the last snapshot of each replica
+		assertEquals(5, getResult(output, 0).getClustering().size());
+
+		aggregator.process(newSnapshot(2, 10, 2, false));
+		aggregator.process(newSnapshot(2, 10, 4, false));
+		assertEquals(1, output.events.size());
+		aggregator.process(newSnapshot(1, 0, 1, false));
+		assertEquals(2, output.events.size());
+		assertEquals(5, getResult(output, 1).getClustering().size());
+	}
+
+	@Test
+	public void testMergeOnLastSnapshot() {
+		ListStream output = new ListStream();
+		MicroClusterAggregatorProcessor aggregator = newAggregator(output, 3);
+		assertFalse(aggregator.process(newSnapshot(1, 0, 2, false)));
+		assertTrue(aggregator.process(newSnapshot(2, 10, 2, true)));
+		assertEquals(1, output.events.size());
+		assertTrue(getResult(output, 0).isLastEvent());
+		assertEquals(4, getResult(output, 0).getClustering().size());
+	}
+
+	@Test
+	public void testMacroClusteringFollowsTheMicroClusters() {
+		ListStream output = new ListStream();
+		MicroClusterAggregatorProcessor aggregator = newAggregator(output, 2);
+		assertNull(aggregator.getMacroClustering());
+
+		aggregator.process(newSnapshot(1, 0, 4, false));
+		aggregator.process(newSnapshot(2, 10, 4, false));
+		Clustering macroClustering = aggregator.getMacroClustering();
+		assertSame(macroClustering, getResult(output, 0).getMacroClustering());
+		assertEquals(2, macroClustering.size());
+		assertCenters(macroClustering, 0, 10);
+
+		// warm start from the previous macro-clusters
+		aggregator.process(newSnapshot(1, 1, 4, false));
+		aggregator.process(newSnapshot(2, 11, 4, false));
+		assertEquals(2, aggregator.getMacroClustering().size());
+		assertCenters(aggregator.getMacroClustering(), 1, 11);
+	}
+
+	private static void assertCenters(Clustering macroClustering, double low, double high) {
+		double first = macroClustering.get(0).getCenter()[0];
+		double second = macroClustering.get(1).getCenter()[0];
+		assertEquals(low, Math.min(first, second), 1e-9);
+		assertEquals(high, Math.max(first, second), 1e-9);
+	}
+
+	private static MicroClusterAggregatorProcessor newAggregator(Stream output, int numReplicas) {
+		MicroClusterAggregatorProcessor aggregator = new MicroClusterAggregatorProcessor();
+		aggregator.setOutputStream(output);
+		aggregator.setNumReplicas(numReplicas);
+		aggregator.setNumClusters(2);
+		aggregator.onCreate(0);
+		return aggregator;
+	}
+
+	/*
+	 * Snapshot of micro-clusters centered around (center, center)
+	 */
+	private static MicroClusteringContentEvent newSnapshot(int replicaId, double center, int numClusters, boolean isLast) {
+		Cluster[] clusters = new Cluster[numClusters];
+		for (int c = 0; c < numClusters; c++) {
+			double x = center + (c % 2 == 0 ? -0.5 : 0.5);
+			clusters[c] = new ClustreamKernel(10, new double[] { 10 * x, 10 * center }, 
+					new double[] { 10 * x * x + 1, 10 * center * center + 1 });
+		}
+		return new MicroClusteringContentEvent(replicaId, new Clustering(clusters), isLast);
+	}
+
+	private static ClusteringResultContentEvent getResult(ListStream output, int index) {
+		return (ClusteringResultContentEvent) output.events.get(index);
+	}
+
+	private static class ListStream implements Stream {
+
+		final List<ContentEvent> events = new ArrayList<>();
+
+		@Override
+		public void put(ContentEvent event) {
+			events.add(event);
+		}
+
+		@Override
+		public String getStreamId() {
+			return "output";
+		}
+
+		@Override
+		public void setBatchSize(int batchsize) {
+		}
+	}
+}
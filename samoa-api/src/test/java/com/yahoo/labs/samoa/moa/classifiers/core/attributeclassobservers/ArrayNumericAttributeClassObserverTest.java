@@ -0,0 +1,179 @@
+package com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.moa.classifiers.core.AttributeSplitSuggestion;
+import com.yahoo.labs.samoa.moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import com.yahoo.labs.samoa.moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import com.yahoo.labs.samoa.moa.classifiers.core.splitcriteria.SplitCriterion;
+
+public class ArrayNumericAttributeClassObserverTest {
+
+	private static final double THRESHOLD = 0.3;
+
+	@Test
+	public void testSortedArrayIsExactWithFewValues() {
+		Random random = new Random(1);
+		SortedArrayNumericAttributeClassObserver observer = new SortedArrayNumericAttributeClassObserver();
+		BinaryTreeNumericAttributeClassObserver exact = new BinaryTreeNumericAttributeClassObserver();
+		double[] preSplitDist = new double[3];
+		for (int i = 0; i < 5000; i++) {
+			double value = random.nextInt(50) / 10.0;
+			int classVal = random.nextInt(3);
+			double weight = 1 + random.nextInt(3);
+			observer.observeAttributeClass(value, classVal, weight);
+			exact.observeAttributeClass(value, classVal, weight);
+			preSplitDist[classVal] += weight;
+		}
+		observer.observeAttributeClass(Double.NaN, 0, 1.0);
+		assertEquals(50, observer.numEntries);
+		SplitCriterion criterion = new InfoGainSplitCriterion();
+		AttributeSplitSuggestion expected = exact.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true);
+		AttributeSplitSuggestion actual = observer.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true);
+		assertEquals(expected.merit, actual.merit, 1e-12);
+		double expectedValue = ((NumericAttributeBinaryTest) expected.splitTest).getSplitValue();
+		double actualValue = ((NumericAttributeBinaryTest) actual.splitTest).getSplitValue();
+		assertEquals(expectedValue + 0.05, actualValue, 1e-9);
+		for (int i = 0; i < 2; i++) {
+			assertArrayEquals(expected.resultingClassDistributionFromSplit(i), actual.resultingClassDistributionFromSplit(i), 1e-9);
+		}
+	}
+
+	@Test
+	public void testSortedArrayIsBounded() {
+		SortedArrayNumericAttributeClassObserver observer = new SortedArrayNumericAttributeClassObserver();
+		observer.maxValuesOption.setValue(32);
+		assertEquals(THRESHOLD, observeAndSplit(observer), 0.05);
+		assertEquals(32, observer.numEntries);
+		for (int i = 1; i < observer.numEntries; i++) {
+			assertTrue(observer.values[i - 1] < observer.values[i]);
+		}
+	}
+
+	@Test
+	public void testSortedArrayProbability() {
+		SortedArrayNumericAttributeClassObserver observer = new SortedArrayNumericAttributeClassObserver();
+		assertEquals(0.0, observer.probabilityOfAttributeValueGivenClass(1.0, 0), 0.0);
+		observer.observeAttributeClass(1.0, 0, 2.0);
+		assertEquals(1.0, observer.probabilityOfAttributeValueGivenClass(1.0, 0), 0.0);
+		assertEquals(0.0, observer.probabilityOfAttributeValueGivenClass(1.5, 0), 0.0);
+		// cells [0.5, 1.5), [1.5, 2.5), [2.5, 4.0), [4.0, 6.0)
+		observer.observeAttributeClass(2.0, 0, 1.0);
+		observer.observeAttributeClass(3.0, 1, 4.0);
+		observer.observeAttributeClass(5.0, 0, 1.0);
+		assertEquals(2.0 / 4.0, observer.probabilityOfAttributeValueGivenClass(1.2, 0), 1e-12);
+		assertEquals(1.0 / 4.0, observer.probabilityOfAttributeValueGivenClass(2.4, 0), 1e-12);
+		assertEquals(0.0, observer.probabilityOfAttributeValueGivenClass(3.0, 0), 0.0);
+		assertEquals(4.0 / (4.0 * 1.5), observer.probabilityOfAttributeValueGivenClass(3.9, 1), 1e-12);
+		assertEquals(1.0 / (4.0 * 2.0), observer.probabilityOfAttributeValueGivenClass(4.0, 0), 1e-12);
+		assertEquals(0.0, observer.probabilityOfAttributeValueGivenClass(0.4, 0), 0.0);
+		assertEquals(0.0, observer.probabilityOfAttributeValueGivenClass(6.0, 0), 0.0);
+		assertEquals(0.0, observer.probabilityOfAttributeValueGivenClass(2.0, 2), 0.0);
+
+		// the density integrates to one for each class
+		observer = new SortedArrayNumericAttributeClassObserver();
+		observer.maxValuesOption.setValue(32);
+		assertEquals(THRESHOLD, observeAndSplit(observer), 0.05);
+		for (int c = 0; c < 3; c++) {
+			double integral = 0.0;
+			double step = 1e-4;
+			for (double value = -2.0; value < 3.0; value += step) {
+				integral += observer.probabilityOfAttributeValueGivenClass(value, c) * step;
+			}
+			assertEquals(1.0, integral, 0.01);
+		}
+	}
+
+	@Test
+	public void testHistogram() {
+		HistogramNumericAttributeClassObserver observer = new HistogramNumericAttributeClassObserver();
+		observer.numBinsOption.setValue(31);
+		assertEquals(THRESHOLD, observeAndSplit(observer), observer.binWidth);
+		assertEquals(32, observer.numBins);
+		// the range was doubled from the first two values to cover [-1, 2)
+		assertTrue(observer.lowerBound <= -1.0);
+		assertTrue(observer.lowerBound + observer.numBins * observer.binWidth >= 2.0);
+		assertTrue(observer.binWidth <= 3.0 / observer.numBins * 2);
+	}
+
+	@Test
+	public void testHistogramSingleValue() {
+		HistogramNumericAttributeClassObserver observer = new HistogramNumericAttributeClassObserver();
+		SplitCriterion criterion = new InfoGainSplitCriterion();
+		observer.observeAttributeClass(1.5, 0, 1.0);
+		observer.observeAttributeClass(1.5, 1, 2.0);
+		assertNull(observer.getBestEvaluatedSplitSuggestion(criterion, new double[] { 1, 2 }, 0, true));
+		observer.observeAttributeClass(2.5, 1, 1.0);
+		AttributeSplitSuggestion suggestion = observer.getBestEvaluatedSplitSuggestion(criterion, new double[] { 1, 3 }, 0, true);
+		assertArrayEquals(new double[] { 1, 2 }, suggestion.resultingClassDistributionFromSplit(0), 0.0);
+		assertArrayEquals(new double[] { 0, 1 }, suggestion.resultingClassDistributionFromSplit(1), 0.0);
+	}
+
+	@Test
+	public void testCopy() {
+		ArrayNumericAttributeClassObserver[] observers = { new HistogramNumericAttributeClassObserver(),
+				new SortedArrayNumericAttributeClassObserver() };
+		SplitCriterion criterion = new InfoGainSplitCriterion();
+		for (ArrayNumericAttributeClassObserver observer : observers) {
+			observer.observeAttributeClass(0.0, 0, 1.0);
+			observer.observeAttributeClass(1.0, 1, 1.0);
+			observer.getBestEvaluatedSplitSuggestion(criterion, new double[] { 1, 1 }, 0, true);
+			ArrayNumericAttributeClassObserver copy = (ArrayNumericAttributeClassObserver) observer.copy();
+			copy.observeAttributeClass(2.0, 1, 5.0);
+			assertArrayEquals(new double[] { 1, 1 }, observer.classTotals, 0.0);
+			assertArrayEquals(new double[] { 1, 6 }, copy.classTotals, 0.0);
+			AttributeSplitSuggestion suggestion = copy.getBestEvaluatedSplitSuggestion(criterion, new double[] { 1, 6 }, 0, true);
+			assertArrayEquals(new double[] { 1, 0 }, suggestion.resultingClassDistributionFromSplit(0), 0.0);
+		}
+	}
+
+	/*
+	 * Values uniform in [-1, 2), the class is 1 above THRESHOLD, classes seen
+	 * in decreasing order. Returns the best split value.
+	 */
+	private static double observeAndSplit(ArrayNumericAttributeClassObserver observer) {
+		Random random = new Random(7);
+		double[] preSplitDist = new double[3];
+		observer.observeAttributeClass(0.5, 2, 1.0);
+		preSplitDist[2] += 1.0;
+		for (int i = 0; i < 20000; i++) {
+			double value = -1.0 + 3.0 * random.nextDouble();
+			int classVal = value > THRESHOLD ? 1 : 0;
+			observer.observeAttributeClass(value, classVal, 1.0);
+			preSplitDist[classVal] += 1.0;
+		}
+		assertArrayEquals(preSplitDist, observer.classTotals, 1e-9);
+		AttributeSplitSuggestion suggestion = observer.getBestEvaluatedSplitSuggestion(new InfoGainSplitCriterion(),
+				preSplitDist, 0, true);
+		double[] left = suggestion.resultingClassDistributionFromSplit(0);
+		double[] right = suggestion.resultingClassDistributionFromSplit(1);
+		for (int c = 0; c < 3; c++) {
+			assertEquals(preSplitDist[c], left[c] + right[c], 1e-9);
+		}
+		return ((NumericAttributeBinaryTest) suggestion.splitTest).getSplitValue();
+	}
+}
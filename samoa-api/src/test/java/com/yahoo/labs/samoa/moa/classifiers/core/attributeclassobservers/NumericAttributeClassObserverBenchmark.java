@@ -0,0 +1,128 @@
+package com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import com.yahoo.labs.samoa.moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import com.yahoo.labs.samoa.moa.classifiers.core.splitcriteria.SplitCriterion;
+
+/**
+ * Micro-benchmark of the numeric attribute observers of the local statistics PIs:
+ * time and bytes allocated per observation, time and bytes allocated per split 
+ * evaluation, and retained memory per observer, i.e. per (leaf, attribute), after 
+ * a number of observations. The values are drawn from one Gaussian per class 
+ * (3 classes), with 3 decimals so that they repeat as real attributes do.
+ * </p>
+ * Not run by the test suite. Usage: java NumericAttributeClassObserverBenchmark [observationsPerObserver]
+ */
+public class NumericAttributeClassObserverBenchmark {
+
+	private static final int NUM_CLASSES = 3;
+	private static final int NUM_OBSERVERS = 2000;
+	private static final int EVALUATIONS = 200;
+
+	private static volatile Object sink;
+
+	public static void main(String[] args) {
+		int observations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		String[] names = { "Gaussian", "BinaryTree", "VFML", "Histogram", "SortedArray" };
+		System.out.println("observer,ns/observation,bytes/observation,us/evaluation,bytes/evaluation,bytes/observer");
+		for (int round = 0; round < 2; round++) { // the first round is a warm-up
+			for (String name : names) {
+				long[] result = run(name, observations);
+				if (round == 1) {
+					System.out.println(String.format("%s,%.1f,%.1f,%.1f,%d,%d", name, 
+							(double) result[0] / (NUM_OBSERVERS * observations),
+							(double) result[1] / (NUM_OBSERVERS * observations), 
+							result[2] / 1000.0 / EVALUATIONS, result[3] / EVALUATIONS, result[4] / NUM_OBSERVERS));
+				}
+			}
+		}
+	}
+
+	private static AttributeClassObserver newObserver(String name) {
+		switch (name) {
+		case "Gaussian":
+			return new GaussianNumericAttributeClassObserver();
+		case "BinaryTree":
+			return new BinaryTreeNumericAttributeClassObserver();
+		case "VFML":
+			return new VFMLNumericAttributeClassObserver();
+		case "Histogram":
+			return new HistogramNumericAttributeClassObserver();
+		default:
+			return new SortedArrayNumericAttributeClassObserver();
+		}
+	}
+
+	/*
+	 * Observation time (ns) and allocated bytes, evaluation time (ns) and allocated 
+	 * bytes, retained bytes
+	 */
+	private static long[] run(String name, int observations) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		Random random = new Random(1);
+		double[] values = new double[observations];
+		int[] classes = new int[observations];
+		double[] preSplitDist = new double[NUM_CLASSES];
+		for (int i = 0; i < observations; i++) {
+			classes[i] = random.nextInt(NUM_CLASSES);
+			values[i] = Math.round((classes[i] + random.nextGaussian()) * 1000) / 1000.0;
+			preSplitDist[classes[i]]++;
+		}
+		long before = usedMemory();
+		AttributeClassObserver[] observers = new AttributeClassObserver[NUM_OBSERVERS];
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		for (int o = 0; o < NUM_OBSERVERS; o++) {
+			AttributeClassObserver observer = newObserver(name);
+			for (int i = 0; i < observations; i++) {
+				observer.observeAttributeClass(values[i], classes[i], 1.0);
+			}
+			observers[o] = observer;
+		}
+		long observeNanos = System.nanoTime() - start;
+		long observeBytes = threads.getThreadAllocatedBytes(thread) - allocated;
+		long retained = usedMemory() - before;
+
+		SplitCriterion criterion = new InfoGainSplitCriterion();
+		allocated = threads.getThreadAllocatedBytes(thread);
+		start = System.nanoTime();
+		for (int e = 0; e < EVALUATIONS; e++) {
+			sink = observers[e].getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true);
+		}
+		long evaluateNanos = System.nanoTime() - start;
+		long evaluateBytes = threads.getThreadAllocatedBytes(thread) - allocated;
+		sink = observers;
+		return new long[] { observeNanos, observeBytes, evaluateNanos, evaluateBytes, retained };
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,109 @@
+package com.yahoo.labs.samoa.moa.classifiers.core.driftdetection;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * The expected values were recorded with the linked-list implementation of ADWIN
+ * on the same streams.
+ */
+public class ADWINTest {
+
+	@Test
+	public void testAbruptChange() {
+		ADWIN adwin = new ADWIN(0.002);
+		Random random = new Random(1);
+		List<Integer> detections = new ArrayList<>();
+		for (int t = 0; t < 10000; t++) {
+			if (adwin.setInput(random.nextDouble() < (t < 5000 ? 0.2 : 0.6) ? 1 : 0)) {
+				detections.add(t);
+			}
+		}
+		assertEquals(Arrays.asList(5055, 5151, 5407), detections);
+		assertEquals(3, adwin.getNumberDetections());
+		assertEquals(5008, adwin.getWidth());
+		assertEquals(19903, adwin.getBucketsUsed());
+		assertEquals(25348232.0, adwin.getWidthT(), 0.0);
+		assertEquals(0.5990415335463258, adwin.getEstimation(), 0.0);
+		assertEquals(0.24019077463279168, adwin.getVariance(), 0.0);
+	}
+
+	@Test
+	public void testGradualChange() {
+		ADWIN adwin = new ADWIN(0.01);
+		adwin.setClock(1);
+		Random random = new Random(2);
+		List<Integer> detections = new ArrayList<>();
+		for (int t = 0; t < 10000; t++) {
+			double mean = Math.min(1.0, Math.max(0, (t - 4000) / 2000.0));
+			if (adwin.setInput(mean + random.nextGaussian())) {
+				detections.add(t);
+			}
+		}
+		assertEquals(Arrays.asList(4574, 4580, 4581, 4597, 4599, 4783, 4962, 5111, 5132, 5148, 5193, 5195, 5564, 5662,
+				5746, 6011, 6140), detections);
+		assertEquals(4560, adwin.getWidth());
+		assertEquals(19901, adwin.getBucketsUsed());
+		assertEquals(21979592.0, adwin.getWidthT(), 0.0);
+		assertEquals(0.9749238103777143, adwin.getEstimation(), 0.0);
+		assertEquals(0.9920471990821531, adwin.getVariance(), 0.0);
+	}
+
+	@Test
+	public void testStationary() {
+		ADWIN adwin = new ADWIN();
+		Random random = new Random(3);
+		for (int t = 0; t < 100000; t++) {
+			assertFalse(adwin.setInput(random.nextDouble() < 0.3 ? 1 : 0));
+		}
+		assertEquals(0, adwin.getNumberDetections());
+		assertEquals(100000, adwin.getWidth());
+		assertEquals(199935, adwin.getBucketsUsed());
+		assertEquals(5000050000.0, adwin.getWidthT(), 0.0);
+		assertEquals(0.29961, adwin.getEstimation(), 0.0);
+		assertEquals(0.20984384789999808, adwin.getVariance(), 0.0);
+	}
+
+	@Test
+	public void testChangeDetectorClock() {
+		ADWINChangeDetector detector = new ADWINChangeDetector();
+		detector.deltaAdwinOption.setValue(0.01);
+		detector.clockAdwinOption.setValue(1);
+		detector.resetLearning();
+		ADWIN adwin = new ADWIN(0.01);
+		adwin.setClock(1);
+		Random random = new Random(4);
+		for (int t = 0; t < 5000; t++) {
+			double value = random.nextDouble() < (t < 2500 ? 0.1 : 0.4) ? 1 : 0;
+			detector.input(value);
+			assertEquals(adwin.setInput(value), detector.getChange());
+			assertEquals(adwin.getEstimation(), detector.getEstimation(), 0.0);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.yahoo.labs.samoa.moa.clusterers.clustream;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+
+public class KernelIndexTest {
+
+	private static final int DIMENSIONS = 3;
+
+	@Test
+	public void testSameAsLinearScan() {
+		Random random = new Random(1);
+		for (int k : new int[] { 1, 2, 7, 50, 300 }) {
+			ClustreamKernel[] kernels = new ClustreamKernel[k];
+			for (int i = 0; i < k; i++) {
+				kernels[i] = newKernel(random);
+			}
+			KernelIndex index = new KernelIndex(kernels);
+			for (int step = 0; step < 3000; step++) {
+				int action = random.nextInt(4);
+				int slot = random.nextInt(k);
+				if (action == 0) {
+					kernels[slot].insert(newPoint(random), step);
+					index.update(slot);
+				} else if (action == 1) {
+					// some duplicate centers, for the ties
+					kernels[slot] = random.nextBoolean() ? newKernel(random) : new ClustreamKernel(kernels[random.nextInt(k)], 2, 100);
+					index.update(slot);
+				} else if (action == 2) {
+					double[] point = newPoint(random).toDoubleArray();
+					int expected = -1;
+					double minDistance = Double.MAX_VALUE;
+					for (int i = 0; i < k; i++) {
+						double distance = distance(point, kernels[i].getCenter());
+						if (distance < minDistance) {
+							minDistance = distance;
+							expected = i;
+						}
+					}
+					assertEquals(expected, index.nearest(point, 0, -1, Double.MAX_VALUE));
+					assertEquals(minDistance, index.getNearestDistance(), 0.0);
+				} else {
+					int expectedA = -1;
+					int expectedB = -1;
+					double minDistance = Double.MAX_VALUE;
+					for (int i = 0; i < k; i++) {
+						for (int j = i + 1; j < k; j++) {
+							double distance = distance(kernels[i].getCenter(), kernels[j].getCenter());
+							if (distance < minDistance) {
+								minDistance = distance;
+								expectedA = i;
+								expectedB = j;
+							}
+						}
+					}
+					int closest = index.closestPair();
+					assertEquals(expectedA, closest);
+					if (closest >= 0) {
+						assertEquals(expectedB, index.getNeighbour(closest));
+					}
+				}
+			}
+		}
+	}
+
+	private static ClustreamKernel newKernel(Random random) {
+		return new ClustreamKernel(newPoint(random), DIMENSIONS, 0, 2, 100);
+	}
+
+	private static Instance newPoint(Random random) {
+		double[] values = new double[DIMENSIONS];
+		for (int i = 0; i < DIMENSIONS; i++) {
+			values[i] = random.nextInt(20) / 4.0;
+		}
+		return new DenseInstance(1.0, values);
+	}
+
+	private static double distance(double[] pointA, double[] pointB) {
+		double distance = 0.0;
+		for (int i = 0; i < pointA.length; i++) {
+			double d = pointA[i] - pointB[i];
+			distance += d * d;
+		}
+		return Math.sqrt(distance);
+	}
+}
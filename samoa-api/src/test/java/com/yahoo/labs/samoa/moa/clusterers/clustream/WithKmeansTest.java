@@ -0,0 +1,113 @@
+package com.yahoo.labs.samoa.moa.clusterers.clustream;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.moa.cluster.Cluster;
+import com.yahoo.labs.samoa.moa.cluster.Clustering;
+import com.yahoo.labs.samoa.moa.cluster.SphereCluster;
+
+public class WithKmeansTest {
+
+	static final double[][] BLOBS = { { 0, 0 }, { 10, 0 }, { 0, 10 } };
+
+	@Test
+	public void testKernelFromClusterFeatures() {
+		ClustreamKernel kernel = new ClustreamKernel(new DenseInstance(1.0, new double[] { 1, 2 }), 2, 0, 2, 100);
+		kernel.insert(new DenseInstance(1.0, new double[] { 3, 5 }), 1);
+		kernel.insert(new DenseInstance(1.0, new double[] { 2, 2 }), 2);
+
+		ClustreamKernel rebuilt = new ClustreamKernel(kernel.getN(), kernel.LS, kernel.SS);
+		assertEquals(3, rebuilt.getN(), 0);
+		assertArrayEquals(new double[] { 2, 3 }, rebuilt.getCenter(), 1e-12);
+		assertEquals(kernel.getRadius(), rebuilt.getRadius(), 1e-12);
+		// the vectors are copied
+		assertNotSame(kernel.LS, rebuilt.LS);
+		rebuilt.add(kernel);
+		assertEquals(6, kernel.LS[0], 0);
+		assertEquals(12, rebuilt.LS[0], 0);
+	}
+
+	@Test
+	public void testKMeansRandKeepsTheWeight() {
+		Clustering microClusters = newMicroClusters(0);
+		Clustering macroClusters = WithKmeans.kMeans_rand(BLOBS.length, microClusters);
+		assertTrue(macroClusters.size() >= 1 && macroClusters.size() <= BLOBS.length);
+		double weight = 0;
+		for (int i = 0; i < macroClusters.size(); i++) {
+			weight += macroClusters.get(i).getWeight();
+		}
+		assertEquals(totalWeight(microClusters), weight, 1e-9);
+	}
+
+	@Test
+	public void testKMeansWarmStart() {
+		// the previous macro-clusters, a bit off the current micro-clusters
+		Cluster[] previous = new Cluster[BLOBS.length];
+		for (int b = 0; b < BLOBS.length; b++) {
+			previous[b] = new SphereCluster(new double[] { BLOBS[b][0] + 1, BLOBS[b][1] - 1 }, 1);
+		}
+		Clustering macroClusters = WithKmeans.kMeans_gta(BLOBS.length, newMicroClusters(0), new Clustering(previous));
+		assertEquals(BLOBS.length, macroClusters.size());
+		for (int b = 0; b < BLOBS.length; b++) {
+			// the order of the previous macro-clusters is kept
+			assertArrayEquals(BLOBS[b], macroClusters.get(b).getCenter(), 1e-9);
+		}
+
+		// warm-started from its own result, once the micro-clusters have moved
+		Clustering moved = WithKmeans.kMeans_gta(BLOBS.length, newMicroClusters(1), macroClusters);
+		for (int b = 0; b < BLOBS.length; b++) {
+			assertArrayEquals(new double[] { BLOBS[b][0] + 1, BLOBS[b][1] + 1 }, moved.get(b).getCenter(), 1e-9);
+		}
+	}
+
+	/*
+	 * Four micro-clusters around each blob, shifted by the given offset
+	 */
+	static Clustering newMicroClusters(double offset) {
+		Cluster[] clusters = new Cluster[4 * BLOBS.length];
+		int c = 0;
+		for (double[] blob : BLOBS) {
+			for (int i = 0; i < 4; i++) {
+				double x = blob[0] + offset + (i % 2 == 0 ? -0.5 : 0.5);
+				double y = blob[1] + offset + (i / 2 == 0 ? -0.5 : 0.5);
+				clusters[c++] = newKernel(10, x, y);
+			}
+		}
+		return new Clustering(clusters);
+	}
+
+	static ClustreamKernel newKernel(double n, double x, double y) {
+		return new ClustreamKernel(n, new double[] { n * x, n * y }, new double[] { n * x * x + 1, n * y * y + 1 });
+	}
+
+	private static double totalWeight(Clustering clustering) {
+		double weight = 0;
+		for (int i = 0; i < clustering.size(); i++) {
+			weight += clustering.get(i).getWeight();
+		}
+		return weight;
+	}
+}
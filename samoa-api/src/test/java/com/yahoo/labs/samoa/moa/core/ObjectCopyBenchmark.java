@@ -0,0 +1,65 @@
+package com.yahoo.labs.samoa.moa.core;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.yahoo.labs.samoa.moa.AbstractMOAObject;
+import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
+import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
+
+/**
+ * Micro-benchmark of the creation of the attribute class observers of a split
+ * in LocalStatisticsProcessor, which copies a prototype observer per attribute:
+ * time to create the observers of a split with Java serialization copies
+ * (SerializeUtils.copyObject) and with AbstractMOAObject.copy (Kryo).
+ * </p>
+ * Not run by the test suite. Usage: java ObjectCopyBenchmark [numAttributes]
+ */
+public class ObjectCopyBenchmark {
+
+    private static final int ROUNDS = 50;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        int numAttributes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        AbstractMOAObject[] prototypes = { new GaussianNumericAttributeClassObserver(), new NominalAttributeClassObserver() };
+        System.out.println("observer,attributes,serialization ms/split,kryo ms/split");
+        for (AbstractMOAObject prototype : prototypes) {
+            long serializationBest = Long.MAX_VALUE;
+            long kryoBest = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < numAttributes; i++) {
+                    sink = SerializeUtils.copyObject(prototype);
+                }
+                long middle = System.nanoTime();
+                for (int i = 0; i < numAttributes; i++) {
+                    sink = prototype.copy();
+                }
+                long end = System.nanoTime();
+                serializationBest = Math.min(serializationBest, middle - start);
+                kryoBest = Math.min(kryoBest, end - middle);
+            }
+            System.out.println(String.format("%s,%d,%.2f,%.2f", prototype.getClass().getSimpleName(), numAttributes,
+                    serializationBest / 1e6, kryoBest / 1e6));
+        }
+    }
+}
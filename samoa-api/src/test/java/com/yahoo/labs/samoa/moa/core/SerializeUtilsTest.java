@@ -0,0 +1,74 @@
+package com.yahoo.labs.samoa.moa.core;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
+import com.yahoo.labs.samoa.moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
+
+public class SerializeUtilsTest {
+
+    @Test
+    public void testFastCopySameAsSerializationCopy() throws Exception {
+        GaussianNumericAttributeClassObserver numeric = new GaussianNumericAttributeClassObserver();
+        NominalAttributeClassObserver nominal = new NominalAttributeClassObserver();
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            numeric.observeAttributeClass(random.nextGaussian(), random.nextInt(3), 1.0);
+            nominal.observeAttributeClass(random.nextInt(5), random.nextInt(3), 1.0);
+        }
+        for (Serializable obj : new Serializable[] { numeric, nominal, new GaussianNumericAttributeClassObserver() }) {
+            Object copy = SerializeUtils.fastCopyObject(obj);
+            assertNotSame(obj, copy);
+            assertArrayEquals(serialize(SerializeUtils.copyObject(obj)), serialize(copy));
+        }
+
+        // the copy is deep
+        GaussianNumericAttributeClassObserver copy = (GaussianNumericAttributeClassObserver) numeric.copy();
+        double before = numeric.probabilityOfAttributeValueGivenClass(0.5, 1);
+        copy.observeAttributeClass(0.5, 1, 100.0);
+        assertEquals(before, numeric.probabilityOfAttributeValueGivenClass(0.5, 1), 0.0);
+    }
+
+    @Test
+    public void testFastCopyKeepsSharedReferences() {
+        DoubleVector vector = new DoubleVector(new double[] { 1.0, 2.0 });
+        Object[] copy = (Object[]) SerializeUtils.fastCopyObject(new Object[] { vector, vector });
+        assertSame(copy[0], copy[1]);
+        assertNotSame(vector, copy[0]);
+    }
+
+    private static byte[] serialize(Object obj) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(obj);
+        out.close();
+        return bytes.toByteArray();
+    }
+}
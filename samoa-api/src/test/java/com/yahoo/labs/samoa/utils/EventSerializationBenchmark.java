@@ -0,0 +1,160 @@
+package com.yahoo.labs.samoa.utils;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.learners.InstanceContentEvent;
+import com.yahoo.labs.samoa.learners.InstancesContentEvent;
+import com.yahoo.labs.samoa.learners.ResultContentEvent;
+
+/**
+ * Micro-benchmark of the serialization of the events of the data path: size and
+ * time of a round trip (serialization and deserialization) per event, with Java
+ * serialization (the fallback of Storm), with Kryo and its default serializers,
+ * with Kryo and the serializers of {@link KryoRegistry}, and with the same
+ * serializers once the header is published in the {@link InstancesHeaderRegistry}.
+ * </p>
+ * The instances have numAttributes attributes, half of them nominal with 5 values.
+ * Not run by the test suite. Usage: java EventSerializationBenchmark [numAttributes]
+ */
+public class EventSerializationBenchmark {
+
+	private static final int EVENTS = 2000;
+	private static final int ROUNDS = 20;
+
+	private static volatile Object sink;
+
+	public static void main(String[] args) throws Exception {
+		int numAttributes = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		InstancesHeader header = newHeader(numAttributes);
+		Random random = new Random(1);
+		Object[][] eventsByType = new Object[3][EVENTS];
+		for (int i = 0; i < EVENTS; i++) {
+			eventsByType[0][i] = new InstanceContentEvent(i, newInstance(header, random), true, true);
+			InstancesContentEvent batch = new InstancesContentEvent(i, true, true);
+			for (int j = 0; j < 10; j++) {
+				batch.add(newInstance(header, random));
+			}
+			eventsByType[1][i] = batch;
+			eventsByType[2][i] = new ResultContentEvent(i, newInstance(header, random), 1, new double[] { 0.1, 0.2, 0.7 }, false);
+		}
+		String[] names = { "InstanceContentEvent", "InstancesContentEvent(10)", "ResultContentEvent" };
+
+		Kryo defaultKryo = new Kryo();
+		Kryo registryKryo = KryoRegistry.register(new Kryo());
+		System.out.println("event,attributes,java bytes,java ns,kryo bytes,kryo ns,registry bytes,registry ns,published bytes,published ns");
+		for (int type = 0; type < names.length; type++) {
+			Object[] events = eventsByType[type];
+			long[] java = measureJava(events);
+			long[] kryo = measureKryo(defaultKryo, events);
+			long[] registry = measureKryo(registryKryo, events);
+			InstancesHeaderRegistry.publish(header);
+			long[] published = measureKryo(registryKryo, events);
+			InstancesHeaderRegistry.clear();
+			System.out.println(String.format("%s,%d,%d,%d,%d,%d,%d,%d,%d,%d", names[type], numAttributes,
+					java[0], java[1], kryo[0], kryo[1], registry[0], registry[1], published[0], published[1]));
+		}
+	}
+
+	/*
+	 * Bytes per event and best time per event (ns)
+	 */
+	private static long[] measureJava(Object[] events) throws IOException, ClassNotFoundException {
+		long bytes = 0;
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			bytes = 0;
+			long start = System.nanoTime();
+			for (Object event : events) {
+				ByteArrayOutputStream bos = new ByteArrayOutputStream();
+				ObjectOutputStream oos = new ObjectOutputStream(bos);
+				oos.writeObject(event);
+				oos.close();
+				byte[] serialized = bos.toByteArray();
+				bytes += serialized.length;
+				sink = new ObjectInputStream(new ByteArrayInputStream(serialized)).readObject();
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return new long[] { bytes / events.length, best / events.length };
+	}
+
+	private static long[] measureKryo(Kryo kryo, Object[] events) {
+		Output output = new Output(4096, -1);
+		long bytes = 0;
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			bytes = 0;
+			long start = System.nanoTime();
+			for (Object event : events) {
+				output.clear();
+				kryo.writeClassAndObject(output, event);
+				bytes += output.position();
+				sink = kryo.readClassAndObject(new Input(output.getBuffer(), 0, output.position()));
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return new long[] { bytes / events.length, best / events.length };
+	}
+
+	private static InstancesHeader newHeader(int numAttributes) {
+		List<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i < numAttributes - 1; i++) {
+			if (i % 2 == 0) {
+				attributes.add(new Attribute("numeric" + i));
+			} else {
+				attributes.add(new Attribute("nominal" + i, new ArrayList<>(Arrays.asList("v1", "v2", "v3", "v4", "v5"))));
+			}
+		}
+		attributes.add(new Attribute("class", new ArrayList<>(Arrays.asList("A", "B", "C"))));
+		Instances instances = new Instances("benchmark", attributes, 0);
+		instances.setClassIndex(numAttributes - 1);
+		return new InstancesHeader(instances);
+	}
+
+	private static Instance newInstance(InstancesHeader header, Random random) {
+		double[] values = new double[header.numAttributes()];
+		for (int i = 0; i < values.length - 1; i++) {
+			values[i] = i % 2 == 0 ? random.nextGaussian() : random.nextInt(5);
+		}
+		Instance inst = new DenseInstance(1.0, values);
+		inst.setDataset(header);
+		inst.setClassValue(random.nextInt(3));
+		return inst;
+	}
+}
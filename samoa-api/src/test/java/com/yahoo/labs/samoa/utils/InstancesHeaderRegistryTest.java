@@ -0,0 +1,182 @@
+package com.yahoo.labs.samoa.utils;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.learners.InstanceContentEvent;
+
+public class InstancesHeaderRegistryTest {
+
+	private static final int NUM_ATTRIBUTES = 50;
+
+	@After
+	public void tearDown() {
+		InstancesHeaderRegistry.clear();
+	}
+
+	@Test
+	public void testSameIdForSameContent() {
+		long id = InstancesHeaderRegistry.publish(newHeader("relation", NUM_ATTRIBUTES));
+		assertEquals(id, InstancesHeaderRegistry.publish(newHeader("relation", NUM_ATTRIBUTES)));
+		assertEquals(Long.valueOf(id), InstancesHeaderRegistry.idOf(newHeader("relation", NUM_ATTRIBUTES)));
+		assertFalse(id == InstancesHeaderRegistry.publish(newHeader("other", NUM_ATTRIBUTES)));
+		assertFalse(id == InstancesHeaderRegistry.publish(newHeader("relation", NUM_ATTRIBUTES + 1)));
+		assertNull(InstancesHeaderRegistry.idOf(newHeader("relation", NUM_ATTRIBUTES - 1)));
+	}
+
+	@Test
+	public void testMutatedHeaderGetsNewId() {
+		InstancesHeader header = newHeader("relation", NUM_ATTRIBUTES);
+		long id = InstancesHeaderRegistry.publish(header);
+		assertEquals(Long.valueOf(id), InstancesHeaderRegistry.idOf(header));
+
+		// the cached fingerprint of the old content is not used
+		header.setClassIndex(0);
+		assertNull(InstancesHeaderRegistry.idOf(header));
+		long newId = InstancesHeaderRegistry.publish(header);
+		assertFalse(id == newId);
+		assertEquals(Long.valueOf(newId), InstancesHeaderRegistry.idOf(header));
+
+		header.setRelationName("renamed");
+		assertNull(InstancesHeaderRegistry.idOf(header));
+		// an instance of the changed header is written with it, and read with its new content
+		InstanceContentEvent copy = (InstanceContentEvent) deserialize(serialize(
+				new InstanceContentEvent(1, newInstance(header), true, true)));
+		assertEquals("renamed", copy.getInstance().dataset().getRelationName());
+		assertEquals(0, copy.getInstance().classIndex());
+	}
+
+	@Test
+	public void testConcurrentLookups() throws InterruptedException {
+		final InstancesHeader header = newHeader("relation", NUM_ATTRIBUTES);
+		final Long id = InstancesHeaderRegistry.publish(header);
+		final AtomicInteger errors = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						if (!id.equals(InstancesHeaderRegistry.idOf(header))
+								|| InstancesHeaderRegistry.get(id) == null) {
+							errors.incrementAndGet();
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		// headers are published while the lookups run
+		for (int i = 0; i < 100; i++) {
+			InstancesHeaderRegistry.publish(newHeader("relation" + i, 2));
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, errors.get());
+		assertEquals(101, InstancesHeaderRegistry.snapshot().size());
+	}
+
+	@Test
+	public void testPublishedHeaderIsNotWritten() {
+		InstancesHeader header = newHeader("relation", NUM_ATTRIBUTES);
+		InstanceContentEvent event = new InstanceContentEvent(1, newInstance(header), true, true);
+		int inline = serialize(event).length;
+		InstancesHeaderRegistry.publish(header);
+		byte[] bytes = serialize(event);
+		// weight, class value and values, the id of the header and the fields of the event
+		assertTrue(bytes.length < 8 * (NUM_ATTRIBUTES + 3) + 16);
+		assertTrue(bytes.length < inline / 2);
+
+		// the reader re-attaches the header shipped to its node
+		Map<Long, Instances> published = InstancesHeaderRegistry.snapshot();
+		InstancesHeaderRegistry.clear();
+		InstancesHeaderRegistry.publishAll(published);
+		InstanceContentEvent copy = (InstanceContentEvent) deserialize(bytes);
+		Instance inst = copy.getInstance();
+		assertSame(header.instanceInformation(), inst.dataset().instanceInformation());
+		assertEquals(NUM_ATTRIBUTES, inst.numAttributes());
+		assertEquals(event.getInstance().classValue(), inst.classValue(), 0.0);
+		for (int i = 0; i < NUM_ATTRIBUTES; i++) {
+			assertEquals(event.getInstance().value(i), inst.value(i), 0.0);
+		}
+	}
+
+	@Test(expected = KryoException.class)
+	public void testUnknownHeader() {
+		InstancesHeader header = newHeader("relation", NUM_ATTRIBUTES);
+		InstancesHeaderRegistry.publish(header);
+		byte[] bytes = serialize(new InstanceContentEvent(1, newInstance(header), true, true));
+		InstancesHeaderRegistry.clear();
+		deserialize(bytes);
+	}
+
+	private static byte[] serialize(Object object) {
+		Output output = new Output(1024, -1);
+		KryoRegistry.register(new Kryo()).writeClassAndObject(output, object);
+		return output.toBytes();
+	}
+
+	private static Object deserialize(byte[] bytes) {
+		return KryoRegistry.register(new Kryo()).readClassAndObject(new Input(bytes));
+	}
+
+	private static InstancesHeader newHeader(String relationName, int numAttributes) {
+		List<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i < numAttributes - 1; i++) {
+			attributes.add(new Attribute("nominal" + i, Arrays.asList("low", "medium", "high")));
+		}
+		attributes.add(new Attribute("class", Arrays.asList("A", "B")));
+		Instances instances = new Instances(relationName, attributes, 0);
+		instances.setClassIndex(numAttributes - 1);
+		return new InstancesHeader(instances);
+	}
+
+	private static Instance newInstance(InstancesHeader header) {
+		double[] values = new double[header.numAttributes()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i % 3;
+		}
+		Instance inst = new DenseInstance(1.0, values);
+		inst.setDataset(header);
+		inst.setClassValue(1);
+		return inst;
+	}
+}
@@ -0,0 +1,207 @@
+package com.yahoo.labs.samoa.utils;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SingleLabelInstance;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+import com.yahoo.labs.samoa.instances.SparseInstanceData;
+import com.yahoo.labs.samoa.learners.InstanceContentEvent;
+import com.yahoo.labs.samoa.learners.InstancesContentEvent;
+import com.yahoo.labs.samoa.learners.ResultContentEvent;
+
+public class KryoRegistryTest {
+
+	private static final int NUM_ATTRIBUTES = 20;
+
+	@Test
+	public void testInstanceContentEvent() {
+		InstancesHeader header = newHeader();
+		InstanceContentEvent event = new InstanceContentEvent(42, newDenseInstance(header, 1), true, false);
+		event.setClassifierIndex(3);
+		event.setEvaluationIndex(7);
+		event.setLast(true);
+
+		InstanceContentEvent copy = (InstanceContentEvent) roundTrip(newKryo(), event);
+		assertEquals(42, copy.getInstanceIndex());
+		assertEquals(3, copy.getClassifierIndex());
+		assertEquals(7, copy.getEvaluationIndex());
+		assertTrue(copy.isTraining());
+		assertFalse(copy.isTesting());
+		assertTrue(copy.isLastEvent());
+		assertSameInstance(event.getInstance(), copy.getInstance());
+	}
+
+	@Test
+	public void testSparseInstance() {
+		SparseInstance inst = new SparseInstance(2.0, new double[] { 1.5, -3.0, 4.0 }, new int[] { 2, 9, 17 }, NUM_ATTRIBUTES);
+		inst.setDataset(newHeader());
+		inst.setClassValue(1);
+
+		SingleLabelInstance copy = (SingleLabelInstance) roundTrip(newKryo(), inst);
+		assertEquals(SparseInstance.class, copy.getClass());
+		assertTrue(copy.getInstanceData() instanceof SparseInstanceData);
+		assertSameInstance(inst, copy);
+	}
+
+	@Test
+	public void testSparseInstanceContentEvent() {
+		SparseInstance inst = new SparseInstance(1.0, new double[] { 0.5, 2.0 }, new int[] { 4, 11 }, NUM_ATTRIBUTES);
+		inst.setDataset(newHeader());
+		inst.setClassValue(2);
+		InstanceContentEvent event = new InstanceContentEvent(1, inst, true, true);
+		assertSame(inst, event.getInstance());
+
+		InstanceContentEvent copy = (InstanceContentEvent) roundTrip(newKryo(), event);
+		assertEquals(SparseInstance.class, copy.getInstance().getClass());
+		assertSameInstance(inst, copy.getInstance());
+	}
+
+	@Test
+	public void testHeaderWrittenOncePerEvent() {
+		InstancesHeader header = newHeader();
+		Kryo kryo = newKryo();
+		InstancesContentEvent event = new InstancesContentEvent(0, true, true);
+		event.add(newDenseInstance(header, 0));
+		int oneInstance = serialize(kryo, event).length;
+		for (int i = 1; i < 10; i++) {
+			event.add(newDenseInstance(header, i));
+		}
+		byte[] bytes = serialize(kryo, event);
+		// the header is larger than the values of an instance
+		assertTrue(bytes.length - oneInstance < 9 * (oneInstance / 2));
+
+		// each event has its own header: it can be read by another Kryo instance
+		InstancesContentEvent copy = (InstancesContentEvent) deserialize(newKryo(), bytes);
+		Instance[] instances = event.getInstances();
+		Instance[] copies = copy.getInstances();
+		assertEquals(instances.length, copies.length);
+		for (int i = 0; i < instances.length; i++) {
+			assertSameInstance(instances[i], copies[i]);
+		}
+		assertSame(copies[0].dataset().instanceInformation(), copies[9].dataset().instanceInformation());
+	}
+
+	@Test
+	public void testResultContentEvent() {
+		ResultContentEvent event = new ResultContentEvent(5, newDenseInstance(newHeader(), 2), 2, new double[] { 0.25, 0.5, 0.25 }, false);
+		event.setVoteCount(4);
+		event.setEvaluationIndex(1);
+		ResultContentEvent copy = (ResultContentEvent) roundTrip(newKryo(), event);
+		assertEquals(5, copy.getInstanceIndex());
+		assertEquals(2, copy.getClassId());
+		assertEquals(4, copy.getVoteCount());
+		assertEquals(1, copy.getEvaluationIndex());
+		assertFalse(copy.isLastEvent());
+		assertTrue(Arrays.equals(event.getClassVotes(), copy.getClassVotes()));
+		assertSameInstance(event.getInstance(), copy.getInstance());
+
+		ResultContentEvent last = (ResultContentEvent) roundTrip(newKryo(), new ResultContentEvent(true));
+		assertTrue(last.isLastEvent());
+		assertNull(last.getInstance());
+		assertNull(last.getClassVotes());
+	}
+
+	private static Kryo newKryo() {
+		Kryo kryo = new Kryo();
+		// as in Storm
+		kryo.setReferences(false);
+		return KryoRegistry.register(kryo);
+	}
+
+	private static Object roundTrip(Kryo kryo, Object object) {
+		return deserialize(kryo, serialize(kryo, object));
+	}
+
+	private static byte[] serialize(Kryo kryo, Object object) {
+		Output output = new Output(1024, -1);
+		kryo.writeClassAndObject(output, object);
+		return output.toBytes();
+	}
+
+	private static Object deserialize(Kryo kryo, byte[] bytes) {
+		return kryo.readClassAndObject(new Input(bytes));
+	}
+
+	private static InstancesHeader newHeader() {
+		List<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i < NUM_ATTRIBUTES - 1; i++) {
+			if (i % 2 == 0) {
+				attributes.add(new Attribute("numeric" + i));
+			} else {
+				attributes.add(new Attribute("nominal" + i, Arrays.asList("low", "medium", "high")));
+			}
+		}
+		attributes.add(new Attribute("class", Arrays.asList("A", "B", "C")));
+		Instances instances = new Instances("relation", attributes, 0);
+		instances.setClassIndex(NUM_ATTRIBUTES - 1);
+		return new InstancesHeader(instances);
+	}
+
+	private static Instance newDenseInstance(InstancesHeader header, int seed) {
+		double[] values = new double[NUM_ATTRIBUTES];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (seed * 31 + i) % 3 + 0.5 * i;
+		}
+		values[3] = Double.NaN;
+		Instance inst = new DenseInstance(1.0 + seed, values);
+		inst.setDataset(header);
+		inst.setClassValue(seed % 3);
+		return inst;
+	}
+
+	private static void assertSameInstance(Instance expected, Instance actual) {
+		assertEquals(expected.weight(), actual.weight(), 0.0);
+		assertEquals(expected.classValue(), actual.classValue(), 0.0);
+		assertEquals(expected.numValues(), actual.numValues());
+		for (int i = 0; i < expected.numValues(); i++) {
+			assertEquals(expected.index(i), actual.index(i));
+			assertEquals(Double.doubleToLongBits(expected.valueSparse(i)), Double.doubleToLongBits(actual.valueSparse(i)));
+		}
+		Instances expectedHeader = expected.dataset();
+		Instances actualHeader = actual.dataset();
+		assertEquals(expectedHeader.getRelationName(), actualHeader.getRelationName());
+		assertEquals(expectedHeader.classIndex(), actualHeader.classIndex());
+		assertEquals(expectedHeader.numAttributes(), actualHeader.numAttributes());
+		assertEquals(expected.numClasses(), actual.numClasses());
+		for (int i = 0; i < expectedHeader.numAttributes(); i++) {
+			Attribute attribute = expectedHeader.attribute(i);
+			assertEquals(attribute.name(), actualHeader.attribute(i).name());
+			assertEquals(attribute.isNominal(), actualHeader.attribute(i).isNominal());
+			assertEquals(attribute.getAttributeValues(), actualHeader.attribute(i).getAttributeValues());
+		}
+	}
+}
@@ -43,6 +43,9 @@ public class InstanceInformation implements Serializable{
   
   protected int classIndex;
   
+  /** Number of changes made through the setters, to invalidate what is derived from the information. */
+  private transient int modificationCount;
+  
 
  
     public InstanceInformation(InstanceInformation chunk) {
@@ -66,6 +69,7 @@ public class InstanceInformation implements Serializable{
     
     public void setRelationName(String string) {
         this.relationName = string;
+        this.modificationCount++;
     }
 
     public String getRelationName() {
@@ -78,6 +82,7 @@ public class InstanceInformation implements Serializable{
 
     public void setClassIndex(int classIndex) {
         this.classIndex = classIndex;
+        this.modificationCount++;
     }
   
     public Attribute classAttribute() {
@@ -106,6 +111,16 @@ public class InstanceInformation implements Serializable{
 
     public void setAttributes(List<Attribute> v) {
         this.attributes = v;
+        this.modificationCount++;
+    }
+    
+    /**
+     * Gets the number of changes made to this information through its setters. 
+     * Changes made directly to the list of attributes are not counted.
+     * @return the modification count
+     */
+    public int getModificationCount() {
+        return this.modificationCount;
     }
     
     
@@ -200,7 +200,11 @@ public class Instances implements Serializable {
 		instances.set(j, in);
 	}
 
-	private InstanceInformation instanceInformation() {
+	/**
+	 * Gets the information of the instances (relation name, attributes and class
+	 * index), which is shared by the headers built from these instances.
+	 */
+	public InstanceInformation instanceInformation() {
 		return this.instanceInformation;
 	}
 
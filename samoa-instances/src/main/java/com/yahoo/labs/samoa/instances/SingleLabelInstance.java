@@ -228,6 +228,13 @@ public class SingleLabelInstance implements Instance {
 		return inst;
 	}
 
+	/**
+	 * Gets the attribute values of the instance, dense or sparse.
+	 */
+	public InstanceData getInstanceData() {
+		return this.instanceData;
+	}
+
 	@Override
 	public Instances dataset() {
 		return this.instanceInformation;
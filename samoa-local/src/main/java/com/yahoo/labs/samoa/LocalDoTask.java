@@ -20,6 +20,9 @@ package com.yahoo.labs.samoa;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +32,7 @@ import com.github.javacliparser.IntOption;
 import com.github.javacliparser.Option;
 import com.yahoo.labs.samoa.tasks.Task;
 import com.yahoo.labs.samoa.topology.impl.SimpleComponentFactory;
+import com.yahoo.labs.samoa.topology.impl.SimpleDispatchMode;
 import com.yahoo.labs.samoa.topology.impl.SimpleEngine;
 
 /**
@@ -54,9 +58,37 @@ public class LocalDoTask {
      */
     public static void main(String[] args) {
 
-        // ArrayList<String> tmpArgs = new ArrayList<String>(Arrays.asList(args));
+        ArrayList<String> tmpArgs = new ArrayList<String>(Arrays.asList(args));
+
+        // Get the dispatch mode (recursive, fifo or per_pi) and the batch size for per_pi
+        SimpleDispatchMode dispatchMode = SimpleDispatchMode.RECURSIVE;
+        int batchSize = 1;
+        for (int i = 0; i < tmpArgs.size() - 1; i++) {
+            if (tmpArgs.get(i).equals("-dispatch")) {
+                try {
+                    dispatchMode = SimpleDispatchMode.fromString(tmpArgs.get(i + 1));
+                    tmpArgs.remove(i + 1);
+                    tmpArgs.remove(i);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Invalid dispatch mode (recursive, fifo or per_pi).");
+                }
+            }
+        }
+        for (int i = 0; i < tmpArgs.size() - 1; i++) {
+            if (tmpArgs.get(i).equals("-batch")) {
+                try {
+                    batchSize = Integer.parseInt(tmpArgs.get(i + 1));
+                    tmpArgs.remove(i + 1);
+                    tmpArgs.remove(i);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid batch size.");
+                }
+            }
+        }
+        logger.info("Dispatch mode:{}, batch size:{}", dispatchMode, batchSize);
+        SimpleEngine.setDispatchMode(dispatchMode, batchSize);
 
-        // args = tmpArgs.toArray(new String[0]);
+        args = tmpArgs.toArray(new String[0]);
 
         FlagOption suppressStatusOutOpt = new FlagOption("suppressStatusOut", 'S', SUPPRESS_STATUS_OUT_MSG);
 
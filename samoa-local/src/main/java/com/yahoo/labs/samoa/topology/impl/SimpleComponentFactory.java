@@ -31,6 +31,15 @@ import com.yahoo.labs.samoa.topology.Topology;
 
 public class SimpleComponentFactory implements ComponentFactory {
 
+    // Shared by all the streams of the topology, null in the recursive dispatch mode
+    private final SimpleEventQueue eventQueue;
+
+    public SimpleComponentFactory() {
+        SimpleDispatchMode mode = SimpleEngine.getDispatchMode();
+        this.eventQueue = (mode == SimpleDispatchMode.RECURSIVE) ? null
+                : new SimpleEventQueue(mode, SimpleEngine.getBatchSize());
+    }
+
     public ProcessingItem createPi(Processor processor, int paralellism) {
         return new SimpleProcessingItem(processor, paralellism);
     }
@@ -44,7 +53,9 @@ public class SimpleComponentFactory implements ComponentFactory {
     }
 
     public Stream createStream(IProcessingItem sourcePi) {
-        return new SimpleStream(sourcePi);
+        SimpleStream stream = new SimpleStream(sourcePi);
+        stream.setEventQueue(eventQueue);
+        return stream;
     }
 
     public Topology createTopology(String topoName) {
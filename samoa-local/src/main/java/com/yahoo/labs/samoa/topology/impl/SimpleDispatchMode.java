@@ -0,0 +1,41 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * How SimpleEngine delivers the events put on a stream to the destination PIs.
+ * RECURSIVE calls the destination processor directly from SimpleStream.put, so an
+ * event traverses the whole topology on the stack of the entrance PI. FIFO appends
+ * the events to one queue which is drained in order, and PER_PI keeps one queue per
+ * PI and processes up to a batch of events of one PI before moving to the next one.
+ * In all modes the events caused by one source event are processed before the next
+ * source event is read.
+ */
+public enum SimpleDispatchMode {
+    RECURSIVE, FIFO, PER_PI;
+
+    /**
+     * Parse a mode name from the command line (case-insensitive).
+     */
+    public static SimpleDispatchMode fromString(String name) {
+        return SimpleDispatchMode.valueOf(name.trim().toUpperCase());
+    }
+}
@@ -28,6 +28,31 @@ import com.yahoo.labs.samoa.topology.Topology;
 
 public class SimpleEngine {
 
+    private static SimpleDispatchMode dispatchMode = SimpleDispatchMode.RECURSIVE;
+    private static int batchSize = 1;
+
+    /**
+     * Set how events are delivered to the PIs of the topologies created afterwards
+     * by a SimpleComponentFactory.
+     * @param mode the dispatch mode (RECURSIVE by default)
+     * @param batchSize number of consecutive events of one PI processed before moving
+     *            to the next PI in the PER_PI mode
+     */
+    public static void setDispatchMode(SimpleDispatchMode mode, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be a positive integer.");
+        SimpleEngine.dispatchMode = mode;
+        SimpleEngine.batchSize = batchSize;
+    }
+
+    public static SimpleDispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    public static int getBatchSize() {
+        return batchSize;
+    }
+
     public static void submitTopology(Topology topology) {
         SimpleTopology simpleTopology = (SimpleTopology) topology;
         simpleTopology.run();
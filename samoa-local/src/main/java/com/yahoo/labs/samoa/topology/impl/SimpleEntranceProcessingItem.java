@@ -28,6 +28,7 @@ class SimpleEntranceProcessingItem extends LocalEntranceProcessingItem {
         super(processor);
     }
     
-    // The default waiting time when there is no available events is 100ms
+    // When there is no available event, the PI waits until a SignallingEntranceProcessor
+    // is ready, or for 100ms for other processors
     // Override waitForNewEvents() to change it
 }
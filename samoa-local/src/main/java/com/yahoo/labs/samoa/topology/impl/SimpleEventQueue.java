@@ -0,0 +1,196 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+
+/**
+ * Event queue used by SimpleEngine in the FIFO and PER_PI dispatch modes.
+ * The first put on a stream (normally from the entrance PI) drains the queue,
+ * while the puts done by the processors during the drain only enqueue events,
+ * so the depth of the stack no longer depends on the length of the path (or the
+ * feedback loops) of the topology.
+ * </p>
+ * Not thread-safe: the simple engine runs the whole topology on one thread.
+ */
+class SimpleEventQueue {
+
+    private final SimpleDispatchMode mode;
+    private final int batchSize;
+
+    // FIFO mode: all pending events
+    private final EventRing events = new EventRing();
+    // PER_PI mode: PIs having pending events, in the order they were scheduled
+    private final ArrayDeque<SimpleProcessingItem> readyPis = new ArrayDeque<SimpleProcessingItem>();
+
+    private boolean draining;
+    private int maxPending;
+
+    SimpleEventQueue(SimpleDispatchMode mode, int batchSize) {
+        if (mode == SimpleDispatchMode.RECURSIVE)
+            throw new IllegalArgumentException("The recursive mode does not use an event queue.");
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be a positive integer.");
+        this.mode = mode;
+        this.batchSize = batchSize;
+    }
+
+    SimpleDispatchMode getMode() {
+        return mode;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the largest number of events which were waiting in the queue(s) at the same time
+     */
+    int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * Enqueue an event for one replica of a PI, and drain the queue unless
+     * it is already being drained further down the stack.
+     */
+    void dispatch(SimpleProcessingItem pi, ContentEvent event, int replica) {
+        int pending;
+        if (mode == SimpleDispatchMode.FIFO) {
+            events.add(pi, event, replica);
+            pending = events.size();
+        }
+        else {
+            EventRing piEvents = pi.getPendingEvents();
+            piEvents.add(pi, event, replica);
+            pending = piEvents.size();
+            if (!pi.isScheduled()) {
+                pi.setScheduled(true);
+                readyPis.add(pi);
+            }
+        }
+        if (pending > maxPending) maxPending = pending;
+        if (!draining) drain();
+    }
+
+    private void drain() {
+        draining = true;
+        try {
+            if (mode == SimpleDispatchMode.FIFO) {
+                while (!events.isEmpty()) {
+                    SimpleProcessingItem pi = events.headPi();
+                    ContentEvent event = events.headEvent();
+                    int replica = events.headReplica();
+                    events.remove();
+                    pi.processEvent(event, replica);
+                }
+            }
+            else {
+                SimpleProcessingItem pi;
+                while ((pi = readyPis.poll()) != null) {
+                    EventRing piEvents = pi.getPendingEvents();
+                    for (int i = 0; i < batchSize && !piEvents.isEmpty(); i++) {
+                        ContentEvent event = piEvents.headEvent();
+                        int replica = piEvents.headReplica();
+                        piEvents.remove();
+                        pi.processEvent(event, replica);
+                    }
+                    // Events sent by the PI to itself are in its queue too
+                    if (piEvents.isEmpty())
+                        pi.setScheduled(false);
+                    else
+                        readyPis.add(pi);
+                }
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    /**
+     * Growable circular buffer of (PI, event, replica index) entries,
+     * stored in parallel arrays so that queuing an event does not allocate.
+     */
+    static class EventRing {
+        private SimpleProcessingItem[] pis = new SimpleProcessingItem[16];
+        private ContentEvent[] events = new ContentEvent[16];
+        private int[] replicas = new int[16];
+        private int head; // index of the first entry
+        private int size;
+
+        void add(SimpleProcessingItem pi, ContentEvent event, int replica) {
+            if (size == events.length) grow();
+            int index = (head + size) & (events.length - 1);
+            pis[index] = pi;
+            events[index] = event;
+            replicas[index] = replica;
+            size++;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        SimpleProcessingItem headPi() {
+            return pis[head];
+        }
+
+        ContentEvent headEvent() {
+            return events[head];
+        }
+
+        int headReplica() {
+            return replicas[head];
+        }
+
+        void remove() {
+            pis[head] = null;
+            events[head] = null;
+            head = (head + 1) & (events.length - 1);
+            size--;
+        }
+
+        private void grow() {
+            int capacity = events.length;
+            SimpleProcessingItem[] newPis = new SimpleProcessingItem[capacity << 1];
+            ContentEvent[] newEvents = new ContentEvent[capacity << 1];
+            int[] newReplicas = new int[capacity << 1];
+            // unwrap the ring: [head, capacity) then [0, head)
+            int firstPart = capacity - head;
+            System.arraycopy(pis, head, newPis, 0, firstPart);
+            System.arraycopy(pis, 0, newPis, firstPart, head);
+            System.arraycopy(events, head, newEvents, 0, firstPart);
+            System.arraycopy(events, 0, newEvents, firstPart, head);
+            System.arraycopy(replicas, head, newReplicas, 0, firstPart);
+            System.arraycopy(replicas, 0, newReplicas, firstPart, head);
+            pis = newPis;
+            events = newEvents;
+            replicas = newReplicas;
+            head = 0;
+        }
+    }
+}
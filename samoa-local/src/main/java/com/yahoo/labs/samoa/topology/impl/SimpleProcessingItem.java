@@ -40,6 +40,10 @@ import com.yahoo.labs.samoa.utils.StreamDestination;
 class SimpleProcessingItem extends AbstractProcessingItem {
     private IProcessingItem[] arrayProcessingItem;
 
+    // Pending events of this PI in the PER_PI dispatch mode (see SimpleEventQueue)
+    private SimpleEventQueue.EventRing pendingEvents;
+    private boolean scheduled;
+
     SimpleProcessingItem(Processor processor) {
         super(processor);
     }
@@ -60,6 +64,19 @@ class SimpleProcessingItem extends AbstractProcessingItem {
 		return this;
 	}
 
+    SimpleEventQueue.EventRing getPendingEvents() {
+        if (pendingEvents == null) pendingEvents = new SimpleEventQueue.EventRing();
+        return pendingEvents;
+    }
+
+    boolean isScheduled() {
+        return scheduled;
+    }
+
+    void setScheduled(boolean scheduled) {
+        this.scheduled = scheduled;
+    }
+
     public SimpleProcessingItem copy() {
     	Processor processor = this.getProcessor();
         return new SimpleProcessingItem(processor.newProcessor(processor));
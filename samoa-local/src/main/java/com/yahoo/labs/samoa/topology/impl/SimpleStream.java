@@ -27,10 +27,10 @@ package com.yahoo.labs.samoa.topology.impl;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.topology.AbstractStream;
 import com.yahoo.labs.samoa.topology.IProcessingItem;
+import com.yahoo.labs.samoa.utils.PartitioningScheme;
 import com.yahoo.labs.samoa.utils.StreamDestination;
 
 /**
@@ -41,6 +41,12 @@ class SimpleStream extends AbstractStream {
     private List<StreamDestination> destinations;
     private int maxCounter;
     private int eventCounter;
+    // null in the recursive dispatch mode
+    private SimpleEventQueue eventQueue;
+
+    // Destinations flattened into arrays. Built on the first put after
+    // a destination was added (i.e. after the topology is set up).
+    private Routes routes;
 
     SimpleStream(IProcessingItem sourcePi) {
     	super(sourcePi);
@@ -49,6 +55,10 @@ class SimpleStream extends AbstractStream {
     	this.maxCounter = 1;
     }
 
+    void setEventQueue(SimpleEventQueue eventQueue) {
+    	this.eventQueue = eventQueue;
+    }
+
     private int getNextCounter() {
     	if (maxCounter > 0 && eventCounter >= maxCounter) eventCounter = 0;
     	this.eventCounter++;
@@ -61,33 +71,63 @@ class SimpleStream extends AbstractStream {
     }
     
     private void put(ContentEvent event, int counter) {
+    	if (routes == null) routes = new Routes(destinations);
+    	Routes r = this.routes;
     	SimpleProcessingItem pi;
         int parallelism;
-        for (StreamDestination destination:destinations) {
-            pi = (SimpleProcessingItem) destination.getProcessingItem();
-            parallelism = destination.getParallelism();
-            switch (destination.getPartitioningScheme()) {
+        for (int i = 0; i < r.pis.length; i++) {
+            pi = r.pis[i];
+            parallelism = r.parallelisms[i];
+            switch (r.schemes[i]) {
             case SHUFFLE:
-                pi.processEvent(event, counter % parallelism);
+                deliver(pi, event, counter % parallelism);
                 break;
             case GROUP_BY_KEY:
-                HashCodeBuilder hb = new HashCodeBuilder();
-                hb.append(event.getKey());
-                int key = hb.build() % parallelism;
-                pi.processEvent(event, key);
+                deliver(pi, event, StreamDestination.getPIIndexForEvent(event, parallelism));
                 break;
             case BROADCAST:
                 for (int p = 0; p < parallelism; p++) {
-                    pi.processEvent(event, p);
+                    deliver(pi, event, p);
                 }
                 break;
             }
         }
     }
 
+    private void deliver(SimpleProcessingItem pi, ContentEvent event, int replica) {
+    	if (eventQueue == null)
+    		pi.processEvent(event, replica);
+    	else
+    		eventQueue.dispatch(pi, event, replica);
+    }
+
     public void addDestination(StreamDestination destination) {
         this.destinations.add(destination);
         if (maxCounter <= 0) maxCounter = 1;
         maxCounter *= destination.getParallelism();
+        this.routes = null;
+    }
+
+    /*
+     * Immutable snapshot of the destinations of a stream
+     */
+    private static final class Routes {
+    	final SimpleProcessingItem[] pis;
+    	final int[] parallelisms;
+    	final PartitioningScheme[] schemes;
+
+    	Routes(List<StreamDestination> destinations) {
+    		int size = destinations.size();
+    		pis = new SimpleProcessingItem[size];
+    		parallelisms = new int[size];
+    		schemes = new PartitioningScheme[size];
+    		int i = 0;
+    		for (StreamDestination destination:destinations) {
+    			pis[i] = (SimpleProcessingItem) destination.getProcessingItem();
+    			parallelisms[i] = destination.getParallelism();
+    			schemes[i] = destination.getPartitioningScheme();
+    			i++;
+    		}
+    	}
     }
 }
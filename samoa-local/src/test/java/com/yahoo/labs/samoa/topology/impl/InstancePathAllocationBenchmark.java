@@ -0,0 +1,76 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import com.github.javacliparser.ClassOption;
+import com.yahoo.labs.samoa.tasks.Task;
+
+/**
+ * Benchmark of the allocations on the path of the instances in the local engine:
+ * runs PrequentialEvaluation (source, learner, evaluator) in the recursive
+ * dispatch mode, where the whole topology runs in the thread which submits it,
+ * and prints the bytes allocated by this thread per instance and the throughput.
+ * </p>
+ * Not run by the test suite. Usage: java InstancePathAllocationBenchmark [instances]
+ */
+public class InstancePathAllocationBenchmark {
+
+	private static final String[] LEARNERS = {
+			"(classifiers.SingleClassifier -l com.yahoo.labs.samoa.learners.classifiers.NaiveBayes) "
+					+ "-s (com.yahoo.labs.samoa.moa.streams.generators.HyperplaneGenerator -c 2 -a 100)",
+			"(com.yahoo.labs.samoa.learners.classifiers.ensemble.Bagging) "
+					+ "-s (com.yahoo.labs.samoa.moa.streams.generators.RandomTreeGenerator -c 2 -o 0 -u 10)" };
+	private static final String[] NAMES = { "NaiveBayes", "Bagging" };
+
+	public static void main(String[] args) throws Exception {
+		int instances = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		SimpleEngine.setDispatchMode(SimpleDispatchMode.RECURSIVE, 1);
+		System.out.println("learner,bytes/instance,instances/sec");
+		for (int i = 0; i < LEARNERS.length; i++) {
+			run(LEARNERS[i], instances / 10); // warm-up
+			long[] result = run(LEARNERS[i], instances);
+			System.out.println(String.format("%s,%d,%.0f", NAMES[i], result[0] / instances, instances * 1e9 / result[1]));
+		}
+	}
+
+	/*
+	 * Bytes allocated by the current thread and elapsed time (ns)
+	 */
+	private static long[] run(String learner, int instances) throws Exception {
+		File dumpFile = File.createTempFile("samoa-benchmark", ".csv");
+		dumpFile.deleteOnExit();
+		String cli = String.format("PrequentialEvaluation -d %s -i %d -f %d -l %s", dumpFile.getAbsolutePath(),
+				instances, instances, learner);
+		Task task = ClassOption.cliStringToObject(cli, Task.class, null);
+		task.setFactory(new SimpleComponentFactory());
+		task.init();
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		SimpleEngine.submitTopology(task.getTopology());
+		long elapsed = System.nanoTime() - start;
+		return new long[] { threads.getThreadAllocatedBytes(thread) - allocated, elapsed };
+	}
+}
@@ -0,0 +1,66 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+
+import com.github.javacliparser.ClassOption;
+import com.yahoo.labs.samoa.tasks.Task;
+
+/**
+ * Benchmark of the dispatch modes of SimpleEngine: runs PrequentialEvaluation
+ * with VerticalHoeffdingTree (which has a feedback loop between the local statistics
+ * and the model aggregator) once per mode and prints the throughput.
+ * </p>
+ * Not run by the test suite. Usage: java SimpleEngineBenchmark [instances] [batchSize]
+ */
+public class SimpleEngineBenchmark {
+
+	private static final String CLI_TEMPLATE = "PrequentialEvaluation -d %s -i %d -f %d "
+			+ "-l (com.yahoo.labs.samoa.learners.classifiers.trees.VerticalHoeffdingTree -p 4) "
+			+ "-s (com.yahoo.labs.samoa.moa.streams.generators.RandomTreeGenerator -c 2 -o 10 -u 10)";
+
+	public static void main(String[] args) throws Exception {
+		int instances = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		System.out.println("mode,batch,instances/sec");
+		for (SimpleDispatchMode mode : SimpleDispatchMode.values()) {
+			int batch = (mode == SimpleDispatchMode.PER_PI) ? batchSize : 1;
+			run(mode, batch, instances / 10); // warm-up
+			double throughput = run(mode, batch, instances);
+			System.out.println(String.format("%s,%d,%.0f", mode, batch, throughput));
+		}
+	}
+
+	private static double run(SimpleDispatchMode mode, int batchSize, int instances) throws Exception {
+		File dumpFile = File.createTempFile("samoa-benchmark", ".csv");
+		dumpFile.deleteOnExit();
+		String cli = String.format(CLI_TEMPLATE, dumpFile.getAbsolutePath(), instances, instances);
+		Task task = ClassOption.cliStringToObject(cli, Task.class, null);
+		SimpleEngine.setDispatchMode(mode, batchSize);
+		task.setFactory(new SimpleComponentFactory());
+		task.init();
+		long start = System.nanoTime();
+		SimpleEngine.submitTopology(task.getTopology());
+		long elapsed = System.nanoTime() - start;
+		return instances * 1e9 / elapsed;
+	}
+}
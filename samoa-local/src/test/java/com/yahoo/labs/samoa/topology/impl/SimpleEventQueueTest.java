@@ -0,0 +1,147 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.topology.Stream;
+
+public class SimpleEventQueueTest {
+
+	private static class TestEvent implements ContentEvent {
+		private static final long serialVersionUID = 1L;
+		final int sequence;
+		TestEvent(int sequence) {
+			this.sequence = sequence;
+		}
+		@Override public String getKey() { return null; }
+		@Override public void setKey(String key) { }
+		@Override public boolean isLastEvent() { return false; }
+	}
+
+	/*
+	 * Logs the events it receives, and forwards them to its output streams
+	 * (all replicas share the same processor)
+	 */
+	private static class ForwardingProcessor implements Processor {
+		private static final long serialVersionUID = 1L;
+		final String name;
+		final List<String> log;
+		final List<Stream> outputs = new ArrayList<Stream>();
+		int fanOut = 1;
+		int maxSequence = 0;
+		ForwardingProcessor(String name, List<String> log) {
+			this.name = name;
+			this.log = log;
+		}
+		@Override
+		public boolean process(ContentEvent event) {
+			TestEvent e = (TestEvent) event;
+			log.add(name + e.sequence);
+			if (e.sequence < maxSequence) {
+				for (int i = 0; i < fanOut; i++) {
+					for (Stream output : outputs) {
+						output.put(new TestEvent(e.sequence + 1 + i));
+					}
+				}
+			}
+			return true;
+		}
+		@Override public void onCreate(int id) { }
+		@Override public Processor newProcessor(Processor p) { return p; }
+	}
+
+	private static SimpleStream createStream(SimpleProcessingItem source, SimpleEventQueue queue) {
+		SimpleStream stream = new SimpleStream(source);
+		stream.setEventQueue(queue);
+		return stream;
+	}
+
+	@Test
+	public void testSelfLoopDoesNotRecurse() {
+		final int numEvents = 200000;
+		List<String> log = new ArrayList<String>();
+		SimpleEventQueue queue = new SimpleEventQueue(SimpleDispatchMode.FIFO, 1);
+		ForwardingProcessor processor = new ForwardingProcessor("a", log) {
+			private static final long serialVersionUID = 1L;
+			int depth = Thread.currentThread().getStackTrace().length;
+			@Override
+			public boolean process(ContentEvent event) {
+				assertTrue("Events are processed recursively.", Thread.currentThread().getStackTrace().length < depth + 20);
+				return super.process(event);
+			}
+		};
+		processor.maxSequence = numEvents - 1;
+		SimpleProcessingItem pi = new SimpleProcessingItem(processor, 1);
+		SimpleStream loop = createStream(pi, queue);
+		pi.connectInputShuffleStream(loop);
+		processor.outputs.add(loop);
+
+		loop.put(new TestEvent(0));
+		assertEquals(numEvents, log.size());
+		assertEquals("a" + (numEvents - 1), log.get(numEvents - 1));
+		assertEquals(1, queue.getMaxPending());
+	}
+
+	@Test
+	public void testFifoOrder() {
+		List<String> log = runFanOut(SimpleDispatchMode.FIFO, 1);
+		assertEquals("[a0, b1, c1, b2, c2, b3, c3, b4, c4]", log.toString());
+	}
+
+	@Test
+	public void testPerPiBatches() {
+		List<String> log = runFanOut(SimpleDispatchMode.PER_PI, 2);
+		assertEquals("[a0, b1, b2, c1, c2, b3, b4, c3, c4]", log.toString());
+	}
+
+	/*
+	 * a sends 4 events to b and 4 events to c, interleaved
+	 */
+	private List<String> runFanOut(SimpleDispatchMode mode, int batchSize) {
+		List<String> log = new ArrayList<String>();
+		SimpleEventQueue queue = new SimpleEventQueue(mode, batchSize);
+		ForwardingProcessor a = new ForwardingProcessor("a", log);
+		a.maxSequence = 1;
+		a.fanOut = 4;
+		SimpleProcessingItem piA = new SimpleProcessingItem(a, 1);
+		SimpleProcessingItem piB = new SimpleProcessingItem(new ForwardingProcessor("b", log), 1);
+		SimpleProcessingItem piC = new SimpleProcessingItem(new ForwardingProcessor("c", log), 1);
+		SimpleStream input = createStream(null, queue);
+		SimpleStream toB = createStream(piA, queue);
+		SimpleStream toC = createStream(piA, queue);
+		piA.connectInputShuffleStream(input);
+		piB.connectInputShuffleStream(toB);
+		piC.connectInputShuffleStream(toC);
+		a.outputs.add(toB);
+		a.outputs.add(toC);
+
+		input.put(new TestEvent(0));
+		return log;
+	}
+}
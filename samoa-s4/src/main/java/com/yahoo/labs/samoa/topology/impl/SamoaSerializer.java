@@ -29,8 +29,7 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
-import com.yahoo.labs.samoa.learners.classifiers.trees.AttributeContentEvent;
-import com.yahoo.labs.samoa.learners.classifiers.trees.ComputeContentEvent;
+import com.yahoo.labs.samoa.utils.KryoRegistry;
 
 public class SamoaSerializer implements SerializerDeserializer{
 
@@ -58,8 +57,7 @@ public class SamoaSerializer implements SerializerDeserializer{
             protected Kryo initialValue() {
                 Kryo kryo = new Kryo();
                 kryo.setClassLoader(classLoader);
-                kryo.register(AttributeContentEvent.class, new AttributeContentEvent.AttributeCEFullPrecSerializer());
-                kryo.register(ComputeContentEvent.class, new ComputeContentEvent.ComputeCEFullPrecSerializer());
+                KryoRegistry.register(kryo);
                 kryo.setRegistrationRequired(false);
                 return kryo;
             }
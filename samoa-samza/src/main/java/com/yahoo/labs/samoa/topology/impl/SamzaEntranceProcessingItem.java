@@ -21,6 +21,7 @@ package com.yahoo.labs.samoa.topology.impl;
  */
 
 import java.io.Serializable;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.samza.Partition;
@@ -38,8 +39,10 @@ import org.slf4j.LoggerFactory;
 
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.EntranceProcessor;
+import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.topology.AbstractEntranceProcessingItem;
 import com.yahoo.labs.samoa.topology.Stream;
+import com.yahoo.labs.samoa.utils.InstancesHeaderRegistry;
 import com.yahoo.labs.samoa.utils.SamzaConfigFactory;
 import com.yahoo.labs.samoa.utils.SystemsUtils;
 
@@ -93,11 +96,14 @@ public class SamzaEntranceProcessingItem extends AbstractEntranceProcessingItem
 		private EntranceProcessor processor;
 		private SamzaStream outputStream;
 		private String name;
+		// headers published by the task, for the instance serializers of the task
+		private Map<Long, Instances> headers;
 		
 		public SerializationProxy(SamzaEntranceProcessingItem epi) {
 			this.processor = epi.getProcessor();
 			this.outputStream = (SamzaStream)epi.getOutputStream();
 			this.name = epi.getName();
+			this.headers = InstancesHeaderRegistry.snapshot();
 		}
 	}
 	
@@ -116,6 +122,7 @@ public class SamzaEntranceProcessingItem extends AbstractEntranceProcessingItem
 		
 		this.setName(config.get(SamzaConfigFactory.JOB_NAME_KEY));
 		SerializationProxy wrapper = (SerializationProxy) SystemsUtils.deserializeObjectFromFileAndKey(filesystem, filename, this.getName());
+		InstancesHeaderRegistry.publishAll(wrapper.headers);
 		this.setOutputStream(wrapper.outputStream);
 		SamzaStream output = (SamzaStream)this.getOutputStream();
 		if (output != null) // if output stream exists, set it up
@@ -165,6 +172,7 @@ public class SamzaEntranceProcessingItem extends AbstractEntranceProcessingItem
 			String filesystem = config.get(SamzaConfigFactory.FILESYSTEM_KEY);
 			String name = config.get(SamzaConfigFactory.JOB_NAME_KEY);
 			SerializationProxy wrapper = (SerializationProxy) SystemsUtils.deserializeObjectFromFileAndKey(filesystem, filename, name);
+			InstancesHeaderRegistry.publishAll(wrapper.headers);
 			
 			this.entranceProcessor = wrapper.processor;
 			this.entranceProcessor.onCreate(0);
@@ -24,14 +24,17 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.topology.AbstractProcessingItem;
 import com.yahoo.labs.samoa.topology.ProcessingItem;
 import com.yahoo.labs.samoa.topology.Stream;
 import com.yahoo.labs.samoa.topology.impl.SamzaStream.SamzaSystemStream;
+import com.yahoo.labs.samoa.utils.InstancesHeaderRegistry;
 import com.yahoo.labs.samoa.utils.PartitioningScheme;
 import com.yahoo.labs.samoa.utils.SamzaConfigFactory;
 import com.yahoo.labs.samoa.utils.SystemsUtils;
@@ -121,6 +124,7 @@ public class SamzaProcessingItem extends AbstractProcessingItem
 		String filesystem = config.get(SamzaConfigFactory.FILESYSTEM_KEY);
 		this.setName(config.get(SamzaConfigFactory.JOB_NAME_KEY));
 		SerializationProxy wrapper = (SerializationProxy) SystemsUtils.deserializeObjectFromFileAndKey(filesystem, filename, this.getName());
+		InstancesHeaderRegistry.publishAll(wrapper.headers);
 		this.setProcessor(wrapper.processor);
 		this.outputStreams = wrapper.outputStreams;
 		
@@ -155,10 +159,13 @@ public class SamzaProcessingItem extends AbstractProcessingItem
 		
 		private Processor processor;
 		private List<SamzaStream> outputStreams;
+		// headers published by the task, for the instance serializers of the task
+		private Map<Long, Instances> headers;
 		
 		public SerializationProxy(SamzaProcessingItem pi) {
 			this.processor = pi.getProcessor();
 			this.outputStreams = pi.getOutputStreams();
+			this.headers = InstancesHeaderRegistry.snapshot();
 		}
 	}
 
@@ -50,6 +50,7 @@ public class SamzaKryoSerdeFactory<T> implements SerdeFactory<T> {
 		
 		public SamzaKryoSerde (String registrationInfo) {
 			this.kryo = new Kryo();
+			KryoRegistry.register(kryo);
 			this.register(registrationInfo);
 		}
 		
@@ -29,6 +29,7 @@ import org.slf4j.LoggerFactory;
 import backtype.storm.Config;
 import backtype.storm.utils.Utils;
 
+import com.yahoo.labs.samoa.topology.impl.StormKryoDecorator;
 import com.yahoo.labs.samoa.topology.impl.StormSamoaUtils;
 import com.yahoo.labs.samoa.topology.impl.StormTopology;
 
@@ -62,6 +63,7 @@ public class LocalStormDoTask {
         Config conf = new Config();
         //conf.putAll(Utils.readStormConfig());
         conf.setDebug(false);
+        conf.registerDecorator(StormKryoDecorator.class);
 
         //local mode
         conf.setMaxTaskParallelism(numWorker);
@@ -62,6 +62,7 @@ public class StormDoTask {
     	Config conf = new Config();
     	conf.putAll(Utils.readStormConfig());
     	conf.setDebug(false);
+    	conf.registerDecorator(StormKryoDecorator.class);
     			
     	
 		if(isLocal){
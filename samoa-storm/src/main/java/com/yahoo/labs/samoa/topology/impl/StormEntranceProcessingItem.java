@@ -20,6 +20,8 @@ package com.yahoo.labs.samoa.topology.impl;
  * #L%
  */
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.Map;
 import java.util.UUID;
 
@@ -33,9 +35,11 @@ import backtype.storm.utils.Utils;
 
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.EntranceProcessor;
+import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.topology.AbstractEntranceProcessingItem;
 import com.yahoo.labs.samoa.topology.EntranceProcessingItem;
 import com.yahoo.labs.samoa.topology.Stream;
+import com.yahoo.labs.samoa.utils.InstancesHeaderRegistry;
 
 /**
  * EntranceProcessingItem implementation for Storm.
@@ -97,6 +101,8 @@ class StormEntranceProcessingItem extends AbstractEntranceProcessingItem impleme
         // private final Set<StormSpoutStream> streams;
         private final EntranceProcessor entranceProcessor;
         private StormStream outputStream;
+        // headers published by the task, for the instance serializers of the worker
+        private Map<Long, Instances> headers;
 
         // private transient SpoutStarter spoutStarter;
         // private transient Executor spoutExecutors;
@@ -120,6 +126,9 @@ class StormEntranceProcessingItem extends AbstractEntranceProcessingItem impleme
         @Override
         public void open(@SuppressWarnings("rawtypes") Map conf, TopologyContext context, SpoutOutputCollector collector) {
             this.collector = collector;
+            if (headers != null) {
+                InstancesHeaderRegistry.publishAll(headers);
+            }
             // this.tupleInfoQueue = new LinkedBlockingQueue<StormTupleInfo>();
 
             // Processor and this class share the same instance of stream
@@ -172,6 +181,11 @@ class StormEntranceProcessingItem extends AbstractEntranceProcessingItem impleme
             return new Values(contentEvent, contentEvent.getKey());
         }
 
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            this.headers = InstancesHeaderRegistry.snapshot();
+            out.defaultWriteObject();
+        }
+
         // private final static class StormTupleInfo {
         //
         // private final StormStream stream;
@@ -0,0 +1,39 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import backtype.storm.serialization.IKryoDecorator;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.yahoo.labs.samoa.utils.KryoRegistry;
+
+/**
+ * Kryo decorator which registers the SAMOA events and instances with the Kryo
+ * instances of Storm (see {@link KryoRegistry}). Without it, Storm serializes
+ * the events with Java serialization.
+ */
+public class StormKryoDecorator implements IKryoDecorator {
+
+	@Override
+	public void decorate(Kryo kryo) {
+		KryoRegistry.register(kryo);
+	}
+}
@@ -20,6 +20,8 @@ package com.yahoo.labs.samoa.topology.impl;
  * #L%
  */
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -27,10 +29,12 @@ import java.util.UUID;
 
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.topology.AbstractProcessingItem;
 import com.yahoo.labs.samoa.topology.ProcessingItem;
 import com.yahoo.labs.samoa.topology.Stream;
 import com.yahoo.labs.samoa.topology.impl.StormStream.InputStreamId;
+import com.yahoo.labs.samoa.utils.InstancesHeaderRegistry;
 import com.yahoo.labs.samoa.utils.PartitioningScheme;
 
 import backtype.storm.task.OutputCollector;
@@ -123,6 +127,8 @@ class StormProcessingItem extends AbstractProcessingItem implements StormTopolog
 		
 		private final Set<StormBoltStream> streams;
 		private final Processor processor;
+		// headers published by the task, for the instance serializers of the worker
+		private Map<Long, Instances> headers;
 		
 		private OutputCollector collector;
 		
@@ -135,6 +141,9 @@ class StormProcessingItem extends AbstractProcessingItem implements StormTopolog
 		public void prepare(@SuppressWarnings("rawtypes") Map stormConf, TopologyContext context,
 				OutputCollector collector) {
 			this.collector = collector;	
+			if (headers != null) {
+				InstancesHeaderRegistry.publishAll(headers);
+			}
 			//Processor and this class share the same instance of stream
 			for(StormBoltStream stream: streams){
 				stream.setCollector(this.collector);
@@ -164,6 +173,11 @@ class StormProcessingItem extends AbstractProcessingItem implements StormTopolog
 			streams.add(stream);
 			return stream;
 		}
+		
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			this.headers = InstancesHeaderRegistry.snapshot();
+			out.defaultWriteObject();
+		}
 	}
 }
 
@@ -10,6 +10,7 @@ import com.github.javacliparser.ClassOption;
 import com.yahoo.labs.samoa.tasks.Task;
 import com.yahoo.labs.samoa.topology.impl.ThreadsComponentFactory;
 import com.yahoo.labs.samoa.topology.impl.ThreadsEngine;
+import com.yahoo.labs.samoa.topology.impl.ThreadsWaitStrategy;
 
 /**
  * @author Anh Thu Vu
@@ -44,6 +45,48 @@ public class LocalThreadsDoTask {
         }
         logger.info("Number of threads:{}", numThreads);
         
+        // Get mailbox capacity and wait strategy for mailbox mode
+        int mailboxCapacity = 0;
+        ThreadsWaitStrategy waitStrategy = ThreadsWaitStrategy.PARK;
+        for (int i=0; i<tmpArgs.size()-1; i++) {
+        	if (tmpArgs.get(i).equals("-mailbox")) {
+        		try {
+        			mailboxCapacity = Integer.parseInt(tmpArgs.get(i+1));
+        			tmpArgs.remove(i+1);
+        			tmpArgs.remove(i);
+        		} catch (NumberFormatException e) {
+        			logger.error("Invalid mailbox capacity: {}", tmpArgs.get(i+1));
+        		}
+        	}
+        }
+        for (int i=0; i<tmpArgs.size()-1; i++) {
+        	if (tmpArgs.get(i).equals("-wait")) {
+        		try {
+        			waitStrategy = ThreadsWaitStrategy.fromString(tmpArgs.get(i+1));
+        			tmpArgs.remove(i+1);
+        			tmpArgs.remove(i);
+        		} catch (IllegalArgumentException e) {
+        			logger.error("Invalid wait strategy (spin, yield or park): {}", tmpArgs.get(i+1));
+        		}
+        	}
+        }
+        // Get the interval (ms) for monitoring and rebalancing threads
+        for (int i=0; i<tmpArgs.size()-1; i++) {
+        	if (tmpArgs.get(i).equals("-monitor")) {
+        		try {
+        			ThreadsEngine.setMonitorInterval(Long.parseLong(tmpArgs.get(i+1)));
+        			tmpArgs.remove(i+1);
+        			tmpArgs.remove(i);
+        		} catch (NumberFormatException e) {
+        			logger.error("Invalid monitor interval: {}", tmpArgs.get(i+1));
+        		}
+        	}
+        }
+        if (mailboxCapacity > 0) {
+        	logger.info("Mailbox capacity:{}, wait strategy:{}", mailboxCapacity, waitStrategy);
+        	ThreadsEngine.setMailboxMode(mailboxCapacity, waitStrategy);
+        }
+        
         args = tmpArgs.toArray(new String[0]);
 
         StringBuilder cliString = new StringBuilder();
@@ -23,11 +23,18 @@ package com.yahoo.labs.samoa.topology.impl;
 import com.yahoo.labs.samoa.topology.Topology;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * Multithreaded engine.
  * @author Anh Thu Vu
@@ -35,8 +42,83 @@ import java.util.concurrent.TimeUnit;
  */
 public class ThreadsEngine {
 	
+	private static final Logger logger = LoggerFactory.getLogger(ThreadsEngine.class);
+	
 	private static final List<ExecutorService> threadPool = new ArrayList<ExecutorService>();
 	
+	/*
+	 * Scheduling: placement of the replicas on the threads, work-stealing pool
+	 * for stateless PIs, and periodic load monitoring (and rebalancing in mailbox mode)
+	 */
+	private static ThreadsScheduler scheduler = new ThreadsScheduler();
+	private static ForkJoinPool workStealingPool;
+	private static ScheduledExecutorService monitor;
+	private static long monitorInterval = 0;
+	
+	/*
+	 * Mailbox mode: each thread runs a ThreadsWorker which processes the events
+	 * from the bounded mailboxes of the PI replicas assigned to it.
+	 * A capacity of 0 (default) means that events are submitted as tasks to
+	 * the (unbounded) queues of the single-thread executors.
+	 */
+	private static final List<ThreadsWorker> workers = new ArrayList<ThreadsWorker>();
+	private static int mailboxCapacity = 0;
+	private static ThreadsWaitStrategy waitStrategy = ThreadsWaitStrategy.PARK;
+	
+	public static void setMailboxMode(int capacity, ThreadsWaitStrategy strategy) {
+		if (capacity < 0)
+			throw new IllegalStateException("Mailbox capacity cannot be negative.");
+		if (threadPool.size() > 0)
+			throw new IllegalStateException("Mailbox mode must be set before creating the threads pool.");
+		mailboxCapacity = capacity;
+		waitStrategy = strategy;
+	}
+	
+	public static boolean isMailboxMode() {
+		return mailboxCapacity > 0;
+	}
+	
+	public static int getMailboxCapacity() {
+		return mailboxCapacity;
+	}
+	
+	public static ThreadsWaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+	
+	public static ThreadsScheduler getScheduler() {
+		return scheduler;
+	}
+	
+	/**
+	 * Set the interval at which the utilisation of the threads is logged and, in
+	 * mailbox mode, replicas are rebalanced between threads. 0 (default) disables it,
+	 * together with the measure of the processing time of the replicas.
+	 * Must be set before the topology is started.
+	 */
+	public static void setMonitorInterval(long milliseconds) {
+		if (milliseconds < 0)
+			throw new IllegalStateException("Monitor interval cannot be negative.");
+		monitorInterval = milliseconds;
+	}
+	
+	/**
+	 * @return true if the load of the replicas is monitored, i.e. if their
+	 * processing time must be measured
+	 */
+	public static boolean isMonitorEnabled() {
+		return monitorInterval > 0;
+	}
+	
+	/**
+	 * Pool used to run the events of the replicas of StatelessProcessors in executor mode.
+	 */
+	public static synchronized ExecutorService getWorkStealingPool() {
+		if (workStealingPool == null)
+			workStealingPool = new ForkJoinPool(Math.max(1, threadPool.size()));
+		return workStealingPool;
+	}
+	
 	/*
 	 * Create and manage threads
 	 */
@@ -49,7 +131,13 @@ public class ThreadsEngine {
 		
 		if (threadPool.size() < numThreads) {
 			for (int i=threadPool.size(); i<numThreads; i++) {
-				threadPool.add(Executors.newSingleThreadExecutor());
+				ExecutorService thread = Executors.newSingleThreadExecutor();
+				threadPool.add(thread);
+				if (isMailboxMode()) {
+					ThreadsWorker worker = new ThreadsWorker(waitStrategy);
+					workers.add(worker);
+					thread.submit(worker);
+				}
 			}
 		}
 	}
@@ -65,6 +153,13 @@ public class ThreadsEngine {
 		return threadPool.get(index);
 	}
 	
+	public static ThreadsWorker getWorkerWithIndex(int index) {
+		if (workers.size() <= 0 )
+			throw new IllegalStateException("Try to get ThreadsWorker from an empty pool (is mailbox mode enabled?).");
+		index %= workers.size();
+		return workers.get(index);
+	}
+	
 	/*
 	 * Submit topology and start
 	 */
@@ -75,13 +170,50 @@ public class ThreadsEngine {
 	
 	public static void submitTopology(Topology topology, int numThreads) {
 		ThreadsEngine.setNumberOfThreads(numThreads);
+		ThreadsEngine.startMonitor();
 		ThreadsEngine.submitTopology(topology);
 	}
 	
+	/*
+	 * Monitor
+	 */
+	private static void startMonitor() {
+		if (monitorInterval <= 0 || monitor != null) return;
+		monitor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "samoa-threads-monitor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		monitor.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				scheduler.updateLoad();
+				logger.info("Thread utilisation: {}", Arrays.toString(scheduler.getThreadUtilisation()));
+				if (scheduler.rebalance()) 
+					logger.info("Moved one replica to rebalance the threads.");
+			}
+		}, monitorInterval, monitorInterval, TimeUnit.MILLISECONDS);
+	}
+	
 	/* 
 	 * Stop
 	 */
 	public static void clearThreadPool() {
+		if (monitor != null) {
+			monitor.shutdownNow();
+			monitor = null;
+		}
+		
+		for (ThreadsWorker worker:workers) {
+			worker.stop();
+		}
+		
+		// the stolen tasks of stateless replicas run before the threads stop
+		shutdownWorkStealingPool();
+		
 		for (ExecutorService pool:threadPool) {
 			pool.shutdown();
 		}
@@ -95,6 +227,22 @@ public class ThreadsEngine {
 		}
 		
 		threadPool.clear();
+		workers.clear();
+		// in case the threads submitted new stateless tasks meanwhile
+		shutdownWorkStealingPool();
+		scheduler = new ThreadsScheduler();
+	}
+	
+	private static synchronized void shutdownWorkStealingPool() {
+		if (workStealingPool != null) {
+			workStealingPool.shutdown();
+			try {
+				workStealingPool.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			workStealingPool = null;
+		}
 	}
 
 }
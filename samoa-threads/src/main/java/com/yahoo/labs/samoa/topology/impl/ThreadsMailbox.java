@@ -0,0 +1,229 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+
+/**
+ * Bounded mailbox of a ThreadsProcessingItemInstance in mailbox mode.
+ * The mailbox is a pre-allocated ring buffer with a single consumer (the
+ * ThreadsWorker owning the replica) and either a single or multiple producers,
+ * so that enqueuing and dequeuing an event does not allocate anything.
+ * </p>
+ * When the ring is full, {@link #put(ContentEvent)} applies back-pressure:
+ * the producer waits with the configured wait strategy, a worker thread helping
+ * by processing events of its own replicas meanwhile. The only exception is when
+ * waiting would deadlock: the consumer of the mailbox is waiting, directly or
+ * through other workers, for the producer itself (e.g. two replicas in a feedback
+ * loop blocked on each other's full mailboxes, or a replica sending events to
+ * itself). The event is then spilled to an overflow queue, which is drained after
+ * the ring. As long as the overflow is not empty, producers do not write to the
+ * ring so the order of the events from one producer is kept.
+ * </p>
+ * A slow consumer therefore never makes the overflow grow: the overflow only holds
+ * the events produced by a cycle of the topology from the events already in it,
+ * and the entrance thread, which never spills, waits meanwhile.
+ */
+public class ThreadsMailbox {
+
+	// Longest chain of waiting workers followed to find a cycle
+	private static final int MAX_WAIT_CHAIN = 64;
+
+	private final AtomicReferenceArray<ContentEvent> buffer;
+	private final int capacity;
+	private final int mask;
+	private final boolean singleProducer;
+
+	private final AtomicLong head = new AtomicLong(); // next index to read
+	private final AtomicLong tail = new AtomicLong(); // next index to write
+
+	private final Queue<ContentEvent> overflow = new ConcurrentLinkedQueue<ContentEvent>();
+
+	private volatile ThreadsWorker consumer;
+	private final ThreadsWaitStrategy waitStrategy;
+
+	public ThreadsMailbox(int capacity, boolean singleProducer, ThreadsWorker consumer, ThreadsWaitStrategy waitStrategy) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Mailbox capacity must be a positive integer.");
+		int size = 1;
+		while (size < capacity) size <<= 1;
+		this.capacity = size;
+		this.mask = size - 1;
+		this.buffer = new AtomicReferenceArray<ContentEvent>(size);
+		this.singleProducer = singleProducer;
+		this.consumer = consumer;
+		this.waitStrategy = waitStrategy;
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	public boolean isSingleProducer() {
+		return this.singleProducer;
+	}
+	
+	public ThreadsWorker getConsumer() {
+		return this.consumer;
+	}
+	
+	/*
+	 * Change the worker which consumes this mailbox.
+	 * Must only be called by the current consumer (see ThreadsWorker.requestMigration).
+	 */
+	void setConsumer(ThreadsWorker consumer) {
+		this.consumer = consumer;
+	}
+
+	/*
+	 * Producer side
+	 */
+	/**
+	 * Try to enqueue an event without waiting.
+	 * @return false if the ring is full (or events are being spilled)
+	 */
+	public boolean offer(ContentEvent event) {
+		if (!overflow.isEmpty())
+			return false;
+		long t;
+		if (singleProducer) {
+			t = tail.get();
+			if (t - head.get() >= capacity)
+				return false;
+			tail.lazySet(t + 1);
+		}
+		else {
+			do {
+				t = tail.get();
+				if (t - head.get() >= capacity)
+					return false;
+			} while (!tail.compareAndSet(t, t + 1));
+		}
+		buffer.lazySet((int) (t & mask), event);
+		return true;
+	}
+
+	/**
+	 * Enqueue an event, waiting for free space if the mailbox is full.
+	 */
+	public void put(ContentEvent event) {
+		if (!offer(event)) {
+			ThreadsWorker current = ThreadsWorker.current();
+			if (current == null) {
+				waitAndPut(event);
+			}
+			else {
+				helpAndPut(event, current);
+			}
+		}
+		ThreadsWorker consumer = this.consumer;
+		if (consumer != null) consumer.wakeUp();
+	}
+	
+	/*
+	 * Producer outside of the engine (i.e. the entrance PI): wait until there is room.
+	 */
+	private void waitAndPut(ContentEvent event) {
+		int round = 0;
+		while (!offer(event)) {
+			ThreadsWorker consumer = this.consumer;
+			if (consumer != null) consumer.wakeUp();
+			waitStrategy.idle(round++);
+		}
+	}
+	
+	/*
+	 * Producer running on a worker: help with the replicas of the current worker
+	 * while waiting, and spill instead of waiting only when the consumer cannot
+	 * drain this mailbox until the current worker goes on.
+	 */
+	private void helpAndPut(ContentEvent event, ThreadsWorker current) {
+		int round = 0;
+		try {
+			while (!offer(event)) {
+				ThreadsWorker consumer = this.consumer;
+				if (consumer == null || (consumer != current && waitsFor(consumer, current))) {
+					overflow.add(event);
+					return;
+				}
+				current.setWaitingFor(null);
+				if (current.helpOnce()) {
+					round = 0;
+					continue;
+				}
+				if (consumer == current) {
+					// the replica which consumes this mailbox is the busy one
+					overflow.add(event);
+					return;
+				}
+				current.setWaitingFor(consumer);
+				consumer.wakeUp();
+				waitStrategy.idle(round++);
+			}
+		} finally {
+			current.setWaitingFor(null);
+		}
+	}
+
+	/*
+	 * Whether a worker waits, through a chain of workers waiting for full mailboxes,
+	 * for the given worker
+	 */
+	private static boolean waitsFor(ThreadsWorker worker, ThreadsWorker target) {
+		for (int i = 0; i < MAX_WAIT_CHAIN; i++) {
+			worker = worker.getWaitingFor();
+			if (worker == null) return false;
+			if (worker == target) return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Consumer side (single thread)
+	 */
+	/**
+	 * Dequeue the next event.
+	 * @return the next event, or null if there is no available event
+	 */
+	public ContentEvent poll() {
+		long h = head.get();
+		int index = (int) (h & mask);
+		ContentEvent event = buffer.get(index);
+		if (event == null)
+			return overflow.poll();
+		buffer.lazySet(index, null);
+		head.lazySet(h + 1);
+		return event;
+	}
+
+	public boolean isEmpty() {
+		return buffer.get((int) (head.get() & mask)) == null && overflow.isEmpty();
+	}
+
+	public int size() {
+		return (int) (tail.get() - head.get()) + overflow.size();
+	}
+}
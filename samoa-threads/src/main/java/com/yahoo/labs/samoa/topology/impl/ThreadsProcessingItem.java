@@ -25,7 +25,10 @@ import java.util.List;
 
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.core.StatelessProcessor;
 import com.yahoo.labs.samoa.topology.AbstractProcessingItem;
+import com.yahoo.labs.samoa.topology.EntranceProcessingItem;
+import com.yahoo.labs.samoa.topology.IProcessingItem;
 import com.yahoo.labs.samoa.topology.ProcessingItem;
 import com.yahoo.labs.samoa.topology.Stream;
 import com.yahoo.labs.samoa.utils.PartitioningScheme;
@@ -43,19 +46,20 @@ public class ThreadsProcessingItem extends AbstractProcessingItem {
 	private List<ThreadsProcessingItemInstance> piInstances;
 	
 	// Each replica of ProcessingItem is assigned to one of the
-	// available threads in a round-robin fashion, i.e.: each 
-	// replica is associated with the index of a thread. 
-	// Each ProcessingItem has a random offset variable so that
-	// the allocation of PI replicas to threads are spread evenly
-	// among all threads.
-	private int offset;
+	// available threads by the ThreadsScheduler of the engine,
+	// which spreads the replicas of all PIs evenly among all threads.
+	// Replicas of StatelessProcessors are not assigned to a thread
+	// (they run on the work-stealing pool) except in mailbox mode.
+	
+	// Number of PI replicas which can put events in the mailboxes
+	// of this PI's replicas (only used in mailbox mode)
+	private int numProducers = 0;
 	
 	/*
 	 * Constructor
 	 */
 	public ThreadsProcessingItem(Processor processor, int parallelismHint) {
 		super(processor, parallelismHint);
-		this.offset = (int) (Math.random()*ThreadsEngine.getNumberOfThreads());
 	}
 	
 	public List<ThreadsProcessingItemInstance> getProcessingItemInstances() {
@@ -69,8 +73,21 @@ public class ThreadsProcessingItem extends AbstractProcessingItem {
     protected ProcessingItem addInputStream(Stream inputStream, PartitioningScheme scheme) {
 		StreamDestination destination = new StreamDestination(this, this.getParallelism(), scheme);
 		((ThreadsStream) inputStream).addDestination(destination);
+		this.numProducers += getNumberOfProducers(inputStream);
 		return this;
 	}
+	
+	private static int getNumberOfProducers(Stream inputStream) {
+		if (inputStream instanceof ThreadsStream) {
+			IProcessingItem sourcePi = ((ThreadsStream) inputStream).getSourceProcessingItem();
+			if (sourcePi instanceof ThreadsProcessingItem)
+				return ((ThreadsProcessingItem) sourcePi).getParallelism();
+			if (sourcePi instanceof EntranceProcessingItem)
+				return 1;
+		}
+		// Unknown source: assume there can be several producers
+		return 2;
+	}
 
 	/*
 	 * Process the received event.
@@ -80,7 +97,17 @@ public class ThreadsProcessingItem extends AbstractProcessingItem {
 			throw new IllegalStateException("ThreadsWorkerProcessingItem(s) need to be setup before process any event (i.e. in ThreadsTopology.start()).");
 		
 		ThreadsProcessingItemInstance piInstance = this.piInstances.get(counter);
+		ThreadsMailbox mailbox = piInstance.getMailbox();
+		if (mailbox != null) {
+			mailbox.put(event);
+			return;
+		}
 		ThreadsEventRunnable runnable = new ThreadsEventRunnable(piInstance, event);
+		if (piInstance.isStateless()) {
+			// No ordering to keep: let any idle thread pick the event up
+			ThreadsEngine.getWorkStealingPool().execute(runnable);
+			return;
+		}
 		ThreadsEngine.getThreadWithIndex(piInstance.getThreadIndex()).submit(runnable);
 	}
 	
@@ -94,7 +121,25 @@ public class ThreadsProcessingItem extends AbstractProcessingItem {
 		for (int i=0; i<this.getParallelism(); i++) {
 			Processor newProcessor = this.getProcessor().newProcessor(this.getProcessor());
 			newProcessor.onCreate(i + 1);
-			this.piInstances.add(new ThreadsProcessingItemInstance(newProcessor, this.offset + i));
+			ThreadsScheduler scheduler = ThreadsEngine.getScheduler();
+			ThreadsProcessingItemInstance instance;
+			if (ThreadsEngine.isMailboxMode()) {
+				int threadIndex = scheduler.assignThread();
+				ThreadsWorker worker = ThreadsEngine.getWorkerWithIndex(threadIndex);
+				ThreadsMailbox mailbox = new ThreadsMailbox(ThreadsEngine.getMailboxCapacity(), 
+						this.numProducers <= 1, worker, ThreadsEngine.getWaitStrategy());
+				instance = new ThreadsProcessingItemInstance(newProcessor, threadIndex, mailbox);
+				worker.register(instance);
+			}
+			else if (newProcessor instanceof StatelessProcessor) {
+				// Runs on the work-stealing pool, not pinned to a thread
+				instance = new ThreadsProcessingItemInstance(newProcessor, -1);
+			}
+			else {
+				instance = new ThreadsProcessingItemInstance(newProcessor, scheduler.assignThread());
+			}
+			this.piInstances.add(instance);
+			scheduler.register(instance);
 		}
 	}
 
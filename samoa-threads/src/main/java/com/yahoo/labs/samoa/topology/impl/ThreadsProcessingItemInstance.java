@@ -20,8 +20,11 @@ package com.yahoo.labs.samoa.topology.impl;
  * #L%
  */
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.core.StatelessProcessor;
 
 /**
  * Lightweight replicas of ThreadProcessingItem.
@@ -33,22 +36,109 @@ import com.yahoo.labs.samoa.core.Processor;
 public class ThreadsProcessingItemInstance {
 
 	private Processor processor;
-	private int threadIndex;
+	private volatile int threadIndex;
+	
+	// Load of the replica, used by ThreadsScheduler.
+	// Only measured when the engine monitors the threads.
+	private final boolean measured;
+	private final AtomicLong eventCount = new AtomicLong();
+	private final AtomicLong busyNanos = new AtomicLong();
+	
+	// Time spent by the current thread in the events processed further down the stack 
+	// (e.g. by ThreadsWorker.helpOnce while waiting for a full mailbox), not counted twice
+	private static final ThreadLocal<long[]> nestedNanos = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+	
+	// Only used in mailbox mode
+	private ThreadsMailbox mailbox;
+	private boolean busy;
 	
 	public ThreadsProcessingItemInstance(Processor processor, int threadIndex) {
+		this(processor, threadIndex, ThreadsEngine.isMonitorEnabled());
+	}
+	
+	ThreadsProcessingItemInstance(Processor processor, int threadIndex, boolean measured) {
 		this.processor = processor;
 		this.threadIndex = threadIndex;
+		this.measured = measured;
+	}
+	
+	public ThreadsProcessingItemInstance(Processor processor, int threadIndex, ThreadsMailbox mailbox) {
+		this(processor, threadIndex);
+		this.mailbox = mailbox;
 	}
 	
 	public int getThreadIndex() {
 		return this.threadIndex;
 	}
 	
+	/*
+	 * Move this replica to another thread (mailbox mode only, 
+	 * done by the ThreadsWorker owning the replica)
+	 */
+	void setThreadIndex(int threadIndex) {
+		this.threadIndex = threadIndex;
+	}
+	
 	public Processor getProcessor() {
 		return this.processor;
 	}
+	
+	public ThreadsMailbox getMailbox() {
+		return this.mailbox;
+	}
+	
+	/*
+	 * Whether this replica is currently processing an event.
+	 * Only accessed by the thread of the ThreadsWorker owning this replica.
+	 */
+	boolean isBusy() {
+		return this.busy;
+	}
+	
+	void setBusy(boolean busy) {
+		this.busy = busy;
+	}
+
+	public boolean isStateless() {
+		return this.processor instanceof StatelessProcessor;
+	}
+	
+	/*
+	 * Load metrics (always 0 if the replica is not measured)
+	 */
+	public long getEventCount() {
+		return this.eventCount.get();
+	}
+	
+	/**
+	 * @return total time spent in Processor.process, in nanoseconds
+	 */
+	public long getBusyNanos() {
+		return this.busyNanos.get();
+	}
 
 	public void processEvent(ContentEvent event) {
-		this.processor.process(event);
+		if (!this.measured) {
+			this.processor.process(event);
+			return;
+		}
+		long[] nested = nestedNanos.get();
+		long outerNested = nested[0];
+		nested[0] = 0;
+		long start = System.nanoTime();
+		try {
+			this.processor.process(event);
+		}
+		finally {
+			long elapsed = System.nanoTime() - start;
+			this.busyNanos.addAndGet(elapsed - nested[0]);
+			nested[0] = outerNested + elapsed;
+			this.eventCount.incrementAndGet();
+		}
 	}
 }
@@ -0,0 +1,184 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Places the replicas of ThreadsProcessingItems on the threads of the ThreadsEngine
+ * and keeps track of their load.
+ * </p>
+ * Replicas are assigned to the thread whose replicas spent the least time processing 
+ * events so far, and among equally loaded threads (e.g. before the topology starts) to 
+ * the one with the smallest number of (stateful) replicas, so that PIs with a small 
+ * parallelism (e.g. the model aggregator and the evaluator) do not end up on the same 
+ * thread while other threads are idle. Replicas of StatelessProcessors are not pinned 
+ * in executor mode: they run on the work-stealing pool.
+ * </p>
+ * The time spent by each replica in Processor.process is used to report the utilisation 
+ * of each thread and, in mailbox mode, to move replicas from the busiest thread to the 
+ * least busy one at runtime (see {@link #rebalance()}).
+ */
+public class ThreadsScheduler {
+	
+	// Minimum difference of utilisation between two threads to trigger a migration
+	private static final double IMBALANCE_THRESHOLD = 0.1;
+
+	private final List<ThreadsProcessingItemInstance> instances = new ArrayList<ThreadsProcessingItemInstance>();
+	private int[] assignedReplicas = new int[0];
+	
+	// Snapshot of the busy time of each replica at the last call to updateLoad()
+	private long[] lastBusyNanos = new long[0];
+	private long lastSnapshotTime = System.nanoTime();
+	private double[] replicaLoad = new double[0];
+	private double[] threadUtilisation = new double[0];
+	
+	/*
+	 * Placement
+	 */
+	/**
+	 * @return the index of the thread on which a new (stateful) replica should run
+	 */
+	public synchronized int assignThread() {
+		int numThreads = Math.max(1, ThreadsEngine.getNumberOfThreads());
+		if (assignedReplicas.length < numThreads) 
+			assignedReplicas = Arrays.copyOf(assignedReplicas, numThreads);
+		long[] threadBusyNanos = new long[numThreads];
+		for (ThreadsProcessingItemInstance instance : instances) {
+			if (isPinned(instance)) 
+				threadBusyNanos[instance.getThreadIndex() % numThreads] += instance.getBusyNanos();
+		}
+		int best = 0;
+		for (int i=1; i<numThreads; i++) {
+			if (threadBusyNanos[i] < threadBusyNanos[best] 
+					|| (threadBusyNanos[i] == threadBusyNanos[best] && assignedReplicas[i] < assignedReplicas[best])) 
+				best = i;
+		}
+		assignedReplicas[best]++;
+		return best;
+	}
+	
+	public synchronized void register(ThreadsProcessingItemInstance instance) {
+		instances.add(instance);
+	}
+	
+	public synchronized List<ThreadsProcessingItemInstance> getInstances() {
+		return new ArrayList<ThreadsProcessingItemInstance>(instances);
+	}
+	
+	/*
+	 * Load
+	 */
+	/**
+	 * Compute the load of each replica and the utilisation of each thread
+	 * since the previous call.
+	 */
+	public synchronized void updateLoad() {
+		int numThreads = Math.max(1, ThreadsEngine.getNumberOfThreads());
+		int numInstances = instances.size();
+		if (lastBusyNanos.length < numInstances) 
+			lastBusyNanos = Arrays.copyOf(lastBusyNanos, numInstances);
+		
+		long now = System.nanoTime();
+		double elapsed = Math.max(1, now - lastSnapshotTime);
+		lastSnapshotTime = now;
+		
+		replicaLoad = new double[numInstances];
+		threadUtilisation = new double[numThreads];
+		for (int i=0; i<numInstances; i++) {
+			ThreadsProcessingItemInstance instance = instances.get(i);
+			long busy = instance.getBusyNanos();
+			replicaLoad[i] = (busy - lastBusyNanos[i]) / elapsed;
+			lastBusyNanos[i] = busy;
+			if (isPinned(instance)) 
+				threadUtilisation[instance.getThreadIndex() % numThreads] += replicaLoad[i];
+		}
+	}
+	
+	/**
+	 * @return the fraction of time each thread spent processing events 
+	 * between the last two calls to {@link #updateLoad()}
+	 */
+	public synchronized double[] getThreadUtilisation() {
+		return Arrays.copyOf(threadUtilisation, threadUtilisation.length);
+	}
+	
+	/**
+	 * @return the fraction of time each replica (in registration order) spent processing events
+	 * between the last two calls to {@link #updateLoad()}
+	 */
+	public synchronized double[] getReplicaLoad() {
+		return Arrays.copyOf(replicaLoad, replicaLoad.length);
+	}
+	
+	private static boolean isPinned(ThreadsProcessingItemInstance instance) {
+		return instance.getMailbox() != null || !instance.isStateless();
+	}
+	
+	/*
+	 * Rebalance
+	 */
+	/**
+	 * Move one replica from the busiest thread to the least busy one, if this reduces 
+	 * the imbalance between them. Only possible in mailbox mode, where a replica can be
+	 * handed over to another worker together with its mailbox.
+	 * Uses the load computed by the last call to {@link #updateLoad()}.
+	 * @return true if a migration was requested
+	 */
+	public synchronized boolean rebalance() {
+		if (!ThreadsEngine.isMailboxMode() || threadUtilisation.length < 2) return false;
+		
+		int busiest = 0, idlest = 0;
+		for (int i=1; i<threadUtilisation.length; i++) {
+			if (threadUtilisation[i] > threadUtilisation[busiest]) busiest = i;
+			if (threadUtilisation[i] < threadUtilisation[idlest]) idlest = i;
+		}
+		double gap = threadUtilisation[busiest] - threadUtilisation[idlest];
+		if (gap < IMBALANCE_THRESHOLD) return false;
+		
+		// Pick the replica whose load is the closest to half of the gap,
+		// so that the two threads end up as close as possible
+		ThreadsProcessingItemInstance candidate = null;
+		double bestDistance = Double.MAX_VALUE;
+		for (int i=0; i<replicaLoad.length; i++) {
+			ThreadsProcessingItemInstance instance = instances.get(i);
+			if (instance.getThreadIndex() % threadUtilisation.length != busiest) continue;
+			if (replicaLoad[i] <= 0 || replicaLoad[i] >= gap) continue;
+			double distance = Math.abs(replicaLoad[i] - gap / 2);
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				candidate = instance;
+			}
+		}
+		if (candidate == null) return false;
+		
+		ThreadsWorker source = candidate.getMailbox().getConsumer();
+		if (!source.requestMigration(candidate, ThreadsEngine.getWorkerWithIndex(idlest), idlest))
+			return false;
+		if (assignedReplicas.length > Math.max(busiest, idlest)) {
+			assignedReplicas[busiest]--;
+			assignedReplicas[idlest]++;
+		}
+		return true;
+	}
+}
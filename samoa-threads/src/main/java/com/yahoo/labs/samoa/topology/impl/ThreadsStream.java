@@ -23,11 +23,10 @@ package com.yahoo.labs.samoa.topology.impl;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.apache.commons.lang3.builder.HashCodeBuilder;
-
 import com.yahoo.labs.samoa.core.ContentEvent;
 import com.yahoo.labs.samoa.topology.IProcessingItem;
 import com.yahoo.labs.samoa.topology.AbstractStream;
+import com.yahoo.labs.samoa.utils.PartitioningScheme;
 import com.yahoo.labs.samoa.utils.StreamDestination;
 
 /**
@@ -37,17 +36,30 @@ import com.yahoo.labs.samoa.utils.StreamDestination;
  */
 public class ThreadsStream extends AbstractStream {
 	
+	// Round-robin counters used for shuffle partitioning are striped by 
+	// producer thread, so that the replicas of the source PI do not contend
+	// on a lock or on the same cache line. Races between two producers which 
+	// share a stripe are harmless: the events are still spread over the replicas.
+	private static final int NUM_STRIPES = 16;
+	private static final int STRIPE_PADDING = 16; // 16 ints = 64 bytes
+	
 	private List<StreamDestination> destinations;
-	private int counter = 0;
+	private final int[] counters = new int[NUM_STRIPES * STRIPE_PADDING];
 	private int maxCounter = 1;
 	
+	// Destinations flattened into arrays. Built on the first put after
+	// a destination was added (i.e. after the topology is set up).
+	private volatile Routes routes;
+	
 	public ThreadsStream(IProcessingItem sourcePi) {
+		super(sourcePi);
 		destinations = new LinkedList<StreamDestination>();
 	}
 	
 	public void addDestination(StreamDestination destination) {
 		destinations.add(destination);
 		maxCounter *= destination.getParallelism();
+		routes = null;
 	}
 	
 	public List<StreamDestination> getDestinations() {
@@ -55,28 +67,36 @@ public class ThreadsStream extends AbstractStream {
 	}
 	
 	private int getNextCounter() {
-    	if (maxCounter > 0 && counter >= maxCounter) counter = 0;
-    	this.counter++;
-    	return this.counter;
-    }
+		int index = ((int) Thread.currentThread().getId() & (NUM_STRIPES - 1)) * STRIPE_PADDING;
+		int counter = counters[index];
+		if (maxCounter > 0 && counter >= maxCounter) counter = 0;
+		counter++;
+		counters[index] = counter;
+		return counter;
+	}
 
     @Override
-    public synchronized void put(ContentEvent event) {
+    public void put(ContentEvent event) {
     	this.put(event, this.getNextCounter());
     }
     
     private void put(ContentEvent event, int counter) {
+    	Routes r = this.routes;
+    	if (r == null) {
+    		r = new Routes(destinations);
+    		this.routes = r;
+    	}
     	ThreadsProcessingItem pi;
         int parallelism;
-        for (StreamDestination destination:destinations) {
-            pi = (ThreadsProcessingItem) destination.getProcessingItem();
-            parallelism = destination.getParallelism();
-            switch (destination.getPartitioningScheme()) {
+        for (int i = 0; i < r.pis.length; i++) {
+            pi = r.pis[i];
+            parallelism = r.parallelisms[i];
+            switch (r.schemes[i]) {
             case SHUFFLE:
             	pi.processEvent(event, counter%parallelism);
                 break;
             case GROUP_BY_KEY:
-            	pi.processEvent(event, getPIIndexForKey(event.getKey(), parallelism));
+            	pi.processEvent(event, StreamDestination.getPIIndexForEvent(event, parallelism));
                 break;
             case BROADCAST:
             	for (int p = 0; p < parallelism; p++) {
@@ -86,21 +106,28 @@ public class ThreadsStream extends AbstractStream {
             }
         }
     }
-	
-	private static int getPIIndexForKey(String key, int parallelism) {
-		// If key is null, return a default index: 0
-		if (key == null) return 0;
-		
-		// HashCodeBuilder object does not have reset() method
-    	// So all objects that get appended will be included in the 
-    	// computation of the hashcode. 
-    	// To avoid initialize a HashCodeBuilder for each event,
-    	// here I use the static method with reflection on the event's key
-		int index = HashCodeBuilder.reflectionHashCode(key, true) % parallelism;
-		if (index < 0) {
-			index += parallelism;
-		}
-		return index;
-	}
+    
+    /*
+     * Immutable snapshot of the destinations of a stream
+     */
+    private static final class Routes {
+    	final ThreadsProcessingItem[] pis;
+    	final int[] parallelisms;
+    	final PartitioningScheme[] schemes;
+    	
+    	Routes(List<StreamDestination> destinations) {
+    		int size = destinations.size();
+    		pis = new ThreadsProcessingItem[size];
+    		parallelisms = new int[size];
+    		schemes = new PartitioningScheme[size];
+    		int i = 0;
+    		for (StreamDestination destination:destinations) {
+    			pis[i] = (ThreadsProcessingItem) destination.getProcessingItem();
+    			parallelisms[i] = destination.getParallelism();
+    			schemes[i] = destination.getPartitioningScheme();
+    			i++;
+    		}
+    	}
+    }
 
 }
@@ -0,0 +1,69 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategies used by the mailbox mode of the multithreaded engine when a worker
+ * has no event to process, or when a producer finds a full mailbox.
+ * SPIN burns a core for the lowest latency (only use it with a dedicated core
+ * per thread), YIELD gives the core away to other runnable threads, PARK sleeps
+ * for a short (bounded) amount of time and can be woken up early by producers.
+ */
+public enum ThreadsWaitStrategy {
+	SPIN {
+		@Override
+		public void idle(int round) {
+			// busy spin
+		}
+	},
+	YIELD {
+		@Override
+		public void idle(int round) {
+			Thread.yield();
+		}
+	},
+	PARK {
+		@Override
+		public void idle(int round) {
+			// Back off exponentially up to MAX_PARK_NANOS
+			int shift = Math.min(round, MAX_PARK_SHIFT);
+			LockSupport.parkNanos(MIN_PARK_NANOS << shift);
+		}
+	};
+
+	private static final long MIN_PARK_NANOS = 1000L;
+	private static final int MAX_PARK_SHIFT = 10; // ~1ms
+
+	/**
+	 * Wait once.
+	 * @param round number of consecutive rounds without progress (starting at 0)
+	 */
+	public abstract void idle(int round);
+
+	/**
+	 * Parse a strategy name from the command line (case-insensitive).
+	 */
+	public static ThreadsWaitStrategy fromString(String name) {
+		return ThreadsWaitStrategy.valueOf(name.trim().toUpperCase());
+	}
+}
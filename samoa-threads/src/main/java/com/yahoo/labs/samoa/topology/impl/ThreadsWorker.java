@@ -0,0 +1,231 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+
+/**
+ * Event loop of one thread of the engine in mailbox mode.
+ * A worker owns the replicas (ThreadsProcessingItemInstance) assigned to its thread
+ * and processes the events in their mailboxes, at most BATCH_SIZE events per replica
+ * at a time so that one busy replica cannot starve the others.
+ */
+public class ThreadsWorker implements Runnable {
+
+	static final int BATCH_SIZE = 64;
+
+	private static final ThreadLocal<ThreadsWorker> currentWorker = new ThreadLocal<ThreadsWorker>();
+
+	private final ThreadsWaitStrategy waitStrategy;
+
+	// Replicas are registered when the topology is set up, before events are sent
+	private volatile ThreadsProcessingItemInstance[] instances = new ThreadsProcessingItemInstance[0];
+
+	// Replica to hand over to another worker, and its new worker/thread index
+	private volatile ThreadsProcessingItemInstance migratingInstance;
+	private volatile ThreadsWorker migrationTarget;
+	private volatile int migrationThreadIndex;
+	
+	private volatile boolean running = true;
+	private volatile boolean sleeping = false;
+	// Worker whose full mailbox this worker is waiting for, or null
+	private volatile ThreadsWorker waitingFor;
+	private volatile Thread thread;
+
+	public ThreadsWorker(ThreadsWaitStrategy waitStrategy) {
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * @return the worker running on the current thread, or null if the current thread is not a worker
+	 */
+	public static ThreadsWorker current() {
+		return currentWorker.get();
+	}
+
+	public ThreadsWaitStrategy getWaitStrategy() {
+		return this.waitStrategy;
+	}
+
+	public synchronized void register(ThreadsProcessingItemInstance instance) {
+		ThreadsProcessingItemInstance[] newInstances = Arrays.copyOf(instances, instances.length + 1);
+		newInstances[instances.length] = instance;
+		this.instances = newInstances;
+	}
+
+	private synchronized void unregister(ThreadsProcessingItemInstance instance) {
+		ThreadsProcessingItemInstance[] newInstances = new ThreadsProcessingItemInstance[instances.length - 1];
+		int i = 0;
+		for (ThreadsProcessingItemInstance other : instances) {
+			if (other != instance) newInstances[i++] = other;
+		}
+		this.instances = newInstances;
+	}
+	
+	public ThreadsProcessingItemInstance[] getInstances() {
+		return this.instances;
+	}
+	
+	/**
+	 * Ask this worker to hand one of its replicas (with its mailbox) over to another worker.
+	 * The handover is done by this worker between two events, so the replica is never 
+	 * processed by two threads at the same time and the order of its events is kept.
+	 * @return false if a previous migration is still pending
+	 */
+	public synchronized boolean requestMigration(ThreadsProcessingItemInstance instance, ThreadsWorker target, int targetThreadIndex) {
+		if (migratingInstance != null) return false;
+		this.migrationTarget = target;
+		this.migrationThreadIndex = targetThreadIndex;
+		this.migratingInstance = instance;
+		wakeUp();
+		return true;
+	}
+	
+	private void migrate() {
+		ThreadsProcessingItemInstance instance = this.migratingInstance;
+		if (instance == null) return;
+		unregister(instance);
+		instance.setThreadIndex(migrationThreadIndex);
+		instance.getMailbox().setConsumer(migrationTarget);
+		migrationTarget.register(instance);
+		migrationTarget.wakeUp();
+		this.migratingInstance = null;
+	}
+
+	/*
+	 * Event loop
+	 */
+	@Override
+	public void run() {
+		currentWorker.set(this);
+		this.thread = Thread.currentThread();
+		int idleRounds = 0;
+		try {
+			while (running || hasPendingEvents()) {
+				if (migratingInstance != null) {
+					migrate();
+				}
+				if (processAvailableEvents()) {
+					idleRounds = 0;
+				}
+				else if (running) {
+					sleeping = true;
+					if (!hasPendingEvents())
+						waitStrategy.idle(idleRounds++);
+					sleeping = false;
+				}
+			}
+		} finally {
+			currentWorker.remove();
+			this.thread = null;
+		}
+	}
+
+	/**
+	 * Process up to BATCH_SIZE events of each idle replica.
+	 * @return true if at least one event was processed
+	 */
+	boolean processAvailableEvents() {
+		boolean progress = false;
+		for (ThreadsProcessingItemInstance instance : instances) {
+			if (instance.isBusy()) continue;
+			ThreadsMailbox mailbox = instance.getMailbox();
+			ContentEvent event;
+			for (int i = 0; i < BATCH_SIZE && (event = mailbox.poll()) != null; i++) {
+				process(instance, event);
+				progress = true;
+				if (migratingInstance == instance) break;
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Process one event of a replica owned by this worker which is not already
+	 * processing an event further down the stack.
+	 * Called by producers running on this worker while they wait for a full mailbox.
+	 * @return true if an event was processed
+	 */
+	boolean helpOnce() {
+		for (ThreadsProcessingItemInstance instance : instances) {
+			if (instance.isBusy()) continue;
+			ContentEvent event = instance.getMailbox().poll();
+			if (event != null) {
+				process(instance, event);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean hasPendingEvents() {
+		for (ThreadsProcessingItemInstance instance : instances) {
+			if (!instance.getMailbox().isEmpty()) return true;
+		}
+		return false;
+	}
+
+	private void process(ThreadsProcessingItemInstance instance, ContentEvent event) {
+		instance.setBusy(true);
+		try {
+			instance.processEvent(event);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+		}
+		finally {
+			instance.setBusy(false);
+		}
+	}
+
+	/*
+	 * The worker consuming the full mailbox this worker is waiting for, or null
+	 */
+	ThreadsWorker getWaitingFor() {
+		return this.waitingFor;
+	}
+	
+	void setWaitingFor(ThreadsWorker worker) {
+		this.waitingFor = worker;
+	}
+	
+	/*
+	 * Wake up & stop
+	 */
+	public void wakeUp() {
+		if (sleeping) {
+			Thread t = this.thread;
+			if (t != null) LockSupport.unpark(t);
+		}
+	}
+
+	/**
+	 * Ask the worker to stop once all its mailboxes are drained.
+	 */
+	public void stop() {
+		this.running = false;
+		Thread t = this.thread;
+		if (t != null) LockSupport.unpark(t);
+	}
+}
@@ -0,0 +1,229 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.core.Processor;
+
+public class ThreadsMailboxTest {
+
+	private static class TestEvent implements ContentEvent {
+		private static final long serialVersionUID = 1L;
+		final int producer;
+		final int sequence;
+		TestEvent(int producer, int sequence) {
+			this.producer = producer;
+			this.sequence = sequence;
+		}
+		@Override public String getKey() { return null; }
+		@Override public void setKey(String key) { }
+		@Override public boolean isLastEvent() { return false; }
+	}
+
+	@Test
+	public void testCapacityIsRoundedToPowerOfTwo() {
+		ThreadsMailbox mailbox = new ThreadsMailbox(5, true, null, ThreadsWaitStrategy.YIELD);
+		assertEquals("Capacity was not rounded up.", 8, mailbox.getCapacity());
+	}
+
+	@Test
+	public void testOfferAndPollInOrder() {
+		ThreadsMailbox mailbox = new ThreadsMailbox(4, true, null, ThreadsWaitStrategy.YIELD);
+		for (int i=0; i<4; i++) {
+			assertTrue("Offer failed before the mailbox was full.", mailbox.offer(new TestEvent(0, i)));
+		}
+		assertFalse("Offer succeeded on a full mailbox.", mailbox.offer(new TestEvent(0, 4)));
+		assertEquals(4, mailbox.size());
+		for (int i=0; i<4; i++) {
+			assertEquals("Events are not polled in FIFO order.", i, ((TestEvent) mailbox.poll()).sequence);
+		}
+		assertNull(mailbox.poll());
+		assertTrue(mailbox.isEmpty());
+	}
+
+	@Test(timeout = 10000)
+	public void testMultipleProducersKeepPerProducerOrder() throws InterruptedException {
+		final int numProducers = 4;
+		final int numEvents = 100000;
+		final ThreadsMailbox mailbox = new ThreadsMailbox(64, false, null, ThreadsWaitStrategy.YIELD);
+		for (int p=0; p<numProducers; p++) {
+			final int producer = p;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i=0; i<numEvents; i++) {
+						mailbox.put(new TestEvent(producer, i));
+					}
+				}
+			}).start();
+		}
+
+		int[] expected = new int[numProducers];
+		int received = 0;
+		while (received < numProducers * numEvents) {
+			TestEvent event = (TestEvent) mailbox.poll();
+			if (event == null) {
+				Thread.yield();
+				continue;
+			}
+			assertEquals("Events of one producer are out of order.", expected[event.producer], event.sequence);
+			expected[event.producer]++;
+			received++;
+		}
+		assertTrue(mailbox.isEmpty());
+	}
+
+	@Test(timeout = 10000)
+	public void testWorkerSelfLoopDoesNotDeadlock() throws InterruptedException {
+		final int numEvents = 1000;
+		final CountDownLatch done = new CountDownLatch(numEvents);
+		ThreadsWorker worker = new ThreadsWorker(ThreadsWaitStrategy.YIELD);
+		final ThreadsMailbox mailbox = new ThreadsMailbox(2, false, worker, ThreadsWaitStrategy.YIELD);
+		// Each event re-emits two events into the (full) mailbox of the same replica
+		Processor processor = new Processor() {
+			private static final long serialVersionUID = 1L;
+			@Override
+			public boolean process(ContentEvent event) {
+				TestEvent e = (TestEvent) event;
+				if (e.sequence < numEvents / 2) {
+					mailbox.put(new TestEvent(0, 2 * e.sequence + 1));
+					mailbox.put(new TestEvent(0, 2 * e.sequence + 2));
+				}
+				done.countDown();
+				return true;
+			}
+			@Override public void onCreate(int id) { }
+			@Override public Processor newProcessor(Processor p) { return p; }
+		};
+		worker.register(new ThreadsProcessingItemInstance(processor, 0, mailbox));
+		Thread thread = new Thread(worker);
+		thread.start();
+
+		mailbox.put(new TestEvent(0, 0));
+		assertTrue("Worker deadlocked on its own full mailbox.", done.await(5, TimeUnit.SECONDS));
+		worker.stop();
+		thread.join(1000);
+	}
+
+	@Test(timeout = 10000)
+	public void testSlowConsumerIsNotSpilled() throws InterruptedException {
+		final int numEvents = 200;
+		final CountDownLatch done = new CountDownLatch(numEvents);
+		final AtomicInteger maxSize = new AtomicInteger();
+		ThreadsWorker producerWorker = new ThreadsWorker(ThreadsWaitStrategy.YIELD);
+		ThreadsWorker consumerWorker = new ThreadsWorker(ThreadsWaitStrategy.YIELD);
+		final ThreadsMailbox consumerMailbox = new ThreadsMailbox(4, true, consumerWorker, ThreadsWaitStrategy.YIELD);
+		ThreadsMailbox producerMailbox = new ThreadsMailbox(4, true, producerWorker, ThreadsWaitStrategy.YIELD);
+		// One event makes the producer replica send all the events to the slow consumer
+		Processor producer = new Processor() {
+			private static final long serialVersionUID = 1L;
+			@Override
+			public boolean process(ContentEvent event) {
+				for (int i = 0; i < numEvents; i++) {
+					consumerMailbox.put(new TestEvent(0, i));
+					maxSize.set(Math.max(maxSize.get(), consumerMailbox.size()));
+				}
+				return true;
+			}
+			@Override public void onCreate(int id) { }
+			@Override public Processor newProcessor(Processor p) { return p; }
+		};
+		Processor consumer = new Processor() {
+			private static final long serialVersionUID = 1L;
+			@Override
+			public boolean process(ContentEvent event) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+				return true;
+			}
+			@Override public void onCreate(int id) { }
+			@Override public Processor newProcessor(Processor p) { return p; }
+		};
+		producerWorker.register(new ThreadsProcessingItemInstance(producer, 0, producerMailbox));
+		consumerWorker.register(new ThreadsProcessingItemInstance(consumer, 0, consumerMailbox));
+		Thread producerThread = new Thread(producerWorker);
+		Thread consumerThread = new Thread(consumerWorker);
+		producerThread.start();
+		consumerThread.start();
+
+		producerMailbox.put(new TestEvent(1, 0));
+		assertTrue("Events were lost.", done.await(5, TimeUnit.SECONDS));
+		assertTrue("The mailbox grew beyond its capacity: " + maxSize.get(), maxSize.get() <= consumerMailbox.getCapacity());
+		producerWorker.stop();
+		consumerWorker.stop();
+		producerThread.join(1000);
+		consumerThread.join(1000);
+	}
+
+	@Test(timeout = 10000)
+	public void testCycleBetweenWorkersDoesNotDeadlock() throws InterruptedException {
+		final int numEvents = 2000;
+		final CountDownLatch done = new CountDownLatch(numEvents);
+		final ThreadsWorker[] workers = new ThreadsWorker[2];
+		final ThreadsMailbox[] mailboxes = new ThreadsMailbox[2];
+		Thread[] threads = new Thread[2];
+		for (int i = 0; i < 2; i++) {
+			workers[i] = new ThreadsWorker(ThreadsWaitStrategy.YIELD);
+			mailboxes[i] = new ThreadsMailbox(2, true, workers[i], ThreadsWaitStrategy.YIELD);
+		}
+		// Each event re-emits two events into the (full) mailbox of the other replica
+		for (int i = 0; i < 2; i++) {
+			final ThreadsMailbox other = mailboxes[1 - i];
+			Processor processor = new Processor() {
+				private static final long serialVersionUID = 1L;
+				@Override
+				public boolean process(ContentEvent event) {
+					TestEvent e = (TestEvent) event;
+					if (e.sequence < numEvents / 2) {
+						other.put(new TestEvent(0, 2 * e.sequence + 1));
+						other.put(new TestEvent(0, 2 * e.sequence + 2));
+					}
+					done.countDown();
+					return true;
+				}
+				@Override public void onCreate(int id) { }
+				@Override public Processor newProcessor(Processor p) { return p; }
+			};
+			workers[i].register(new ThreadsProcessingItemInstance(processor, i, mailboxes[i]));
+			threads[i] = new Thread(workers[i]);
+			threads[i].start();
+		}
+
+		mailboxes[0].put(new TestEvent(0, 0));
+		assertTrue("Workers deadlocked on each other's full mailboxes.", done.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 2; i++) {
+			workers[i].stop();
+			threads[i].join(1000);
+		}
+	}
+}
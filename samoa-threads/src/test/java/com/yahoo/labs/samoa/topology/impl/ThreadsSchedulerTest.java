@@ -0,0 +1,224 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.core.Processor;
+import com.yahoo.labs.samoa.core.StatelessProcessor;
+
+public class ThreadsSchedulerTest {
+
+	private final int numThreads = 4;
+
+	private static class SleepingProcessor implements Processor {
+		private static final long serialVersionUID = 1L;
+		private final CountDownLatch processed;
+		SleepingProcessor(CountDownLatch processed) {
+			this.processed = processed;
+		}
+		@Override
+		public boolean process(ContentEvent event) {
+			try {
+				Thread.sleep(2);
+			} catch (InterruptedException e) {
+				return false;
+			}
+			if (processed != null) processed.countDown();
+			return true;
+		}
+		@Override public void onCreate(int id) { }
+		@Override public Processor newProcessor(Processor p) { return p; }
+	}
+
+	private static class NestingProcessor implements Processor {
+		private static final long serialVersionUID = 1L;
+		private final ThreadsProcessingItemInstance nested;
+		NestingProcessor(ThreadsProcessingItemInstance nested) {
+			this.nested = nested;
+		}
+		@Override
+		public boolean process(ContentEvent event) {
+			// as a producer helping its worker while it waits for a full mailbox
+			nested.processEvent(event);
+			return true;
+		}
+		@Override public void onCreate(int id) { }
+		@Override public Processor newProcessor(Processor p) { return p; }
+	}
+
+	private static class CountingStatelessProcessor implements StatelessProcessor {
+		private static final long serialVersionUID = 1L;
+		private final CountDownLatch processed;
+		private final AtomicInteger onPool;
+		CountingStatelessProcessor(CountDownLatch processed, AtomicInteger onPool) {
+			this.processed = processed;
+			this.onPool = onPool;
+		}
+		@Override
+		public boolean process(ContentEvent event) {
+			if (Thread.currentThread() instanceof ForkJoinWorkerThread) onPool.incrementAndGet();
+			processed.countDown();
+			return true;
+		}
+		@Override public void onCreate(int id) { }
+		@Override public Processor newProcessor(Processor p) { return p; }
+	}
+
+	private static class TestEvent implements ContentEvent {
+		private static final long serialVersionUID = 1L;
+		@Override public String getKey() { return null; }
+		@Override public void setKey(String key) { }
+		@Override public boolean isLastEvent() { return false; }
+	}
+
+	@After
+	public void cleanup() {
+		ThreadsEngine.clearThreadPool();
+	}
+
+	@Test
+	public void testAssignThreadSpreadsReplicas() {
+		ThreadsEngine.setNumberOfThreads(numThreads);
+		ThreadsScheduler scheduler = new ThreadsScheduler();
+		int[] replicasPerThread = new int[numThreads];
+		for (int i=0; i<2*numThreads; i++) {
+			replicasPerThread[scheduler.assignThread()]++;
+		}
+		for (int i=0; i<numThreads; i++) {
+			assertEquals("Replicas are not spread evenly among threads.", 2, replicasPerThread[i]);
+		}
+	}
+
+	@Test
+	public void testAssignThreadPrefersLeastLoadedThread() {
+		ThreadsEngine.setNumberOfThreads(numThreads);
+		ThreadsScheduler scheduler = new ThreadsScheduler();
+		for (int i=0; i<numThreads; i++) {
+			ThreadsProcessingItemInstance instance = new ThreadsProcessingItemInstance(new SleepingProcessor(null), 
+					scheduler.assignThread(), true);
+			scheduler.register(instance);
+			// all the threads but the third one are busy
+			if (instance.getThreadIndex() != 2) instance.processEvent(new TestEvent());
+		}
+		assertEquals(2, scheduler.assignThread());
+		// the idle thread gets the next replicas too, although it has more of them
+		assertEquals(2, scheduler.assignThread());
+	}
+
+	@Test
+	public void testNestedProcessingIsNotCountedTwice() {
+		ThreadsProcessingItemInstance inner = new ThreadsProcessingItemInstance(new SleepingProcessor(null), 0, true);
+		ThreadsProcessingItemInstance outer = new ThreadsProcessingItemInstance(new NestingProcessor(inner), 0, true);
+		for (int i=0; i<20; i++) {
+			outer.processEvent(new TestEvent());
+		}
+		assertEquals(20, inner.getEventCount());
+		assertTrue("Inner processing was not measured.", inner.getBusyNanos() >= TimeUnit.MILLISECONDS.toNanos(40));
+		assertTrue("Inner processing was counted by the outer replica.", outer.getBusyNanos() < inner.getBusyNanos() / 2);
+	}
+
+	@Test
+	public void testUpdateLoadReportsThreadUtilisation() {
+		ThreadsEngine.setNumberOfThreads(numThreads);
+		ThreadsScheduler scheduler = new ThreadsScheduler();
+		ThreadsProcessingItemInstance instance = new ThreadsProcessingItemInstance(new SleepingProcessor(null), 1, true);
+		scheduler.register(instance);
+		for (int i=0; i<5; i++) {
+			instance.processEvent(new TestEvent());
+		}
+		scheduler.updateLoad();
+		assertEquals("Events were not counted.", 5, instance.getEventCount());
+		double[] utilisation = scheduler.getThreadUtilisation();
+		assertEquals(numThreads, utilisation.length);
+		assertTrue("Busy thread has no utilisation.", utilisation[1] > 0);
+		assertEquals("Idle thread has some utilisation.", 0, utilisation[0], 0);
+	}
+
+	@Test
+	public void testLoadIsNotMeasuredWithoutMonitor() {
+		ThreadsProcessingItemInstance instance = new ThreadsProcessingItemInstance(new SleepingProcessor(null), 0);
+		instance.processEvent(new TestEvent());
+		assertEquals("Events were counted without monitor.", 0, instance.getEventCount());
+		assertEquals(0, instance.getBusyNanos());
+	}
+
+	@Test(timeout = 10000)
+	public void testStatelessReplicasRunOnWorkStealingPool() throws InterruptedException {
+		final int numEvents = 100;
+		ThreadsEngine.setNumberOfThreads(numThreads);
+		CountDownLatch processed = new CountDownLatch(numEvents);
+		AtomicInteger onPool = new AtomicInteger();
+		ThreadsProcessingItem pi = new ThreadsProcessingItem(new CountingStatelessProcessor(processed, onPool), 2);
+		pi.setupInstances();
+		for (ThreadsProcessingItemInstance instance:pi.getProcessingItemInstances()) {
+			assertTrue(instance.isStateless());
+			assertEquals("Stateless replica was pinned to a thread.", -1, instance.getThreadIndex());
+		}
+		for (int i=0; i<numEvents; i++) {
+			pi.processEvent(new TestEvent(), i % 2);
+		}
+		assertTrue("Events were lost.", processed.await(5, TimeUnit.SECONDS));
+		assertEquals("Events did not run on the work-stealing pool.", numEvents, onPool.get());
+	}
+
+	@Test(timeout = 10000)
+	public void testMigrationMovesReplicaWithItsMailbox() throws InterruptedException {
+		final int numEvents = 10;
+		CountDownLatch processed = new CountDownLatch(2 * numEvents);
+		ThreadsWorker source = new ThreadsWorker(ThreadsWaitStrategy.PARK);
+		ThreadsWorker target = new ThreadsWorker(ThreadsWaitStrategy.PARK);
+		ThreadsMailbox mailbox = new ThreadsMailbox(4, true, source, ThreadsWaitStrategy.PARK);
+		ThreadsProcessingItemInstance instance = new ThreadsProcessingItemInstance(new SleepingProcessor(processed), 0, mailbox);
+		source.register(instance);
+		Thread sourceThread = new Thread(source);
+		Thread targetThread = new Thread(target);
+		sourceThread.start();
+		targetThread.start();
+
+		for (int i=0; i<numEvents; i++) {
+			mailbox.put(new TestEvent());
+		}
+		assertTrue("Migration was not accepted.", source.requestMigration(instance, target, 1));
+		for (int i=0; i<numEvents; i++) {
+			mailbox.put(new TestEvent());
+		}
+		assertTrue("Events were lost during migration.", processed.await(5, TimeUnit.SECONDS));
+		assertEquals("Replica was not moved.", 1, instance.getThreadIndex());
+		assertSame("Mailbox consumer was not moved.", target, mailbox.getConsumer());
+		assertEquals(0, source.getInstances().length);
+		assertEquals(1, target.getInstances().length);
+
+		source.stop();
+		target.stop();
+		sourceThread.join(1000);
+		targetThread.join(1000);
+	}
+}
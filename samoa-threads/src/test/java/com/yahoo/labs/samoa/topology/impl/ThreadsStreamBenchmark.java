@@ -0,0 +1,110 @@
+package com.yahoo.labs.samoa.topology.impl;
+
+/*
+ * #%L
+ * SAMOA
+ * %%
+ * Copyright (C) 2013 Yahoo! Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.CountDownLatch;
+
+import com.yahoo.labs.samoa.core.ContentEvent;
+import com.yahoo.labs.samoa.utils.PartitioningScheme;
+import com.yahoo.labs.samoa.utils.StreamDestination;
+
+/**
+ * Micro-benchmark of the routing layer of ThreadsStream: events/sec routed
+ * by ThreadsStream.put vs number of producer threads sharing the stream.
+ * The destination PI only counts the events, so the numbers measure the cost
+ * of partitioning (counters, key hashing, destination lookup) and the contention
+ * between producers.
+ * </p>
+ * Not run by the test suite. Usage: java ThreadsStreamBenchmark [eventsPerProducer]
+ */
+public class ThreadsStreamBenchmark {
+
+	private static final int PARALLELISM = 8;
+
+	private static class CountingProcessingItem extends ThreadsProcessingItem {
+		volatile int sink;
+		CountingProcessingItem(int parallelism) {
+			super(null, parallelism);
+		}
+		@Override
+		public void processEvent(ContentEvent event, int counter) {
+			sink = counter;
+		}
+	}
+
+	private static class KeyedEvent implements ContentEvent {
+		private static final long serialVersionUID = 1L;
+		private String key;
+		KeyedEvent(String key) {
+			this.key = key;
+		}
+		@Override public String getKey() { return key; }
+		@Override public void setKey(String key) { this.key = key; }
+		@Override public boolean isLastEvent() { return false; }
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int eventsPerProducer = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		System.out.println("scheme,producers,events/sec");
+		for (PartitioningScheme scheme : new PartitioningScheme[] { PartitioningScheme.SHUFFLE, PartitioningScheme.GROUP_BY_KEY }) {
+			for (int producers = 1; producers <= 8; producers *= 2) {
+				run(scheme, producers, eventsPerProducer / 10); // warm-up
+				double throughput = run(scheme, producers, eventsPerProducer);
+				System.out.println(String.format("%s,%d,%.0f", scheme, producers, throughput));
+			}
+		}
+	}
+
+	private static double run(PartitioningScheme scheme, int numProducers, final int eventsPerProducer) throws InterruptedException {
+		final ThreadsStream stream = new ThreadsStream(null);
+		stream.addDestination(new StreamDestination(new CountingProcessingItem(PARALLELISM), PARALLELISM, scheme));
+
+		// Pre-allocate events so that the benchmark does not measure allocation
+		final ContentEvent[] events = new ContentEvent[1024];
+		for (int i = 0; i < events.length; i++) {
+			events[i] = new KeyedEvent("key" + i);
+		}
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(numProducers);
+		for (int p = 0; p < numProducers; p++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < eventsPerProducer; i++) {
+						stream.put(events[i & 1023]);
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+		long startTime = System.nanoTime();
+		start.countDown();
+		done.await();
+		long elapsed = System.nanoTime() - startTime;
+		return (double) numProducers * eventsPerProducer * 1e9 / elapsed;
+	}
+}
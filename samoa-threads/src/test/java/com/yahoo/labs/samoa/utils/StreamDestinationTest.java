@@ -34,6 +34,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
+import com.yahoo.labs.samoa.core.PartitionedContentEvent;
 import com.yahoo.labs.samoa.topology.IProcessingItem;
 import com.yahoo.labs.samoa.utils.PartitioningScheme;
 import com.yahoo.labs.samoa.utils.StreamDestination;
@@ -76,5 +77,52 @@ public class StreamDestinationTest {
 		assertEquals("Parallelism value is not set correctly.", parallelism, destination.getParallelism(), 0);
 		assertEquals("EventAllocationType is not set correctly.", scheme, destination.getPartitioningScheme());
 	}
+	
+	@Test
+	public void testGetPIIndexForKey() {
+		assertEquals("Null key should go to the first replica.", 0, StreamDestination.getPIIndexForKey(null, parallelism));
+		for (int i=0; i<1000; i++) {
+			String key = "key" + i;
+			int index = StreamDestination.getPIIndexForKey(key, parallelism);
+			assertTrue("Replica index out of range.", index >= 0 && index < parallelism);
+			assertEquals("Replica index is not deterministic.", index, StreamDestination.getPIIndexForKey(new String(key), parallelism));
+			
+			int longIndex = StreamDestination.getPIIndexForKey(-i * 1000003L, parallelism);
+			assertTrue("Replica index out of range.", longIndex >= 0 && longIndex < parallelism);
+		}
+	}
+
+	@Test
+	public void testSequentialKeysAreSpread() {
+		// sequential keys, as the instance indices and the ensemble member indices
+		int numKeys = 10000;
+		int[] stringCounts = new int[parallelism];
+		int[] longCounts = new int[parallelism];
+		for (int i=0; i<numKeys; i++) {
+			stringCounts[StreamDestination.getPIIndexForKey(Integer.toString(i), parallelism)]++;
+			longCounts[StreamDestination.getPIIndexForKey((long) i, parallelism)]++;
+		}
+		double expected = (double) numKeys / parallelism;
+		for (int i=0; i<parallelism; i++) {
+			assertEquals("Unbalanced replica for string keys.", expected, stringCounts[i], 0.1 * expected);
+			assertEquals("Unbalanced replica for long keys.", expected, longCounts[i], 0.1 * expected);
+		}
+	}
+
+	@Test
+	public void testPartitionedEventGoesToItsPartition() {
+		for (int p=0; p<2*parallelism; p++) {
+			final int partition = p;
+			PartitionedContentEvent event = new PartitionedContentEvent() {
+				private static final long serialVersionUID = 1L;
+				@Override public String getKey() { return "same key"; }
+				@Override public void setKey(String key) { }
+				@Override public boolean isLastEvent() { return false; }
+				@Override public int getPartition() { return partition; }
+			};
+			assertEquals("Partitioned event was not routed by its partition.", 
+					p % parallelism, StreamDestination.getPIIndexForEvent(event, parallelism));
+		}
+	}
 
 }